@@ -0,0 +1,111 @@
+package spacesettlers.objects.resources;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import spacesettlers.actions.PurchaseCosts;
+import spacesettlers.actions.PurchaseTypes;
+
+/**
+ * Benchmarks for the resource piles and purchase costs, which are added, copied
+ * and compared for every mined asteroid, every copied ship and every team each
+ * step.
+ *
+ * Run it with "ant benchmark -Dbench.args='-prof gc ResourcePileBenchmark'".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourcePileBenchmark {
+	/**
+	 * Number of piles used by each benchmark
+	 */
+	static final int NUM_PILES = 100;
+
+	ResourcePile[] piles;
+
+	ResourcePile held;
+
+	PurchaseCosts costs;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		piles = new ResourcePile[NUM_PILES];
+		for (int i = 0; i < NUM_PILES; i++) {
+			piles[i] = new ResourcePile(random.nextInt(500), random.nextInt(500), random.nextInt(500));
+		}
+		held = new ResourcePile();
+		costs = new PurchaseCosts();
+	}
+
+	/**
+	 * What mining does: add the asteroid's pile to the ship and update the mass and
+	 * the total
+	 *
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void mine(Blackhole blackhole) {
+		held.reset();
+		for (int i = 0; i < NUM_PILES; i++) {
+			held.add(piles[i]);
+			blackhole.consume(held.getMass());
+			blackhole.consume(held.getTotal());
+		}
+	}
+
+	/**
+	 * Copy every pile (as deepClone does for every object)
+	 *
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void copy(Blackhole blackhole) {
+		for (int i = 0; i < NUM_PILES; i++) {
+			blackhole.consume(new ResourcePile(piles[i]));
+		}
+	}
+
+	/**
+	 * Check if each pile can buy a ship and pay for it
+	 *
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void purchase(Blackhole blackhole) {
+		ResourcePile cost = costs.getCost(PurchaseTypes.SHIP);
+		for (int i = 0; i < NUM_PILES; i++) {
+			ResourcePile pile = new ResourcePile(piles[i]);
+			if (costs.canAfford(PurchaseTypes.SHIP, pile)) {
+				pile.subtract(cost);
+			}
+			blackhole.consume(pile);
+		}
+	}
+
+	/**
+	 * The copy of the purchase costs made for each team every step
+	 *
+	 * @return
+	 */
+	@Benchmark
+	public PurchaseCosts copyPurchaseCosts() {
+		return costs.deepCopy();
+	}
+}
@@ -0,0 +1,120 @@
+package spacesettlers.simulator;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Beacon;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Benchmarks for a step of the physics engine with each way of finding collisions.
+ * The space is filled with asteroids (and a few beacons) at the same density as the
+ * default game (about 50 objects in a 1600 by 1080 space) so the size of the space
+ * grows with the number of objects.
+ *
+ * Run it with "ant benchmark" (which also reports the allocation rate using -prof gc).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+	/**
+	 * Number of objects in the space
+	 */
+	@Param({"50", "200", "1000", "5000", "10000"})
+	int numObjects;
+
+	/**
+	 * How the collisions are found (see Toroidal2DPhysics)
+	 */
+	@Param({Toroidal2DPhysics.ALL_PAIRS_COLLISIONS, Toroidal2DPhysics.SPATIAL_HASH_COLLISIONS})
+	String collisionDetection;
+
+	/**
+	 * Objects per square pixel in the default game
+	 */
+	static final double DEFAULT_DENSITY = 50.0 / (1600 * 1080);
+
+	Toroidal2DPhysics space;
+
+	Random random;
+
+	int timestep;
+
+	HashMap<UUID, SpaceSettlersPowerupEnum> noPowerups;
+
+	@Setup
+	public void setUp() {
+		random = new Random(42);
+		space = createSpace(numObjects, random);
+		space.setCollisionDetection(collisionDetection);
+		noPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		timestep = 0;
+	}
+
+	/**
+	 * Make a space with the given number of objects in it (one beacon for every 10 asteroids)
+	 *
+	 * @param numObjects
+	 * @param random
+	 * @return
+	 */
+	static Toroidal2DPhysics createSpace(int numObjects, Random random) {
+		double scale = Math.sqrt(numObjects / (DEFAULT_DENSITY * 1600 * 1080));
+		int width = (int) Math.ceil(1600 * scale);
+		int height = (int) Math.ceil(1080 * scale);
+		Toroidal2DPhysics space = new Toroidal2DPhysics(height, width, 0.05);
+
+		for (int i = 0; i < numObjects; i++) {
+			if (i % 11 == 10) {
+				space.addObject(new Beacon(space.getRandomFreeLocation(random, Beacon.BEACON_RADIUS * 2)));
+			} else {
+				int radius = Asteroid.MIN_ASTEROID_RADIUS
+						+ random.nextInt(Asteroid.MAX_ASTEROID_RADIUS - Asteroid.MIN_ASTEROID_RADIUS + 1);
+				Position position = space.getRandomFreeLocation(random, radius * 2);
+				boolean moveable = random.nextDouble() < 0.5;
+				if (moveable) {
+					position.setTranslationalVelocity(new Vector2D(random.nextGaussian() * 20, random.nextGaussian() * 20));
+				}
+				space.addObject(new Asteroid(position, random.nextBoolean(), radius, moveable, 100, 100, 100));
+			}
+		}
+		return space;
+	}
+
+	/**
+	 * One full physics step (movement, collisions and cleanup)
+	 */
+	@Benchmark
+	public void advanceTime() {
+		space.advanceTime(random, timestep++, noPowerups);
+	}
+
+	/**
+	 * Only the collision detection part of a step
+	 */
+	@Benchmark
+	public void detectCollisions() {
+		space.detectCollisions();
+	}
+}
@@ -0,0 +1,154 @@
+package spacesettlers.simulator;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.AiCore;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Beacon;
+import spacesettlers.utilities.Position;
+
+/**
+ * Benchmarks for the parts of the physics engine that are used many times a step:
+ * copying the space for the clients, finding distances and colliding objects.  The
+ * space is made the same way as in PhysicsBenchmark.
+ *
+ * Run it with "ant benchmark" (which also reports the allocation rate using -prof gc).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsHelpersBenchmark {
+	/**
+	 * Number of objects in the space
+	 */
+	@Param({"50", "200", "1000", "5000", "10000"})
+	int numObjects;
+
+	Toroidal2DPhysics space;
+
+	/**
+	 * The positions of all the objects (for the distance benchmark)
+	 */
+	Position[] positions;
+
+	/**
+	 * Pairs of asteroids that are collided by the collision handler benchmark
+	 */
+	AbstractObject[] firstObjects, secondObjects;
+
+	/**
+	 * Pairs of asteroids, beacons and AI cores (in both orders) for the collision
+	 * dispatch benchmark
+	 */
+	AbstractObject[] firstMixedObjects, secondMixedObjects;
+
+	CollisionHandler collisionHandler;
+
+	@Setup
+	public void setUp() {
+		space = PhysicsBenchmark.createSpace(numObjects, new Random(42));
+
+		positions = new Position[space.getAllObjects().size()];
+		int i = 0;
+		for (AbstractObject object : space.getAllObjects()) {
+			positions[i++] = object.getPosition();
+		}
+
+		List<AbstractObject> asteroids = new ArrayList<AbstractObject>(space.getAsteroids());
+		firstObjects = new AbstractObject[asteroids.size() / 2];
+		secondObjects = new AbstractObject[asteroids.size() / 2];
+		for (i = 0; i < firstObjects.length; i++) {
+			firstObjects[i] = asteroids.get(2 * i);
+			secondObjects[i] = asteroids.get(2 * i + 1);
+		}
+		collisionHandler = new CollisionHandler();
+
+		Random random = new Random(43);
+		firstMixedObjects = new AbstractObject[1000];
+		secondMixedObjects = new AbstractObject[1000];
+		for (i = 0; i < firstMixedObjects.length; i++) {
+			firstMixedObjects[i] = createMixedObject(random);
+			secondMixedObjects[i] = createMixedObject(random);
+		}
+	}
+
+	/**
+	 * Make an asteroid, a beacon or an AI core at a random location
+	 */
+	private AbstractObject createMixedObject(Random random) {
+		Position position = new Position(random.nextDouble() * space.getWidth(), random.nextDouble() * space.getHeight());
+		switch (random.nextInt(3)) {
+		case 0:
+			return new Beacon(position);
+		case 1:
+			return new AiCore(position, "team", Color.RED);
+		default:
+			return new Asteroid(position, false, Asteroid.MIN_ASTEROID_RADIUS, true, 100, 100, 100);
+		}
+	}
+
+	/**
+	 * The copy of the space that is made for the clients
+	 *
+	 * @return
+	 */
+	@Benchmark
+	public Toroidal2DPhysics deepClone() {
+		return space.deepClone();
+	}
+
+	/**
+	 * The distance from one object to every other object in the space
+	 *
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void findShortestDistanceVector(Blackhole blackhole) {
+		Position first = positions[0];
+		for (int i = 1; i < positions.length; i++) {
+			blackhole.consume(space.findShortestDistanceVector(first, positions[i]));
+		}
+	}
+
+	/**
+	 * Collide pairs of different types of objects (mostly measures finding the
+	 * rule for each pair of types)
+	 */
+	@Benchmark
+	public void collideMixedTypes() {
+		for (int i = 0; i < firstMixedObjects.length; i++) {
+			collisionHandler.collide(firstMixedObjects[i], secondMixedObjects[i], space);
+		}
+	}
+
+	/**
+	 * Collide half of the asteroids with the other half (pairs do not need to be touching)
+	 */
+	@Benchmark
+	public void collide() {
+		for (int i = 0; i < firstObjects.length; i++) {
+			collisionHandler.collide(firstObjects[i], secondObjects[i], space);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package spacesettlers.simulator;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.xstream.XStream;
+
+import spacesettlers.configs.BaseConfig;
+import spacesettlers.configs.FixedAsteroidConfig;
+import spacesettlers.configs.FlagConfig;
+import spacesettlers.configs.HighLevelTeamConfig;
+import spacesettlers.configs.RandomAsteroidConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+
+/**
+ * Benchmark of a full timestep of the simulator (asking the teams for their actions,
+ * moving everything, collisions, purchases and scoring) using the built-in heuristic
+ * clients from the heuristicCooperative configuration.  The number of asteroids is
+ * changed to get the requested number of objects and the size of the space grows so
+ * the density of objects stays the same as the default game.
+ *
+ * Run it with "ant benchmark" (which also reports the allocation rate using -prof gc).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-opens", "java.base/java.util=ALL-UNNAMED",
+		"--add-opens", "java.base/java.lang=ALL-UNNAMED", "--add-opens", "java.base/java.lang.reflect=ALL-UNNAMED",
+		"--add-opens", "java.base/java.text=ALL-UNNAMED", "--add-opens", "java.desktop/java.awt.font=ALL-UNNAMED"})
+public class SimulatorBenchmark {
+	/**
+	 * Number of objects in the space (asteroids, beacons, bases and ships)
+	 */
+	@Param({"50", "200", "1000", "5000", "10000"})
+	int numObjects;
+
+	/**
+	 * Where the configuration files are found (relative to the directory the benchmark runs in)
+	 */
+	@Param({"config/heuristicCooperative/"})
+	String configPath;
+
+	SpaceSettlersSimulator simulator;
+
+	@Setup
+	public void setUp() throws SimulatorException {
+		RunSimulator runSim = new RunSimulator(new String[] {"--configPath", configPath,
+				"--simulatorConfigFile", "SpaceSettlersConfig.xml"});
+		SpaceSettlersConfig simConfig = loadConfigFile(configPath + "SpaceSettlersConfig.xml");
+
+		// everything except the asteroids is fixed by the config file
+		int numOtherObjects = simConfig.getNumBeacons() + 2 * simConfig.getTeams().length;
+		int numAsteroids = Math.max(0, numObjects - numOtherObjects);
+		simConfig.getRandomAsteroids().setNumberInitialAsteroids(numAsteroids);
+		simConfig.getRandomAsteroids().setMaximumNumberAsteroids(numAsteroids);
+
+		double scale = Math.sqrt(numObjects / (PhysicsBenchmark.DEFAULT_DENSITY * 1600 * 1080));
+		simConfig.setSize((int) Math.ceil(1600 * scale), (int) Math.ceil(1080 * scale));
+		simConfig.setRandomSeed(42);
+
+		simulator = new SpaceSettlersSimulator(simConfig, runSim.config);
+		simulator.timestep = 0;
+	}
+
+	/**
+	 * Load the simulator config file
+	 *
+	 * @param configFile
+	 * @return
+	 * @throws SimulatorException
+	 */
+	static SpaceSettlersConfig loadConfigFile(String configFile) throws SimulatorException {
+		XStream xstream = new XStream();
+		xstream.alias("SpaceSettlersConfig", SpaceSettlersConfig.class);
+		xstream.alias("HighLevelTeamConfig", HighLevelTeamConfig.class);
+		xstream.alias("BaseConfig", BaseConfig.class);
+		xstream.alias("AsteroidConfig", RandomAsteroidConfig.class);
+		xstream.alias("FixedAsteroidConfig", FixedAsteroidConfig.class);
+		xstream.alias("FlagConfig", FlagConfig.class);
+		xstream.allowTypesByRegExp(new String[] { ".*" });
+
+		try {
+			return (SpaceSettlersConfig) xstream.fromXML(new File(configFile));
+		} catch (Exception e) {
+			throw new SimulatorException("Error parsing config file at string " + e.getMessage());
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		simulator.shutdownTeams();
+	}
+
+	/**
+	 * One full timestep of the simulator
+	 */
+	@Benchmark
+	public void advanceTime() {
+		simulator.advanceTime();
+		simulator.timestep++;
+	}
+}
@@ -1,5 +1,6 @@
 package spacesettlers.actions;
 
+import java.io.Serializable;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -22,7 +23,9 @@ import spacesettlers.utilities.Movement;
  * 
  * @author amy
  */
-abstract public class AbstractAction {
+abstract public class AbstractAction implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The weapon for this time step
 	 */
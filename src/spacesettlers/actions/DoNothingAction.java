@@ -11,6 +11,8 @@ import spacesettlers.utilities.Movement;
  * @author amy
  */
 public class DoNothingAction extends AbstractAction {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * This action never moves the ship
 	 */
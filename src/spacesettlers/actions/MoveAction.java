@@ -21,6 +21,8 @@ import spacesettlers.utilities.Vector2D;
  * @author amy
  */
 public class MoveAction extends AbstractAction {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * If the acceleration is less than this number, the target is assumed to be reached
 	 */
@@ -19,6 +19,8 @@ import spacesettlers.utilities.Vector2D;
  * @author amy
  */
 public class MoveActionWithOrientation extends MoveAction {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Make a new move action and save the goal locations.  
 	 * 
@@ -12,6 +12,8 @@ import spacesettlers.utilities.Vector2D;
  * @author amy
  */
 public class MoveToObjectAction extends MoveAction {
+	private static final long serialVersionUID = 1L;
+
 	protected AbstractObject goalObject;
 	protected Position originalGoalLocation;
 	
@@ -63,7 +65,12 @@ public class MoveToObjectAction extends MoveAction {
 			return true;
 		}
 		
-		AbstractObject newGoalObj = space.getObjectById(goalObject.getId());
+		// try the quick lookup first (respawned beacons keep their simulation id but
+		// get a new UUID, so make sure it is still the same object)
+		AbstractObject newGoalObj = space.getObjectById(goalObject.getSimulationId());
+		if (newGoalObj == null || !newGoalObj.getId().equals(goalObject.getId())) {
+			newGoalObj = space.getObjectById(goalObject.getId());
+		}
 		
 		// goal object disappeared
 		if (newGoalObj == null) {
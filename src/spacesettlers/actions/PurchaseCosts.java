@@ -1,7 +1,6 @@
 package spacesettlers.actions;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Serializable;
 
 import spacesettlers.objects.resources.ResourcePile;
 /**
@@ -9,32 +8,52 @@ import spacesettlers.objects.resources.ResourcePile;
  * 
  * @author amy
  */
-public class PurchaseCosts {
-	Map<PurchaseTypes, ResourcePile> costs;
+public class PurchaseCosts implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The cost of each item (indexed by PurchaseTypes.ordinal())
+	 */
+	ResourcePile[] costs;
 
 	/**
 	 * Create an empty purchase cost object (costs set to fixed initial values)
 	 */
 	public PurchaseCosts() {
 		super();
-		costs = new HashMap<PurchaseTypes, ResourcePile>();
+		costs = new ResourcePile[PurchaseTypes.values().length];
 		reset();
 	}
 
+	/**
+	 * Make a copy of the costs of another purchase cost object
+	 * 
+	 * @param other
+	 */
+	private PurchaseCosts(PurchaseCosts other) {
+		super();
+		costs = new ResourcePile[other.costs.length];
+		for (int i = 0; i < costs.length; i++) {
+			if (other.costs[i] != null) {
+				costs[i] = new ResourcePile(other.costs[i]);
+			}
+		}
+	}
+
 	/**
 	 * Put the costs back to their initial values
 	 */
 	public void reset() {
-		costs.put(PurchaseTypes.BASE, new ResourcePile(250, 300, 450));
-		costs.put(PurchaseTypes.SHIP, new ResourcePile(500, 1000, 500));
-		costs.put(PurchaseTypes.CORE, new ResourcePile(400, 850, 400));//herr0861 edit (see below comment)
-		costs.put(PurchaseTypes.DRONE, new ResourcePile(100,100,100));
-		costs.put(PurchaseTypes.NOTHING, new ResourcePile(0,0,0));
-		costs.put(PurchaseTypes.POWERUP_DOUBLE_BASE_HEALING_SPEED, new ResourcePile(1000,1000,500));
-		costs.put(PurchaseTypes.POWERUP_DOUBLE_MAX_ENERGY, new ResourcePile(750, 1000, 500));
-		costs.put(PurchaseTypes.POWERUP_DOUBLE_WEAPON_CAPACITY, new ResourcePile(250, 1000, 1000));
-		costs.put(PurchaseTypes.POWERUP_EMP_LAUNCHER, new ResourcePile(0, 750, 250));
-		costs.put(PurchaseTypes.POWERUP_SHIELD, new ResourcePile(0,1500,500));
+		setCost(PurchaseTypes.BASE, new ResourcePile(250, 300, 450));
+		setCost(PurchaseTypes.SHIP, new ResourcePile(500, 1000, 500));
+		setCost(PurchaseTypes.CORE, new ResourcePile(400, 850, 400));//herr0861 edit (see below comment)
+		setCost(PurchaseTypes.DRONE, new ResourcePile(100,100,100));
+		setCost(PurchaseTypes.NOTHING, new ResourcePile(0,0,0));
+		setCost(PurchaseTypes.POWERUP_DOUBLE_BASE_HEALING_SPEED, new ResourcePile(1000,1000,500));
+		setCost(PurchaseTypes.POWERUP_DOUBLE_MAX_ENERGY, new ResourcePile(750, 1000, 500));
+		setCost(PurchaseTypes.POWERUP_DOUBLE_WEAPON_CAPACITY, new ResourcePile(250, 1000, 1000));
+		setCost(PurchaseTypes.POWERUP_EMP_LAUNCHER, new ResourcePile(0, 750, 250));
+		setCost(PurchaseTypes.POWERUP_SHIELD, new ResourcePile(0,1500,500));
 		
 		/*
 		 * The major expense of the drone should be the core. Compete gets lots of cores, but this serves little purpose there.
@@ -48,12 +67,17 @@ public class PurchaseCosts {
 	 * @return a copy of the current costs
 	 */
 	public PurchaseCosts deepCopy() {
-		PurchaseCosts newCosts = new PurchaseCosts();
-		
-		for (PurchaseTypes type : costs.keySet()) {
-			newCosts.costs.put(type, new ResourcePile(costs.get(type)));
-		}
-		return newCosts;
+		return new PurchaseCosts(this);
+	}
+
+	/**
+	 * Set the cost of an item
+	 * 
+	 * @param type
+	 * @param cost
+	 */
+	private void setCost(PurchaseTypes type, ResourcePile cost) {
+		costs[type.ordinal()] = cost;
 	}
 	
 	
@@ -63,7 +87,7 @@ public class PurchaseCosts {
 	 * @return the cost in resources
 	 */
 	public ResourcePile getCost(PurchaseTypes type) {
-		return costs.get(type);
+		return costs[type.ordinal()];
 	}
 	
 	/**
@@ -72,7 +96,7 @@ public class PurchaseCosts {
 	 * @param type
 	 */
 	public void doubleCosts(PurchaseTypes type) {
-		costs.get(type).doubleCosts();
+		costs[type.ordinal()].doubleCosts();
 	}
 	
 	/**
@@ -83,7 +107,7 @@ public class PurchaseCosts {
 	 * @return true if the item can be afforded and false otherwise
 	 */
 	public boolean canAfford(PurchaseTypes type, ResourcePile resources) {
-		if (resources.greaterThan(costs.get(type))) {
+		if (resources.greaterThan(costs[type.ordinal()])) {
 			return true;
 		} else {
 			return false;
@@ -16,6 +16,8 @@ import spacesettlers.utilities.Vector2D;
  *
  */
 public class RawAction extends AbstractAction {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The accelerations
 	 */
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import spacesettlers.actions.AbstractAction;
 import spacesettlers.actions.DoNothingAction;
@@ -235,20 +236,13 @@ public class AggressiveHeuristicAsteroidCollectorTeamClient extends TeamClient {
 	 * @return
 	 */
 	private AiCore pickNearestCore(Toroidal2DPhysics space, Ship ship, int minimumDistance) {
-		Set<AiCore> cores = space.getCores();
+		AiCore closestCore = space.findNearest(ship.getPosition(), AiCore.class);
 
-		AiCore closestCore = null;
-		double bestDistance = minimumDistance;
-
-		for (AiCore core : cores) {
-			double dist = space.findShortestDistance(ship.getPosition(), core.getPosition());
-			if (dist < bestDistance) {
-				bestDistance = dist;
-				closestCore = core;
-			}
+		if (closestCore != null && 
+				space.findShortestDistance(ship.getPosition(), closestCore.getPosition()) < minimumDistance) {
+			return closestCore;
 		}
-
-		return closestCore;
+		return null;
 	}	
 	
 
@@ -258,23 +252,13 @@ public class AggressiveHeuristicAsteroidCollectorTeamClient extends TeamClient {
 	 * @param ship
 	 * @return
 	 */
-	private Ship pickNearestEnemyShip(Toroidal2DPhysics space, Ship ship) {
-		double minDistance = Double.POSITIVE_INFINITY;
-		Ship nearestShip = null;
-		for (Ship otherShip : space.getShips()) {
-			// don't aim for our own team (or ourself)
-			if (otherShip.getTeamName().equals(ship.getTeamName())) {
-				continue;
+	private Ship pickNearestEnemyShip(Toroidal2DPhysics space, final Ship ship) {
+		// don't aim for our own team (or ourself)
+		return space.findNearestMatching(ship.getPosition(), Ship.class, new Predicate<Ship>() {
+			public boolean test(Ship otherShip) {
+				return !otherShip.getTeamName().equals(ship.getTeamName());
 			}
-			
-			double distance = space.findShortestDistance(ship.getPosition(), otherShip.getPosition());
-			if (distance < minDistance) {
-				minDistance = distance;
-				nearestShip = otherShip;
-			}
-		}
-		
-		return nearestShip;
+		});
 	}
 
 	/**
@@ -284,20 +268,12 @@ public class AggressiveHeuristicAsteroidCollectorTeamClient extends TeamClient {
 	 * @param ship
 	 * @return
 	 */
-	private Base findNearestBase(Toroidal2DPhysics space, Ship ship) {
-		double minDistance = Double.MAX_VALUE;
-		Base nearestBase = null;
-
-		for (Base base : space.getBases()) {
-			if (base.getTeamName().equalsIgnoreCase(ship.getTeamName())) {
-				double dist = space.findShortestDistance(ship.getPosition(), base.getPosition());
-				if (dist < minDistance) {
-					minDistance = dist;
-					nearestBase = base;
-				}
+	private Base findNearestBase(Toroidal2DPhysics space, final Ship ship) {
+		return space.findNearestMatching(ship.getPosition(), Base.class, new Predicate<Base>() {
+			public boolean test(Base base) {
+				return base.getTeamName().equalsIgnoreCase(ship.getTeamName());
 			}
-		}
-		return nearestBase;
+		});
 	}
 
 	/**
@@ -335,21 +311,7 @@ public class AggressiveHeuristicAsteroidCollectorTeamClient extends TeamClient {
 	 * @return
 	 */
 	private Beacon pickNearestBeacon(Toroidal2DPhysics space, Ship ship) {
-		// get the current beacons
-		Set<Beacon> beacons = space.getBeacons();
-
-		Beacon closestBeacon = null;
-		double bestDistance = Double.POSITIVE_INFINITY;
-
-		for (Beacon beacon : beacons) {
-			double dist = space.findShortestDistance(ship.getPosition(), beacon.getPosition());
-			if (dist < bestDistance) {
-				bestDistance = dist;
-				closestBeacon = beacon;
-			}
-		}
-
-		return closestBeacon;
+		return space.findNearest(ship.getPosition(), Beacon.class);
 	}
 
 
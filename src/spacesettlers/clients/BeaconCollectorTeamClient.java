@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import spacesettlers.actions.AbstractAction;
 import spacesettlers.actions.DoNothingAction;
@@ -83,25 +84,12 @@ public class BeaconCollectorTeamClient extends TeamClient {
 	 * @return
 	 */
 	private Beacon pickNearestFreeBeacon(Toroidal2DPhysics space, Ship ship) {
-		// get the current beacons
-		Set<Beacon> beacons = space.getBeacons();
-
-		Beacon closestBeacon = null;
-		double bestDistance = Double.POSITIVE_INFINITY;
-
-		for (Beacon beacon : beacons) {
-			if (beaconToShipMap.containsKey(beacon)) {
-				continue;
-			}
-
-			double dist = space.findShortestDistance(ship.getPosition(), beacon.getPosition());
-			if (dist < bestDistance) {
-				bestDistance = dist;
-				closestBeacon = beacon;
+		// skip the beacons another ship is already going after
+		return space.findNearestMatching(ship.getPosition(), Beacon.class, new Predicate<Beacon>() {
+			public boolean test(Beacon beacon) {
+				return !beaconToShipMap.containsKey(beacon);
 			}
-		}
-
-		return closestBeacon;
+		});
 	}
 
 
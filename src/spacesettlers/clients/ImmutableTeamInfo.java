@@ -1,5 +1,7 @@
 package spacesettlers.clients;
 
+import java.io.Serializable;
+
 import spacesettlers.objects.resources.ResourcePile;
 
 /**
@@ -9,7 +11,9 @@ import spacesettlers.objects.resources.ResourcePile;
  * @author amy
  *
  */
-public class ImmutableTeamInfo {
+public class ImmutableTeamInfo implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * current team score (set in the simulator, which knows how the team is being scored)
 	 */
@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.XStreamException;
@@ -146,20 +147,12 @@ public class PacifistHeuristicAsteroidCollectorTeamClient extends TeamClient {
 	 * @param ship
 	 * @return
 	 */
-	private Base findNearestBase(Toroidal2DPhysics space, Ship ship) {
-		double minDistance = Double.MAX_VALUE;
-		Base nearestBase = null;
-
-		for (Base base : space.getBases()) {
-			if (base.getTeamName().equalsIgnoreCase(ship.getTeamName())) {
-				double dist = space.findShortestDistance(ship.getPosition(), base.getPosition());
-				if (dist < minDistance) {
-					minDistance = dist;
-					nearestBase = base;
-				}
+	private Base findNearestBase(Toroidal2DPhysics space, final Ship ship) {
+		return space.findNearestMatching(ship.getPosition(), Base.class, new Predicate<Base>() {
+			public boolean test(Base base) {
+				return base.getTeamName().equalsIgnoreCase(ship.getTeamName());
 			}
-		}
-		return nearestBase;
+		});
 	}
 
 	/**
@@ -198,21 +191,7 @@ public class PacifistHeuristicAsteroidCollectorTeamClient extends TeamClient {
 	 * @return
 	 */
 	private Beacon pickNearestBeacon(Toroidal2DPhysics space, Ship ship) {
-		// get the current beacons
-		Set<Beacon> beacons = space.getBeacons();
-
-		Beacon closestBeacon = null;
-		double bestDistance = Double.POSITIVE_INFINITY;
-
-		for (Beacon beacon : beacons) {
-			double dist = space.findShortestDistance(ship.getPosition(), beacon.getPosition());
-			if (dist < bestDistance) {
-				bestDistance = dist;
-				closestBeacon = beacon;
-			}
-		}
-
-		return closestBeacon;
+		return space.findNearest(ship.getPosition(), Beacon.class);
 	}
 
 
@@ -317,17 +296,13 @@ public class PacifistHeuristicAsteroidCollectorTeamClient extends TeamClient {
 			for (AbstractActionableObject actionableObject : actionableObjects) {
 				if (actionableObject instanceof Ship) {
 					Ship ship = (Ship) actionableObject;
-					Set<Base> bases = space.getBases();
 
 					// how far away is this ship to a base of my team?
 					boolean buyBase = true;
-					for (Base base : bases) {
-						if (base.getTeamName().equalsIgnoreCase(getTeamName())) {
-							double distance = space.findShortestDistance(ship.getPosition(), base.getPosition());
-							if (distance < BASE_BUYING_DISTANCE) {
-								buyBase = false;
-							}
-						}
+					Base nearestBase = findNearestBase(space, ship);
+					if (nearestBase != null && 
+							space.findShortestDistance(ship.getPosition(), nearestBase.getPosition()) < BASE_BUYING_DISTANCE) {
+						buyBase = false;
 					}
 					if (buyBase) {
 						purchases.put(ship.getId(), PurchaseTypes.BASE);
@@ -67,6 +67,10 @@ public class RandomTeamClient extends TeamClient {
 					Position currentPosition = ship.getPosition();
 					Position newGoal = space.getRandomFreeLocationInRegion(random, Ship.SHIP_RADIUS, (int) currentPosition.getX(), 
 							(int) currentPosition.getY(), RANDOM_MOVE_RADIUS);
+					if (newGoal == null) {
+						// nowhere free to go so stay put
+						newGoal = currentPosition.deepCopy();
+					}
 					currentTarget = newGoal;
 					MoveAction newAction = null;
 					newAction = new MoveAction(space, currentPosition, newGoal);
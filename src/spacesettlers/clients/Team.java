@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.awt.event.KeyAdapter;
 import java.awt.event.MouseAdapter;
 import java.awt.geom.AffineTransform;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -15,6 +16,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -29,6 +31,7 @@ import spacesettlers.objects.Ship;
 import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
 import spacesettlers.objects.resources.ResourcePile;
 import spacesettlers.simulator.SpaceSettlersSimulator;
+import spacesettlers.simulator.StepProfiler;
 import spacesettlers.simulator.Toroidal2DPhysics;
 
 /**
@@ -38,7 +41,9 @@ import spacesettlers.simulator.Toroidal2DPhysics;
  * 
  * @author amy
  */
-public class Team {
+public class Team implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The set of ships owned by this team
 	 */
@@ -75,9 +80,9 @@ public class Team {
 	String teamName;
 	
 	/**
-	 * The client for this team
+	 * The client for this team (not saved in checkpoints, a new one is made when a game is restored)
 	 */
-	TeamClient teamClient;
+	transient TeamClient teamClient;
 	
 	/**
 	 * current team score (set in the simulator, which knows how the team is being scored)
@@ -146,9 +151,26 @@ public class Team {
 	int maxNumberShips;
 	
 	/**
-	 * Thread for this team
+	 * The long-lived thread that runs all of the client's callbacks for this team.
+	 * It is only replaced if the client hangs in one of the callbacks.
+	 */
+	transient ExecutorService worker;
+
+	/**
+	 * The worker that was abandoned because the client hung (until the client
+	 * finally returns, the team just gets the default answers)
+	 */
+	transient ExecutorService hungWorker;
+
+	/**
+	 * True while the worker is running one of the client's callbacks
+	 */
+	transient boolean workerBusy;
+
+	/**
+	 * If not null, the time the client takes for each callback is recorded here
 	 */
-	ExecutorService executor;
+	transient StepProfiler profiler;
 	
 	/**
 	 * Initialize the team client to have an empty list of ships and drones.
@@ -175,7 +197,9 @@ public class Team {
 		this.totalDamageReceived = 0;
 		this.totalFlagsCollected = 0;
 		this.totalCoresCollected = 0; 
-		executor = null;
+		worker = null;
+		hungWorker = null;
+		workerBusy = false;
 	}
 	
 	/**
@@ -186,7 +210,8 @@ public class Team {
 	}
 
 	/**
-	 * Make a deep copy for security
+	 * Make a deep copy for security (the ships are copied without their actions,
+	 * see Ship.deepCloneNoTags)
 	 * 
 	 * @return
 	 */
@@ -194,7 +219,7 @@ public class Team {
 		Team newTeam = new Team(teamClient, ladderName, maxNumberShips);
 		
 		for (Ship ship : teamShips) {
-			newTeam.addShip(ship.deepClone());
+			newTeam.addShip(ship.deepCloneNoTags());
 		}
 		
 		newTeam.teamDroneIDs.addAll(this.teamDroneIDs);
@@ -213,6 +238,25 @@ public class Team {
 		return newTeam;
 	}
 	
+	/**
+	 * Record how long the client takes for each callback (set by the simulator)
+	 * 
+	 * @param profiler the profiler or null to stop timing
+	 */
+	public void setProfiler(StepProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Give the team a new client.  Used when a game is restored from a checkpoint
+	 * (clients are not saved with the team) and should only be called by the simulator.
+	 * 
+	 * @param teamClient
+	 */
+	public void setTeamClient(TeamClient teamClient) {
+		this.teamClient = teamClient;
+	}
+
 	/**
 	 * Return the maximum number of ships for this team
 	 * @return
@@ -397,18 +441,11 @@ public class Team {
 	public Map<UUID, AbstractAction> getTeamMovementStart(Toroidal2DPhysics space) {
         Map<UUID, AbstractAction> teamActions = new HashMap<UUID, AbstractAction>();
 
-		// ask the client for its movement
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
+		// ask the client for its movement (the space is the read-only copy of this team)
+		final Toroidal2DPhysics clonedSpace = space.getSnapshot(getTeamName());
 		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
 		
-		// if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return teamActions;
-		}
-		
-        Future<Map<UUID, AbstractAction>> future = executor.submit(
+        Future<Map<UUID, AbstractAction>> future = submitToWorker(StepProfiler.Callback.MOVEMENT_START,
         		new Callable<Map<UUID, AbstractAction>>(){
         			public Map<UUID, AbstractAction> call() {
         				Map<UUID, AbstractAction> teamActions = null;
@@ -416,17 +453,25 @@ public class Team {
         				return teamActions;
         			}
         		});
+
+        // the client is still stuck in an earlier call so just return the default
+        if (future == null) {
+        	return teamActions;
+        }
         
         try {
             //start
             teamActions = future.get(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
             //finished in time
         } catch (TimeoutException e) {
+        	// the client hung so give up on this worker and start a new one later
+        	replaceHungWorker();
             //was terminated
         	//return empty map, this will invoke default behavior of using DoNothingAction
         	teamActions = new HashMap<UUID, AbstractAction>();
         	System.err.println(getTeamName() + " timed out in getTeamMovementStart");
         } catch (InterruptedException e) {
+        	replaceHungWorker();
         	//we were interrupted (should not happen but lets be good programmers) 
         	//return empty map, this will invoke default behavior of using DoNothingAction
         	teamActions = new HashMap<UUID, AbstractAction>();
@@ -444,8 +489,6 @@ public class Team {
         	teamActions = new HashMap<UUID, AbstractAction>();
 		}
 
-
-        executor.shutdownNow();
         
         return teamActions;
 		
@@ -461,24 +504,21 @@ public class Team {
 	 * @return
 	 */
 	public void getTeamMovementEnd(Toroidal2DPhysics space) {
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
+		final Toroidal2DPhysics clonedSpace = space.getSnapshot(getTeamName());
 		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
 
-		// if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return;
-		}
-
-		//System.out.println("exec " + executor.isTerminated());
-        Future<Boolean> future = executor.submit(
+        Future<Boolean> future = submitToWorker(StepProfiler.Callback.MOVEMENT_END,
         		new Callable<Boolean>(){
         			public Boolean call() throws Exception {
         				teamClient.getMovementEnd(clonedSpace, clonedActionableObjects);
         				return true;
         			}
         		});
+
+        // the client is still stuck in an earlier call so just return the default
+        if (future == null) {
+        	return;
+        }
         
         Boolean didReturn = false;
         try {
@@ -486,11 +526,14 @@ public class Team {
         	didReturn = future.get(SpaceSettlersSimulator.TEAM_END_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
             //finished in time
         } catch (TimeoutException e) {
+        	// the client hung so give up on this worker and start a new one later
+        	replaceHungWorker();
             //was terminated
         	//set didReturn false
         	System.out.println(getTeamName() + " timed out in getTeamMovementEnd");
         	didReturn = false;
         } catch (InterruptedException e) {
+        	replaceHungWorker();
         	//we were interrupted (should not happen but lets be good programmers) 
         	//set didReturn false
         	didReturn = false;
@@ -501,7 +544,7 @@ public class Team {
         	didReturn = false;
 			e.printStackTrace();
 		} catch (RejectedExecutionException e) {
-			System.err.println("exec" + executor.isTerminated());
+			System.err.println(getTeamName() + " worker rejected the call");
 			e.printStackTrace();
 		}catch (Exception e) {
 			// we shouldn't do this but it seems necessary to make
@@ -510,8 +553,6 @@ public class Team {
         	System.err.println("Error in agent.  Printing stack trace.");
 			e.printStackTrace();
 		}
-
-        executor.shutdownNow();
 		
 		// figure out how many beacons the team has collected
 		// figure out how many hitsInflicted and killsInflicted the team has
@@ -560,37 +601,38 @@ public class Team {
 	public Map<UUID,PurchaseTypes> getTeamPurchases(Toroidal2DPhysics space) {
         Map<UUID,PurchaseTypes> purchase = new HashMap<UUID,PurchaseTypes>();
 
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
+		final Toroidal2DPhysics clonedSpace = space.getSnapshot(getTeamName());
 		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
 		final PurchaseCosts clonedPurchaseCost = getPurchaseCostClone();
 		final ResourcePile clonedResources = new ResourcePile(availableResources);
 		
-        // if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return purchase;
-		}
 
-		//System.out.println("exec " + executor.isTerminated());
-        Future<Map<UUID,PurchaseTypes>> future = executor.submit(
+        Future<Map<UUID,PurchaseTypes>> future = submitToWorker(StepProfiler.Callback.PURCHASES,
         		new Callable<Map<UUID,PurchaseTypes>>(){
         			public Map<UUID,PurchaseTypes> call() throws Exception {
         				return teamClient.getTeamPurchases(clonedSpace, 
         						clonedActionableObjects, clonedResources , clonedPurchaseCost);
         			}
         		});
+
+        // the client is still stuck in an earlier call so just return the default
+        if (future == null) {
+        	return purchase;
+        }
         
         try {
             //start
         	purchase = future.get(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
             //finished in time
         } catch (TimeoutException e) {
+        	// the client hung so give up on this worker and start a new one later
+        	replaceHungWorker();
             //was terminated
         	//return empty map, don't buy anything
         	System.out.println(getTeamName() + " timed out in getTeamPurchases");
         	purchase = new HashMap<UUID,PurchaseTypes>();
         } catch (InterruptedException e) {
+        	replaceHungWorker();
         	//we were interrupted (should not happen but lets be good programmers) 
         	//return empty map, don't buy anything
         	purchase = new HashMap<UUID,PurchaseTypes>();
@@ -601,14 +643,12 @@ public class Team {
         	purchase = new HashMap<UUID,PurchaseTypes>();
 			e.printStackTrace();
 		} catch (RejectedExecutionException e) {
-			System.err.println("exec" + executor.isTerminated());
+			System.err.println(getTeamName() + " worker rejected the call");
 			e.printStackTrace();
 		} catch (Exception e) {
         	purchase = new HashMap<UUID,PurchaseTypes>();
 			e.printStackTrace();
 		}
-
-        executor.shutdownNow();
         
         return purchase;
 	}
@@ -630,34 +670,35 @@ public class Team {
 	public Map<UUID, SpaceSettlersPowerupEnum> getTeamPowerups(Toroidal2DPhysics space) {
         Map<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
 
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
+		final Toroidal2DPhysics clonedSpace = space.getSnapshot(getTeamName());
 		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
 		
-        // if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return powerups;
-		}
 
-		//System.out.println("exec " + executor.isTerminated());
-        Future<Map<UUID,SpaceSettlersPowerupEnum>> future = executor.submit(
+        Future<Map<UUID,SpaceSettlersPowerupEnum>> future = submitToWorker(StepProfiler.Callback.POWERUPS,
         		new Callable<Map<UUID,SpaceSettlersPowerupEnum>>(){
         			public Map<UUID,SpaceSettlersPowerupEnum> call() throws Exception {
         				return teamClient.getPowerups(clonedSpace, clonedActionableObjects);
         			}
         		});
+
+        // the client is still stuck in an earlier call so just return the default
+        if (future == null) {
+        	return powerups;
+        }
         
         try {
             //start
         	powerups = future.get(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
             //finished in time
         } catch (TimeoutException e) {
+        	// the client hung so give up on this worker and start a new one later
+        	replaceHungWorker();
             //was terminated
         	//return empty map, don't buy anything
         	System.out.println(getTeamName() + " timed out in getTeamPowerups");
         	powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
         } catch (InterruptedException e) {
+        	replaceHungWorker();
         	//we were interrupted (should not happen but lets be good programmers) 
         	//return empty map, don't buy anything
         	powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
@@ -672,8 +713,6 @@ public class Team {
         	powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
 			e.printStackTrace();
 		}
-
-        executor.shutdownNow();
         
         return powerups;
 	}
@@ -687,30 +726,32 @@ public class Team {
 	public Set<SpacewarGraphics> getGraphics() {
         Set<SpacewarGraphics> graphics = new LinkedHashSet<SpacewarGraphics>();
 
-        // if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return graphics;
-		}
 
-		Future<Set<SpacewarGraphics>> future = executor.submit(
+		Future<Set<SpacewarGraphics>> future = submitToWorker(StepProfiler.Callback.GRAPHICS,
         		new Callable<Set<SpacewarGraphics>>(){
         			public Set<SpacewarGraphics> call() throws Exception {
         				return teamClient.getGraphics();
         			}
         		});
+
+        // the client is still stuck in an earlier call so just return the default
+        if (future == null) {
+        	return graphics;
+        }
         
         try {
             //start
         	graphics = future.get(SpaceSettlersSimulator.TEAM_GRAPHICS_TIMEOUT, TimeUnit.MILLISECONDS);
             //finished in time
         } catch (TimeoutException e) {
+        	// the client hung so give up on this worker and start a new one later
+        	replaceHungWorker();
             //was terminated
         	//set empty array of graphics
         	System.out.println(getTeamName() + " timed out in getTeamGraphics");
         	graphics = new LinkedHashSet<SpacewarGraphics>();
         } catch (InterruptedException e) {
+        	replaceHungWorker();
         	//we were interrupted (should not happen but lets be good programmers) 
         	//set empty array of graphics
         	graphics = new LinkedHashSet<SpacewarGraphics>();
@@ -725,12 +766,104 @@ public class Team {
         	graphics = new LinkedHashSet<SpacewarGraphics>();
 			e.printStackTrace();
 		}
-
-        executor.shutdownNow();
         
 		return graphics;
 	}
 
+	/**
+	 * Hand a callback to the team's worker thread. If the client is still busy
+	 * with an earlier callback (or stuck in one that timed out), the callback is
+	 * not run and null is returned so the caller can use the default answer.
+	 * 
+	 * @param callbackType which callback this is (for timing)
+	 * @param callback the call into the client
+	 * @return the future for the callback or null if the client is still busy
+	 */
+	private synchronized <T> Future<T> submitToWorker(final StepProfiler.Callback callbackType, final Callable<T> callback) {
+		if (hungWorker != null) {
+			if (!hungWorker.isTerminated()) {
+				return null;
+			}
+			hungWorker = null;
+		}
+
+		if (workerBusy) {
+			return null;
+		}
+
+		if (worker == null) {
+			worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, teamName + " client");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		final ExecutorService owner = worker;
+		final StepProfiler callbackProfiler = profiler;
+		workerBusy = true;
+		try {
+			return worker.submit(new Callable<T>() {
+				public T call() throws Exception {
+					long startTime = System.nanoTime();
+					try {
+						return callback.call();
+					} finally {
+						if (callbackProfiler != null) {
+							callbackProfiler.recordCallback(teamName, callbackType, System.nanoTime() - startTime);
+						}
+						workerDone(owner);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			workerBusy = false;
+			throw e;
+		}
+	}
+
+	/**
+	 * Called by the worker thread when a callback is finished
+	 * 
+	 * @param owner the worker that ran the callback
+	 */
+	private synchronized void workerDone(ExecutorService owner) {
+		// a worker that was replaced doesn't get to change the state of the new one
+		if (owner == worker) {
+			workerBusy = false;
+		}
+	}
+
+	/**
+	 * The client did not return in time.  Interrupt it and stop using this worker
+	 * (a new one is made once the client finally returns from the old call).
+	 */
+	private synchronized void replaceHungWorker() {
+		if (worker != null) {
+			worker.shutdownNow();
+			hungWorker = worker;
+			worker = null;
+			workerBusy = false;
+		}
+	}
+
+	/**
+	 * Stop the worker thread (called at the end of the game)
+	 */
+	private synchronized void shutdownWorker() {
+		if (worker != null) {
+			worker.shutdownNow();
+			worker = null;
+		}
+		if (hungWorker != null) {
+			hungWorker.shutdownNow();
+			hungWorker = null;
+		}
+		workerBusy = false;
+	}
+
 	/**
 	 * If the client wants to take input from the keyboard, they override this
 	 * inside the client to return a proper key listener.  It has to be pushed up
@@ -881,6 +1014,7 @@ public class Team {
 	 */
 	public void shutdownClients(Toroidal2DPhysics space) {
 		teamClient.shutDown(space.deepClone());
+		shutdownWorker();
 	}
 
 	/**
@@ -21,6 +21,15 @@ import spacesettlers.simulator.Toroidal2DPhysics;
 /**
  * All clients must inherit from the abstract client
  * 
+ * The space given to getMovementStart, getMovementEnd, getPowerups and
+ * getTeamPurchases (and to the actions of the team's ships and drones) is one
+ * read-only snapshot per team that is shared by all of them until the simulator
+ * changes the space.  Changing the space or anything in it (an object, its
+ * Position or its ResourcePile) throws an UnsupportedOperationException, so copy
+ * what you want to change with deepClone or deepCopy (for example
+ * space.deepClone() to search ahead or ship.getPosition().deepCopy() to change a
+ * position).  The actionableObjects are still copies that belong to the call.
+ * 
  * @author amy
  */
 abstract public class TeamClient {
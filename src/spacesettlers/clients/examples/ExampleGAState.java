@@ -1,6 +1,6 @@
 package spacesettlers.clients.examples;
 
-import java.util.Set;
+import java.util.function.Predicate;
 
 import spacesettlers.objects.Asteroid;
 import spacesettlers.objects.Ship;
@@ -31,18 +31,16 @@ public class ExampleGAState {
 	 * @param myShip
 	 */
 	public void updateState(Toroidal2DPhysics space, Ship myShip) {
-		Set<Asteroid> asteroids = space.getAsteroids();
 		distanceToNearestMineableAsteroid = Integer.MAX_VALUE;
-		double distance;
 
-		for (Asteroid asteroid : asteroids) {
-			if (asteroid.isMineable()) {
-				distance = space.findShortestDistance(myShip.getPosition(), asteroid.getPosition());
-				if (distance < distanceToNearestMineableAsteroid) {
-					distanceToNearestMineableAsteroid = distance;
-					nearestMineableAsteroid = asteroid;
-				}
+		Asteroid nearestAsteroid = space.findNearestMatching(myShip.getPosition(), Asteroid.class, new Predicate<Asteroid>() {
+			public boolean test(Asteroid asteroid) {
+				return asteroid.isMineable();
 			}
+		});
+		if (nearestAsteroid != null) {
+			distanceToNearestMineableAsteroid = space.findShortestDistance(myShip.getPosition(), nearestAsteroid.getPosition());
+			nearestMineableAsteroid = nearestAsteroid;
 		}
 	}
 
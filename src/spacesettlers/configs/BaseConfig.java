@@ -1,10 +1,14 @@
 package spacesettlers.configs;
 
+import java.io.Serializable;
+
 /**
  * Configuration for the bases 
  * @author amy
  */
-public class BaseConfig {
+public class BaseConfig implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The name of the team to whom this base belongs
 	 */
@@ -78,6 +82,23 @@ public class BaseConfig {
 	public int getBoundingBoxLRY() {
 		return boundingBoxLRY;
 	}
+
+	/**
+	 * Make a copy (the ladder renames the bases for each game)
+	 * 
+	 * @return
+	 */
+	public BaseConfig copy() {
+		BaseConfig copy = new BaseConfig(teamName);
+		copy.fixedLocation = fixedLocation;
+		copy.x = x;
+		copy.y = y;
+		copy.boundingBoxULX = boundingBoxULX;
+		copy.boundingBoxULY = boundingBoxULY;
+		copy.boundingBoxLRX = boundingBoxLRX;
+		copy.boundingBoxLRY = boundingBoxLRY;
+		return copy;
+	}
 	
 	
 	
@@ -1,5 +1,7 @@
 package spacesettlers.configs;
 
+import java.io.Serializable;
+
 /**
  * Configuration for any fixed-location asteroids.  Fixed asteroids are non-mineable.
  * (mostly used for capture the flag)
@@ -7,7 +9,9 @@ package spacesettlers.configs;
  * @author amy
  *
  */
-public class FixedAsteroidConfig {
+public class FixedAsteroidConfig implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * a fixed location asteroid is specified with an x and y location and the radius
 	 */
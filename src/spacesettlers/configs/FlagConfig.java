@@ -1,5 +1,7 @@
 package spacesettlers.configs;
 
+import java.io.Serializable;
+
 import spacesettlers.utilities.Position;
 
 /**
@@ -8,7 +10,9 @@ import spacesettlers.utilities.Position;
  * @author amy
  *
  */
-public class FlagConfig {
+public class FlagConfig implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	String teamName;
 	
 	int [] startX;
@@ -29,6 +33,20 @@ public class FlagConfig {
 	public void setTeamName(String teamName) {
 		this.teamName = teamName;
 	}
+
+	/**
+	 * Make a copy (the ladder renames the flags for each game).  The starting
+	 * locations are never changed so they are shared.
+	 * 
+	 * @return
+	 */
+	public FlagConfig copy() {
+		FlagConfig copy = new FlagConfig();
+		copy.teamName = teamName;
+		copy.startX = startX;
+		copy.startY = startY;
+		return copy;
+	}
 	
 	
 
@@ -1,11 +1,15 @@
 package spacesettlers.configs;
 
+import java.io.Serializable;
+
 /**
  * Team configuration information read in from xstream
  * 
  * @author amy
  */
-public class HighLevelTeamConfig {
+public class HighLevelTeamConfig implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The name of the team (will be used to match other items in the simulator)
 	 */
@@ -39,6 +43,27 @@ public class HighLevelTeamConfig {
 		return configFile;
 	}
 
+	public void setConfigFile(String configFile) {
+		this.configFile = configFile;
+	}
+
+	/**
+	 * Make a copy (used to give each ladder game its own teams since the simulator
+	 * fills in the initial region when it is not given)
+	 * 
+	 * @return
+	 */
+	public HighLevelTeamConfig copy() {
+		HighLevelTeamConfig copy = new HighLevelTeamConfig();
+		copy.teamName = teamName;
+		copy.configFile = configFile;
+		copy.initialRegionULX = initialRegionULX;
+		copy.initialRegionULY = initialRegionULY;
+		copy.initialRegionLRX = initialRegionLRX;
+		copy.initialRegionLRY = initialRegionLRY;
+		return copy;
+	}
+
 
 	public int getInitialRegionULX() {
 		return initialRegionULX;
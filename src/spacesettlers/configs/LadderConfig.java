@@ -15,6 +15,18 @@ public class LadderConfig {
 	 * The number of times each match is repeated
 	 */
 	int numRepeatMatches;
+
+	/**
+	 * If more than numRepeatMatches, the ladder keeps repeating the matches of the
+	 * teams whose place in the ranking isn't settled yet, up to this many times
+	 */
+	int maximumNumRepeatMatches;
+
+	/**
+	 * How sure the ladder has to be of the ranking before it stops repeating
+	 * matches (0.95 if not given)
+	 */
+	double rankingConfidence;
 	
 	/**
 	 * Number of threads
@@ -62,6 +74,32 @@ public class LadderConfig {
 		return numRepeatMatches;
 	}
 
+	public void setNumRepeatMatches(int numRepeatMatches) {
+		this.numRepeatMatches = numRepeatMatches;
+	}
+
+	/**
+	 * @return the most times a match is repeated (never less than numRepeatMatches)
+	 */
+	public int getMaximumNumRepeatMatches() {
+		return Math.max(maximumNumRepeatMatches, numRepeatMatches);
+	}
+
+	public void setMaximumNumRepeatMatches(int maximumNumRepeatMatches) {
+		this.maximumNumRepeatMatches = maximumNumRepeatMatches;
+	}
+
+	public double getRankingConfidence() {
+		if (rankingConfidence <= 0 || rankingConfidence >= 1) {
+			return 0.95;
+		}
+		return rankingConfidence;
+	}
+
+	public void setRankingConfidence(double rankingConfidence) {
+		this.rankingConfidence = rankingConfidence;
+	}
+
 	/**
 	 * Make the player names automatically generated for the ladder unique
 	 */
@@ -1,11 +1,15 @@
 package spacesettlers.configs;
 
+import java.io.Serializable;
+
 /**
  * Configuration for radomly generated asteroids
  * @author amy
  *
  */
-public class RandomAsteroidConfig {
+public class RandomAsteroidConfig implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	double probabilityMineable;
 	
 	int numberInitialAsteroids;
@@ -63,5 +67,13 @@ public class RandomAsteroidConfig {
 		return probabilityMetalsType;
 	}
 
+	public void setNumberInitialAsteroids(int numberInitialAsteroids) {
+		this.numberInitialAsteroids = numberInitialAsteroids;
+	}
+
+	public void setMaximumNumberAsteroids(int maximumNumberAsteroids) {
+		this.maximumNumberAsteroids = maximumNumberAsteroids;
+	}
+
 	
 }
@@ -1,11 +1,15 @@
 package spacesettlers.configs;
 
+import java.io.Serializable;
+
 /**
  * The simulator configuration file read in from xstream 
  * 
  * @author amy
  */
-public class SpaceSettlersConfig {
+public class SpaceSettlersConfig implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Width and height of the virtual environment
 	 */
@@ -72,6 +76,11 @@ public class SpaceSettlersConfig {
 	 * Scoring method for this game
 	 */
 	String scoringMethod;
+
+	/**
+	 * How collisions are found: AllPairs (the default) or SpatialHash
+	 */
+	String collisionDetection;
 	
 	/**
 	 * @return the height of the simulation environment.  This is measured in pixels.
@@ -181,4 +190,73 @@ public class SpaceSettlersConfig {
 	public void setBases(BaseConfig[] bases) {
 		this.bases = bases;
 	}
+
+	/**
+	 * Change the size of the environment (used by the benchmarks to keep the density
+	 * of objects the same as the number of objects grows)
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	public void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	public void setRandomSeed(long randomSeed) {
+		this.randomSeed = randomSeed;
+	}
+
+	/**
+	 * Make a copy for one game from a config that was read in once (the ladder
+	 * uses this instead of reading the file again for every game).  The teams,
+	 * bases and flags are copied since they are changed for each game and the
+	 * rest (which is never changed by a game) is shared.
+	 * 
+	 * @return
+	 */
+	public SpaceSettlersConfig copy() {
+		SpaceSettlersConfig copy = new SpaceSettlersConfig();
+		copy.height = height;
+		copy.width = width;
+		copy.simulationTimeStep = simulationTimeStep;
+		copy.simulationSteps = simulationSteps;
+		copy.randomSeed = randomSeed;
+		copy.numBeacons = numBeacons;
+		copy.maximumShipsPerTeam = maximumShipsPerTeam;
+		copy.maximumInitialShipsPerTeam = maximumInitialShipsPerTeam;
+		copy.randomAsteroids = randomAsteroids;
+		copy.fixedAsteroids = fixedAsteroids;
+		copy.scoringMethod = scoringMethod;
+		copy.collisionDetection = collisionDetection;
+
+		if (teams != null) {
+			copy.teams = new HighLevelTeamConfig[teams.length];
+			for (int i = 0; i < teams.length; i++) {
+				copy.teams[i] = teams[i].copy();
+			}
+		}
+		if (bases != null) {
+			copy.bases = new BaseConfig[bases.length];
+			for (int i = 0; i < bases.length; i++) {
+				copy.bases[i] = bases[i].copy();
+			}
+		}
+		if (flags != null) {
+			copy.flags = new FlagConfig[flags.length];
+			for (int i = 0; i < flags.length; i++) {
+				copy.flags[i] = flags[i].copy();
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * The collision detection method (AllPairs if it is not set in the config file)
+	 * 
+	 * @return
+	 */
+	public String getCollisionDetection() {
+		return collisionDetection;
+	}
 }
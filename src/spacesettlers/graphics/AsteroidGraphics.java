@@ -13,6 +13,8 @@ import spacesettlers.utilities.Position;
  * @author amy
  */
 public class AsteroidGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
     public static final Color REGULAR_ASTEROID_COLOR = new Color(126, 96, 58);
     public static final Color REGULAR_LINE_COLOR = new Color(162, 124, 76);
     public static final Color WATER_ASTEROID_COLOR = new Color(0,0,255);
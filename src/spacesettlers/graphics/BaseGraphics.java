@@ -17,6 +17,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class BaseGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
 	Base base;
 	Color teamColor;
 	public static final Color BASE_SHIELD_COLOR = Color.WHITE;
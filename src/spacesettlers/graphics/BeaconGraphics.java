@@ -17,6 +17,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class BeaconGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
     public static final Color BEACON_COLOR = Color.YELLOW;
     public static final Color BEACON_LINE_COLOR = new Color(255,215,0);
 
@@ -20,6 +20,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class CoreGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
     public static final Color CORE_COLOR = Color.GRAY;
     private Color coreColor;
     
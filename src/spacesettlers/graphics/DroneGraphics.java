@@ -19,6 +19,8 @@ import spacesettlers.utilities.Position;
  * @author amy
  */
 public class DroneGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
     public static final Color THRUST_COLOR = new Color(255, 242, 23);
     public static final Color THRUST_SPUTTER_COLOR = new Color(193, 72, 8);
     public static final Color SHIELD_COLOR = new Color(190, 40, 140);
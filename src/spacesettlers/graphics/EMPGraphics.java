@@ -13,6 +13,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class EMPGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
 	EMP emp;
 	//public static final Color EMP_OUTER_COLOR = new Color(200, 0, 200);
 	public static final Color EMP_INNER_COLOR = new Color(200, 200, 200);
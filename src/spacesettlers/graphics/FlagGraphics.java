@@ -17,6 +17,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class FlagGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
     public static final Shape FLAG_SHAPE = new Polygon(new int[]{-1, 0, 1, -1}, new int[]{-1, 1, -1, -1}, 4);
     Color flagColor;
     Flag flag;
@@ -13,6 +13,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class MissileGraphics extends SpacewarGraphics {
+	private static final long serialVersionUID = 1L;
+
 	Missile missile;
 	//Color missile_color = new Color(200, 200, 200);
 	Color firingShipColor;
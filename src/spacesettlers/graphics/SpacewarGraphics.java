@@ -1,6 +1,7 @@
 package spacesettlers.graphics;
 
 import java.awt.Graphics2D;
+import java.io.Serializable;
 import spacesettlers.utilities.Position;
 
 /**
@@ -9,7 +10,9 @@ import spacesettlers.utilities.Position;
  * 
  * @author amy
  */
-abstract public class SpacewarGraphics {
+abstract public class SpacewarGraphics implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Temporary variable used to deal with toroidial worlds.  The main
 	 * GUI can set this to handle the wrapping
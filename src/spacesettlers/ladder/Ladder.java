@@ -5,19 +5,24 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
-import spacesettlers.clients.Team;
 import spacesettlers.configs.*;
+import spacesettlers.simulator.LatencyHistogram;
 import spacesettlers.simulator.SimulatorException;
 import spacesettlers.simulator.SpaceSettlersSimulator;
+import spacesettlers.simulator.StepProfiler;
+import spacesettlers.simulator.TeamClientCache;
 
 import com.martiansoftware.jsap.JSAPResult;
 import com.thoughtworks.xstream.XStream;
@@ -44,17 +49,40 @@ public class Ladder {
 	
 	ExecutorService threadPool;
 
+	/**
+	 * The times for the parts of a time step over all of the games so far
+	 */
+	StepProfiler ladderProfiler;
+
+	/**
+	 * The client configs and classes of the teams (read once and shared by every game)
+	 */
+	TeamClientCache teamClientCache;
+
+	/**
+	 * The worker JVMs the games are played in (null to play them in this JVM)
+	 */
+	LadderWorkerPool workerPool;
+
+	/**
+	 * The games finished so far (in this run and earlier ones), null if the ladder
+	 * isn't keeping a journal
+	 */
+	LadderJournal journal;
+
 	/**
 	 * Make a new ladder
 	 * @param config
 	 * @throws SimulatorException 
 	 */
 	public Ladder(JSAPResult parserConfig) throws SimulatorException {
+		teamClientCache = new TeamClientCache();
 		loadConfigFiles(parserConfig);
 		this.parserConfig = parserConfig;
 
 		ladderResultsMap = new HashMap<String, TeamRecord>();
 		ladderOutputString = new ArrayList<String>();
+		ladderProfiler = new StepProfiler();
 	}
 
 	/**
@@ -62,6 +90,11 @@ public class Ladder {
 	 */
 	public Ladder(LadderConfig ladderConfig) {
 		this.ladderConfig = ladderConfig;
+		teamClientCache = new TeamClientCache();
+
+		ladderResultsMap = new HashMap<String, TeamRecord>();
+		ladderOutputString = new ArrayList<String>();
+		ladderProfiler = new StepProfiler();
 	}
 
 	/**
@@ -107,11 +140,40 @@ public class Ladder {
 			throw new SimulatorException("Error parsing config file at string " + e.getMessage());
 		}
 
+		// read every client config and find every client class once, up front (a
+		// team that can't be loaded is reported now and its games fail as before)
+		ArrayList<HighLevelTeamConfig> allTeams = new ArrayList<HighLevelTeamConfig>();
+		Collections.addAll(allTeams, ladderConfig.getVariableTeams());
+		Collections.addAll(allTeams, ladderConfig.getStaticTeams());
+		for (HighLevelTeamConfig teamConfig : allTeams) {
+			try {
+				TeamClientConfig teamClientConfig = teamClientCache
+						.getTeamClientConfig(parserConfig.getString("configPath") + teamConfig.getConfigFile());
+				teamClientCache.getClientClass(teamClientConfig.getClassname());
+			} catch (SimulatorException e) {
+				System.err.println("Error loading team " + teamConfig.getTeamName() + ": " + e.getMessage());
+			}
+		}
 
 	}
 
 	/**
-	 * Runs the ladder for the specified number of games
+	 * Play the games in worker JVMs (one game at a time in each) instead of in
+	 * threads of this JVM
+	 * 
+	 * @param numWorkers
+	 * @param gamesPerWorker number of games a worker plays before it is replaced
+	 * @param gameTimeoutSeconds longest a game can take before its worker is killed (0 for no limit)
+	 * @param ladderArgs the command line arguments of the ladder (the workers read the same configs)
+	 */
+	public void useWorkerProcesses(int numWorkers, int gamesPerWorker, long gameTimeoutSeconds, String[] ladderArgs) {
+		workerPool = new LadderWorkerPool(numWorkers, gamesPerWorker, gameTimeoutSeconds, ladderArgs);
+	}
+
+	/**
+	 * Runs the ladder for the specified number of games.  Every match is played
+	 * numRepeatMatches times, and then the matches of the teams whose place in the
+	 * ranking isn't settled yet are repeated (up to maximumNumRepeatMatches times).
 	 * @throws SimulatorException 
 	 * @throws InterruptedException 
 	 * @throws ExecutionException 
@@ -119,90 +181,313 @@ public class Ladder {
 	public void run() throws SimulatorException, InterruptedException, ExecutionException {
 		ArrayList<HighLevelTeamConfig[]>clientsPerMatch = getAllClientsForAllMatches();
 		
-		int numGames = clientsPerMatch.size() * ladderConfig.getNumRepeatMatches();
-		System.out.println("Ladder will run " + numGames + " games");
+		int numGames = clientsPerMatch.size() * ladderConfig.getMaximumNumRepeatMatches();
+		int minGames = clientsPerMatch.size() * ladderConfig.getNumRepeatMatches();
+		if (numGames > minGames) {
+			System.out.println("Ladder will run between " + minGames + " and " + numGames + " games");
+		} else {
+			System.out.println("Ladder will run " + numGames + " games");
+		}
 		System.out.println("Variable teams are: ");
 		for (HighLevelTeamConfig team : ladderConfig.getVariableTeams()) {
 			System.out.println(team);
 		}
-		int gameIndex = 0;
 		
-		// create the thread pool
+		// create the thread pool (a thread just waits on its worker when there are workers)
 		int numThreads = Math.max(ladderConfig.getNumThreads(), 1);
+		if (workerPool != null) {
+			numThreads = workerPool.getNumWorkers();
+		}
 		
 		threadPool = Executors.newFixedThreadPool(numThreads);
-		ArrayList<Future<LadderSingleGame>> ladderResults = new ArrayList<Future<LadderSingleGame>>();
+		CompletionService<LadderSingleGame> completedGames = new ExecutorCompletionService<LadderSingleGame>(threadPool);
+
+		int numFinished = 0;
+		boolean isFinished = false;
+		try {
+			// reuse the results of games that were already played the same way
+			LadderGameCache gameCache = null;
+			String cacheDirectory = parserConfig.getString("cacheDirectory");
+			if (cacheDirectory != null) {
+				if (simConfig.getRandomSeed() == 0) {
+					// each run of the ladder is meant to play different games
+					System.out.println("The simulator config asks for random seeds, so the games are not cached");
+				} else {
+					gameCache = new LadderGameCache(new File(cacheDirectory), teamClientCache);
+				}
+			}
 
-		for (int repeat = 0; repeat < ladderConfig.getNumRepeatMatches(); repeat++) {
-			for (HighLevelTeamConfig[] teamsForMatch : clientsPerMatch) {
-				gameIndex++;
+			// don't play the games that an earlier run of the ladder already finished
+			openJournal();
+
+			// play every match the fixed number of times
+			boolean[] matchesToPlay = new boolean[clientsPerMatch.size()];
+			Arrays.fill(matchesToPlay, true);
+			numFinished = playGames(completedGames, gameCache, clientsPerMatch, matchesToPlay, 0,
+					ladderConfig.getNumRepeatMatches(), numGames, 0);
+
+			// then only repeat the matches that can still change the ranking
+			double confidence = ladderConfig.getRankingConfidence();
+			for (int repeat = ladderConfig.getNumRepeatMatches(); repeat < ladderConfig.getMaximumNumRepeatMatches(); repeat++) {
+				Set<String> unsettledTeams = RankingConfidence.getUnsettledTeams(sortedLadderResults, confidence);
+				int numMatches = 0;
+				for (int match = 0; match < clientsPerMatch.size(); match++) {
+					matchesToPlay[match] = false;
+					for (HighLevelTeamConfig team : clientsPerMatch.get(match)) {
+						if (unsettledTeams.contains(getLadderName(team))) {
+							matchesToPlay[match] = true;
+						}
+					}
+					if (matchesToPlay[match]) {
+						numMatches++;
+					}
+				}
+				if (numMatches == 0) {
+					break;
+				}
+				System.out.println("Repeat " + (repeat + 1) + " plays " + numMatches + " / " + clientsPerMatch.size()
+						+ " matches again for teams " + unsettledTeams);
+				numFinished = playGames(completedGames, gameCache, clientsPerMatch, matchesToPlay, repeat, repeat + 1,
+						numGames, numFinished);
+			}
+			isFinished = true;
+		} finally {
+			// the threads (and workers) have to stop even if the ladder was cut short,
+			// and then the games that haven't started yet are dropped
+			if (isFinished) {
+				threadPool.shutdown();
+			} else {
+				threadPool.shutdownNow();
+			}
+			if (workerPool != null) {
+				workerPool.shutdown();
+			}
+		}
+
+		System.out.println("Overall team order: ");
+		for (TeamRecord record : sortedLadderResults) {
+			System.out.println(record.getTeamName() + " average score " + record.getAverageScore());
+		}
+		System.out.println("The ranking holds at " + getRankingConfidenceString() + " confidence after "
+				+ numFinished + " games");
+	}
 
-				// setup a new single game
-				LadderSingleGame newGame = new LadderSingleGame(parserConfig);
+	/**
+	 * Play some repeats of the matches and merge their results as they finish
+	 * 
+	 * @param completedGames where to run the games
+	 * @param gameCache null if the ladder isn't caching games
+	 * @param clientsPerMatch the teams of every match
+	 * @param matchesToPlay which of the matches to play
+	 * @param firstRepeat the first repeat to play
+	 * @param endRepeat one past the last repeat to play
+	 * @param numGames the most games the ladder plays (for the printouts)
+	 * @param numFinished the games finished before these
+	 * @return the games finished so far (a game that fails is logged and left out)
+	 */
+	int playGames(CompletionService<LadderSingleGame> completedGames, LadderGameCache gameCache,
+			ArrayList<HighLevelTeamConfig[]> clientsPerMatch, boolean[] matchesToPlay, int firstRepeat,
+			int endRepeat, int numGames, int numFinished)
+			throws SimulatorException, InterruptedException {
+		int numFromJournal = 0;
+		int numSubmitted = 0;
+		HashMap<Future<LadderSingleGame>, LadderSingleGame> submittedGames = new HashMap<Future<LadderSingleGame>, LadderSingleGame>();
+
+		for (int repeat = firstRepeat; repeat < endRepeat; repeat++) {
+			for (int match = 0; match < clientsPerMatch.size(); match++) {
+				if (!matchesToPlay[match]) {
+					continue;
+				}
+				// the same game keeps its index however many matches are repeated
+				HighLevelTeamConfig[] teamsForMatch = clientsPerMatch.get(match);
+				int gameIndex = repeat * clientsPerMatch.size() + match + 1;
+
+				if (journal != null) {
+					LadderJournal.Entry entry = journal.getEntry(gameIndex, LadderJournal.getTeamNames(teamsForMatch));
+					if (entry != null) {
+						addJournalEntry(entry, numGames);
+						numFromJournal++;
+						continue;
+					}
+				}
+
+				// setup a new single game (from the configs that were read in once)
+				LadderSingleGame newGame = new LadderSingleGame(parserConfig, simConfig, teamClientCache);
 				newGame.initializeGame(teamsForMatch, gameIndex, numGames);
+				if (gameCache != null) {
+					newGame.useGameCache(gameCache, repeat);
+				}
+				if (workerPool != null) {
+					newGame.useWorkerPool(workerPool);
+				}
 				
 				// run the game as threads are available
-				Future<LadderSingleGame> gameResult = threadPool.submit(newGame);
-				ladderResults.add(gameResult);
+				submittedGames.put(completedGames.submit(newGame), newGame);
+				numSubmitted++;
 			}
 		}
+		if (numFromJournal > 0) {
+			System.out.println(numFromJournal + " games were finished in an earlier run of the ladder");
+		}
+		numFinished += numFromJournal;
+		sortLadderResults();
 		
-		// loop through all the games and see if they are done (no blocking)
-		int numFinished = 0;
-		
-		while (numFinished != numGames) {
-			numFinished = 0;
-			
-			// loop through all the games
-			for (Future<LadderSingleGame> future : ladderResults) {
-				if (future.isDone()) {
-					numFinished++;
-				} else {
-					break;
-				}
-			}
-			
-			// sleep for a bit if not all the games are done
-			if (numFinished != numGames) {
-				Thread.sleep(Math.max(1000, 100 * (numGames - numFinished)));
+		// grab the results of each game as soon as it finishes (blocking until one does)
+		for (int i = 0; i < numSubmitted; i++) {
+			Future<LadderSingleGame> finishedGame = completedGames.take();
+			LadderSingleGame game;
+			try {
+				game = finishedGame.get();
+			} catch (ExecutionException e) {
+				// one broken game leaves a hole in the ladder instead of stopping it
+				LadderSingleGame failedGame = submittedGames.get(finishedGame);
+				System.err.println("Error: game " + failedGame.gameIndex + " ("
+						+ Arrays.toString(LadderJournal.getTeamNames(failedGame.simConfig.getTeams()))
+						+ ") failed and is left out of the ladder");
+				e.getCause().printStackTrace();
+				failedGame.releaseGame();
+				continue;
 			}
-		}		
+			addGameResults(game);
+			numFinished++;
 
-		System.out.println("Finished running games!  Now grabbing results from the threads.");
-		
-		// the games are over so combine their records and then sort them
-		for (Future<LadderSingleGame> future : ladderResults) {
-			LadderSingleGame game = future.get();
+			// remember the game in case the ladder is stopped before it is done
+			if (journal != null && game.getGameResult() != null) {
+				journal.append(game.gameIndex, LadderJournal.getTeamNames(game.simConfig.getTeams()),
+						game.getGameResult());
+			}
 			
-			// output the results of the match
-			ladderOutputString.addAll(game.getLadderOutputString());
-			//System.out.println("Output string is ");
-			//System.out.println(game.getLadderOutputString());
+			// the ladder only needs the records from here on
+			game.releaseGame();
 			
-			// merge the records for each game into the global list by team
-			HashMap <String, Team> gameResults = game.getLadderResultsMap();
-			for (String teamName : gameResults.keySet()) {
-				Team thisTeam = gameResults.get(teamName);
-				
-				if (!ladderResultsMap.containsKey(teamName)) {
-					ladderResultsMap.put(teamName, new TeamRecord(thisTeam));
-				}
-				ladderResultsMap.get(teamName).update(thisTeam);
+			// keep the results on disk up to date while the rest of the games run
+			sortLadderResults();
+			if (parserConfig != null) {
+				printResultsToHTML();
 			}
-			//System.out.println(game.getLadderResultsMap());
+			System.out.println("Finished " + numFinished + " / " + numGames + " games");
 		}
-		
-		// now sort the final results
+		return numFinished;
+	}
+
+	/**
+	 * The name a team has in the records of the ladder
+	 * 
+	 * @param team
+	 * @return the ladder name (null if the client config of the team can't be read)
+	 */
+	private String getLadderName(HighLevelTeamConfig team) {
+		try {
+			return teamClientCache.getTeamClientConfig(parserConfig.getString("configPath") + team.getConfigFile())
+					.getLadderName();
+		} catch (SimulatorException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the confidence of the ranking so far as a percentage
+	 */
+	String getRankingConfidenceString() {
+		return String.format("%.1f%%", 100 * RankingConfidence.getRankingConfidence(sortedLadderResults));
+	}
+
+	/**
+	 * Merge the records for each team in a finished game into the records for the ladder
+	 * 
+	 * @param game
+	 */
+	void addGameResults(LadderSingleGame game) {
+		// output the results of the match
+		ladderOutputString.addAll(game.getLadderOutputString());
+
+		// merge the records for each game into the global list by team
+		if (game.getGameResult() != null) {
+			addTeamResults(game.getGameResult());
+		}
+
+		// and add the step times of the game to the times for the whole ladder
+		if (game.getStepProfiler() != null) {
+			ladderProfiler.add(game.getStepProfiler());
+		}
+	}
+
+	/**
+	 * Merge the records of a game that was finished in an earlier run (its step
+	 * times were not kept)
+	 * 
+	 * @param entry
+	 * @param numGames
+	 */
+	void addJournalEntry(LadderJournal.Entry entry, int numGames) {
+		String str = "***Game " + entry.getGameIndex() + " / " + numGames + " was finished in an earlier run, scores follow ";
+		ladderOutputString.add(str);
+		for (LadderGameResult.TeamResult teamResult : entry.getGameResult().getTeamResults()) {
+			ladderOutputString.add("Team: " + teamResult.getLadderName() + " scored " + teamResult.getScore());
+		}
+		addTeamResults(entry.getGameResult());
+	}
+
+	/**
+	 * Merge the records for each team in a game into the records for the ladder
+	 * 
+	 * @param gameResult
+	 */
+	void addTeamResults(LadderGameResult gameResult) {
+		for (LadderGameResult.TeamResult teamResult : gameResult.getTeamResults()) {
+			String teamName = teamResult.getLadderName();
+			if (!ladderResultsMap.containsKey(teamName)) {
+				ladderResultsMap.put(teamName, new TeamRecord(teamName));
+			}
+			ladderResultsMap.get(teamName).update(teamResult);
+		}
+	}
+
+	/**
+	 * Open the journal of finished games (if the ladder was given one)
+	 * 
+	 * @throws SimulatorException if a team client config file can't be read
+	 */
+	void openJournal() throws SimulatorException {
+		String journalFile = parserConfig.getString("journalFile");
+		if (journalFile != null && journal == null) {
+			journal = new LadderJournal(new File(journalFile),
+					LadderJournal.getConfigKey(simConfig, ladderConfig, parserConfig.getString("configPath")));
+		}
+	}
+
+	/**
+	 * Make the results of the ladder again from the journal alone (without playing
+	 * any games), for instance to write the report of a ladder that was stopped
+	 * 
+	 * @throws SimulatorException if the ladder wasn't given a journal
+	 */
+	public void loadResultsFromJournal() throws SimulatorException {
+		openJournal();
+		if (journal == null) {
+			throw new SimulatorException("Error: the ladder needs a journal file to make its results from");
+		}
+
+		ladderResultsMap.clear();
+		ladderOutputString.clear();
+		ArrayList<LadderJournal.Entry> entries = journal.getEntries();
+		int numGames = getAllClientsForAllMatches().size() * ladderConfig.getMaximumNumRepeatMatches();
+		for (LadderJournal.Entry entry : entries) {
+			addJournalEntry(entry, numGames);
+		}
+		sortLadderResults();
+		System.out.println("Read " + entries.size() + " / " + numGames + " games from the ladder journal");
+	}
+
+	/**
+	 * Sort the records for the teams (best first)
+	 */
+	void sortLadderResults() {
 		sortedLadderResults = new ArrayList<TeamRecord>();
 		for (TeamRecord record : ladderResultsMap.values()) {
 			sortedLadderResults.add(record);
 		}
-		//System.out.println("Sorted results are " + sortedLadderResults);
 		Collections.sort(sortedLadderResults, new TeamRecordComparator());
-		System.out.println("Overall team order: ");
-		for (TeamRecord record : sortedLadderResults) {
-			System.out.println(record.getTeamName() + " average score " + record.getAverageScore());
-		}
 	}
 
 
@@ -354,6 +639,9 @@ public class Ladder {
 			str = getHTMLStringResults();
 			writer.write(str);
 
+			str = getHTMLTimingResults();
+			writer.write(str);
+
 			// end the table and page
 			str = getHTMLFooter();
 			writer.write(str);
@@ -364,9 +652,54 @@ public class Ladder {
 			e.printStackTrace();
 		}
 		
-		
-		
-		
+		printResultsToCSV();
+	}
+
+	/**
+	 * Saves out the results to a CSV file next to the HTML file (same name ending in .csv)
+	 */
+	public void printResultsToCSV() {
+		String ladderName = parserConfig.getString("configPath") + ladderConfig.getOutputFileName();
+		int extensionIndex = ladderName.lastIndexOf('.');
+		if (extensionIndex > ladderName.lastIndexOf(File.separatorChar)) {
+			ladderName = ladderName.substring(0, extensionIndex);
+		}
+		ladderName += ".csv";
+
+		try {
+			FileWriter writer = new FileWriter(ladderName, false);
+			writer.write(getCSVResults());
+			writer.close();
+		} catch (IOException e) {
+			System.err.println("Error writing ladder.");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the average results as comma separated values (one line per team)
+	 * 
+	 * @return
+	 */
+	String getCSVResults() {
+		StringBuilder str = new StringBuilder();
+		str.append("Place,Team,Games,Average Score,Average Beacons,Average Resources,Average Deaths,Average Kills,Average Assists,Average Cores\n");
+
+		int place = 1;
+		for (TeamRecord record : sortedLadderResults) {
+			str.append(place).append(',');
+			str.append('"').append(record.teamName.replace("\"", "\"\"")).append('"').append(',');
+			str.append(record.getNumGames()).append(',');
+			str.append(record.getAverageScore()).append(',');
+			str.append(record.getAverageBeacons()).append(',');
+			str.append(record.getAverageResources()).append(',');
+			str.append(record.getAverageDeaths()).append(',');
+			str.append(record.getAverageKills()).append(',');
+			str.append(record.getAverageAssists()).append(',');
+			str.append(record.getAverageCores()).append('\n');
+			place++;
+		}
+		return str.toString();
 	}
 
 	/**
@@ -375,11 +708,16 @@ public class Ladder {
 	 * @return
 	 */
 	private String getHTMLTableResults() {
+		double confidence = ladderConfig.getRankingConfidence();
+		double z = RankingConfidence.getZ(confidence);
+
 		String str = "<table border=\"2\">\n";
 		str += "<tr>\n";
 		str += "<th>Place</th>";
 		str += "<th>Team</th>";
 		str += "<th>Average Score</th>";
+		str += "<th>Score Interval (" + Math.round(100 * confidence) + "% confidence)</th>";
+		str += "<th>Games</th>";
 		str += "<th>Average Beacons</th>";
 		str += "<th>Average Resources</th>";
 		str += "<th>Average Deaths</th>";
@@ -394,6 +732,9 @@ public class Ladder {
 			str += "<td>" + place + "</td>\n";
 			str += "<td>" + record.getTeamName() + "</td>\n";
 			str += "<td>" + record.getAverageScore() + "</td>\n";
+			double halfWidth = z * record.getScoreStandardError();
+			str += "<td>" + (Double.isInfinite(halfWidth) ? "-" : "&plusmn; " + String.format("%.2f", halfWidth)) + "</td>\n";
+			str += "<td>" + record.getNumGames() + "</td>\n";
 			str += "<td>" + record.getAverageBeacons() + "</td>\n";
 			str += "<td>" + record.getAverageResources() + "</td>\n";
 			str += "<td>" + String.format("%02.02f", record.getAverageDeaths()) + "</td>\n";
@@ -405,6 +746,7 @@ public class Ladder {
 		}
 		
 		str += "</table>";
+		str += "<p>The ranking holds at " + getRankingConfidenceString() + " confidence</p>\n";
 		
 		return str;
 	}
@@ -424,6 +766,60 @@ public class Ladder {
 		return str;
 	}
 
+	/**
+	 * Writes the times for the parts of a time step (over all games so far) to a HTML table
+	 * 
+	 * @return
+	 */
+	private String getHTMLTimingResults() {
+		String str = "<h3>Time step timing (milliseconds)</h3>\n";
+		str += "<table border=\"2\">\n";
+		str += "<tr>\n";
+		str += "<th>Part of the step</th>";
+		str += "<th>Count</th>";
+		str += "<th>50th percentile</th>";
+		str += "<th>99th percentile</th>";
+		str += "<th>Max</th>";
+		str += "</tr>";
+
+		for (StepProfiler.Phase phase : StepProfiler.Phase.values()) {
+			str += getHTMLTimingRow(phase.name(), ladderProfiler.getPhaseHistogram(phase));
+		}
+		for (String teamName : ladderProfiler.getTeamNames()) {
+			for (StepProfiler.Callback callback : StepProfiler.Callback.values()) {
+				LatencyHistogram histogram = ladderProfiler.getCallbackHistogram(teamName, callback);
+				if (histogram.getCount() > 0) {
+					str += getHTMLTimingRow(teamName + " " + callback.name(), histogram);
+				}
+			}
+		}
+		for (String actionName : ladderProfiler.getActionNames()) {
+			str += getHTMLTimingRow("action " + actionName, ladderProfiler.getActionHistogram(actionName));
+		}
+
+		str += "</table>";
+
+		return str;
+	}
+
+	/**
+	 * Writes one row of the timing table
+	 * 
+	 * @param name
+	 * @param histogram
+	 * @return
+	 */
+	private String getHTMLTimingRow(String name, LatencyHistogram histogram) {
+		String str = "<tr>\n";
+		str += "<td>" + name.replaceAll("<", "&lt;").replaceAll(">", "&gt;") + "</td>\n";
+		str += "<td>" + histogram.getCount() + "</td>\n";
+		str += "<td>" + String.format("%.3f", histogram.getPercentile(50) / 1e6) + "</td>\n";
+		str += "<td>" + String.format("%.3f", histogram.getPercentile(99) / 1e6) + "</td>\n";
+		str += "<td>" + String.format("%.3f", histogram.getMax() / 1e6) + "</td>\n";
+		str += "</tr>";
+		return str;
+	}
+
 	/**
 	 * Writes the header information for the ladder
 	 * 
@@ -0,0 +1,369 @@
+package spacesettlers.ladder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import spacesettlers.configs.*;
+import spacesettlers.simulator.SimulatorException;
+import spacesettlers.simulator.SpaceSettlersSimulator;
+import spacesettlers.simulator.TeamClientCache;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Keeps the results of ladder games in a directory so that a game that was
+ * already played with exactly the same setup is not played again.  Each game is
+ * stored under a SHA-256 hash of everything that decides how it goes:
+ * <ul>
+ * <li>the simulator config for the game (with its teams, bases, flags and seed)</li>
+ * <li>the repeat of the match</li>
+ * <li>the client config file and knowledge file of each team</li>
+ * <li>the compiled classes in the package of each team client</li>
+ * <li>every compiled class of the game itself (all of the spacesettlers packages)</li>
+ * </ul>
+ * so when a client in its own package changes, only the games it plays in are
+ * run again, and any change to the game (including the example clients in
+ * spacesettlers.clients) runs every game again.
+ *
+ * A game is only the same if it is played with the same seed, so the ladder only
+ * uses the cache when the simulator config gives a seed (a seed of 0 asks for a
+ * new random seed every game).  The cache never changes the seed, so a ladder
+ * plays the same games with or without it.  Classes that a client shares with
+ * other packages outside of spacesettlers are not seen, so empty the directory
+ * after changing them.
+ */
+public class LadderGameCache {
+	/**
+	 * Change this to ignore all of the results cached by older versions
+	 */
+	static final String CACHE_VERSION = "3";
+
+	/**
+	 * The directory of the classes of the game (hashed with every package under it)
+	 */
+	static final String ENGINE_PACKAGE = "spacesettlers/";
+
+	/**
+	 * Where the results are kept (one file per game)
+	 */
+	File directory;
+
+	/**
+	 * The digest of the classes in the package of each class name seen so far
+	 * (and of the whole game under ENGINE_PACKAGE)
+	 */
+	HashMap<String, byte[]> codeDigests;
+
+	/**
+	 * Where the client config files are read from
+	 */
+	TeamClientCache teamClientCache;
+
+	/**
+	 * Use (and make if needed) a cache directory
+	 *
+	 * @param directory
+	 * @param teamClientCache
+	 */
+	public LadderGameCache(File directory, TeamClientCache teamClientCache) {
+		this.directory = directory;
+		this.teamClientCache = teamClientCache;
+		directory.mkdirs();
+		codeDigests = new HashMap<String, byte[]>();
+	}
+
+	/**
+	 * Make the key for a game
+	 *
+	 * @param simConfig  the config for the game (after its teams are set)
+	 * @param repeat     which repeat of the match the game is
+	 * @param configPath where the client config files are
+	 * @return the hash as a hex string
+	 * @throws SimulatorException if a client config or client class can't be loaded
+	 */
+	public String getKey(SpaceSettlersConfig simConfig, int repeat, String configPath) throws SimulatorException {
+		MessageDigest digest = newDigest();
+		addString(digest, CACHE_VERSION);
+		addString(digest, newXStream().toXML(simConfig));
+		addString(digest, Integer.toString(repeat));
+		digest.update(getEngineDigest());
+
+		for (HighLevelTeamConfig teamConfig : simConfig.getTeams()) {
+			String fileName = configPath + teamConfig.getConfigFile();
+			addFile(digest, new File(fileName));
+
+			TeamClientConfig teamClientConfig = teamClientCache.getTeamClientConfig(fileName);
+			if (teamClientConfig.getKnowledgeFile() != null) {
+				addFile(digest, new File(teamClientConfig.getKnowledgeFile()));
+			}
+			digest.update(getCodeDigest(teamClientConfig.getClassname()));
+		}
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @param hash
+	 * @return the bytes as a hex string
+	 */
+	static String toHex(byte[] hash) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : hash) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Find the result of a game
+	 *
+	 * @param key
+	 * @return the result or null if the game isn't in the cache (or can't be read)
+	 */
+	public LadderGameResult load(String key) {
+		File file = getFile(key);
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			return (LadderGameResult) newXStream().fromXML(file);
+		} catch (Exception e) {
+			System.err.println("Error reading cached game " + file + " (the game will be run again)");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Save the result of a game.  The file is written under another name and then
+	 * moved into place so an interrupted ladder never leaves half a result.
+	 *
+	 * @param key
+	 * @param result
+	 */
+	public void store(String key, LadderGameResult result) {
+		File file = getFile(key);
+		File tempFile = new File(directory, key + ".tmp");
+		try {
+			OutputStream out = new FileOutputStream(tempFile);
+			try {
+				newXStream().toXML(result, out);
+			} finally {
+				out.close();
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.err.println("Error saving cached game " + file);
+			e.printStackTrace();
+			tempFile.delete();
+		}
+	}
+
+	private File getFile(String key) {
+		return new File(directory, key + ".xml");
+	}
+
+	static XStream newXStream() {
+		XStream xstream = new XStream();
+		xstream.alias("SpaceSettlersConfig", SpaceSettlersConfig.class);
+		xstream.alias("HighLevelTeamConfig", HighLevelTeamConfig.class);
+		xstream.alias("BaseConfig", BaseConfig.class);
+		xstream.alias("AsteroidConfig", RandomAsteroidConfig.class);
+		xstream.alias("FixedAsteroidConfig", FixedAsteroidConfig.class);
+		xstream.alias("FlagConfig", FlagConfig.class);
+		xstream.alias("LadderGameResult", LadderGameResult.class);
+		xstream.alias("TeamResult", LadderGameResult.TeamResult.class);
+		xstream.allowTypesByRegExp(new String[] { ".*" });
+		return xstream;
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform has to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Add a string (ended so that two strings can't run together)
+	 */
+	static void addString(MessageDigest digest, String str) {
+		digest.update(str.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Add the name and contents of a file (or that it is missing)
+	 */
+	static void addFile(MessageDigest digest, File file) throws SimulatorException {
+		addString(digest, file.getPath());
+		if (!file.exists()) {
+			addString(digest, "missing");
+			return;
+		}
+		try {
+			byte[] contents = Files.readAllBytes(file.toPath());
+			addString(digest, Integer.toString(contents.length));
+			digest.update(contents);
+		} catch (IOException e) {
+			throw new SimulatorException("Error reading " + file + " for the ladder cache: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Find the digest of the compiled classes in the package of a class (found in
+	 * the directory or jar the class was loaded from)
+	 *
+	 * @param className
+	 * @return
+	 * @throws SimulatorException if the class can't be found
+	 */
+	byte[] getCodeDigest(String className) throws SimulatorException {
+		String classFile = className.replace('.', '/') + ".class";
+		return getCodeDigest(className, classFile.substring(0, classFile.lastIndexOf('/') + 1), false);
+	}
+
+	/**
+	 * Find the digest of every compiled class of the game (every package under
+	 * spacesettlers, found where the simulator was loaded from)
+	 *
+	 * @return
+	 * @throws SimulatorException if the classes can't be read
+	 */
+	byte[] getEngineDigest() throws SimulatorException {
+		return getCodeDigest(SpaceSettlersSimulator.class.getName(), ENGINE_PACKAGE, true);
+	}
+
+	/**
+	 * Find the digest of the compiled classes in a package (found in the directory
+	 * or jar a class was loaded from)
+	 *
+	 * @param className     a class loaded from the same place as the package
+	 * @param packagePrefix the directory of the package (such as "spacesettlers/")
+	 * @param subpackages   true to include the packages under it too
+	 * @return
+	 * @throws SimulatorException if the class can't be found
+	 */
+	private synchronized byte[] getCodeDigest(String className, String packagePrefix, boolean subpackages)
+			throws SimulatorException {
+		String digestKey = className + (subpackages ? " " + packagePrefix + "**" : "");
+		byte[] codeDigest = codeDigests.get(digestKey);
+		if (codeDigest != null) {
+			return codeDigest;
+		}
+
+		MessageDigest digest = newDigest();
+		addString(digest, digestKey);
+		try {
+			Class<?> loadedClass = Class.forName(className);
+			String classFile = className.replace('.', '/') + ".class";
+			URL url = loadedClass.getClassLoader().getResource(classFile);
+			if (url == null) {
+				throw new SimulatorException("Unable to find the class file of " + className);
+			}
+
+			if (url.getProtocol().equals("file")) {
+				// every class file in the directory of the package (found from the root of
+				// the class path the class was loaded from)
+				File root = new File(url.toURI());
+				for (int i = 0; i < classFile.split("/").length; i++) {
+					root = root.getParentFile();
+				}
+				ArrayList<String> names = new ArrayList<String>();
+				findClassFiles(new File(root, packagePrefix), packagePrefix, subpackages, names);
+				Collections.sort(names);
+				for (String name : names) {
+					addString(digest, name);
+					addStream(digest, new FileInputStream(new File(root, name)));
+				}
+			} else if (url.getProtocol().equals("jar")) {
+				// every class in the package in the jar
+				JarFile jarFile = ((JarURLConnection) url.openConnection()).getJarFile();
+				ArrayList<String> entryNames = new ArrayList<String>();
+				Enumeration<JarEntry> entries = jarFile.entries();
+				while (entries.hasMoreElements()) {
+					String name = entries.nextElement().getName();
+					if (name.startsWith(packagePrefix) && name.endsWith(".class")
+							&& (subpackages || name.indexOf('/', packagePrefix.length()) < 0)) {
+						entryNames.add(name);
+					}
+				}
+				Collections.sort(entryNames);
+				for (String name : entryNames) {
+					addString(digest, name);
+					addStream(digest, jarFile.getInputStream(jarFile.getJarEntry(name)));
+				}
+			} else {
+				// just the class itself
+				addStream(digest, url.openStream());
+			}
+		} catch (ClassNotFoundException e) {
+			throw new SimulatorException("Unable to find client class " + className + " for the ladder cache");
+		} catch (SimulatorException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SimulatorException("Error reading the classes of " + className + " for the ladder cache: " + e);
+		}
+
+		codeDigest = digest.digest();
+		codeDigests.put(digestKey, codeDigest);
+		return codeDigest;
+	}
+
+	/**
+	 * Find the class files in a directory
+	 *
+	 * @param directory
+	 * @param path        the path of the directory from the root of the class path
+	 * @param subpackages true to look in the directories under it too
+	 * @param names       the paths of the class files are added here
+	 */
+	static void findClassFiles(File directory, String path, boolean subpackages, ArrayList<String> names) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isFile() && file.getName().endsWith(".class")) {
+				names.add(path + file.getName());
+			} else if (subpackages && file.isDirectory()) {
+				findClassFiles(file, path + file.getName() + "/", true, names);
+			}
+		}
+	}
+
+	/**
+	 * Add everything in a stream (and close it)
+	 */
+	private static void addStream(MessageDigest digest, InputStream in) throws IOException {
+		try {
+			byte[] buffer = new byte[8192];
+			int numRead;
+			while ((numRead = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, numRead);
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package spacesettlers.ladder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import spacesettlers.clients.Team;
+
+/**
+ * The outcome of one ladder game: the stats of each team that feed its
+ * TeamRecord.  Unlike the Teams themselves this does not hold on to the
+ * clients or the space, so it can be kept around or saved to disk (see
+ * LadderGameCache).
+ */
+@SuppressWarnings("serial")
+public class LadderGameResult implements Serializable {
+	/**
+	 * The stats of one team at the end of the game
+	 */
+	public static class TeamResult implements Serializable {
+		String ladderName;
+
+		double score;
+
+		double resources;
+
+		int beacons, kills, deaths, assists, cores;
+
+		/**
+		 * Copy the stats of a team at the end of a game
+		 * 
+		 * @param team
+		 */
+		public TeamResult(Team team) {
+			ladderName = team.getLadderName();
+			score = team.getScore();
+			resources = team.getSummedTotalResources();
+			beacons = team.getTotalBeaconsCollected();
+			kills = team.getTotalKillsInflicted();
+			deaths = team.getTotalKillsReceived();
+			assists = team.getTotalAssistsInflicted();
+			cores = team.getTotalCoresCollected();
+		}
+
+		public String getLadderName() {
+			return ladderName;
+		}
+
+		public double getScore() {
+			return score;
+		}
+
+		public double getResources() {
+			return resources;
+		}
+
+		public int getBeacons() {
+			return beacons;
+		}
+
+		public int getKills() {
+			return kills;
+		}
+
+		public int getDeaths() {
+			return deaths;
+		}
+
+		public int getAssists() {
+			return assists;
+		}
+
+		public int getCores() {
+			return cores;
+		}
+	}
+
+	/**
+	 * The teams in the order the simulator had them
+	 */
+	ArrayList<TeamResult> teamResults;
+
+	public LadderGameResult() {
+		teamResults = new ArrayList<TeamResult>();
+	}
+
+	/**
+	 * Add the stats of a team at the end of the game
+	 * 
+	 * @param team
+	 */
+	public void addTeam(Team team) {
+		teamResults.add(new TeamResult(team));
+	}
+
+	public ArrayList<TeamResult> getTeamResults() {
+		return teamResults;
+	}
+}
@@ -0,0 +1,290 @@
+package spacesettlers.ladder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import spacesettlers.configs.HighLevelTeamConfig;
+import spacesettlers.configs.LadderConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.simulator.SimulatorException;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
+
+/**
+ * An append-only file with the outcome of every finished game of a ladder (one
+ * line of XML per game), so a ladder that was stopped can start again without
+ * playing the games it already finished, and the report can be made again from
+ * the file alone.
+ *
+ * Every game is written with a key of the configs (see getConfigKey), and only
+ * the games with the key of the current configs are used.  The key does not
+ * cover the client code, so start a new journal after changing a client.
+ */
+public class LadderJournal {
+	/**
+	 * One finished game
+	 */
+	@SuppressWarnings("serial")
+	public static class Entry implements Serializable {
+		/**
+		 * The key of the configs the game was played with
+		 */
+		String configKey;
+
+		int gameIndex;
+
+		/**
+		 * The names of the teams in the match (as in the ladder config)
+		 */
+		String[] teamNames;
+
+		LadderGameResult gameResult;
+
+		public int getGameIndex() {
+			return gameIndex;
+		}
+
+		public String[] getTeamNames() {
+			return teamNames;
+		}
+
+		public LadderGameResult getGameResult() {
+			return gameResult;
+		}
+	}
+
+	/**
+	 * The end of every whole line
+	 */
+	static final String END_TAG = "</LadderJournalEntry>";
+
+	File file;
+
+	/**
+	 * The key of the configs of this ladder
+	 */
+	String configKey;
+
+	/**
+	 * The games in the file that were played with these configs, by game index
+	 */
+	HashMap<Integer, Entry> entries;
+
+	XStream xstream;
+
+	/**
+	 * Open a journal (reading the games already in it)
+	 *
+	 * @param file
+	 * @param configKey see getConfigKey
+	 */
+	public LadderJournal(File file, String configKey) {
+		this.file = file;
+		this.configKey = configKey;
+		entries = new HashMap<Integer, Entry>();
+
+		xstream = LadderGameCache.newXStream();
+		xstream.alias("LadderJournalEntry", Entry.class);
+
+		if (file.exists()) {
+			readEntries();
+		}
+	}
+
+	/**
+	 * The key for the configs of a ladder.  It only covers what changes the games
+	 * and their outcomes (the simulator config, the teams, the number of repeats
+	 * and the team client config files), so a ladder can be started again with
+	 * more threads or a different output file and keep its journal.
+	 *
+	 * @param simConfig
+	 * @param ladderConfig
+	 * @param configPath the directory of the team client config files
+	 * @return the hash as a hex string
+	 * @throws SimulatorException if a team client config file can't be read
+	 */
+	public static String getConfigKey(SpaceSettlersConfig simConfig, LadderConfig ladderConfig, String configPath)
+			throws SimulatorException {
+		XStream configXStream = LadderGameCache.newXStream();
+
+		MessageDigest digest = LadderGameCache.newDigest();
+		LadderGameCache.addString(digest, configXStream.toXML(simConfig));
+		LadderGameCache.addString(digest, configXStream.toXML(ladderConfig.getStaticTeams()));
+		LadderGameCache.addString(digest, configXStream.toXML(ladderConfig.getVariableTeams()));
+		LadderGameCache.addString(digest, Integer.toString(ladderConfig.getMaximumNumberVariableTeams()));
+		LadderGameCache.addString(digest, Integer.toString(ladderConfig.getNumRepeatMatches()));
+
+		for (HighLevelTeamConfig[] teams : new HighLevelTeamConfig[][] { ladderConfig.getStaticTeams(),
+				ladderConfig.getVariableTeams() }) {
+			if (teams == null) {
+				continue;
+			}
+			for (HighLevelTeamConfig teamConfig : teams) {
+				LadderGameCache.addFile(digest, new File(configPath + teamConfig.getConfigFile()));
+			}
+		}
+		return LadderGameCache.toHex(digest.digest());
+	}
+
+	/**
+	 * The names of the teams in a match
+	 *
+	 * @param teamsForMatch
+	 * @return
+	 */
+	public static String[] getTeamNames(HighLevelTeamConfig[] teamsForMatch) {
+		String[] teamNames = new String[teamsForMatch.length];
+		for (int i = 0; i < teamsForMatch.length; i++) {
+			teamNames[i] = teamsForMatch[i].getTeamName();
+		}
+		return teamNames;
+	}
+
+	/**
+	 * Read every whole line of the file (a line cut off when the ladder was stopped
+	 * is left out)
+	 */
+	private void readEntries() {
+		int numOtherConfigs = 0;
+		try {
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.isEmpty()) {
+						continue;
+					}
+					// the parser fills in what it can of a line that was cut off
+					Entry entry = null;
+					try {
+						if (line.endsWith(END_TAG)) {
+							entry = (Entry) xstream.fromXML(line);
+						}
+					} catch (Exception e) {
+						// left out below
+					}
+					if (entry == null) {
+						System.err.println("Skipping unreadable line in the ladder journal " + file);
+						continue;
+					}
+					if (configKey.equals(entry.configKey)) {
+						entries.put(entry.gameIndex, entry);
+					} else {
+						numOtherConfigs++;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			System.err.println("Error reading the ladder journal " + file);
+			e.printStackTrace();
+		}
+
+		if (numOtherConfigs > 0) {
+			System.out.println("Ignoring " + numOtherConfigs + " games in the ladder journal that were played with other configs");
+		}
+	}
+
+	/**
+	 * Find a game that was already finished
+	 *
+	 * @param gameIndex
+	 * @param teamNames
+	 * @return the game or null if it was not finished (with these teams)
+	 */
+	public Entry getEntry(int gameIndex, String[] teamNames) {
+		Entry entry = entries.get(gameIndex);
+		if (entry == null || !Arrays.equals(entry.teamNames, teamNames)) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * @return every finished game (in the order of the game index)
+	 */
+	public ArrayList<Entry> getEntries() {
+		ArrayList<Entry> sortedEntries = new ArrayList<Entry>(entries.values());
+		Collections.sort(sortedEntries, new Comparator<Entry>() {
+			public int compare(Entry entry1, Entry entry2) {
+				return Integer.compare(entry1.gameIndex, entry2.gameIndex);
+			}
+		});
+		return sortedEntries;
+	}
+
+	/**
+	 * Add a finished game to the end of the file (and make sure it is on the disk
+	 * before going on)
+	 *
+	 * @param gameIndex
+	 * @param teamNames
+	 * @param gameResult
+	 */
+	public synchronized void append(int gameIndex, String[] teamNames, LadderGameResult gameResult) {
+		Entry entry = new Entry();
+		entry.configKey = configKey;
+		entry.gameIndex = gameIndex;
+		entry.teamNames = teamNames;
+		entry.gameResult = gameResult;
+
+		StringWriter line = new StringWriter();
+		xstream.marshal(entry, new CompactWriter(line));
+
+		try {
+			endPartialLine();
+			FileOutputStream out = new FileOutputStream(file, true);
+			try {
+				Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+				writer.write(line.toString());
+				writer.write('\n');
+				writer.flush();
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			entries.put(gameIndex, entry);
+		} catch (IOException e) {
+			System.err.println("Error writing game " + gameIndex + " to the ladder journal " + file);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Start a new line if the last one was cut off (so the next game is not lost
+	 * with it)
+	 */
+	private void endPartialLine() throws IOException {
+		if (!file.exists() || file.length() == 0) {
+			return;
+		}
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(randomAccessFile.length() - 1);
+			if (randomAccessFile.read() != '\n') {
+				randomAccessFile.write('\n');
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+}
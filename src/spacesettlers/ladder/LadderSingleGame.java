@@ -7,7 +7,6 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
@@ -15,86 +14,70 @@ import spacesettlers.clients.Team;
 import spacesettlers.configs.*;
 import spacesettlers.simulator.SimulatorException;
 import spacesettlers.simulator.SpaceSettlersSimulator;
+import spacesettlers.simulator.StepProfiler;
+import spacesettlers.simulator.TeamClientCache;
 
 import com.martiansoftware.jsap.JSAPResult;
-import com.thoughtworks.xstream.XStream;
 
 /**
  * Runs a single game of the the ladder (for multi-threading)
  * @author amy
  *
  */
-public class LadderSingleGame implements Callable {
-	LadderConfig ladderConfig;
-
+public class LadderSingleGame implements Callable<LadderSingleGame> {
 	SpaceSettlersSimulator simulator;
 
 	SpaceSettlersConfig simConfig;
 
 	JSAPResult parserConfig;
 
-	HashMap <String, Team> ladderResultsMap;
+	/**
+	 * The client configs and classes shared by all of the games of the ladder
+	 */
+	TeamClientCache teamClientCache;
+
+	/**
+	 * The stats of each team at the end of the game (null if the game failed)
+	 */
+	LadderGameResult gameResult;
 
 	ArrayList<String> ladderOutputString;
 	
 	int gameIndex, numGames;
 
 	/**
-	 * Make a new ladder
-	 * @param config
-	 * @throws SimulatorException 
+	 * The times for the parts of each time step of the game (null if the game failed)
 	 */
-	public LadderSingleGame(JSAPResult parserConfig) throws SimulatorException {
-		loadConfigFiles(parserConfig);
-		this.parserConfig = parserConfig;
-
-		ladderResultsMap = new HashMap<String, Team>();
-		ladderOutputString = new ArrayList<String>();
-	}
+	StepProfiler stepProfiler;
 
 	/**
-	 * Load in the configuration files
-	 * @throws SimulatorException 
-	 * 
+	 * Where finished games are kept (null if the ladder isn't caching games)
 	 */
-	public void loadConfigFiles(JSAPResult parserConfig) throws SimulatorException {
-		// load in the simulator config file
-		String configFile = parserConfig.getString("configPath") + parserConfig.getString("simulatorConfigFile");
-
-		XStream xstream = new XStream();
-		xstream.alias("SpaceSettlersConfig", SpaceSettlersConfig.class);
-		xstream.alias("HighLevelTeamConfig", HighLevelTeamConfig.class);
-		xstream.alias("BaseConfig", BaseConfig.class);
-		xstream.alias("AsteroidConfig", RandomAsteroidConfig.class);
-		xstream.alias("FixedAsteroidConfig", FixedAsteroidConfig.class);
-		xstream.alias("FlagConfig", FlagConfig.class);
-		xstream.allowTypesByRegExp(new String[] { ".*" });
-
-		try { 
-			simConfig = (SpaceSettlersConfig) xstream.fromXML(new File(configFile));
-		} catch (Exception e) {
-			throw new SimulatorException("Error parsing config file at string " + e.getMessage());
-		}
-
-		// load in the ladder config file
-		configFile = parserConfig.getString("configPath") + parserConfig.getString("ladderConfigFile");
-
-		xstream = new XStream();
-		xstream.alias("LadderConfig", LadderConfig.class);
-		xstream.alias("HighLevelTeamConfig", HighLevelTeamConfig.class);
-		xstream.allowTypesByRegExp(new String[] { ".*" });
-
-		try { 
-			ladderConfig = (LadderConfig) xstream.fromXML(new File(configFile));
-
-			ladderConfig.makePlayerNamesUnique();
+	LadderGameCache gameCache;
 
+	/**
+	 * Which repeat of the match this game is (part of its key in the cache)
+	 */
+	int repeat;
 
-		} catch (Exception e) {
-			throw new SimulatorException("Error parsing config file at string " + e.getMessage());
-		}
+	/**
+	 * The worker JVMs the game is played in (null to play it in this JVM)
+	 */
+	LadderWorkerPool workerPool;
 
+	/**
+	 * Make a new game from the configs the ladder already read in
+	 * @param parserConfig
+	 * @param simConfigTemplate the simulator config (copied, so the game can change its teams)
+	 * @param teamClientCache the client configs and classes shared by all of the games
+	 */
+	public LadderSingleGame(JSAPResult parserConfig, SpaceSettlersConfig simConfigTemplate,
+			TeamClientCache teamClientCache) {
+		this.parserConfig = parserConfig;
+		this.simConfig = simConfigTemplate.copy();
+		this.teamClientCache = teamClientCache;
 
+		ladderOutputString = new ArrayList<String>();
 	}
 
 	/**
@@ -106,8 +89,13 @@ public class LadderSingleGame implements Callable {
 		this.gameIndex = gameIndex;
 		this.numGames = numGames;
 		
-		// setup the simulator for this match
-		simConfig.setTeams(teamsForMatch);
+		// setup the simulator for this match (with its own copy of each team since
+		// the simulator fills in the initial region of a team that does not have one)
+		HighLevelTeamConfig[] teams = new HighLevelTeamConfig[teamsForMatch.length];
+		for (int i = 0; i < teamsForMatch.length; i++) {
+			teams[i] = teamsForMatch[i].copy();
+		}
+		simConfig.setTeams(teams);
 
 		// set the bases to match the teams for this game.  Read in the ones
 		// from the config file first (and rename them)
@@ -136,10 +124,48 @@ public class LadderSingleGame implements Callable {
 		}
 	}
 
+	/**
+	 * Use the results of this game from the cache if it has already been played
+	 * (and save them there if it hasn't).  The seed of the game is not changed, so
+	 * only use the cache when the simulator config gives a seed.
+	 * 
+	 * @param gameCache
+	 * @param repeat which repeat of the match this game is
+	 */
+	public void useGameCache(LadderGameCache gameCache, int repeat) {
+		this.gameCache = gameCache;
+		this.repeat = repeat;
+	}
+
+	/**
+	 * The key of this game in the cache
+	 * 
+	 * @return the key or null if it can't be made (the game is then played without
+	 *         the cache, and fails there if a client can't be loaded)
+	 */
+	String getCacheKey() {
+		try {
+			return gameCache.getKey(simConfig, repeat, parserConfig.getString("configPath"));
+		} catch (SimulatorException e) {
+			System.err.println("Unable to find game " + gameIndex + " in the ladder cache, playing it without the cache");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Play the game in one of the worker JVMs of a pool instead of in this JVM
+	 * 
+	 * @param workerPool
+	 */
+	public void useWorkerPool(LadderWorkerPool workerPool) {
+		this.workerPool = workerPool;
+	}
+
 	/**
 	 * Actually run the single game 
 	 */
-	public Object call() throws Exception {
+	public LadderSingleGame call() throws Exception {
 		// tell the user the match is about to begin
 		String str = "***Game " + gameIndex + " / " + numGames + " with teams ";
 		for (HighLevelTeamConfig team : simConfig.getTeams()) {
@@ -149,9 +175,56 @@ public class LadderSingleGame implements Callable {
 		System.out.println(str);
 		ladderOutputString.add(str);
 
+		// skip the game if it was already played the same way
+		String cacheKey = null;
+		if (gameCache != null) {
+			cacheKey = getCacheKey();
+		}
+		if (cacheKey != null) {
+			gameResult = gameCache.load(cacheKey);
+			if (gameResult != null) {
+				str = "***Game " + gameIndex + " / " + numGames + " was already played, scores follow ";
+				System.out.println(str);
+				ladderOutputString.add(str);
+				for (LadderGameResult.TeamResult teamResult : gameResult.getTeamResults()) {
+					str = "Team: " + teamResult.getLadderName() + " scored " + teamResult.getScore();
+					ladderOutputString.add(str);
+					System.out.println(str);
+				}
+				return this;
+			}
+		}
+
+		if (workerPool != null) {
+			workerPool.play(this);
+		} else {
+			playGame();
+		}
+
+		if (gameResult != null && cacheKey != null) {
+			gameCache.store(cacheKey, gameResult);
+		}
+
+		str = "***Game " + gameIndex + " / " + numGames + " ended, returning from thread";
+		return this;
+	}
+
+	/**
+	 * Play the game in this JVM (sets the game result and step times, or leaves
+	 * them null if the game failed)
+	 */
+	void playGame() {
+		String str;
 		try {
 			// try to make a simulator and run it
-			simulator = new SpaceSettlersSimulator(simConfig, parserConfig);
+			simulator = new SpaceSettlersSimulator(simConfig, parserConfig, teamClientCache);
+
+			// record the game if the ladder is keeping replays
+			String replayDirectory = parserConfig.getString("replayDirectory");
+			if (replayDirectory != null) {
+				new File(replayDirectory).mkdirs();
+				simulator.setReplayFile(new File(replayDirectory, "game" + gameIndex + ".replay").getPath());
+			}
 
 			str = "***Game " + gameIndex + " / " + numGames + " with teams ";
 			Set<Team> teams = simulator.getTeams();
@@ -164,36 +237,58 @@ public class LadderSingleGame implements Callable {
 
 			// run the game
 			simulator.run();
+			stepProfiler = simulator.getStepProfiler();
 
 			// get the teams and print out their scores
 			str = "***Game " + gameIndex + " / " + numGames + " ended, scores follow ";
 
+			LadderGameResult result = new LadderGameResult();
 			for (Team team : teams) {
 				str = "Team: " + team.getLadderName() + " scored " + team.getScore();
 				ladderOutputString.add(str);
 				System.out.println(str);
 
-				ladderResultsMap.put(team.getLadderName(), team);
+				result.addTeam(team);
 			}
+			gameResult = result;
 		} catch (Exception e) {
 			System.err.println("Error in match : skipping and moving to next one");
 			ladderOutputString.add("Error in match : skipping and moving to next one");
 			ladderOutputString.add(e.toString());
 			e.printStackTrace();
 		}
-		
-		str = "***Game " + gameIndex + " / " + numGames + " ended, returning from thread";
-		return this;
+
+		// the simulator (and everything in its space) is not needed once the game is over
+		simulator = null;
 	}
 
-	public HashMap<String, Team> getLadderResultsMap() {
-		return ladderResultsMap;
+	/**
+	 * Let go of the teams once the ladder has merged their results (so a finished
+	 * game does not keep its teams in memory for the rest of the ladder)
+	 */
+	public void releaseGame() {
+		simulator = null;
+		simConfig = null;
+		gameResult = null;
+		ladderOutputString.clear();
+		stepProfiler = null;
+	}
+
+	/**
+	 * @return the stats of each team (null if the game failed)
+	 */
+	public LadderGameResult getGameResult() {
+		return gameResult;
 	}
 
 	public ArrayList<String> getLadderOutputString() {
 		return ladderOutputString;
 	}
 
+	public StepProfiler getStepProfiler() {
+		return stepProfiler;
+	}
+
 	
 
 
@@ -0,0 +1,197 @@
+package spacesettlers.ladder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.simulator.StepProfiler;
+import spacesettlers.simulator.TeamClientCache;
+
+import com.martiansoftware.jsap.JSAPResult;
+
+/**
+ * Plays ladder games in a JVM of its own for a LadderWorkerPool.  The pool
+ * writes a GameRequest to the standard input of the worker for each game and the
+ * worker answers with a GameResponse on its standard output (both as serialized
+ * objects).  A null request (or the end of the input) tells the worker to exit.
+ * Everything the games print goes to standard error so it can't get mixed into
+ * the answers.
+ *
+ * The worker is started with the same arguments as the ladder (see RunLadder).
+ */
+public class LadderWorker {
+	/**
+	 * A game for the worker to play
+	 */
+	@SuppressWarnings("serial")
+	static class GameRequest implements Serializable {
+		/**
+		 * The config of the game (with its teams, bases, flags and seed already set)
+		 */
+		SpaceSettlersConfig simConfig;
+
+		int gameIndex, numGames;
+
+		GameRequest(LadderSingleGame game) {
+			simConfig = game.simConfig;
+			gameIndex = game.gameIndex;
+			numGames = game.numGames;
+		}
+	}
+
+	/**
+	 * What the worker sends back for a game
+	 */
+	@SuppressWarnings("serial")
+	static class GameResponse implements Serializable {
+		/**
+		 * The stats of each team (null if the game failed)
+		 */
+		LadderGameResult gameResult;
+
+		ArrayList<String> ladderOutputString;
+
+		StepProfiler stepProfiler;
+
+		/**
+		 * False if the worker should not be given any more games
+		 */
+		boolean healthy;
+	}
+
+	/**
+	 * Number of threads the games can leave running (clients that never returned
+	 * from a timed out call) before the worker is no longer healthy
+	 */
+	static final int MAX_LEAKED_THREADS = 16;
+
+	/**
+	 * Part of the largest heap that can still be in use after a game before the
+	 * worker is no longer healthy
+	 */
+	static final double MAX_HEAP_FRACTION = 0.75;
+
+	JSAPResult parserConfig;
+
+	/**
+	 * The client configs and classes (read once for all of the games of the worker)
+	 */
+	TeamClientCache teamClientCache;
+
+	/**
+	 * Number of threads running before the first game
+	 */
+	int baselineThreads;
+
+	public LadderWorker(JSAPResult parserConfig) {
+		this.parserConfig = parserConfig;
+		teamClientCache = new TeamClientCache();
+	}
+
+	/**
+	 * Answer requests until told to stop
+	 *
+	 * @param in   where the requests come from
+	 * @param out  where the answers go
+	 * @throws Exception if the requests can't be read or the answers written
+	 */
+	public void serve(InputStream in, OutputStream out) throws Exception {
+		// both sides make their output stream first (the input stream waits for its header)
+		ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(out));
+		output.flush();
+		ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(in));
+
+		baselineThreads = Thread.activeCount();
+		while (true) {
+			GameRequest request;
+			try {
+				request = (GameRequest) input.readObject();
+			} catch (EOFException e) {
+				// the ladder is gone
+				return;
+			}
+			if (request == null) {
+				return;
+			}
+
+			output.writeObject(playGame(request));
+			// don't keep every answer around to share its objects with later ones
+			output.reset();
+			output.flush();
+		}
+	}
+
+	/**
+	 * Play one game
+	 *
+	 * @param request
+	 * @return
+	 */
+	GameResponse playGame(GameRequest request) {
+		LadderSingleGame game = new LadderSingleGame(parserConfig, request.simConfig, teamClientCache);
+		game.gameIndex = request.gameIndex;
+		game.numGames = request.numGames;
+		game.playGame();
+
+		GameResponse response = new GameResponse();
+		response.gameResult = game.getGameResult();
+		response.ladderOutputString = game.getLadderOutputString();
+		response.stepProfiler = game.getStepProfiler();
+		response.healthy = isHealthy();
+		return response;
+	}
+
+	/**
+	 * A worker is healthy if the games didn't leave too many threads running or too
+	 * much of the heap in use
+	 *
+	 * @return
+	 */
+	boolean isHealthy() {
+		if (Thread.activeCount() > baselineThreads + MAX_LEAKED_THREADS) {
+			System.err.println("Ladder worker has " + Thread.activeCount() + " threads running, stopping it");
+			return false;
+		}
+
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+		if (usedMemory > MAX_HEAP_FRACTION * runtime.maxMemory()) {
+			System.err.println("Ladder worker is using " + usedMemory + " bytes of memory, stopping it");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Start a worker (called by LadderWorkerPool)
+	 *
+	 * @param args the arguments of the ladder
+	 */
+	public static void main(String[] args) {
+		// keep standard out for the answers and send everything else to standard error
+		PrintStream protocolOut = System.out;
+		System.setOut(System.err);
+
+		try {
+			RunLadder runLadder = new RunLadder(args);
+			new LadderWorker(runLadder.config).serve(System.in, protocolOut);
+		} catch (Throwable e) {
+			// including errors such as running out of memory, so the pool sees the worker die
+			System.err.println("Error in ladder worker, exiting");
+			e.printStackTrace();
+			System.exit(-1);
+		}
+
+		// leaked client threads would keep the JVM running otherwise
+		System.exit(0);
+	}
+}
@@ -0,0 +1,270 @@
+package spacesettlers.ladder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Plays the games of the ladder in long-lived worker JVMs (see LadderWorker), so
+ * the statics, leftover threads and memory of the clients in one game can't
+ * change the games played in other workers, and a client that runs a worker out
+ * of memory only loses its own game.  A worker is replaced after it has played a
+ * number of games, as soon as it says it is no longer healthy, or when it dies.
+ * A worker that takes longer than the game timeout is killed and only the game
+ * it was playing fails.
+ *
+ * Each ladder thread plays one game at a time through the pool, so the ladder
+ * uses as many threads as there are workers.
+ */
+public class LadderWorkerPool {
+	/**
+	 * A running worker and the streams to talk to it
+	 */
+	static class WorkerProcess {
+		Process process;
+		ObjectOutputStream output;
+		ObjectInputStream input;
+		int numGames;
+	}
+
+	/**
+	 * How long a worker has to exit once it is told to before it is killed
+	 */
+	static final long EXIT_WAIT_SECONDS = 5;
+
+	/**
+	 * Number of worker JVMs
+	 */
+	int numWorkers;
+
+	/**
+	 * Number of games a worker plays before it is replaced
+	 */
+	int gamesPerWorker;
+
+	/**
+	 * Longest a worker can take to play a game (in seconds, 0 for no limit)
+	 */
+	long gameTimeoutSeconds;
+
+	/**
+	 * The arguments the ladder was started with (passed on to each worker)
+	 */
+	String[] ladderArgs;
+
+	/**
+	 * The class whose main the workers run
+	 */
+	String workerClassName;
+
+	/**
+	 * Waits for the answers of the workers (so a worker that never answers can be
+	 * given up on).  It has a thread for each game being played at most.
+	 */
+	ExecutorService readers;
+
+	/**
+	 * The workers that are not playing a game right now
+	 */
+	ArrayList<WorkerProcess> idleWorkers;
+
+	/**
+	 * Make a pool (the workers are started when they are first needed)
+	 *
+	 * @param numWorkers
+	 * @param gamesPerWorker
+	 * @param gameTimeoutSeconds longest a game can take (0 for no limit)
+	 * @param ladderArgs
+	 */
+	public LadderWorkerPool(int numWorkers, int gamesPerWorker, long gameTimeoutSeconds, String[] ladderArgs) {
+		this.numWorkers = numWorkers;
+		this.gamesPerWorker = Math.max(gamesPerWorker, 1);
+		this.gameTimeoutSeconds = gameTimeoutSeconds;
+		this.ladderArgs = ladderArgs;
+		workerClassName = LadderWorker.class.getName();
+		idleWorkers = new ArrayList<WorkerProcess>();
+		readers = Executors.newCachedThreadPool(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Ladder worker reader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public int getNumWorkers() {
+		return numWorkers;
+	}
+
+	/**
+	 * Play a game in a worker and fill in its results (they stay null if the game
+	 * or the worker failed)
+	 *
+	 * @param game
+	 */
+	public void play(LadderSingleGame game) {
+		WorkerProcess worker = null;
+		try {
+			worker = takeWorker();
+			worker.output.writeObject(new LadderWorker.GameRequest(game));
+			worker.output.reset();
+			worker.output.flush();
+			LadderWorker.GameResponse response = readResponse(worker);
+			worker.numGames++;
+
+			game.gameResult = response.gameResult;
+			game.ladderOutputString.addAll(response.ladderOutputString);
+			game.stepProfiler = response.stepProfiler;
+
+			if (response.healthy && worker.numGames < gamesPerWorker) {
+				returnWorker(worker);
+			} else {
+				stopWorker(worker);
+			}
+		} catch (TimeoutException e) {
+			String str = "Error in match : the game took more than " + gameTimeoutSeconds
+					+ " seconds in its ladder worker, skipping and moving to next one";
+			System.err.println(str);
+			game.ladderOutputString.add(str);
+			// the reader gets the end of the stream once the worker is gone
+			worker.process.destroyForcibly();
+		} catch (Exception e) {
+			System.err.println("Error in match : the ladder worker failed, skipping and moving to next one");
+			game.ladderOutputString.add("Error in match : the ladder worker failed, skipping and moving to next one");
+			game.ladderOutputString.add(e.toString());
+			e.printStackTrace();
+			if (worker != null) {
+				worker.process.destroyForcibly();
+			}
+		}
+	}
+
+	/**
+	 * Wait for the answer of a worker (for at most the game timeout)
+	 *
+	 * @param worker
+	 * @return
+	 * @throws TimeoutException if the worker took too long
+	 * @throws Exception if the worker died or its answer can't be read
+	 */
+	LadderWorker.GameResponse readResponse(final WorkerProcess worker) throws Exception {
+		Future<Object> reply = readers.submit(new Callable<Object>() {
+			public Object call() throws Exception {
+				return worker.input.readObject();
+			}
+		});
+
+		try {
+			if (gameTimeoutSeconds > 0) {
+				return (LadderWorker.GameResponse) reply.get(gameTimeoutSeconds, TimeUnit.SECONDS);
+			} else {
+				return (LadderWorker.GameResponse) reply.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Stop all of the idle workers (call once the ladder is done)
+	 */
+	public synchronized void shutdown() {
+		for (WorkerProcess worker : idleWorkers) {
+			stopWorker(worker);
+		}
+		idleWorkers.clear();
+		readers.shutdownNow();
+	}
+
+	/**
+	 * Get an idle worker or start a new one
+	 *
+	 * @return
+	 * @throws IOException if a new worker can't be started
+	 */
+	WorkerProcess takeWorker() throws IOException {
+		synchronized (this) {
+			if (!idleWorkers.isEmpty()) {
+				return idleWorkers.remove(idleWorkers.size() - 1);
+			}
+		}
+		return startWorker();
+	}
+
+	synchronized void returnWorker(WorkerProcess worker) {
+		idleWorkers.add(worker);
+	}
+
+	/**
+	 * Start a worker JVM with the same JVM options, class path and ladder arguments
+	 * as this one
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	WorkerProcess startWorker() throws IOException {
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		for (String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			// a debugger can only be attached to one JVM on a port
+			if (!jvmArg.startsWith("-agentlib:jdwp") && !jvmArg.startsWith("-Xrunjdwp")) {
+				command.add(jvmArg);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(workerClassName);
+		Collections.addAll(command, ladderArgs);
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectError(Redirect.INHERIT);
+
+		WorkerProcess worker = new WorkerProcess();
+		worker.process = builder.start();
+		try {
+			worker.output = new ObjectOutputStream(new BufferedOutputStream(worker.process.getOutputStream()));
+			worker.output.flush();
+			worker.input = new ObjectInputStream(new BufferedInputStream(worker.process.getInputStream()));
+		} catch (IOException e) {
+			worker.process.destroyForcibly();
+			throw e;
+		}
+		return worker;
+	}
+
+	/**
+	 * Tell a worker to exit (and kill it if it doesn't)
+	 *
+	 * @param worker
+	 */
+	void stopWorker(WorkerProcess worker) {
+		try {
+			worker.output.writeObject(null);
+			worker.output.flush();
+			worker.output.close();
+			if (!worker.process.waitFor(EXIT_WAIT_SECONDS, TimeUnit.SECONDS)) {
+				worker.process.destroyForcibly();
+			}
+		} catch (Exception e) {
+			worker.process.destroyForcibly();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package spacesettlers.ladder;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * How sure the ladder can be of the order of the teams, from the average score
+ * of each team and its standard error (see TeamRecord).  Two teams next to each
+ * other in the ranking are told apart at a confidence level when the confidence
+ * intervals of their average scores at that level don't overlap.
+ */
+public class RankingConfidence {
+	/**
+	 * The chance that a standard normal value is at most z
+	 *
+	 * @param z
+	 * @return
+	 */
+	static double normalCdf(double z) {
+		// Abramowitz and Stegun 7.1.26 for erf (good to about 1e-7)
+		double x = Math.abs(z) / Math.sqrt(2);
+		double t = 1 / (1 + 0.3275911 * x);
+		double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+				+ t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+		if (z < 0) {
+			return (1 - erf) / 2;
+		}
+		return (1 + erf) / 2;
+	}
+
+	/**
+	 * The number of standard errors on either side of an average that a confidence
+	 * interval covers
+	 *
+	 * @param confidence for instance 0.95
+	 * @return for instance 1.96
+	 */
+	public static double getZ(double confidence) {
+		double low = 0;
+		double high = 40;
+		for (int i = 0; i < 60; i++) {
+			double z = (low + high) / 2;
+			if (2 * normalCdf(z) - 1 < confidence) {
+				low = z;
+			} else {
+				high = z;
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	/**
+	 * The highest confidence level at which the intervals of two teams don't
+	 * overlap.  Two teams that always scored the same count as told apart, since
+	 * more games won't split them.
+	 *
+	 * @param better the team ranked higher
+	 * @param worse  the team ranked next
+	 * @return between 0 and 1
+	 */
+	public static double getConfidence(TeamRecord better, TeamRecord worse) {
+		double gap = better.getAverageScore() - worse.getAverageScore();
+		double standardErrors = better.getScoreStandardError() + worse.getScoreStandardError();
+		if (Double.isInfinite(standardErrors)) {
+			return 0;
+		}
+		if (standardErrors == 0) {
+			return 1;
+		}
+		if (gap <= 0) {
+			return 0;
+		}
+		return Math.max(2 * normalCdf(gap / standardErrors) - 1, 0);
+	}
+
+	/**
+	 * The confidence of the whole ranking (that of the two teams next to each other
+	 * that are the hardest to tell apart)
+	 *
+	 * @param sortedRecords the records sorted best first
+	 * @return between 0 and 1 (1 if there are fewer than two teams)
+	 */
+	public static double getRankingConfidence(List<TeamRecord> sortedRecords) {
+		double confidence = 1;
+		for (int i = 0; i + 1 < sortedRecords.size(); i++) {
+			confidence = Math.min(confidence, getConfidence(sortedRecords.get(i), sortedRecords.get(i + 1)));
+		}
+		return confidence;
+	}
+
+	/**
+	 * Find the teams that can't be told apart from a team next to them in the
+	 * ranking yet
+	 *
+	 * @param sortedRecords the records sorted best first
+	 * @param confidence    the confidence level the ranking has to reach
+	 * @return the ladder names of the teams
+	 */
+	public static Set<String> getUnsettledTeams(List<TeamRecord> sortedRecords, double confidence) {
+		Set<String> unsettledTeams = new LinkedHashSet<String>();
+		for (int i = 0; i + 1 < sortedRecords.size(); i++) {
+			if (getConfidence(sortedRecords.get(i), sortedRecords.get(i + 1)) < confidence) {
+				unsettledTeams.add(sortedRecords.get(i).teamName);
+				unsettledTeams.add(sortedRecords.get(i + 1).teamName);
+			}
+		}
+		return unsettledTeams;
+	}
+}
@@ -97,6 +97,34 @@ public class RunLadder {
 								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
 								JSAP.NO_SHORTFLAG, "debug",
 								"boolean stating if debugging mode (single threading) is on (true) or not (false)"),
+						new FlaggedOption("replayDirectory",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "replayDirectory",
+								"if given, every game is recorded to a file in this directory (watch it with spacesettlers.replay.RunReplay)"),
+						new FlaggedOption("cacheDirectory",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "cacheDirectory",
+								"if given, the results of every game are kept in this directory and games that were already played with the same configs, seed, repeat and client classes are not played again (the seeds are never changed, so nothing is cached when the simulator config asks for random seeds with a seed of 0)"),
+						new FlaggedOption("workerProcesses",
+								JSAP.INTEGER_PARSER, "0", JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "workerProcesses",
+								"if more than 0, the games are played in this many worker JVMs (so clients can't affect each other's games) instead of in threads of the ladder"),
+						new FlaggedOption("gamesPerWorker",
+								JSAP.INTEGER_PARSER, "20", JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "gamesPerWorker",
+								"number of games a worker JVM plays before it is replaced by a new one"),
+						new FlaggedOption("workerGameTimeout",
+								JSAP.INTEGER_PARSER, "3600", JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "workerGameTimeout",
+								"longest a game can take in a worker JVM (in seconds, 0 for no limit) before the worker is killed and the game fails"),
+						new FlaggedOption("journalFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "journalFile",
+								"if given, every finished game is added to this file and a ladder started again with the same configs skips the games that are in it"),
+						new FlaggedOption("reportOnly",
+								JSAP.BOOLEAN_PARSER, "false", JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "reportOnly",
+								"if true, no games are played and the results are made again from the journal file"),
 					});
 		} catch (JSAPException e) {
 			e.printStackTrace();
@@ -118,6 +146,16 @@ public class RunLadder {
 		RunLadder runLadder = new RunLadder(args);
 		
 		Ladder ladder = new Ladder(runLadder.config);
+		if (runLadder.config.getBoolean("reportOnly")) {
+			ladder.loadResultsFromJournal();
+			ladder.printResultsToHTML();
+			System.out.println("Ladder results written from the journal");
+			System.exit(0);
+		}
+		if (runLadder.config.getInt("workerProcesses") > 0) {
+			ladder.useWorkerProcesses(runLadder.config.getInt("workerProcesses"),
+					runLadder.config.getInt("gamesPerWorker"), runLadder.config.getInt("workerGameTimeout"), args);
+		}
 		
 		ladder.run();
 
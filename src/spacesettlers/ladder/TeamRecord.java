@@ -13,6 +13,12 @@ public class TeamRecord {
 	double totalScore;
 	
 	double averageScore;
+
+	/**
+	 * Sum of the squared differences of the scores from the average (for the spread
+	 * of the scores)
+	 */
+	double squaredScoreDeviations;
 	
 	int totalBeacons;
 	
@@ -46,6 +52,7 @@ public class TeamRecord {
 		numGames = 0;
 		totalScore = 0;
 		averageScore = 0;
+		squaredScoreDeviations = 0;
 		totalBeacons = 0;
 		averageBeacons = 0;
 		totalResources = 0;
@@ -91,27 +98,37 @@ public class TeamRecord {
 	 * @param team
 	 */
 	public void update(Team team) {
+		update(new LadderGameResult.TeamResult(team));
+	}
+
+	/**
+	 * Update the team record with the stats of the team from one game
+	 * @param teamResult
+	 */
+	public void update(LadderGameResult.TeamResult teamResult) {
 		numGames++;
 		
-		totalScore += team.getScore();
+		double lastAverageScore = averageScore;
+		totalScore += teamResult.getScore();
 		averageScore = (double) totalScore / numGames;
+		squaredScoreDeviations += (teamResult.getScore() - lastAverageScore) * (teamResult.getScore() - averageScore);
 		
-		totalResources += team.getSummedTotalResources();
+		totalResources += teamResult.getResources();
 		averageResources = (double) totalResources / numGames;
 		
-		totalBeacons += team.getTotalBeaconsCollected();
+		totalBeacons += teamResult.getBeacons();
 		averageBeacons = (double) totalBeacons / numGames;
 		
-		totalKills += team.getTotalKillsInflicted();
+		totalKills += teamResult.getKills();
 		averageKills = (double) totalKills / numGames;
 		
-		totalDeaths += team.getTotalKillsReceived();
+		totalDeaths += teamResult.getDeaths();
 		averageDeaths = (double) totalDeaths / numGames;
 		
-		totalAssists += team.getTotalAssistsInflicted();
+		totalAssists += teamResult.getAssists();
 		averageAssists = (double) totalAssists / numGames;
 		
-		totalCores += team.getTotalCoresCollected();
+		totalCores += teamResult.getCores();
 		averageCores = (double) totalCores / numGames;
 	}
 
@@ -119,6 +136,25 @@ public class TeamRecord {
 		return averageScore;
 	}
 
+	public int getNumGames() {
+		return numGames;
+	}
+
+	/**
+	 * How far the average score could be from the average over many more games
+	 * (the standard deviation of the scores over the square root of the number of
+	 * games)
+	 * 
+	 * @return the standard error (infinite with fewer than two games)
+	 */
+	public double getScoreStandardError() {
+		if (numGames < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double variance = Math.max(squaredScoreDeviations, 0) / (numGames - 1);
+		return Math.sqrt(variance / numGames);
+	}
+
 	/**
 	 * Fixes bug where students can put in JavaScript in their team name to rearrange the ladder.  fix provided by Christopher Fenner, January 2013
 	 * @return
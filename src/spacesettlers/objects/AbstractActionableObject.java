@@ -1,5 +1,6 @@
 package spacesettlers.objects;
 
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -14,6 +15,8 @@ import spacesettlers.utilities.Position;
  *
  */
 abstract public class AbstractActionableObject extends AbstractObject {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Maximum number of bullets (or other weapons) simultaneously in the simulator.  
 	 * This keeps ships from simply firing at every step 
@@ -105,6 +108,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param weaponCapacity
 	 */
 	public void setWeaponCapacity(int weaponCapacity) {
+		checkWritable();
 		this.weaponCapacity = weaponCapacity;
 	}
 
@@ -129,6 +133,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param powerup
 	 */
 	public void addPowerup(SpaceSettlersPowerupEnum powerup) {
+		checkWritable();
 		currentPowerups.add(powerup);
 	}
 	
@@ -136,6 +141,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * When an item dies, its power ups disappear
 	 */
 	public void resetPowerups() {
+		checkWritable();
 		currentPowerups.clear();
 	}
 	
@@ -144,6 +150,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param powerup
 	 */
 	public void removePowerup(SpaceSettlersPowerupEnum powerup) {
+		checkWritable();
 		currentPowerups.remove(powerup);
 	}
 	
@@ -160,6 +167,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param isShielded
 	 */
 	public void setShielded(boolean isShielded) {
+		checkWritable();
 		this.isShielded = isShielded;
 	}
 
@@ -184,6 +192,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param maxEnergy
 	 */
 	public void setMaxEnergy(int maxEnergy) {
+		checkWritable();
 		this.maxEnergy = maxEnergy;
 	}
 
@@ -208,6 +217,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param freezeCount
 	 */
 	public void setFreezeCount(int freezeCount) {
+		checkWritable();
 		this.freezeCount = freezeCount;
 		if (freezeCount > 0) {
 			super.isControllable = false;
@@ -219,6 +229,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * and set the ship back to controllable when it gets to 0
 	 */
 	public void decrementFreezeCount() {
+		checkWritable();
 		freezeCount--;
 		if (freezeCount <= 0) {
 			super.isControllable = true;
@@ -229,6 +240,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param teamName the teamName to set
 	 */
 	public void setTeamName(String teamName) {
+		checkWritable();
 		this.teamName = teamName;
 	}
 
@@ -252,6 +264,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * increment the hitsInflicted for this ship
 	 */
 	public void incrementHitsInflicted() {
+		checkWritable();
 		this.hitsInflicted++;
 	}
 
@@ -283,6 +296,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * increment the kill for this object
 	 */
 	public void incrementKillsInflicted() {
+		checkWritable();
 		this.killsInflicted++;
 	}
 
@@ -290,6 +304,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * increment the assists for this object
 	 */
 	public void incrementAssistsInflicted() {
+		checkWritable();
 		this.assistsInflicted++;
 	}
 
@@ -297,6 +312,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * increment the kill received for this object
 	 */
 	public void incrementKillsReceived() {
+		checkWritable();
 		this.killsReceived++;
 	}
 
@@ -312,6 +328,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * increment the damageReceived for this object
 	 */
 	public void incrementDamageReceived(int increment) {
+		checkWritable();
 		this.damageReceived += increment;
 	}
 	
@@ -327,6 +344,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * increment the damageInflicted for this ship
 	 */
 	public void incrementDamageInflicted(int increment) {
+		checkWritable();
 		this.damageInflicted += increment;
 	}
 	
@@ -346,6 +364,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	 * @param teamName
 	 */
 	public void tagShooter(Ship firingShip) {
+		checkWritable();
 		if (killTagTeam != null) {
 			// if there was already a kill tag team, move it to assist
 			assistTagTeam = killTagTeam;
@@ -356,6 +375,23 @@ abstract public class AbstractActionableObject extends AbstractObject {
 		healthAtKillTag = energy;
 	}
 
+	/**
+	 * Make the object read-only (see AbstractObject.makeReadOnly)
+	 */
+	public void makeReadOnly() {
+		if (isReadOnly) {
+			return;
+		}
+		super.makeReadOnly();
+		currentPowerups = Collections.unmodifiableSet(currentPowerups);
+		if (killTagTeam != null) {
+			killTagTeam.makeReadOnly();
+		}
+		if (assistTagTeam != null) {
+			assistTagTeam.makeReadOnly();
+		}
+	}
+
 	public Ship getKillTagTeam() {
 		return killTagTeam;
 	}
@@ -365,6 +401,7 @@ abstract public class AbstractActionableObject extends AbstractObject {
 	}		
 	
 	public void updateTags() {
+		checkWritable();
 		if (this.getEnergy() > TAG_MAX_ENERGY) {
 			this.killTagTeam = null;
 			this.assistTagTeam = null;
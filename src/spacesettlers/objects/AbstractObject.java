@@ -1,6 +1,9 @@
 package spacesettlers.objects;
 
+import java.io.Serializable;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import spacesettlers.graphics.SpacewarGraphics;
 import spacesettlers.objects.resources.ResourceFactory;
@@ -12,7 +15,9 @@ import spacesettlers.utilities.Position;
  * 
  * @author amy
  */
-abstract public class AbstractObject {
+abstract public class AbstractObject implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Position of the object in the simulator space 
 	 */
@@ -74,11 +79,36 @@ abstract public class AbstractObject {
 	 * Id to track over cloning
 	 */
 	protected UUID id;
+
+	/**
+	 * Small integer id given to the object by the space it is in (see
+	 * Toroidal2DPhysics.getObjectById(int)) or -1 if it has not been given one.  It
+	 * is kept over cloning like the UUID.
+	 */
+	protected int simulationId;
+
+	/**
+	 * The ids are made from a counter (with a random prefix for each run) instead
+	 * of UUID.randomUUID, which uses a shared SecureRandom and slows down parallel
+	 * games and every missile that is fired
+	 */
+	private static final long ID_PREFIX = new Random().nextLong();
+	private static final AtomicLong nextId = new AtomicLong();
 	
 	/**
 	 * flag to allow an object to respawn or not
 	 */
 	protected boolean respawn;
+
+	/**
+	 * Told when the object dies (set by the space the object is in)
+	 */
+	transient ObjectLifecycleListener lifecycleListener;
+
+	/**
+	 * True if the object is part of a read-only snapshot of a space (see makeReadOnly)
+	 */
+	protected boolean isReadOnly;
 	
 	/**
 	 * All objects start at rest
@@ -88,7 +118,8 @@ abstract public class AbstractObject {
 		this.originalMass = mass;
 		this.radius = radius;
 		position = new Position(0,0);
-		this.id = UUID.randomUUID();
+		this.id = newId();
+		this.simulationId = -1;
 		resources = new ResourcePile();
 		this.numFlags = 0;
 		this.respawn = true;
@@ -103,7 +134,8 @@ abstract public class AbstractObject {
 		this.originalMass = mass;
 		this.radius = radius;
 		this.position = position;
-		this.id = UUID.randomUUID();
+		this.id = newId();
+		this.simulationId = -1;
 		resources = new ResourcePile();
 		this.numFlags = 0;
 		this.respawn = true;
@@ -115,7 +147,12 @@ abstract public class AbstractObject {
 	 * @param isAlive set to true if the object is alive
 	 */
 	public void setAlive(boolean isAlive) {
+		checkWritable();
+		boolean died = this.isAlive && !isAlive;
 		this.isAlive = isAlive;
+		if (died && lifecycleListener != null) {
+			lifecycleListener.objectDied(this);
+		}
 	}
 
 	/**
@@ -123,6 +160,7 @@ abstract public class AbstractObject {
 	 * drawn if it is alive as well.
 	 */
 	public void setDrawable(boolean isDrawable) {
+		checkWritable();
 		this.isDrawable = isDrawable;
 	}
 	
@@ -152,11 +190,17 @@ abstract public class AbstractObject {
 	}
 	
 	/**
-	 * Move the object (should only be called inside the simulator)
+	 * Move the object (should only be called inside the simulator).  If the object
+	 * is in a space, the new position takes the place of the old one in the
+	 * space's kinematic store.
 	 * 
 	 * @param location
 	 */
 	public void setPosition(Position location) {
+		checkWritable();
+		if (position != null && location != null) {
+			position.replaceWith(location);
+		}
 		this.position = location;
 	}
 
@@ -182,6 +226,7 @@ abstract public class AbstractObject {
 	 * @param mass the new mass
 	 */
 	public void setMass(int mass) {
+		checkWritable();
 		this.mass = mass;
 	}
 
@@ -191,6 +236,7 @@ abstract public class AbstractObject {
 	 * @param newResources new list of AbstractResource to add to the cargo bay
 	 */
 	public void addResources(ResourcePile newResources) {
+		checkWritable();
 		resources.add(newResources);
 		setMass((int) (ResourceFactory.REFINED_RESOURCE_DENSITY_MULTIPLIER * resources.getMass() + originalMass));
 	}
@@ -208,6 +254,7 @@ abstract public class AbstractObject {
 	 * Reset the list of resources (probably because the ship died)
 	 */
 	public void resetResources() {
+		checkWritable();
 		resources.reset();
 		setMass(originalMass);
 	}
@@ -252,7 +299,42 @@ abstract public class AbstractObject {
 	 * @return
 	 */
 	public void setRespawn(boolean newRespawn) {
+		checkWritable();
+		boolean canNowRespawn = !respawn && newRespawn;
 		this.respawn = newRespawn;
+		if (canNowRespawn && !isAlive && lifecycleListener != null) {
+			lifecycleListener.objectDied(this);
+		}
+	}
+
+	/**
+	 * Number of steps a dead object waits before it respawns (counting the step it
+	 * died on).  The space asks when the object dies and schedules the respawn, so
+	 * this has to be known at the end of that step.  Objects respawn right away
+	 * unless they override this.
+	 * 
+	 * @return
+	 */
+	public int getRespawnDelay() {
+		return 0;
+	}
+
+	/**
+	 * @return the listener told when this object dies (the space it is in)
+	 */
+	public ObjectLifecycleListener getLifecycleListener() {
+		return lifecycleListener;
+	}
+
+	/**
+	 * Set the listener told when this object dies (done by the space when the object
+	 * is added and removed)
+	 * 
+	 * @param lifecycleListener
+	 */
+	public void setLifecycleListener(ObjectLifecycleListener lifecycleListener) {
+		checkWritable();
+		this.lifecycleListener = lifecycleListener;
 	}
 	
 	/**
@@ -263,6 +345,38 @@ abstract public class AbstractObject {
 		return id;
 	}
 
+	/**
+	 * Gets the small integer id of this object in its space (use it with
+	 * Toroidal2DPhysics.getObjectById(int) or an IntObjectMap).  An id is never
+	 * given to a different object in the same game, even after this one leaves the
+	 * space.  Respawned beacons keep their id but get a new UUID.
+	 * 
+	 * @return the id or -1 if the object was never added to a space
+	 */
+	public int getSimulationId() {
+		return simulationId;
+	}
+
+	/**
+	 * Set by the space (see SimulationIdTable) when the object is added to it.  It
+	 * is not public so the clients can't give an object a different id.
+	 * 
+	 * @param simulationId
+	 */
+	void setSimulationId(int simulationId) {
+		checkWritable();
+		this.simulationId = simulationId;
+	}
+
+	/**
+	 * Make a new unique id
+	 * 
+	 * @return
+	 */
+	private static UUID newId() {
+		return new UUID(ID_PREFIX, nextId.incrementAndGet());
+	}
+
 	
 	/**
 	 * Hash on the UUID
@@ -312,7 +426,48 @@ abstract public class AbstractObject {
 	 * Resets the UUID of the object (for respawning)
 	 */
 	public void resetId() {
-		id = UUID.randomUUID();
+		checkWritable();
+		id = newId();
+	}
+
+	/**
+	 * Make the object read-only (along with its position, resources and the copies
+	 * of other objects it holds), so every method that changes it throws an
+	 * UnsupportedOperationException.  The simulator does this to every object in
+	 * the snapshots of the space it gives to the clients (see
+	 * Toroidal2DPhysics.getSnapshot).  A deepClone of a read-only object can be
+	 * changed.
+	 */
+	public void makeReadOnly() {
+		if (isReadOnly) {
+			return;
+		}
+		isReadOnly = true;
+		if (position != null) {
+			position.makeReadOnly();
+		}
+		resources.makeReadOnly();
+	}
+
+	/**
+	 * Is this object read-only (see makeReadOnly)?
+	 * 
+	 * @return
+	 */
+	public boolean isReadOnly() {
+		return isReadOnly;
+	}
+
+	/**
+	 * Called by every method that changes the object
+	 * 
+	 * @throws UnsupportedOperationException if the object is read-only
+	 */
+	protected void checkWritable() {
+		if (isReadOnly) {
+			throw new UnsupportedOperationException(
+					"This object is part of a read-only snapshot of the simulation (use deepClone to get a copy that can be changed)");
+		}
 	}
 
 	/**
@@ -327,6 +482,7 @@ abstract public class AbstractObject {
 	 * Increment the number of flags held by this object
 	 */
 	public void incrementFlags() {
+		checkWritable();
 		numFlags++;
 	}
 
@@ -342,6 +498,7 @@ abstract public class AbstractObject {
 	 * Increment the number of cores held by this object
 	 */
 	public void incrementCores(int number) {
+		checkWritable();
 		numCores+= number;
 	}
 
@@ -17,6 +17,7 @@ import spacesettlers.utilities.Position;
  *
  */
 public class AiCore extends AbstractObject{
+	private static final long serialVersionUID = 1L;
 	
 	/**
 	 * The radius of an AiCore
@@ -62,6 +63,7 @@ public class AiCore extends AbstractObject{
 		newCore.setAlive(isAlive);
 		newCore.energy = energy;
 		newCore.id = id;
+		newCore.simulationId = simulationId;
 		return newCore;
 	}
 	
@@ -69,6 +71,7 @@ public class AiCore extends AbstractObject{
 	 * Resets the energy back to full for the core
 	 */
 	public void resetCoreEnergy() {
+		checkWritable();
 		this.energy = AiCore.CORE_MAX_ENERGY;
 	}
 	
@@ -76,6 +79,7 @@ public class AiCore extends AbstractObject{
 	 * Update the energy of the core and kill it energy is depleted
 	 */
 	public void updateEnergy(int change) {
+		checkWritable();
 		this.energy += change;
 		if (this.energy <= 0) {
 			this.setAlive(false);
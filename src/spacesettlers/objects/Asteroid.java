@@ -13,6 +13,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class Asteroid extends AbstractObject {
+	private static final long serialVersionUID = 1L;
+
 	public static final int MIN_ASTEROID_RADIUS = 5;
 	public static final int MAX_ASTEROID_RADIUS = 15;
 	public static final int MIN_ASTEROID_MASS = 2000;
@@ -102,6 +104,7 @@ public class Asteroid extends AbstractObject {
     			fuelProportion, waterProportion, metalsProportion);
     	newAsteroid.setAlive(isAlive);
     	newAsteroid.id = id;
+    	newAsteroid.simulationId = simulationId;
     	return newAsteroid;
     }
     
@@ -152,6 +155,7 @@ public class Asteroid extends AbstractObject {
 	 * @param newMineable
 	 */
 	public void setMineable(boolean newMineable) {
+		checkWritable();
 		this.isMineable = newMineable;
 	}
 
@@ -15,6 +15,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public class Base extends AbstractActionableObject {
+	private static final long serialVersionUID = 1L;
+
     public static final int BASE_RADIUS = 10;
     public static final int BASE_MASS = 1000;
     public static final int INITIAL_BASE_ENERGY = 5000;
@@ -72,6 +74,7 @@ public class Base extends AbstractActionableObject {
 		newBase.energy = energy;
 		newBase.setAlive(isAlive);
 		newBase.id = id;
+		newBase.simulationId = simulationId;
 		newBase.maxEnergy = maxEnergy;
 		newBase.currentPowerups = new LinkedHashSet<SpaceSettlersPowerupEnum>(currentPowerups);
 		newBase.weaponCapacity = weaponCapacity;
@@ -83,13 +86,13 @@ public class Base extends AbstractActionableObject {
 		newBase.numCores = numCores;
 		
 		if (this.killTagTeam != null) {
-			newBase.killTagTeam = killTagTeam.deepClone();
+			newBase.killTagTeam = killTagTeam.deepCloneNoTags();
 		} else {
 			newBase.killTagTeam = null;
 		}
 
 		if (this.assistTagTeam != null) {
-			newBase.assistTagTeam = assistTagTeam.deepClone();
+			newBase.assistTagTeam = assistTagTeam.deepCloneNoTags();
 		} else {
 			newBase.assistTagTeam = null;
 		}
@@ -145,6 +148,7 @@ public class Base extends AbstractActionableObject {
 	 * @param healingIncrement
 	 */
 	public void setHealingIncrement(int healingIncrement) {
+		checkWritable();
 		this.healingIncrement = healingIncrement;
 	}
 
@@ -169,6 +173,7 @@ public class Base extends AbstractActionableObject {
 	 * @param flag
 	 */
 	public void addFlag(Flag flag) {
+		checkWritable();
 		flag.depositFlag();
 		super.incrementFlags();
 		team.incrementTotalFlagsCollected();
@@ -180,6 +185,7 @@ public class Base extends AbstractActionableObject {
 	 * @param difference
 	 */
 	public void updateEnergy(int difference) {
+		checkWritable();
 		energy += difference;
 		
 		if (energy < 0) {
@@ -4,6 +4,8 @@ import spacesettlers.graphics.BeaconGraphics;
 import spacesettlers.utilities.Position;
 
 public class Beacon extends AbstractObject {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The radius of a beacon
 	 */
@@ -29,6 +31,7 @@ public class Beacon extends AbstractObject {
 		Beacon newBeacon = new Beacon(getPosition().deepCopy());
 		newBeacon.setAlive(isAlive);
 		newBeacon.id = id;
+		newBeacon.simulationId = simulationId;
 		return newBeacon;
 	}
 
@@ -2,6 +2,7 @@ package spacesettlers.objects;
 
 import java.awt.Color;
 import java.util.Random;
+import java.util.function.Predicate;
 
 import spacesettlers.actions.AbstractAction;
 import spacesettlers.actions.MoveToObjectAction;
@@ -22,6 +23,8 @@ import spacesettlers.utilities.Position;
  * @author josiah
  */
 public class Drone extends AbstractActionableObject {
+	private static final long serialVersionUID = 1L;
+
 	public static final int DRONE_RADIUS = 8;
 	public static final int DRONE_MASS = 20;
 	public static final int DRONE_INITIAL_ENERGY = 500;
@@ -101,6 +104,7 @@ public class Drone extends AbstractActionableObject {
 		newDrone.graphic = new DroneGraphics(newDrone, teamColor);
 		newDrone.currentAction = currentAction;
 		newDrone.id = id;
+		newDrone.simulationId = simulationId;
 		newDrone.maxEnergy = maxEnergy;
 		newDrone.weaponCapacity = weaponCapacity;
 		newDrone.hitsInflicted = hitsInflicted;
@@ -112,13 +116,13 @@ public class Drone extends AbstractActionableObject {
 		newDrone.isShielded = isShielded;
 		
 		if (this.killTagTeam != null) {
-			newDrone.killTagTeam = killTagTeam.deepClone();
+			newDrone.killTagTeam = killTagTeam.deepCloneNoTags();
 		} else {
 			newDrone.killTagTeam = null;
 		}
 
 		if (this.assistTagTeam != null) {
-			newDrone.assistTagTeam = assistTagTeam.deepClone();
+			newDrone.assistTagTeam = assistTagTeam.deepCloneNoTags();
 		} else {
 			newDrone.assistTagTeam = null;
 		}
@@ -130,11 +134,25 @@ public class Drone extends AbstractActionableObject {
 		return newDrone;
 	}
 
+	/**
+	 * Make the drone read-only (see AbstractObject.makeReadOnly)
+	 */
+	public void makeReadOnly() {
+		if (isReadOnly) {
+			return;
+		}
+		super.makeReadOnly();
+		if (flag != null) {
+			flag.makeReadOnly();
+		}
+	}
+
 
 	/**
 	 * Resets the drone's energy to the initial level
 	 */
 	public void resetEnergy() {
+		checkWritable();
 		energy = DRONE_INITIAL_ENERGY;
 	}
 
@@ -161,6 +179,7 @@ public class Drone extends AbstractActionableObject {
 	 * @param flag
 	 */
 	public void addFlag(Flag flag) {
+		checkWritable();
 		this.flag = flag;
 		this.carryingFlag = true;
 		this.incrementFlags();
@@ -189,6 +208,7 @@ public class Drone extends AbstractActionableObject {
 	 * @param space
 	 */
 	public void setDeadAndDropObjects(Random rand, Toroidal2DPhysics space) {
+		checkWritable();
 		resetResources();
 		resetPowerups();
 		resetAiCores(); 
@@ -205,6 +225,7 @@ public class Drone extends AbstractActionableObject {
 	 * so this is an override of the abstract class.
 	 */
 	public void setAlive(boolean value) {
+		checkWritable();
 		if (value == false) {
 			resetResources();
 			resetPowerups();
@@ -222,6 +243,7 @@ public class Drone extends AbstractActionableObject {
 	 * Will also need code inside physics sim to drop all AiCores
 	 */
 	public void resetAiCores() {
+		checkWritable();
 		//Just erase the core count, as we are not currently tracking the specific cores held by a ship.
 		numCores = 0;
 		/*
@@ -237,6 +259,7 @@ public class Drone extends AbstractActionableObject {
 	 * A drone has received cores.
 	 */
 	public void setCores(int numCores) {
+		checkWritable();
 		
 		super.incrementCores(numCores);//herr0861 edit
 	}
@@ -276,17 +299,7 @@ public class Drone extends AbstractActionableObject {
 	
 		if (this.resources.getTotal() > 0 || this.carryingFlag || this.getNumCores() > 0) { //if we are carrying resources, a flag, or cores
 			//Return to the closest friendly base.
-			Base tempBase = null;
-			double shortestDistance = Double.POSITIVE_INFINITY;
-			for (Base xBase : space.getBases()) {
-				if (xBase.getTeamName().equalsIgnoreCase(this.getTeamName())) { //if the base is friendly
-					double distance = space.findShortestDistance(xBase.getPosition(), this.getPosition());
-					if (distance < shortestDistance) { //and if the base is closer than any previously found friendly base, choose this base
-						shortestDistance = distance;
-						tempBase = xBase;
-					}
-				}
-			} //end baseSearch
+			Base tempBase = findNearestFriendlyBase(space);
 			
 			if (tempBase != null) {
 				tempAction = new MoveToObjectAction(space, this.getPosition(), tempBase, tempBase.getPosition().getTranslationalVelocity());
@@ -300,22 +313,7 @@ public class Drone extends AbstractActionableObject {
 			
 		} else { //If we are not carrying anything, return to the nearest friendly ship.
 			
-			double minDistance = Double.POSITIVE_INFINITY;
-			Ship nearestShip = null;
-			for (Ship otherShip : space.getShips()) {
-
-				if (otherShip.getTeamName().equalsIgnoreCase(this.getTeamName())) {//Determine if this ship is on our team or not
-					nearestShip = otherShip;
-					double distance = space.findShortestDistance(this.getPosition(), otherShip.getPosition());
-					if (distance < minDistance) {
-						minDistance = distance;
-						nearestShip = otherShip;
-					}//end if statement comparing distances
-
-				}//End if statement comparing teams
-				
-				
-			}//End for loop going through all ships
+			Ship nearestShip = findFriendlyShip(space);
 			
 			if (nearestShip != null) {
 				tempAction = new MoveToObjectAction(space, this.getPosition(), nearestShip, nearestShip.getPosition().getTranslationalVelocity());
@@ -338,21 +336,12 @@ public class Drone extends AbstractActionableObject {
 	 * @return
 	 */
 	public void setCurrentAction(Toroidal2DPhysics space) {
+		checkWritable();
 		//TODO Make this method call the 
 		
 		if (this.resources.getTotal() > 0 || this.carryingFlag || this.getNumCores() > 0) { //if we are carrying resources, a flag, or cores
 			//return to nearest friendly base
-			Base tempBase = null;
-			double shortestDistance = Double.POSITIVE_INFINITY;
-			for (Base xBase : space.getBases()) {
-				if (xBase.getTeamName().equalsIgnoreCase(this.getTeamName())) { //if the base is friendly
-					double distance = space.findShortestDistance(xBase.getPosition(), this.getPosition());
-					if (distance < shortestDistance) { //and if the base is closer than any previously found friendly base, choose this base
-						shortestDistance = distance;
-						tempBase = xBase;
-					}
-				}
-			} //end baseSearch
+			Base tempBase = findNearestFriendlyBase(space);
 			if (tempBase != null) {
 				currentAction = new MoveToObjectAction(space, this.getPosition(), tempBase, tempBase.getPosition().getTranslationalVelocity());
 				
@@ -362,19 +351,7 @@ public class Drone extends AbstractActionableObject {
 			
 		} else { //If we are not carrying anything, return to the nearest friendly ship.
 			
-			double minDistance = Double.POSITIVE_INFINITY;
-			Ship nearestShip = null;
-			for (Ship otherShip : space.getShips()) {
-
-				if (otherShip.getTeamName().equalsIgnoreCase(this.getTeamName())) {//Determine if this ship is on our team or not
-					nearestShip = otherShip;
-					double distance = space.findShortestDistance(this.getPosition(), otherShip.getPosition());
-					if (distance < minDistance) {
-						minDistance = distance;
-						nearestShip = otherShip;
-					}//end if statement comparing distances
-				}//End if statement comparing teams
-			}//End for loop going through all ships
+			Ship nearestShip = findFriendlyShip(space);
 			
 			if (nearestShip != null) {
 				currentAction = new MoveToObjectAction(space, this.getPosition(), nearestShip, nearestShip.getPosition().getTranslationalVelocity());
@@ -384,6 +361,38 @@ public class Drone extends AbstractActionableObject {
 		}
 	}//end set action
 
+	/**
+	 * Find the friendly base nearest to this drone
+	 * 
+	 * @param space
+	 * @return the nearest friendly base (or null if the team has no bases)
+	 */
+	private Base findNearestFriendlyBase(Toroidal2DPhysics space) {
+		return space.findNearestMatching(this.getPosition(), Base.class, new Predicate<Base>() {
+			public boolean test(Base base) {
+				return base.getTeamName().equalsIgnoreCase(getTeamName());
+			}
+		});
+	}
+
+	/**
+	 * Find the friendly ship the drone returns to.  This is the last friendly ship
+	 * in the space (not the nearest one), which is the ship the drone has always
+	 * gone back to.
+	 * 
+	 * @param space
+	 * @return the friendly ship (or null if the team has no ships)
+	 */
+	private Ship findFriendlyShip(Toroidal2DPhysics space) {
+		Ship friendlyShip = null;
+		for (Ship otherShip : space.getShips()) {
+			if (otherShip.getTeamName().equalsIgnoreCase(this.getTeamName())) {
+				friendlyShip = otherShip;
+			}
+		}
+		return friendlyShip;
+	}
+
 	/**
 	 * Set the action the drone is currently executing
 	 * Note, this should only be done within the simulator and not
@@ -392,6 +401,7 @@ public class Drone extends AbstractActionableObject {
 	 * @param currentAction
 	 */
 	public void setCurrentAction(AbstractAction currentAction) {
+		checkWritable();
 		this.currentAction = currentAction;
 	}
 
@@ -415,6 +425,7 @@ public class Drone extends AbstractActionableObject {
 	 */
 	@Override
 	public void updateEnergy(int difference) {
+		checkWritable();
 		energy += difference;
 
 		if (energy > maxEnergy) {
@@ -426,6 +437,7 @@ public class Drone extends AbstractActionableObject {
 	 * Deposit the flag by setting the ship to not carry it
 	 */
 	public void depositFlag() {
+		checkWritable();
 		this.carryingFlag = false;
 		flag.depositFlag();
 		flag = null;
@@ -20,6 +20,8 @@ import spacesettlers.utilities.Position;
  * @author amy
  */
 public class Flag extends AbstractObject {
+	private static final long serialVersionUID = 1L;
+
     public static final int FLAG_RADIUS = 10;
     public static final int FLAG_MASS = 100;
 
@@ -92,6 +94,7 @@ public class Flag extends AbstractObject {
 			newFlag.carryingShipOrDrone = this.carryingShipOrDrone.deepClone();
 		}
 		newFlag.id = id;
+		newFlag.simulationId = simulationId;
 		return newFlag;
 	}
 
@@ -120,6 +123,7 @@ public class Flag extends AbstractObject {
 	 * @param ship
 	 */
 	public void pickupFlag(Drone drone) {
+		checkWritable();
 		this.beingCarried = true;
 		this.carryingShipOrDrone = drone;
 		setPosition(drone.getPosition().deepCopy());
@@ -135,6 +139,7 @@ public class Flag extends AbstractObject {
 	 * @param ship
 	 */
 	public void pickupFlag(Ship ship) {
+		checkWritable();
 		this.beingCarried = true;
 		this.carryingShipOrDrone = ship;
 		setPosition(ship.getPosition().deepCopy());
@@ -148,6 +153,7 @@ public class Flag extends AbstractObject {
 	 * Drop the flag (likely the ship died)
 	 */
 	public void dropFlag(Random rand, Toroidal2DPhysics space) {
+		checkWritable();
 		//System.out.println("Flag being dropped at " + carryingShip.getPosition());
 		this.beingCarried = false;
 		this.setDrawable(true);
@@ -157,6 +163,10 @@ public class Flag extends AbstractObject {
 		Position newPosition = space.getRandomFreeLocationInRegion(rand, this.getRadius(), 
 				(int) carryingShipOrDrone.getPosition().getX(), 
 				(int) carryingShipOrDrone.getPosition().getY(), 200);
+		if (newPosition == null) {
+			// no room nearby so drop it right where the carrier is
+			newPosition = carryingShipOrDrone.getPosition().deepCopy();
+		}
 		newPosition.setAngularVelocity(carryingShipOrDrone.getPosition().getAngularVelocity());
 		newPosition.setTranslationalVelocity(carryingShipOrDrone.getPosition().getTranslationalVelocity());
 		this.setPosition(newPosition);
@@ -168,6 +178,7 @@ public class Flag extends AbstractObject {
 	 * and sets it to not being carried.  It will regenerate on the next timestep.
 	 */
 	public void depositFlag() {
+		checkWritable();
 		this.beingCarried = false;
 		this.setAlive(false);
 		this.setDrawable(false);
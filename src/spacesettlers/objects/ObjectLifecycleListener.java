@@ -0,0 +1,15 @@
+package spacesettlers.objects;
+
+/**
+ * Told when an object dies so the space can clean it up (or respawn it) at the
+ * end of the step without looking through every object for the dead ones.
+ */
+public interface ObjectLifecycleListener {
+	/**
+	 * Called when an object goes from alive to dead, or when a dead object is
+	 * allowed to respawn again (see AbstractObject.setRespawn)
+	 *
+	 * @param object
+	 */
+	public void objectDied(AbstractObject object);
+}
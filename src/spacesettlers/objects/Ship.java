@@ -20,6 +20,8 @@ import spacesettlers.utilities.Position;
  * @author amy
  */
 public class Ship extends AbstractActionableObject {
+	private static final long serialVersionUID = 1L;
+
 	public static final int SHIP_RADIUS = 15;
 	public static final int SHIP_MASS = 200;
 	public static final int SHIP_INITIAL_ENERGY = 5000;
@@ -33,7 +35,7 @@ public class Ship extends AbstractActionableObject {
 	AbstractAction currentAction;
 
 	/**
-	 * Time checks left until the ship can respawn
+	 * Number of steps the ship waits to respawn after it dies (see getRespawnDelay)
 	 */
 	int respawnCounter;
 
@@ -117,6 +119,7 @@ public class Ship extends AbstractActionableObject {
 		newShip.currentAction = currentAction;
 		newShip.numWeaponsInAir = numWeaponsInAir;
 		newShip.id = id;
+		newShip.simulationId = simulationId;
 		newShip.maxEnergy = maxEnergy;
 		newShip.currentPowerups = new LinkedHashSet<SpaceSettlersPowerupEnum>(currentPowerups);
 		newShip.weaponCapacity = weaponCapacity;
@@ -150,7 +153,11 @@ public class Ship extends AbstractActionableObject {
 	}
 
 	/**
-	 * Deep copy of a ship (used for security)
+	 * Deep copy of a ship without its kill tags or current action (used for the
+	 * copies kept by other objects, such as kill tags and the ships of a copied
+	 * team).  An action can hold objects from an older copy of the space, which
+	 * hold copies of ships with their actions, so copying the action here would
+	 * chain every copy back to the start of the game.
 	 * @return
 	 */
 	public Ship deepCloneNoTags() {
@@ -164,9 +171,10 @@ public class Ship extends AbstractActionableObject {
 		newShip.energy = energy;
 		newShip.respawnCounter = respawnCounter;
 		newShip.graphic = new ShipGraphics(newShip, teamColor);
-		newShip.currentAction = currentAction;
+		newShip.currentAction = null;
 		newShip.numWeaponsInAir = numWeaponsInAir;
 		newShip.id = id;
+		newShip.simulationId = simulationId;
 		newShip.maxEnergy = maxEnergy;
 		newShip.currentPowerups = new LinkedHashSet<SpaceSettlersPowerupEnum>(currentPowerups);
 		newShip.weaponCapacity = weaponCapacity;
@@ -190,11 +198,25 @@ public class Ship extends AbstractActionableObject {
 		return newShip;
 	}
 
+	/**
+	 * Make the ship read-only (see AbstractObject.makeReadOnly)
+	 */
+	public void makeReadOnly() {
+		if (isReadOnly) {
+			return;
+		}
+		super.makeReadOnly();
+		if (flag != null) {
+			flag.makeReadOnly();
+		}
+	}
+
 
 	/**
 	 * Resets the ship energy to the initial level
 	 */
 	public void resetEnergy() {
+		checkWritable();
 		energy = SHIP_INITIAL_ENERGY;
 	}
 
@@ -222,6 +244,7 @@ public class Ship extends AbstractActionableObject {
 	 * @param flag
 	 */
 	public void addFlag(Flag flag) {
+		checkWritable();
 		this.flag = flag;
 		this.carryingFlag = true;
 		this.incrementFlags();
@@ -259,6 +282,7 @@ public class Ship extends AbstractActionableObject {
 	 * Increment the weapons in play
 	 */
 	public void incrementWeaponCount(){
+		checkWritable();
 		numWeaponsInAir++;
 	}
 
@@ -266,6 +290,7 @@ public class Ship extends AbstractActionableObject {
 	 * Decrease the weapon count by one
 	 */
 	public void decrementWeaponCount() {
+		checkWritable();
 		numWeaponsInAir--;
 	}
 
@@ -275,6 +300,7 @@ public class Ship extends AbstractActionableObject {
 	 * @param space
 	 */
 	public void setDeadAndDropObjects(Random rand, Toroidal2DPhysics space) {
+		checkWritable();
 		respawnCounter = Math.min(lastRespawnCounter * RESPAWN_INCREMENT, MAX_RESPAWN_INTERVAL);
 		lastRespawnCounter = respawnCounter; 
 		resetResources();
@@ -292,6 +318,7 @@ public class Ship extends AbstractActionableObject {
 	 * so this is an override of the abstract class
 	 */
 	public void setAlive(boolean value) {
+		checkWritable();
 		if (value == false) {
 			respawnCounter = Math.min(lastRespawnCounter * RESPAWN_INCREMENT, MAX_RESPAWN_INTERVAL);
 			lastRespawnCounter = respawnCounter; 
@@ -310,6 +337,7 @@ public class Ship extends AbstractActionableObject {
 	 * Will also need code inside physics sim to drop all AiCores
 	 */
 	public void resetAiCores() {
+		checkWritable();
 		//Just erase the core count, as we are not currently tracking the specific cores held by a ship.
 		numCores = 0;
 		/*
@@ -360,6 +388,7 @@ public class Ship extends AbstractActionableObject {
 	 * Increment the number of beacons for this ship
 	 */
 	public void incrementBeaconCount() {
+		checkWritable();
 		numBeacons++;
 	}
 
@@ -379,6 +408,7 @@ public class Ship extends AbstractActionableObject {
 	 * @param currentAction
 	 */
 	public void setCurrentAction(AbstractAction currentAction) {
+		checkWritable();
 		this.currentAction = currentAction;
 	}
 
@@ -389,17 +419,11 @@ public class Ship extends AbstractActionableObject {
 	}
 
 	/**
-	 * Ships have to wait a certain amount of time until they can respawn
+	 * Ships have to wait a certain amount of time until they can respawn (the
+	 * respawn counter is set when the ship dies and counts the step it died on)
 	 */
-	public boolean canRespawn() {
-		respawnCounter--;
-
-		if (respawnCounter <= 0) {
-			return true;
-		} else {
-			return false;
-		}
-
+	public int getRespawnDelay() {
+		return Math.max(respawnCounter - 1, 0);
 	}
 
 	/**
@@ -407,6 +431,7 @@ public class Ship extends AbstractActionableObject {
 	 */
 	@Override
 	public void updateEnergy(int difference) {
+		checkWritable();
 		energy += difference;
 
 		if (energy > maxEnergy) {
@@ -418,6 +443,7 @@ public class Ship extends AbstractActionableObject {
 	 * Deposit the flag by setting the ship to not carry it
 	 */
 	public void depositFlag() {
+		checkWritable();
 		this.carryingFlag = false;
 		flag.depositFlag();
 		flag = null;
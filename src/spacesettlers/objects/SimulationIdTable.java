@@ -0,0 +1,108 @@
+package spacesettlers.objects;
+
+import java.io.Serializable;
+
+import spacesettlers.utilities.IntObjectMap;
+
+/**
+ * The objects in a space by their simulation id (see
+ * AbstractObject.getSimulationId).  New objects are given the next id and an id
+ * is never given out twice in a game, so an id that a client kept for an object
+ * that left the space never finds a different object.  Copies of a space keep
+ * the ids (and the next id) of the original.
+ *
+ * This is the only place ids are given out (besides copying an object), so the
+ * clients can't change the id of an object.
+ */
+public class SimulationIdTable implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The objects by their simulation id
+	 */
+	IntObjectMap<AbstractObject> objects;
+
+	/**
+	 * The smallest simulation id that has never been given out
+	 */
+	int nextSimulationId;
+
+	/**
+	 * Make an empty table
+	 */
+	public SimulationIdTable() {
+		objects = new IntObjectMap<AbstractObject>();
+	}
+
+	/**
+	 * Make an empty table for a copy of a space (the objects are added to it as
+	 * they are copied and keep their ids)
+	 *
+	 * @param other the table of the space being copied
+	 */
+	public SimulationIdTable(SimulationIdTable other) {
+		objects = new IntObjectMap<AbstractObject>(other.objects.size());
+		nextSimulationId = other.nextSimulationId;
+	}
+
+	/**
+	 * Add an object.  An object keeps the id it already has (copies of a space keep
+	 * the ids of the original) unless it is new or its id is being used by a
+	 * different object.
+	 *
+	 * @param object
+	 */
+	public void add(AbstractObject object) {
+		int simulationId = object.getSimulationId();
+		if (simulationId < 0) {
+			simulationId = nextSimulationId++;
+			object.setSimulationId(simulationId);
+		} else {
+			AbstractObject other = objects.get(simulationId);
+			if (other != null && !other.equals(object)) {
+				simulationId = nextSimulationId++;
+				object.setSimulationId(simulationId);
+			}
+		}
+
+		objects.put(simulationId, object);
+		nextSimulationId = Math.max(nextSimulationId, simulationId + 1);
+	}
+
+	/**
+	 * Take an object out (its id is not given out again)
+	 *
+	 * @param object
+	 */
+	public void remove(AbstractObject object) {
+		int simulationId = object.getSimulationId();
+		if (simulationId >= 0 && object.equals(objects.get(simulationId))) {
+			objects.remove(simulationId);
+		}
+	}
+
+	/**
+	 * @param simulationId
+	 * @return the object with the id or null if no object in the table has it
+	 */
+	public AbstractObject get(int simulationId) {
+		return objects.get(simulationId);
+	}
+
+	/**
+	 * Is this object (not just an object with the same id) in the table?
+	 *
+	 * @param object
+	 * @return
+	 */
+	public boolean contains(AbstractObject object) {
+		return objects.get(object.getSimulationId()) == object;
+	}
+
+	/**
+	 * @return the number of objects in the table
+	 */
+	public int size() {
+		return objects.size();
+	}
+}
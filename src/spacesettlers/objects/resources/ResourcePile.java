@@ -1,15 +1,37 @@
 package spacesettlers.objects.resources;
 
-import java.util.HashMap;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
- * A grouping of resources to be used for holding and for purchasing items
+ * A grouping of resources to be used for holding and for purchasing items.
+ * 
+ * The amounts are kept in an int array indexed by the ordinal of the resource
+ * type (piles are added, copied and compared many times a step so they should
+ * not box their values).
  * 
  * @author amy
  */
-public class ResourcePile {
-	Map<ResourceTypes, Integer> resources;
+public class ResourcePile implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The resource types (in ordinal order)
+	 */
+	static final ResourceTypes[] TYPES = ResourceTypes.values();
+
+	/**
+	 * The amount of each resource (indexed by ResourceTypes.ordinal())
+	 */
+	int[] resources;
+
+	/**
+	 * True if the pile belongs to an object in a read-only snapshot of a space
+	 * (see AbstractObject.makeReadOnly)
+	 */
+	boolean isReadOnly;
 
 	/**
 	 * Initialize with zero resources (can be set using setResource)
@@ -17,8 +39,7 @@ public class ResourcePile {
 	 */
 	public ResourcePile() {
 		super();
-		resources = new HashMap<ResourceTypes, Integer>();
-		reset();
+		resources = new int[TYPES.length];
 	}
 	
 	/**
@@ -30,10 +51,10 @@ public class ResourcePile {
 	 */
 	public ResourcePile(int water, int fuel, int metals) {
 		super();
-		resources = new HashMap<ResourceTypes, Integer>();
-		resources.put(ResourceTypes.WATER, water);
-		resources.put(ResourceTypes.FUEL, fuel);
-		resources.put(ResourceTypes.METALS, metals);
+		resources = new int[TYPES.length];
+		resources[ResourceTypes.WATER.ordinal()] = water;
+		resources[ResourceTypes.FUEL.ordinal()] = fuel;
+		resources[ResourceTypes.METALS.ordinal()] = metals;
 	}
 	
 	/**
@@ -43,30 +64,57 @@ public class ResourcePile {
 	 */
 	public ResourcePile(ResourcePile other) {
 		super();
-		resources = new HashMap<ResourceTypes, Integer>();
-		resources.put(ResourceTypes.WATER, other.getResourceQuantity(ResourceTypes.WATER));
-		resources.put(ResourceTypes.FUEL, other.getResourceQuantity(ResourceTypes.FUEL));
-		resources.put(ResourceTypes.METALS, other.getResourceQuantity(ResourceTypes.METALS));
+		resources = other.resources.clone();
 	}
 
 	
+	/**
+	 * Make the pile read-only (changing it then throws an
+	 * UnsupportedOperationException).  A copy made with new ResourcePile(pile) can
+	 * be changed.
+	 */
+	public void makeReadOnly() {
+		isReadOnly = true;
+	}
+
+	/**
+	 * Is this pile read-only (see makeReadOnly)?
+	 * 
+	 * @return
+	 */
+	public boolean isReadOnly() {
+		return isReadOnly;
+	}
+
+	private void checkWritable() {
+		if (isReadOnly) {
+			throw new UnsupportedOperationException("This resource pile is part of a read-only snapshot of the simulation");
+		}
+	}
+
 	/**
 	 * Set the resources 
 	 * @param type the type of resources
 	 * @param value the new value
 	 */
 	public void setResources(ResourceTypes type, int value) {
-		resources.put(type, value);
+		checkWritable();
+		resources[type.ordinal()] = value;
 	}
 
 
 	/**
-	 * Returns the resources currently held in this pile
+	 * Returns the resources currently held in this pile (as a new map, so changing
+	 * the map does not change the pile)
 	 * 
 	 * @return the current resources
 	 */
 	public Map<ResourceTypes, Integer> getResources() {
-		return resources;
+		Map<ResourceTypes, Integer> map = new EnumMap<ResourceTypes, Integer>(ResourceTypes.class);
+		for (ResourceTypes type : TYPES) {
+			map.put(type, resources[type.ordinal()]);
+		}
+		return map;
 	}
 	
 	/**
@@ -76,7 +124,7 @@ public class ResourcePile {
 	 * @return the amount of that resource available
 	 */
 	public int getResourceQuantity(ResourceTypes type) {
-		return resources.get(type);
+		return resources[type.ordinal()];
 	}
 	
 	/**
@@ -85,8 +133,9 @@ public class ResourcePile {
 	 * @param newResource new resource to add in
 	 */
 	public void add(ResourcePile otherPile) {
-		for (ResourceTypes type : resources.keySet()) {
-			resources.put(type, resources.get(type) + otherPile.getResourceQuantity(type));
+		checkWritable();
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] += otherPile.resources[i];
 		}
 	}
 
@@ -94,18 +143,18 @@ public class ResourcePile {
 	 * Resets the resources available
 	 */
 	public void reset() {
-		resources.put(ResourceTypes.WATER, 0);
-		resources.put(ResourceTypes.FUEL, 0);
-		resources.put(ResourceTypes.METALS, 0);
+		checkWritable();
+		Arrays.fill(resources, 0);
 	}
 
 	/**
 	 * Double the costs (e.g. how much an item costs, which piles are also used for, in addition to storage)
 	 */
 	public void doubleCosts() {
-		resources.put(ResourceTypes.WATER, resources.get(ResourceTypes.WATER) * 2);
-		resources.put(ResourceTypes.FUEL, resources.get(ResourceTypes.FUEL) * 2);
-		resources.put(ResourceTypes.METALS, resources.get(ResourceTypes.METALS) * 2);
+		checkWritable();
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] *= 2;
+		}
 	}
 
 	/**
@@ -115,8 +164,8 @@ public class ResourcePile {
 	 * @return true if this resource pile is greater in all resources than the cost pile
 	 */
 	public boolean greaterThan(ResourcePile otherPile) {
-		for (ResourceTypes type : resources.keySet()) {
-			if (resources.get(type) < otherPile.getResourceQuantity(type)) {
+		for (int i = 0; i < resources.length; i++) {
+			if (resources[i] < otherPile.resources[i]) {
 				return false;
 			}
 		}
@@ -130,8 +179,9 @@ public class ResourcePile {
 	 * @param removeResources
 	 */
 	public void subtract(ResourcePile removeResources) {
-		for (ResourceTypes type : resources.keySet()) {
-			resources.put(type, Math.max(resources.get(type) - removeResources.getResourceQuantity(type), 0));
+		checkWritable();
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] = Math.max(resources[i] - removeResources.resources[i], 0);
 		}
 	}
 
@@ -141,9 +191,9 @@ public class ResourcePile {
 	 * @return the mass of the resources
 	 */
 	public int getMass() {
-		int mass = (int) (resources.get(ResourceTypes.FUEL) * ResourceFactory.FUEL_DENSITY +
-				resources.get(ResourceTypes.WATER) * ResourceFactory.WATER_DENSITY + 
-				resources.get(ResourceTypes.METALS) * ResourceFactory.METALS_DENSITY);
+		int mass = (int) (resources[ResourceTypes.FUEL.ordinal()] * ResourceFactory.FUEL_DENSITY +
+				resources[ResourceTypes.WATER.ordinal()] * ResourceFactory.WATER_DENSITY + 
+				resources[ResourceTypes.METALS.ordinal()] * ResourceFactory.METALS_DENSITY);
 		return mass;
 	}
 	
@@ -154,15 +204,15 @@ public class ResourcePile {
 	 */
 	public int getTotal() {
 		int sum = 0;
-		for (ResourceTypes type : resources.keySet()) {
-			sum += resources.get(type);
+		for (int i = 0; i < resources.length; i++) {
+			sum += resources[i];
 		}
 		return sum;
 	}
 	
 	public String toString() {
-		String str = "Water: " + resources.get(ResourceTypes.WATER) + " Fuel: " + resources.get(ResourceTypes.FUEL) + 
-				" Metals: " + resources.get(ResourceTypes.METALS);
+		String str = "Water: " + resources[ResourceTypes.WATER.ordinal()] + " Fuel: " + resources[ResourceTypes.FUEL.ordinal()] + 
+				" Metals: " + resources[ResourceTypes.METALS.ordinal()];
 		return str;
 	}
 
@@ -12,6 +12,8 @@ import spacesettlers.utilities.Vector2D;
  * @author amy
  */
 abstract public class AbstractWeapon extends AbstractObject implements SpaceSettlersPowerup {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The amount of damageInflicted this weapon inflicts
 	 */
@@ -51,6 +53,7 @@ abstract public class AbstractWeapon extends AbstractObject implements SpaceSett
 	 */
 	public void shiftWeaponFiringLocation(double initialSpeed) 
 	{
+		checkWritable();
 		int radiusToShift = firingShip.getRadius() + radius * 2;
 		position.setX(position.getX() + (radiusToShift * Math.cos(position.getOrientation())));
 		position.setY(position.getY() + (radiusToShift * Math.sin(position.getOrientation())));
@@ -59,6 +62,19 @@ abstract public class AbstractWeapon extends AbstractObject implements SpaceSett
 		position.setTranslationalVelocity(newVelocity);
 	}
 	
+	/**
+	 * Make the weapon read-only (see AbstractObject.makeReadOnly)
+	 */
+	public void makeReadOnly() {
+		if (isReadOnly) {
+			return;
+		}
+		super.makeReadOnly();
+		if (firingShip != null) {
+			firingShip.makeReadOnly();
+		}
+	}
+
 	/**
 	 * Returns the damageInflicted for the weapon
 	 * @return
@@ -88,6 +104,7 @@ abstract public class AbstractWeapon extends AbstractObject implements SpaceSett
 	 * @param firingShip
 	 */
 	public void setFiringShip(Ship firingShip) {
+		checkWritable();
 		this.firingShip = firingShip;
 	}
 	
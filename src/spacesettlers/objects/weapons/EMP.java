@@ -16,6 +16,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public final class EMP extends AbstractWeapon implements SpaceSettlersPowerup {
+	private static final long serialVersionUID = 1L;
+
 	public static final int EMP_DAMAGE = 0;
 	public static final int EMP_COST = -100;
 	public static final int EMP_RADIUS = 5;
@@ -48,6 +50,7 @@ public final class EMP extends AbstractWeapon implements SpaceSettlersPowerup {
 		EMP newEMP = new EMP(position.deepCopy(), firingShip.deepClone());
 		newEMP.setAlive(isAlive);
 		newEMP.id = id;
+		newEMP.simulationId = simulationId;
 		newEMP.freezeCount = freezeCount;
 		newEMP.position = position.deepCopy();
 		return newEMP;
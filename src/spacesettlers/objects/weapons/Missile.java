@@ -12,6 +12,8 @@ import spacesettlers.utilities.Position;
  *
  */
 public final class Missile extends AbstractWeapon {
+	private static final long serialVersionUID = 1L;
+
 	public static final int MISSILE_DAMAGE = -200;
 	public static final int MISSILE_COST = -50;
 	public static final int MISSILE_RADIUS = 3;
@@ -39,6 +41,7 @@ public final class Missile extends AbstractWeapon {
 		Missile newBullet = new Missile(position.deepCopy(), firingShip.deepClone());
 		newBullet.setAlive(isAlive);
 		newBullet.id = id;
+		newBullet.simulationId = simulationId;
 		newBullet.position = position.deepCopy();
 		return newBullet;
 	}
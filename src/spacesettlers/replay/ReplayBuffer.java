@@ -0,0 +1,91 @@
+package spacesettlers.replay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A growable array of bytes that holds one part of a frame while it is being
+ * recorded (so the number of entries can be written before the entries)
+ */
+class ReplayBuffer {
+	/**
+	 * The bytes written so far
+	 */
+	byte[] bytes = new byte[1024];
+
+	/**
+	 * Number of bytes in use
+	 */
+	int length;
+
+	/**
+	 * Number of entries written since the last reset
+	 */
+	int count;
+
+	/**
+	 * Empty the buffer (but keep the memory)
+	 */
+	void reset() {
+		length = 0;
+		count = 0;
+	}
+
+	/**
+	 * Add a byte
+	 *
+	 * @param value
+	 */
+	void writeByte(int value) {
+		if (length == bytes.length) {
+			byte[] newBytes = new byte[bytes.length * 2];
+			System.arraycopy(bytes, 0, newBytes, 0, length);
+			bytes = newBytes;
+		}
+		bytes[length++] = (byte) value;
+	}
+
+	/**
+	 * Add a non-negative number using 7 bits per byte
+	 *
+	 * @param value
+	 */
+	void writeUnsigned(long value) {
+		while ((value & ~0x7FL) != 0) {
+			writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		writeByte((int) value);
+	}
+
+	/**
+	 * Add a number that may be negative (zigzag encoded so small negative numbers stay small)
+	 *
+	 * @param value
+	 */
+	void writeSigned(long value) {
+		writeUnsigned((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Add the 8 bytes of a double
+	 *
+	 * @param value
+	 */
+	void writeDouble(double value) {
+		long bits = Double.doubleToLongBits(value);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			writeByte((int) (bits >>> shift));
+		}
+	}
+
+	/**
+	 * Copy the bytes to a stream
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	void writeTo(OutputStream out) throws IOException {
+		out.write(bytes, 0, length);
+	}
+}
@@ -0,0 +1,156 @@
+package spacesettlers.replay;
+
+import spacesettlers.objects.AbstractActionableObject;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.AiCore;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.objects.Beacon;
+import spacesettlers.objects.Drone;
+import spacesettlers.objects.Flag;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.weapons.AbstractWeapon;
+import spacesettlers.objects.weapons.EMP;
+import spacesettlers.objects.weapons.Missile;
+
+/**
+ * Constants shared by the replay recorder and reader.
+ *
+ * A replay file is gzipped.  It starts with a header (the magic number, the version,
+ * the size of the space and the teams) followed by one frame per recorded timestep and
+ * an end marker.  Each object gets a small integer key the first time it is seen and
+ * a frame only holds the objects that were created, the keys of the objects that were
+ * removed, the fields that changed (as differences from the last frame of the quantized
+ * values) and the scores that changed.  All the integers are variable length so an
+ * object that did not move much only takes a few bytes.
+ */
+final class ReplayFormat {
+	/**
+	 * First four bytes of every replay file ("SSRP")
+	 */
+	static final int MAGIC = 0x53535250;
+
+	/**
+	 * Version of the file format
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Marks the start of a frame
+	 */
+	static final int FRAME_MARKER = 1;
+
+	/**
+	 * Marks the end of the file
+	 */
+	static final int END_MARKER = 0;
+
+	/**
+	 * Positions and velocities are stored in sixteenths of a pixel
+	 */
+	static final double POSITION_SCALE = 16.0;
+
+	/**
+	 * Orientations are stored in thousandths of a radian
+	 */
+	static final double ORIENTATION_SCALE = 1000.0;
+
+	/**
+	 * Resource proportions of asteroids are stored in thousandths
+	 */
+	static final double PROPORTION_SCALE = 1000.0;
+
+	/**
+	 * The types of objects
+	 */
+	static final int ASTEROID = 1, BEACON = 2, BASE = 3, SHIP = 4, DRONE = 5, AI_CORE = 6,
+			FLAG = 7, MISSILE = 8, EMP = 9;
+
+	/**
+	 * The bits of the mask saying which fields changed
+	 */
+	static final int X_CHANGED = 1, Y_CHANGED = 2, X_VELOCITY_CHANGED = 4, Y_VELOCITY_CHANGED = 8,
+			ORIENTATION_CHANGED = 16, ENERGY_CHANGED = 32, MAX_ENERGY_CHANGED = 64, FLAGS_CHANGED = 128;
+
+	/**
+	 * The bits of the flags field
+	 */
+	static final int ALIVE = 1, DRAWABLE = 2, SHIELDED = 4;
+
+	private ReplayFormat() {
+	}
+
+	/**
+	 * The last recorded (quantized) state of an object
+	 */
+	static class ObjectState {
+		int key;
+		long x, y, xVelocity, yVelocity, orientation;
+		long energy, maxEnergy, flags;
+
+		/**
+		 * The object in the replayed space (only used by the reader)
+		 */
+		AbstractObject object;
+
+		/**
+		 * The last frame the object was seen in (only used by the recorder)
+		 */
+		int lastSeen;
+
+		ObjectState(int key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Return the type of an object or 0 if it can't be recorded
+	 *
+	 * @param object
+	 * @return
+	 */
+	static int getType(AbstractObject object) {
+		if (object instanceof Asteroid) {
+			return ASTEROID;
+		} else if (object instanceof Beacon) {
+			return BEACON;
+		} else if (object instanceof Base) {
+			return BASE;
+		} else if (object instanceof Ship) {
+			return SHIP;
+		} else if (object instanceof Drone) {
+			return DRONE;
+		} else if (object instanceof AiCore) {
+			return AI_CORE;
+		} else if (object instanceof Flag) {
+			return FLAG;
+		} else if (object instanceof Missile) {
+			return MISSILE;
+		} else if (object instanceof EMP) {
+			return EMP;
+		}
+		return 0;
+	}
+
+	/**
+	 * Return the name of the team that owns an object (or null if no team does)
+	 *
+	 * @param object
+	 * @return
+	 */
+	static String getTeamName(AbstractObject object) {
+		if (object instanceof AbstractActionableObject) {
+			return ((AbstractActionableObject) object).getTeamName();
+		} else if (object instanceof AiCore) {
+			return ((AiCore) object).getTeamName();
+		} else if (object instanceof Flag) {
+			return ((Flag) object).getTeamName();
+		} else if (object instanceof AbstractWeapon) {
+			Ship firingShip = ((AbstractWeapon) object).getFiringShip();
+			if (firingShip != null) {
+				return firingShip.getTeamName();
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,318 @@
+package spacesettlers.replay;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import spacesettlers.clients.Team;
+import spacesettlers.objects.AbstractActionableObject;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.AiCore;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.objects.Beacon;
+import spacesettlers.objects.Drone;
+import spacesettlers.objects.Flag;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.resources.ResourcePile;
+import spacesettlers.objects.weapons.EMP;
+import spacesettlers.objects.weapons.Missile;
+import spacesettlers.simulator.Toroidal2DPhysics;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Reads a replay file written by ReplayRecorder back into a space one timestep at a
+ * time.  The teams are made with ReplayTeamClient so none of the original client
+ * classes are needed.
+ */
+public class ReplayReader {
+	/**
+	 * The replay file
+	 */
+	DataInputStream in;
+
+	/**
+	 * Size of the recorded space
+	 */
+	int width, height;
+
+	/**
+	 * The teams (in the order of the header)
+	 */
+	Team[] teams;
+
+	/**
+	 * A ship for each team that is used as the firing ship of the team's weapons
+	 */
+	Ship[] firingShips;
+
+	/**
+	 * The objects in the replayed space (by key)
+	 */
+	HashMap<Integer, ReplayFormat.ObjectState> states;
+
+	/**
+	 * Key of the next new object (keys are handed out in order and never reused)
+	 */
+	int nextKey;
+
+	/**
+	 * The timestep of the last frame that was read
+	 */
+	int timestep;
+
+	/**
+	 * Open the replay file and read the header
+	 *
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public ReplayReader(String fileName) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(fileName), 8192)));
+		if (in.readInt() != ReplayFormat.MAGIC) {
+			in.close();
+			throw new IOException(fileName + " is not a replay file");
+		}
+		int version = in.readInt();
+		if (version != ReplayFormat.VERSION) {
+			in.close();
+			throw new IOException("Unknown replay file version " + version + " in " + fileName);
+		}
+
+		width = in.readInt();
+		height = in.readInt();
+		teams = new Team[in.readInt()];
+		firingShips = new Ship[teams.length];
+		for (int t = 0; t < teams.length; t++) {
+			ReplayTeamClient teamClient = new ReplayTeamClient();
+			teamClient.setTeamName(in.readUTF());
+			String ladderName = in.readUTF();
+			teamClient.setTeamColor(new Color(in.readInt()));
+			teams[t] = new Team(teamClient, ladderName, 0);
+			firingShips[t] = new Ship(teamClient.getTeamName(), teamClient.getTeamColor(), new Position(0, 0));
+		}
+		states = new HashMap<Integer, ReplayFormat.ObjectState>();
+	}
+
+	/**
+	 * @return the width of the recorded space
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the recorded space
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the teams of the recorded game (their scores are updated as each timestep is read)
+	 */
+	public Set<Team> getTeams() {
+		Set<Team> teamSet = new LinkedHashSet<Team>();
+		for (Team team : teams) {
+			teamSet.add(team);
+		}
+		return teamSet;
+	}
+
+	/**
+	 * @return the timestep of the last frame that was read
+	 */
+	public int getTimestep() {
+		return timestep;
+	}
+
+	/**
+	 * Read the next timestep and change the space (and the team scores) to match it
+	 *
+	 * @param space the space being replayed (it should only be changed by the reader)
+	 * @return false if there are no more timesteps
+	 * @throws IOException
+	 */
+	public boolean readTimestep(Toroidal2DPhysics space) throws IOException {
+		if (in.readUnsignedByte() != ReplayFormat.FRAME_MARKER) {
+			return false;
+		}
+		timestep = (int) readUnsigned();
+
+		int numCreated = (int) readUnsigned();
+		for (int i = 0; i < numCreated; i++) {
+			ReplayFormat.ObjectState state = new ReplayFormat.ObjectState(nextKey++);
+			state.object = readNewObject();
+			readChanges(state);
+			states.put(state.key, state);
+			space.addObject(state.object);
+		}
+
+		int numRemoved = (int) readUnsigned();
+		for (int i = 0; i < numRemoved; i++) {
+			ReplayFormat.ObjectState state = states.remove((int) readUnsigned());
+			space.removeObject(state.object);
+		}
+
+		int numChanged = (int) readUnsigned();
+		int key = 0;
+		for (int i = 0; i < numChanged; i++) {
+			key += (int) readSigned();
+			readChanges(states.get(key));
+		}
+
+		int numScores = (int) readUnsigned();
+		for (int i = 0; i < numScores; i++) {
+			int teamIndex = (int) readUnsigned();
+			teams[teamIndex].setScore(in.readDouble());
+		}
+
+		// the objects were moved without the space knowing
+		space.invalidateSnapshot();
+		return true;
+	}
+
+	/**
+	 * Make a new object from what the recorder wrote about it
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private AbstractObject readNewObject() throws IOException {
+		int type = in.readUnsignedByte();
+		int teamIndex = (int) readUnsigned() - 1;
+		int radius = (int) readUnsigned();
+		Team team = (teamIndex >= 0) ? teams[teamIndex] : null;
+		String teamName = (team != null) ? team.getTeamName() : null;
+		Color teamColor = (team != null) ? team.getTeamColor() : null;
+		Position position = new Position(0, 0);
+
+		switch (type) {
+		case ReplayFormat.ASTEROID:
+			int asteroidFlags = in.readUnsignedByte();
+			double fuel = readUnsigned() / ReplayFormat.PROPORTION_SCALE;
+			double water = readUnsigned() / ReplayFormat.PROPORTION_SCALE;
+			double metals = readUnsigned() / ReplayFormat.PROPORTION_SCALE;
+			return new Asteroid(position, (asteroidFlags & 1) != 0, radius, (asteroidFlags & 2) != 0, fuel, water, metals);
+		case ReplayFormat.BEACON:
+			return new Beacon(position);
+		case ReplayFormat.BASE:
+			return new Base(position, teamName, team, in.readUnsignedByte() != 0);
+		case ReplayFormat.SHIP:
+			return new Ship(teamName, teamColor, position);
+		case ReplayFormat.DRONE:
+			return new Drone(teamName, teamColor, team, position, new ResourcePile());
+		case ReplayFormat.AI_CORE:
+			return new AiCore(position, teamName, teamColor);
+		case ReplayFormat.FLAG:
+			return new Flag(position, teamName, team, new Position[] {position});
+		case ReplayFormat.MISSILE:
+			return new Missile(position, firingShips[teamIndex]);
+		case ReplayFormat.EMP:
+			return new EMP(position, firingShips[teamIndex]);
+		default:
+			throw new IOException("Unknown object type " + type + " in the replay file");
+		}
+	}
+
+	/**
+	 * Read the changes to an object and apply them to it
+	 *
+	 * @param state
+	 * @throws IOException
+	 */
+	private void readChanges(ReplayFormat.ObjectState state) throws IOException {
+		int mask = in.readUnsignedByte();
+		if ((mask & ReplayFormat.X_CHANGED) != 0) {
+			state.x += readSigned();
+		}
+		if ((mask & ReplayFormat.Y_CHANGED) != 0) {
+			state.y += readSigned();
+		}
+		if ((mask & ReplayFormat.X_VELOCITY_CHANGED) != 0) {
+			state.xVelocity += readSigned();
+		}
+		if ((mask & ReplayFormat.Y_VELOCITY_CHANGED) != 0) {
+			state.yVelocity += readSigned();
+		}
+		if ((mask & ReplayFormat.ORIENTATION_CHANGED) != 0) {
+			state.orientation += readSigned();
+		}
+		if ((mask & ReplayFormat.ENERGY_CHANGED) != 0) {
+			state.energy += readSigned();
+		}
+		if ((mask & ReplayFormat.MAX_ENERGY_CHANGED) != 0) {
+			state.maxEnergy += readSigned();
+		}
+		if ((mask & ReplayFormat.FLAGS_CHANGED) != 0) {
+			state.flags = readUnsigned();
+		}
+
+		AbstractObject object = state.object;
+		Position position = object.getPosition();
+		position.setX(state.x / ReplayFormat.POSITION_SCALE);
+		position.setY(state.y / ReplayFormat.POSITION_SCALE);
+		position.setTranslationalVelocity(new Vector2D(state.xVelocity / ReplayFormat.POSITION_SCALE,
+				state.yVelocity / ReplayFormat.POSITION_SCALE));
+		position.setOrientation(state.orientation / ReplayFormat.ORIENTATION_SCALE);
+
+		// ships reset themselves when they come back to life so this has to happen before the energy is set
+		boolean alive = (state.flags & ReplayFormat.ALIVE) != 0;
+		if (object.isAlive() != alive) {
+			object.setAlive(alive);
+		}
+		object.setDrawable((state.flags & ReplayFormat.DRAWABLE) != 0);
+
+		if (object instanceof AbstractActionableObject) {
+			AbstractActionableObject actionable = (AbstractActionableObject) object;
+			actionable.setMaxEnergy((int) state.maxEnergy);
+			actionable.updateEnergy((int) (state.energy - Math.round(actionable.getEnergy())));
+			actionable.setShielded((state.flags & ReplayFormat.SHIELDED) != 0);
+		}
+	}
+
+	/**
+	 * Read a non-negative number written 7 bits per byte
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private long readUnsigned() throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Read a zigzag encoded number
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private long readSigned() throws IOException {
+		long value = readUnsigned();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Close the file
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+}
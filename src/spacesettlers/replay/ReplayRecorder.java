@@ -0,0 +1,346 @@
+package spacesettlers.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import spacesettlers.clients.Team;
+import spacesettlers.objects.AbstractActionableObject;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.utilities.Position;
+
+/**
+ * Records the state of every object in the simulation at each timestep into a
+ * compact replay file (see ReplayFormat) that can be watched later with RunReplay.
+ * Only the position, velocity, orientation, energy, alive/drawable/shield state,
+ * team and type of each object and the team scores are recorded.
+ */
+public class ReplayRecorder {
+	/**
+	 * The replay file
+	 */
+	DataOutputStream out;
+
+	/**
+	 * The teams in the order they were written to the header
+	 */
+	Team[] teams;
+
+	/**
+	 * Index of each team in the header (by team name)
+	 */
+	HashMap<String, Integer> teamIndices;
+
+	/**
+	 * Scores written for each team
+	 */
+	double[] scores;
+
+	/**
+	 * Last recorded state of every object in the space (by object id)
+	 */
+	HashMap<UUID, ReplayFormat.ObjectState> states;
+
+	/**
+	 * Key given to the next new object
+	 */
+	int nextKey;
+
+	/**
+	 * Number of frames recorded so far
+	 */
+	int numFrames;
+
+	/**
+	 * The parts of the current frame
+	 */
+	ReplayBuffer created, removed, changed;
+
+	/**
+	 * The state of the current object (so it isn't allocated for every object)
+	 */
+	ReplayFormat.ObjectState current;
+
+	/**
+	 * Open the replay file and write the header
+	 *
+	 * @param fileName
+	 * @param width width of the space
+	 * @param height height of the space
+	 * @param teams
+	 * @throws IOException
+	 */
+	public ReplayRecorder(String fileName, int width, int height, Set<Team> teams) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(fileName), 8192)));
+		this.teams = teams.toArray(new Team[teams.size()]);
+		teamIndices = new HashMap<String, Integer>();
+		scores = new double[this.teams.length];
+		states = new HashMap<UUID, ReplayFormat.ObjectState>();
+		created = new ReplayBuffer();
+		removed = new ReplayBuffer();
+		changed = new ReplayBuffer();
+		current = new ReplayFormat.ObjectState(0);
+
+		out.writeInt(ReplayFormat.MAGIC);
+		out.writeInt(ReplayFormat.VERSION);
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeInt(this.teams.length);
+		for (int t = 0; t < this.teams.length; t++) {
+			Team team = this.teams[t];
+			out.writeUTF(team.getTeamName());
+			out.writeUTF(team.getLadderName());
+			out.writeInt(team.getTeamColor().getRGB());
+			teamIndices.put(team.getTeamName(), t);
+			scores[t] = Double.NaN;
+		}
+	}
+
+	/**
+	 * Record the state of the objects (and the scores of the teams) at the end of a timestep
+	 *
+	 * @param timestep
+	 * @param allObjects
+	 * @throws IOException
+	 */
+	public void recordTimestep(int timestep, Collection<AbstractObject> allObjects) throws IOException {
+		numFrames++;
+		created.reset();
+		removed.reset();
+		changed.reset();
+
+		int lastChangedKey = 0;
+		for (AbstractObject object : allObjects) {
+			int type = ReplayFormat.getType(object);
+			if (type == 0) {
+				continue;
+			}
+
+			ReplayFormat.ObjectState state = states.get(object.getId());
+			if (state == null) {
+				state = new ReplayFormat.ObjectState(nextKey++);
+				states.put(object.getId(), state);
+				writeNewObject(object, type);
+				quantize(object, current);
+				writeChanges(created, state, current);
+			} else {
+				quantize(object, current);
+				int mark = changed.length;
+				changed.writeSigned(state.key - lastChangedKey);
+				if (writeChanges(changed, state, current) == 0) {
+					// nothing changed so forget the key
+					changed.length = mark;
+				} else {
+					changed.count++;
+					lastChangedKey = state.key;
+				}
+			}
+			state.lastSeen = numFrames;
+		}
+
+		// anything that wasn't seen this time was removed from the space
+		for (Iterator<ReplayFormat.ObjectState> iterator = states.values().iterator(); iterator.hasNext();) {
+			ReplayFormat.ObjectState state = iterator.next();
+			if (state.lastSeen != numFrames) {
+				removed.writeUnsigned(state.key);
+				removed.count++;
+				iterator.remove();
+			}
+		}
+
+		out.writeByte(ReplayFormat.FRAME_MARKER);
+		writeUnsigned(timestep);
+		writeUnsigned(created.count);
+		created.writeTo(out);
+		writeUnsigned(removed.count);
+		removed.writeTo(out);
+		writeUnsigned(changed.count);
+		changed.writeTo(out);
+
+		// and the scores that changed
+		int numScores = 0;
+		for (int t = 0; t < teams.length; t++) {
+			if (Double.compare(scores[t], teams[t].getScore()) != 0) {
+				numScores++;
+			}
+		}
+		writeUnsigned(numScores);
+		for (int t = 0; t < teams.length; t++) {
+			double score = teams[t].getScore();
+			if (Double.compare(scores[t], score) != 0) {
+				writeUnsigned(t);
+				out.writeDouble(score);
+				scores[t] = score;
+			}
+		}
+	}
+
+	/**
+	 * Write everything about a new object that never changes (its type, team, size
+	 * and anything its graphics need)
+	 *
+	 * @param object
+	 * @param type
+	 */
+	private void writeNewObject(AbstractObject object, int type) {
+		created.count++;
+		created.writeByte(type);
+		Integer teamIndex = null;
+		String teamName = ReplayFormat.getTeamName(object);
+		if (teamName != null) {
+			teamIndex = teamIndices.get(teamName);
+		}
+		created.writeUnsigned(teamIndex == null ? 0 : teamIndex + 1);
+		created.writeUnsigned(object.getRadius());
+
+		if (type == ReplayFormat.ASTEROID) {
+			Asteroid asteroid = (Asteroid) object;
+			created.writeByte((asteroid.isMineable() ? 1 : 0) | (asteroid.isMoveable() ? 2 : 0));
+			created.writeUnsigned(Math.round(asteroid.getFuelProportion() * ReplayFormat.PROPORTION_SCALE));
+			created.writeUnsigned(Math.round(asteroid.getWaterProportion() * ReplayFormat.PROPORTION_SCALE));
+			created.writeUnsigned(Math.round(asteroid.getMetalsProportion() * ReplayFormat.PROPORTION_SCALE));
+		} else if (type == ReplayFormat.BASE) {
+			created.writeByte(((Base) object).isHomeBase() ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Quantize the state of an object
+	 *
+	 * @param object
+	 * @param state where the quantized state is stored
+	 */
+	private void quantize(AbstractObject object, ReplayFormat.ObjectState state) {
+		Position position = object.getPosition();
+		state.x = Math.round(position.getX() * ReplayFormat.POSITION_SCALE);
+		state.y = Math.round(position.getY() * ReplayFormat.POSITION_SCALE);
+		state.xVelocity = Math.round(position.getxVelocity() * ReplayFormat.POSITION_SCALE);
+		state.yVelocity = Math.round(position.getyVelocity() * ReplayFormat.POSITION_SCALE);
+		state.orientation = Math.round(position.getOrientation() * ReplayFormat.ORIENTATION_SCALE);
+
+		int flags = 0;
+		if (object.isAlive()) {
+			flags |= ReplayFormat.ALIVE;
+		}
+		if (object.isDrawable()) {
+			flags |= ReplayFormat.DRAWABLE;
+		}
+		if (object instanceof AbstractActionableObject) {
+			AbstractActionableObject actionable = (AbstractActionableObject) object;
+			state.energy = Math.round(actionable.getEnergy());
+			state.maxEnergy = actionable.getMaxEnergy();
+			if (actionable.isShielded()) {
+				flags |= ReplayFormat.SHIELDED;
+			}
+		} else {
+			state.energy = 0;
+			state.maxEnergy = 0;
+		}
+		state.flags = flags;
+	}
+
+	/**
+	 * Write the mask of the fields that changed and the change in each of them and
+	 * then remember the new state
+	 *
+	 * @param buffer
+	 * @param state the last recorded state (updated to the new state)
+	 * @param newState
+	 * @return the mask of the fields that changed
+	 */
+	private int writeChanges(ReplayBuffer buffer, ReplayFormat.ObjectState state, ReplayFormat.ObjectState newState) {
+		int mask = 0;
+		if (newState.x != state.x) {
+			mask |= ReplayFormat.X_CHANGED;
+		}
+		if (newState.y != state.y) {
+			mask |= ReplayFormat.Y_CHANGED;
+		}
+		if (newState.xVelocity != state.xVelocity) {
+			mask |= ReplayFormat.X_VELOCITY_CHANGED;
+		}
+		if (newState.yVelocity != state.yVelocity) {
+			mask |= ReplayFormat.Y_VELOCITY_CHANGED;
+		}
+		if (newState.orientation != state.orientation) {
+			mask |= ReplayFormat.ORIENTATION_CHANGED;
+		}
+		if (newState.energy != state.energy) {
+			mask |= ReplayFormat.ENERGY_CHANGED;
+		}
+		if (newState.maxEnergy != state.maxEnergy) {
+			mask |= ReplayFormat.MAX_ENERGY_CHANGED;
+		}
+		if (newState.flags != state.flags) {
+			mask |= ReplayFormat.FLAGS_CHANGED;
+		}
+
+		buffer.writeByte(mask);
+		if ((mask & ReplayFormat.X_CHANGED) != 0) {
+			buffer.writeSigned(newState.x - state.x);
+			state.x = newState.x;
+		}
+		if ((mask & ReplayFormat.Y_CHANGED) != 0) {
+			buffer.writeSigned(newState.y - state.y);
+			state.y = newState.y;
+		}
+		if ((mask & ReplayFormat.X_VELOCITY_CHANGED) != 0) {
+			buffer.writeSigned(newState.xVelocity - state.xVelocity);
+			state.xVelocity = newState.xVelocity;
+		}
+		if ((mask & ReplayFormat.Y_VELOCITY_CHANGED) != 0) {
+			buffer.writeSigned(newState.yVelocity - state.yVelocity);
+			state.yVelocity = newState.yVelocity;
+		}
+		if ((mask & ReplayFormat.ORIENTATION_CHANGED) != 0) {
+			buffer.writeSigned(newState.orientation - state.orientation);
+			state.orientation = newState.orientation;
+		}
+		if ((mask & ReplayFormat.ENERGY_CHANGED) != 0) {
+			buffer.writeSigned(newState.energy - state.energy);
+			state.energy = newState.energy;
+		}
+		if ((mask & ReplayFormat.MAX_ENERGY_CHANGED) != 0) {
+			buffer.writeSigned(newState.maxEnergy - state.maxEnergy);
+			state.maxEnergy = newState.maxEnergy;
+		}
+		if ((mask & ReplayFormat.FLAGS_CHANGED) != 0) {
+			buffer.writeUnsigned(newState.flags);
+			state.flags = newState.flags;
+		}
+		return mask;
+	}
+
+	/**
+	 * Write a non-negative number straight to the file
+	 *
+	 * @param value
+	 * @throws IOException
+	 */
+	private void writeUnsigned(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Write the end marker and close the file
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		out.writeByte(ReplayFormat.END_MARKER);
+		out.close();
+	}
+}
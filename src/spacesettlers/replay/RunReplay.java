@@ -0,0 +1,63 @@
+package spacesettlers.replay;
+
+import java.io.IOException;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.simulator.SpaceSettlersSimulator;
+import spacesettlers.simulator.Toroidal2DPhysics;
+
+/**
+ * Watch a game that was recorded with the replayFile option of the simulator (or
+ * the replayDirectory option of the ladder).  The game is shown in the usual GUI
+ * (which can pause and change speed as usual) but no team clients are loaded.
+ */
+public class RunReplay {
+	/**
+	 * Parse the command line and play back the replay file
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		SimpleJSAP parser = null;
+		try {
+			parser = new SimpleJSAP(
+					"Replay",
+					"Spacewar replay viewer",
+					new Parameter[] {
+						new FlaggedOption("replayFile",
+								JSAP.STRING_PARSER, null, JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "replayFile",
+								"replay file written by the simulator"),
+					});
+		} catch (JSAPException e) {
+			e.printStackTrace();
+			System.err.println("Error in the parser - exiting");
+			System.exit(-1);
+		}
+
+		JSAPResult parserConfig = parser.parse(args);
+		if (parser.messagePrinted()) {
+			System.exit(-1);
+		}
+
+		ReplayReader reader = new ReplayReader(parserConfig.getString("replayFile"));
+		SpaceSettlersConfig simConfig = new SpaceSettlersConfig();
+		simConfig.setSize(reader.getWidth(), reader.getHeight());
+		Toroidal2DPhysics space = new Toroidal2DPhysics(simConfig);
+
+		SpaceSettlersSimulator simulator = new SpaceSettlersSimulator(simConfig, space, reader.getTeams(), true);
+		while (reader.readTimestep(space)) {
+			simulator.showReplayStep(reader.getTimestep());
+		}
+		reader.close();
+		System.out.println("End of the replay at time step " + reader.getTimestep());
+	}
+}
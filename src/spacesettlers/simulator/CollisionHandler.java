@@ -35,119 +35,217 @@ public class CollisionHandler {
 	class CollisionData {
 		double v1, v2;
 	}
+
+	/**
+	 * Scratch space for the distance between two colliding objects
+	 */
+	private final double[] distance = new double[2];
 	
 	/**
-	 * Collide the objects and then take care of side effects based on object type
-	 * 
-	 * @param object1
-	 * @param object2
-	 * @param space
+	 * The types of objects that have their own collision rules
 	 */
-	public void collide(AbstractObject object1, AbstractObject object2, Toroidal2DPhysics space) {
-		// if either object is a beacon, handle that (and don't elastically collide)
-		if (object1 instanceof Beacon) {
-			beaconCollision((Beacon) object1, object2);
-			return;
-		} else if (object2 instanceof Beacon) {
-			beaconCollision((Beacon) object2, object1);
-			return;
-		}
+	enum ObjectType {
+		BEACON, MISSILE, EMP, FLAG, ASTEROID, SHIP, AI_CORE, BASE, DRONE, OTHER
+	}
 
-		// if either object is a missile, handle that (and don't elastically collide)
-		if (object1 instanceof Missile) {
-			missileCollision((Missile) object1, object2);
-			return;
-		} else if (object2 instanceof Missile) {
-			missileCollision((Missile) object2, object1);
-			return;
-		}
-		
-		// if either object is a EMP, handle that (and don't elastically collide)
-		if (object1 instanceof EMP) {
-			EMPCollision((EMP) object1, object2);
-			return;
-		} else if (object2 instanceof EMP) {
-			EMPCollision((EMP) object2, object1);
-			return;
+	/**
+	 * The type of each class of object (worked out once for each class instead of
+	 * with instanceof checks for every collision)
+	 */
+	static final ClassValue<ObjectType> OBJECT_TYPES = new ClassValue<ObjectType>() {
+		@Override
+		protected ObjectType computeValue(Class<?> type) {
+			if (Beacon.class.isAssignableFrom(type)) {
+				return ObjectType.BEACON;
+			} else if (Missile.class.isAssignableFrom(type)) {
+				return ObjectType.MISSILE;
+			} else if (EMP.class.isAssignableFrom(type)) {
+				return ObjectType.EMP;
+			} else if (Flag.class.isAssignableFrom(type)) {
+				return ObjectType.FLAG;
+			} else if (Asteroid.class.isAssignableFrom(type)) {
+				return ObjectType.ASTEROID;
+			} else if (Ship.class.isAssignableFrom(type)) {
+				return ObjectType.SHIP;
+			} else if (AiCore.class.isAssignableFrom(type)) {
+				return ObjectType.AI_CORE;
+			} else if (Base.class.isAssignableFrom(type)) {
+				return ObjectType.BASE;
+			} else if (Drone.class.isAssignableFrom(type)) {
+				return ObjectType.DRONE;
+			}
+			return ObjectType.OTHER;
 		}
-		
+	};
+
+	/**
+	 * What happens when two types of objects run into each other (before they bounce
+	 * off each other)
+	 */
+	abstract static class CollisionRule {
+		/**
+		 * Apply the rule to a pair of objects (given in the order the rule was written for)
+		 *
+		 * @return true if the objects should not bounce off each other
+		 */
+		abstract boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second);
+	}
+
+	static final int NUM_TYPES = ObjectType.values().length;
+
+	/**
+	 * The rule for each pair of types (indexed by the ordinals of the two types) or
+	 * null if the objects just bounce off each other
+	 */
+	static final CollisionRule[] rules = new CollisionRule[NUM_TYPES * NUM_TYPES];
+
+	/**
+	 * True if the rule for the pair of types was written for the objects in the
+	 * other order
+	 */
+	static final boolean[] swapped = new boolean[NUM_TYPES * NUM_TYPES];
+
+	/*
+	 * The rules in order of priority: a pair of objects only uses the first rule
+	 * that matches it (in either order)
+	 */
+	static {
+		// beacons, missiles and EMPs are used up by whatever hits them (and don't elastically collide)
+		addRule(ObjectType.BEACON, null, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.beaconCollision((Beacon) first, second);
+				return true;
+			}
+		});
+		addRule(ObjectType.MISSILE, null, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.missileCollision((Missile) first, second);
+				return true;
+			}
+		});
+		addRule(ObjectType.EMP, null, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.EMPCollision((EMP) first, second);
+				return true;
+			}
+		});
+
 		// if the object is a flag, handle either moving it (same team) or picking it up (opposite team)
 		// and don't elastically collide
-		if (object1 instanceof Flag && object2 instanceof Ship) {
-			flagCollision((Flag) object1, (Ship) object2);
-			return;
-		} else if (object2 instanceof Flag && object1 instanceof Ship) {
-			flagCollision((Flag) object2, (Ship) object1);
-			return;
-		}
-		
+		addRule(ObjectType.FLAG, ObjectType.SHIP, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.flagCollision((Flag) first, (Ship) second);
+				return true;
+			}
+		});
+
 		// handle mineable asteroid collisions (e.g. mine them if needed and don't elastically collide, e.g
 		// no damage for mining)
-		if (object1 instanceof Asteroid && object2 instanceof Ship) {
-			if (((Asteroid) object1).isMineable()) {
-				mineAsteroid((Asteroid) object1, (Ship) object2);
-				return;
-			}
-		} else if (object2 instanceof Asteroid && object1 instanceof Ship) {
-			if (((Asteroid) object2).isMineable()) {
-				mineAsteroid((Asteroid) object2, (Ship) object1);
-				return;
+		addRule(ObjectType.ASTEROID, ObjectType.SHIP, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				if (((Asteroid) first).isMineable()) {
+					handler.mineAsteroid((Asteroid) first, (Ship) second);
+					return true;
+				}
+				return false;
 			}
-		}
-		
+		});
+
 		//Handle AiCore Collisions with ships (Destroy them if same team, collect them if different team) and don't elastically collide
-		if (object1 instanceof AiCore && object2 instanceof Ship) {
-			collectCore((AiCore)object1, (Ship)object2);
-			return;
-		} else if (object2 instanceof AiCore && object1 instanceof Ship) {
-			collectCore((AiCore)object2, (Ship)object1);
-			return;
-		}
-		
+		addRule(ObjectType.AI_CORE, ObjectType.SHIP, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.collectCore((AiCore) first, (Ship) second);
+				return true;
+			}
+		});
+
 		//Handle AiCore collisions with Beacons (Restoring the energy of the AiCore) and don't elastically collide
-		if (object1 instanceof AiCore && object2 instanceof Beacon) {
-			healAiCore((AiCore)object1, (Beacon)object2);
-			return;
-		} else if (object2 instanceof AiCore && object1 instanceof Beacon) {
-			healAiCore((AiCore)object2, (Beacon)object1);
-			return;
-		}
-		
+		// (the beacon rule above comes first, so this one is kept only to record the intent)
+		addRule(ObjectType.AI_CORE, ObjectType.BEACON, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.healAiCore((AiCore) first, (Beacon) second);
+				return true;
+			}
+		});
+
+		// the rest of the rules are followed by the objects bouncing off each other
+
 		//Handle AiCore collisions with bases (core is collected) and then collides if it is an enemy
-		if (object1 instanceof AiCore && object2 instanceof Base) {
-			baseCoreCollide((AiCore)object1, (Base)object2);
-		} else if (object2 instanceof AiCore && object1 instanceof Base) {
-			baseCoreCollide((AiCore)object2, (Base)object1);
-		}
-		
+		addRule(ObjectType.AI_CORE, ObjectType.BASE, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.baseCoreCollide((AiCore) first, (Base) second);
+				return false;
+			}
+		});
+
 		//Handle AiCore collisions with Asteroids (Damaging the energy of the AiCore)
-		if (object1 instanceof AiCore && object2 instanceof Asteroid) {
-			damageAiCore((AiCore)object1);
-		} else if (object2 instanceof AiCore && object1 instanceof Asteroid) {
-			damageAiCore((AiCore)object2);
-			//no return because we still want to collide
-		}
-		
+		addRule(ObjectType.AI_CORE, ObjectType.ASTEROID, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.damageAiCore((AiCore) first);
+				return false;
+			}
+		});
+
 		//Handle Drones colliding with ships - herr0861 edit
-		if (object1 instanceof Drone && object2 instanceof Ship) {
-			droneCollision((Drone)object1, (Ship)object2);
-//			Drone drone = (Drone) object1;
-//			Ship ship = (Ship) object2;
-//			if (drone.getTeamName().equalsIgnoreCase(ship.getTeamName())) {
-//				return;
-//			}
-		} else if (object2 instanceof Drone && object1 instanceof Ship) {
-			droneCollision((Drone)object2, (Ship)object1);
-			//no return because we still want to collide
-		}
-		
+		addRule(ObjectType.DRONE, ObjectType.SHIP, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.droneCollision((Drone) first, (Ship) second);
+				return false;
+			}
+		});
+
 		//Handle AiCore collisions with AiCores (Damaging the energy of the AiCore)
-		if (object1 instanceof AiCore && object2 instanceof AiCore) {
-			damageAiCore((AiCore)object1);
-			damageAiCore((AiCore)object2);
-			//no return because we still want to collide
+		addRule(ObjectType.AI_CORE, ObjectType.AI_CORE, new CollisionRule() {
+			boolean apply(CollisionHandler handler, AbstractObject first, AbstractObject second) {
+				handler.damageAiCore((AiCore) first);
+				handler.damageAiCore((AiCore) second);
+				return false;
+			}
+		});
+	}
+
+	/**
+	 * Use a rule for every pair of types that matches it (and that doesn't already
+	 * have a rule)
+	 *
+	 * @param firstType
+	 * @param secondType the type of the other object (or null for any type)
+	 * @param rule
+	 */
+	private static void addRule(ObjectType firstType, ObjectType secondType, CollisionRule rule) {
+		for (ObjectType type1 : ObjectType.values()) {
+			for (ObjectType type2 : ObjectType.values()) {
+				int index = type1.ordinal() * NUM_TYPES + type2.ordinal();
+				if (rules[index] != null) {
+					continue;
+				}
+				if (type1 == firstType && (secondType == null || type2 == secondType)) {
+					rules[index] = rule;
+				} else if (type2 == firstType && (secondType == null || type1 == secondType)) {
+					rules[index] = rule;
+					swapped[index] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collide the objects and then take care of side effects based on object type
+	 * 
+	 * @param object1
+	 * @param object2
+	 * @param space
+	 */
+	public void collide(AbstractObject object1, AbstractObject object2, Toroidal2DPhysics space) {
+		int index = OBJECT_TYPES.get(object1.getClass()).ordinal() * NUM_TYPES
+				+ OBJECT_TYPES.get(object2.getClass()).ordinal();
+		CollisionRule rule = rules[index];
+		if (rule != null) {
+			boolean handled = swapped[index] ? rule.apply(this, object2, object1) : rule.apply(this, object1, object2);
+			if (handled) {
+				return;
+			}
 		}
-		
 
 		// only elastically collide if it isn't a beacon, missile, or other weapon
 		if (!object1.isMoveable()) {
@@ -608,6 +706,9 @@ public class CollisionHandler {
 	 * 
 	 * http://www.vobarian.com/collisions/2dcollisions2.pdf
 	 * 
+	 * The vectors are worked out in doubles (not Vector2D) since there can be
+	 * hundreds of collisions a step.
+	 * 
 	 * @param object1 first object in the collision
 	 * @param object2 second object in the collision
 	 * @param space handle to space for distance calculations
@@ -623,35 +724,32 @@ public class CollisionHandler {
 		double m2 = object2.getMass();
 		
 		// now get the vector from the first to the second, get the unit normal and tangent
-		Vector2D distanceVec = space.findShortestDistanceVector(object1.getPosition(), object2.getPosition());
-		Vector2D unitNormal = distanceVec.getUnitVector();
-		Vector2D unitTangent = new Vector2D(-unitNormal.getYValue(), unitNormal.getXValue());
+		Position position1 = object1.getPosition();
+		Position position2 = object2.getPosition();
+		space.findShortestDistanceVector(position1, position2, distance);
+		double magnitude = Math.sqrt(distance[0] * distance[0] + distance[1] * distance[1]);
+		double normalX = distance[0] / magnitude;
+		double normalY = distance[1] / magnitude;
+		double tangentX = -normalY;
+		double tangentY = normalX;
 		
 		// get the velocity vectors
-		Vector2D velocity1 = object1.getPosition().getTranslationalVelocity();
-		Vector2D velocity2 = object2.getPosition().getTranslationalVelocity();
+		double velocity1X = position1.getxVelocity(), velocity1Y = position1.getyVelocity();
+		double velocity2X = position2.getxVelocity(), velocity2Y = position2.getyVelocity();
 
 		// get the scalars in each direction
-		double u1 = velocity1.dot(unitNormal);
-		double u2 = velocity2.dot(unitNormal);
-		double t1 = velocity1.dot(unitTangent);
-		double t2 = velocity2.dot(unitTangent);
-		
-		// elastically collide in the one dimension
-		CollisionData result = elasticCollision1D(u1, m1, u2, m2);
-		
-		// now get it back to the original space
-		Vector2D vel1Normal = unitNormal.multiply(result.v1);
-		Vector2D vel2Normal = unitNormal.multiply(result.v2);
-		Vector2D vel1Tangent = unitTangent.multiply(t1);
-		Vector2D vel2Tangent = unitTangent.multiply(t2);
-		
-		// add the normal and tangential parts
-		Vector2D newVelocity1 = vel1Normal.add(vel1Tangent);
-		Vector2D newVelocity2 = vel2Normal.add(vel2Tangent);
-		
-		object1.getPosition().setTranslationalVelocity(newVelocity1);
-		object2.getPosition().setTranslationalVelocity(newVelocity2);
+		double u1 = velocity1X * normalX + velocity1Y * normalY;
+		double u2 = velocity2X * normalX + velocity2Y * normalY;
+		double t1 = velocity1X * tangentX + velocity1Y * tangentY;
+		double t2 = velocity2X * tangentX + velocity2Y * tangentY;
+		
+		// elastically collide in the one dimension (see elasticCollision1D)
+		double v1 = ((u1 * (m1 - m2)) + (2 * m2 * u2)) / (m1 + m2);
+		double v2 = ((u2 * (m2 - m1)) + (2 * m1 * u1)) / (m1 + m2);
+		
+		// now get it back to the original space by adding the normal and tangential parts
+		position1.setTranslationalVelocity(normalX * v1 + tangentX * t1, normalY * v1 + tangentY * t1);
+		position2.setTranslationalVelocity(normalX * v2 + tangentX * t2, normalY * v2 + tangentY * t2);
 	}
 	
 	/**
@@ -668,33 +766,27 @@ public class CollisionHandler {
 		// handle overlapping objects
 		adjustCentersAtCollision(movingObject, stationaryObject, space);
 
-		// get the masses
-		double m1 = movingObject.getMass();
-		double m2 = stationaryObject.getMass();
-		
 		// now get the vector from the first to the second, get the unit normal and tangent
-		Vector2D distanceVec = space.findShortestDistanceVector(movingObject.getPosition(), stationaryObject.getPosition());
-		Vector2D unitNormal = distanceVec.getUnitVector();
-		Vector2D unitTangent = new Vector2D(-unitNormal.getYValue(), unitNormal.getXValue());
+		Position movingPosition = movingObject.getPosition();
+		space.findShortestDistanceVector(movingPosition, stationaryObject.getPosition(), distance);
+		double magnitude = Math.sqrt(distance[0] * distance[0] + distance[1] * distance[1]);
+		double normalX = distance[0] / magnitude;
+		double normalY = distance[1] / magnitude;
+		double tangentX = -normalY;
+		double tangentY = normalX;
 		
 		// get the velocity vectors
-		Vector2D velocity1 = movingObject.getPosition().getTranslationalVelocity();
+		double velocity1X = movingPosition.getxVelocity(), velocity1Y = movingPosition.getyVelocity();
 
 		// get the scalars in each direction
-		double u1 = velocity1.dot(unitNormal);
-		double t1 = velocity1.dot(unitTangent);
+		double u1 = velocity1X * normalX + velocity1Y * normalY;
+		double t1 = velocity1X * tangentX + velocity1Y * tangentY;
 		
 		// now just reverse the velocity for the first object
 		double v1 = -u1;
 		
-		// now get it back to the original space
-		Vector2D vel1Normal = unitNormal.multiply(v1);
-		Vector2D vel1Tangent = unitTangent.multiply(t1);
-		
-		// add the normal and tangential parts
-		Vector2D newVelocity1 = vel1Normal.add(vel1Tangent);
-		
-		movingObject.getPosition().setTranslationalVelocity(newVelocity1);
+		// now get it back to the original space by adding the normal and tangential parts
+		movingPosition.setTranslationalVelocity(normalX * v1 + tangentX * t1, normalY * v1 + tangentY * t1);
 		
 		//ensureObjectsNotStillColliding(movingObject, stationaryObject, space);
 	}
@@ -752,50 +844,30 @@ public class CollisionHandler {
 		Position pos1 = object1.getPosition();
 		Position pos2 = object2.getPosition();
 
-		//x,y positions
-		double x1 = pos1.getX();
-		double x2 = pos2.getX();
-		double y1 = pos1.getY();
-		double y2 = pos2.getY();
-		
-		//x,y velocities
-		//negative because time is being reversed
-		double u1 = -pos1.getTranslationalVelocityX();
-		double u2 = -pos2.getTranslationalVelocityX();
-		double v1 = -pos1.getTranslationalVelocityY();
-		double v2 = -pos2.getTranslationalVelocityY();
-		
-		//object radii
-		double r1 = object1.getRadius();
-		double r2 = object2.getRadius();
+		// relative position and velocity (the velocities are negative because time
+		// is being reversed)
+		double dx = pos2.getX() - pos1.getX();
+		double dy = pos2.getY() - pos1.getY();
+		double du = pos1.getxVelocity() - pos2.getxVelocity();
+		double dv = pos1.getyVelocity() - pos2.getyVelocity();
+		double radii = object1.getRadius() + object2.getRadius();
 		
 		// 	Find when radius1 + radius2 == Distance(object1, object2)
 		// 	==>
-		//	Solve[r1 + r2 == Sqrt[((x2 + u2*t)-(x1 + u1*t))^2 + ((y2 + v2*t)-(y1 + v1*t))^2], t]
+		//	Solve[r1 + r2 == Sqrt[(dx + du*t)^2 + (dy + dv*t)^2], t]
 		//	==>
-		//  Gives two results for t
-		 
-		double tPlus = 	(-2*u1*x1+2*u2*x1+2*u1*x2-2*u2*x2-2*v1*y1+2*v2*y1+2*v1*y2-2*v2*y2 
-							+ Math.sqrt( //+
-									Math.pow(2*u1*x1-2*u2*x1-2*u1*x2+2*u2*x2+2*v1*y1-2*v2*y1-2*v1*y2+2*v2*y2,2)
-									- 4*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2))
-									*(Math.pow(x1,2)+Math.pow(x2,2)+Math.pow(y1,2)+Math.pow(y2,2)-Math.pow(r1,2)
-										-Math.pow(r2,2)-2*r1*r2-2*x1*x2-2*y1*y2)
-							)
-						)/(2*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2)));
-		
-		double tMinus = (-2*u1*x1+2*u2*x1+2*u1*x2-2*u2*x2-2*v1*y1+2*v2*y1+2*v1*y2-2*v2*y2 
-							- Math.sqrt( //-
-									Math.pow(2*u1*x1-2*u2*x1-2*u1*x2+2*u2*x2+2*v1*y1-2*v2*y1-2*v1*y2+2*v2*y2,2)
-									- 4*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2))
-									*(Math.pow(x1,2)+Math.pow(x2,2)+Math.pow(y1,2)+Math.pow(y2,2)-Math.pow(r1,2)
-										-Math.pow(r2,2)-2*r1*r2-2*x1*x2-2*y1*y2)
-							)
-						)/(2*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2)));
+		//  a*t^2 + b*t + c == 0, which gives two results for t
+		double a = du * du + dv * dv;
+		double b = 2 * (du * dx + dv * dy);
+		double c = dx * dx + dy * dy - radii * radii;
+		double root = Math.sqrt(b * b - 4 * a * c);
+		double tPlus = (-b + root) / (2 * a);
+		double tMinus = (-b - root) / (2 * a);
 		
 		//determine which solution is correct
 		//t must lie between 0 and the length of a simulator time step
 		// Amy McGovern: added 2.0 * duration instead of just duration because of double precision issues
+		// (if there is no solution the results are NaN and neither is used)
 		double time = 0;
 		//System.out.println("Time adjustment solutions tplus = " + tPlus + " tminus = " + tMinus);
 		if(Math.abs(tPlus) < (2.0 * space.getTimestepDuration()))
@@ -805,35 +877,24 @@ public class CollisionHandler {
 		
 		//System.out.println("time adjustment is " + time);
 			
-		//adjusted object centers
-		Position adjustedPos1 = translatePosition(space, pos1, -time);
-		Position adjustedPos2 = translatePosition(space, pos2, -time);
-		
-		//set adjusted object centers
-		object1.setPosition(adjustedPos1);
-		object2.setPosition(adjustedPos2);
+		//adjust the object centers
+		translatePosition(space, pos1, -time);
+		translatePosition(space, pos2, -time);
 	}
 	
 	/**
-	 * Translates a position by its velocity*timeStep
+	 * Translates a position (in place) by its velocity*timeStep
 	 * 
 	 * This code is a bug fix and is credited to Troy Southard, Spring 2016.  
 	 * 
 	 * @param space
 	 * @param position position to be translated
 	 * @param timestep how long to translate
-	 * @return the translated position
 	 */
-	private Position translatePosition(Toroidal2DPhysics space, Position position, double timeStep) {
-		// new x,y coordinates
-		double newX = position.getX() + (position.getTranslationalVelocityX() * timeStep);
-		double newY = position.getY() + (position.getTranslationalVelocityY() * timeStep);
-
-		Position newPosition = new Position(newX, newY, position.getOrientation());
-		newPosition.setAngularVelocity(position.getAngularVelocity());
-		newPosition.setTranslationalVelocity(position.getTranslationalVelocity());
-		space.toroidalWrap(newPosition);
-		return newPosition;
+	private void translatePosition(Toroidal2DPhysics space, Position position, double timeStep) {
+		position.setX(position.getX() + (position.getxVelocity() * timeStep));
+		position.setY(position.getY() + (position.getyVelocity() * timeStep));
+		space.toroidalWrap(position);
 	}
 	
 }
@@ -0,0 +1,19 @@
+package spacesettlers.simulator;
+
+/**
+ * Answers if a location is clear of every object in the space (used to find
+ * places for new objects, see Toroidal2DPhysics.getRandomFreeLocation)
+ */
+interface FreeSpaceIndex {
+	/**
+	 * Is the location free?  It is free if every object is further away than the
+	 * radius plus the diameter of the object (the same test as
+	 * Toroidal2DPhysics.isLocationFree).
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @return
+	 */
+	boolean isFree(double x, double y, double radius);
+}
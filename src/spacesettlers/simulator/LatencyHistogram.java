@@ -0,0 +1,170 @@
+package spacesettlers.simulator;
+
+import java.io.Serializable;
+
+/**
+ * A small histogram of times (in nanoseconds) that is cheap enough to update on
+ * every time step.  Times are kept in buckets that double in size every 16
+ * buckets, so a percentile is within about 6% of the real value no matter how
+ * large the times are.  The exact maximum and total are kept as well.
+ *
+ * Recording is synchronized since team callbacks are timed on the team's worker
+ * thread while the simulator reads the results.
+ */
+@SuppressWarnings("serial")
+public class LatencyHistogram implements Serializable {
+	/**
+	 * Number of bits used for the buckets inside each power of two
+	 */
+	static final int SUB_BUCKET_BITS = 4;
+
+	/**
+	 * Number of buckets inside each power of two
+	 */
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Enough buckets for any positive long
+	 */
+	static final int NUM_BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Number of times recorded in each bucket
+	 */
+	long[] counts;
+
+	/**
+	 * Number of times recorded
+	 */
+	long count;
+
+	/**
+	 * Sum of all the recorded times
+	 */
+	long total;
+
+	/**
+	 * Largest time recorded
+	 */
+	long max;
+
+	/**
+	 * Make an empty histogram
+	 */
+	public LatencyHistogram() {
+		counts = new long[NUM_BUCKETS];
+	}
+
+	/**
+	 * Find the bucket for a time
+	 *
+	 * @param nanos
+	 * @return
+	 */
+	static int getBucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(nanos, 0);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * The middle of the times that land in a bucket
+	 *
+	 * @param bucket
+	 * @return
+	 */
+	static long getBucketValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return (subBucket << shift) + ((1L << shift) >> 1);
+	}
+
+	/**
+	 * Add one time to the histogram
+	 *
+	 * @param nanos the time in nanoseconds
+	 */
+	public synchronized void record(long nanos) {
+		counts[getBucket(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max) {
+			max = nanos;
+		}
+	}
+
+	/**
+	 * Add all of the times in another histogram to this one
+	 *
+	 * @param other
+	 */
+	public synchronized void add(LatencyHistogram other) {
+		synchronized (other) {
+			for (int i = 0; i < NUM_BUCKETS; i++) {
+				counts[i] += other.counts[i];
+			}
+			count += other.count;
+			total += other.total;
+			max = Math.max(max, other.max);
+		}
+	}
+
+	/**
+	 * Get the time that the given percent of the recorded times are at or below
+	 *
+	 * @param percentile between 0 and 100
+	 * @return the time in nanoseconds (0 if nothing has been recorded)
+	 */
+	public synchronized long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(getBucketValue(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return the number of times recorded
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the sum of all the times in nanoseconds
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the largest time in nanoseconds
+	 */
+	public synchronized long getMax() {
+		return max;
+	}
+
+	/**
+	 * @return the average time in nanoseconds
+	 */
+	public synchronized double getMean() {
+		if (count == 0) {
+			return 0;
+		}
+		return (double) total / count;
+	}
+}
@@ -0,0 +1,105 @@
+package spacesettlers.simulator;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * One worker thread per team that asks the actions of the team's ships and
+ * drones for their movements (see Toroidal2DPhysics.getActionMovements).  Like
+ * the client worker in Team, a worker whose actions don't return in time is
+ * interrupted and put aside, and the team gets no new worker until the old one
+ * has finished, so an action that never returns costs at most one thread.
+ */
+class MovementWorkers {
+	/**
+	 * The worker of each team (by team name)
+	 */
+	HashMap<String, ExecutorService> workers;
+
+	/**
+	 * The workers that timed out and may still be running (by team name)
+	 */
+	HashMap<String, ExecutorService> hungWorkers;
+
+	MovementWorkers() {
+		workers = new HashMap<String, ExecutorService>();
+		hungWorkers = new HashMap<String, ExecutorService>();
+	}
+
+	/**
+	 * Hand the actions of a team to its worker thread
+	 *
+	 * @param teamName
+	 * @param task asks all of the actions of the team
+	 * @return the future for the task or null if the team's last worker is still
+	 *         stuck in an action that timed out
+	 */
+	synchronized Future<?> submit(final String teamName, Runnable task) {
+		ExecutorService hungWorker = hungWorkers.get(teamName);
+		if (hungWorker != null) {
+			if (!hungWorker.isTerminated()) {
+				return null;
+			}
+			hungWorkers.remove(teamName);
+		}
+
+		ExecutorService worker = workers.get(teamName);
+		if (worker == null) {
+			worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, teamName + " actions");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			workers.put(teamName, worker);
+		}
+		return worker.submit(task);
+	}
+
+	/**
+	 * The actions of a team did not return in time.  Interrupt them and stop using
+	 * this worker (a new one is made once the actions finally return).
+	 *
+	 * @param teamName
+	 */
+	synchronized void replaceHungWorker(String teamName) {
+		ExecutorService worker = workers.remove(teamName);
+		if (worker != null) {
+			worker.shutdownNow();
+			hungWorkers.put(teamName, worker);
+		}
+	}
+
+	/**
+	 * The number of workers that are still running (including the hung ones)
+	 *
+	 * @return
+	 */
+	synchronized int getNumRunningWorkers() {
+		int numRunning = workers.size();
+		for (ExecutorService hungWorker : hungWorkers.values()) {
+			if (!hungWorker.isTerminated()) {
+				numRunning++;
+			}
+		}
+		return numRunning;
+	}
+
+	/**
+	 * Stop all of the workers (called at the end of the game)
+	 */
+	synchronized void shutdown() {
+		for (ExecutorService worker : workers.values()) {
+			worker.shutdownNow();
+		}
+		for (ExecutorService hungWorker : hungWorkers.values()) {
+			hungWorker.shutdownNow();
+		}
+		workers.clear();
+		hungWorkers.clear();
+	}
+}
@@ -0,0 +1,199 @@
+package spacesettlers.simulator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+import spacesettlers.objects.AbstractObject;
+
+/**
+ * The objects that new objects have to stay away from, kept in a grid that
+ * objects can be added to and removed from one at a time.  The space keeps one
+ * of these for as long as it lives (see Toroidal2DPhysics.getPlacementIndex):
+ * every object added to the space is added to the grid, so checking a random
+ * location only looks at the objects in the nearby cells instead of every
+ * object in the space.
+ *
+ * Each object is stored over the circle that a location has to stay out of (its
+ * diameter around its center) and the distances are computed exactly the way
+ * Toroidal2DPhysics.findShortestDistance computes them, so a location is free
+ * here exactly when isLocationFree would say so.  The grid keeps the location
+ * each object had when it was added until update is called.
+ */
+class PlacementGrid implements FreeSpaceIndex {
+	/**
+	 * The grid of the objects (stored by their entry)
+	 */
+	SpatialHashGrid grid;
+
+	/**
+	 * The object in each entry (null if the entry is free)
+	 */
+	AbstractObject[] objects;
+
+	/**
+	 * The center and radius of each object when it was added (or last updated)
+	 */
+	double[] xs, ys;
+	int[] radii;
+
+	/**
+	 * The entry of each object in the grid
+	 */
+	HashMap<AbstractObject, Integer> entries;
+
+	/**
+	 * The entries of removed objects (used again before new ones)
+	 */
+	int[] freeEntries;
+	int numFreeEntries;
+
+	/**
+	 * Number of entries that have been used
+	 */
+	int size;
+
+	/**
+	 * The size of the space
+	 */
+	float width, height, halfWidth, halfHeight;
+
+	/**
+	 * Average number of objects in a cell once the expected objects are placed
+	 */
+	static final double OBJECTS_PER_CELL = 2;
+
+	/**
+	 * Make a grid holding the objects already in the space
+	 *
+	 * @param allObjects
+	 * @param width
+	 * @param height
+	 * @param expectedObjects the number of objects the grid should be sized for
+	 */
+	PlacementGrid(Collection<AbstractObject> allObjects, int width, int height, int expectedObjects) {
+		this.width = width;
+		this.height = height;
+		this.halfWidth = width / 2.0f;
+		this.halfHeight = height / 2.0f;
+
+		int capacity = Math.max(16, Math.max(expectedObjects, allObjects.size()));
+		objects = new AbstractObject[capacity];
+		xs = new double[capacity];
+		ys = new double[capacity];
+		radii = new int[capacity];
+		entries = new HashMap<AbstractObject, Integer>();
+		freeEntries = new int[capacity];
+
+		double cellSize = Math.sqrt((double) width * height * OBJECTS_PER_CELL / capacity);
+		grid = new SpatialHashGrid();
+		grid.reset(width, height, cellSize, capacity);
+
+		for (AbstractObject object : allObjects) {
+			add(object);
+		}
+	}
+
+	/**
+	 * Add an object where it is now
+	 *
+	 * @param object
+	 */
+	void add(AbstractObject object) {
+		if (entries.containsKey(object)) {
+			return;
+		}
+
+		int entry;
+		if (numFreeEntries > 0) {
+			entry = freeEntries[--numFreeEntries];
+		} else {
+			if (size == xs.length) {
+				objects = Arrays.copyOf(objects, 2 * size);
+				xs = Arrays.copyOf(xs, 2 * size);
+				ys = Arrays.copyOf(ys, 2 * size);
+				radii = Arrays.copyOf(radii, 2 * size);
+				freeEntries = Arrays.copyOf(freeEntries, 2 * size);
+				grid.ensureCapacity(2 * size);
+			}
+			entry = size++;
+		}
+
+		objects[entry] = object;
+		xs[entry] = object.getPosition().getX();
+		ys[entry] = object.getPosition().getY();
+		radii[entry] = object.getRadius();
+		grid.insert(entry, xs[entry], ys[entry], 2 * radii[entry]);
+		entries.put(object, entry);
+	}
+
+	/**
+	 * Take an object out of the grid
+	 *
+	 * @param object
+	 */
+	void remove(AbstractObject object) {
+		Integer entry = entries.remove(object);
+		if (entry == null) {
+			return;
+		}
+		grid.remove(entry);
+		objects[entry] = null;
+		freeEntries[numFreeEntries++] = entry;
+	}
+
+	/**
+	 * Move every object that moved since it was added (or last updated) to where
+	 * it is now
+	 */
+	void update() {
+		for (int entry = 0; entry < size; entry++) {
+			AbstractObject object = objects[entry];
+			if (object == null) {
+				continue;
+			}
+			double x = object.getPosition().getX();
+			double y = object.getPosition().getY();
+			if (x != xs[entry] || y != ys[entry]) {
+				xs[entry] = x;
+				ys[entry] = y;
+				grid.move(entry, x, y, 2 * radii[entry]);
+			}
+		}
+	}
+
+	/**
+	 * The shortest toroidal distance from the location to an object
+	 *
+	 * @param x
+	 * @param y
+	 * @param index
+	 * @return
+	 */
+	double distance(double x, double y, int index) {
+		double dx = xs[index] - x;
+		double dy = ys[index] - y;
+		if (dx > halfWidth) {
+			dx = dx - width;
+		} else if (dx < -halfWidth) {
+			dx = dx + width;
+		}
+		if (dy > halfHeight) {
+			dy = dy - height;
+		} else if (dy < -halfHeight) {
+			dy = dy + height;
+		}
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	public boolean isFree(double x, double y, double radius) {
+		int numFound = grid.query(x, y, radius, 0);
+		for (int i = 0; i < numFound; i++) {
+			int index = grid.results[i];
+			if (distance(x, y, index) <= radius + (2 * radii[index])) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
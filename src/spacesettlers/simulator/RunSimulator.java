@@ -52,6 +52,22 @@ public class RunSimulator {
 								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
 								JSAP.NO_SHORTFLAG, "debug",
 								"boolean stating if debugging mode (single threading) is on (true) or not (false)"),
+						new FlaggedOption("replayFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "replayFile",
+								"if given, the game is recorded to this file (watch it with spacesettlers.replay.RunReplay)"),
+						new FlaggedOption("checkpointFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "checkpointFile",
+								"if given, the game is saved to this file every checkpointInterval time steps"),
+						new FlaggedOption("checkpointInterval",
+								JSAP.INTEGER_PARSER, "1000", JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "checkpointInterval",
+								"number of time steps between checkpoints"),
+						new FlaggedOption("restoreCheckpoint",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "restoreCheckpoint",
+								"if given, continue the game saved in this checkpoint file (the simulator config file is not used but configPath is still used to find the team client configs, and the clients start again with new state)"),
 					});
 		} catch (JSAPException e) {
 			e.printStackTrace();
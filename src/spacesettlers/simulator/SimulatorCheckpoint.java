@@ -0,0 +1,47 @@
+package spacesettlers.simulator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Random;
+
+import spacesettlers.clients.Team;
+import spacesettlers.configs.SpaceSettlersConfig;
+
+/**
+ * Everything needed to continue a game from the middle: the config, the space
+ * (with all of its objects), the teams (with their scores, resources and purchase
+ * costs), the random number generator and the next timestep.  It is written with
+ * Java serialization (see SpaceSettlersSimulator.saveCheckpoint).
+ *
+ * The team clients are not part of a checkpoint.  When a game is restored, new
+ * clients are made from the team config files and initialized with the restored
+ * space, so a client that keeps its own state between timesteps starts fresh.
+ */
+class SimulatorCheckpoint implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The config for the game
+	 */
+	SpaceSettlersConfig simConfig;
+
+	/**
+	 * The physics engine and all of the objects in it
+	 */
+	Toroidal2DPhysics simulatedSpace;
+
+	/**
+	 * The teams (in the order the simulator asks them for actions)
+	 */
+	ArrayList<Team> teams;
+
+	/**
+	 * Global random number generator for the game (in the state it was in at the checkpoint)
+	 */
+	Random random;
+
+	/**
+	 * The first timestep to run after the game is restored
+	 */
+	int nextTimestep;
+}
@@ -1,7 +1,17 @@
 package spacesettlers.simulator;
 
 import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -13,6 +23,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import com.martiansoftware.jsap.JSAPResult;
 import com.thoughtworks.xstream.XStream;
@@ -34,6 +45,7 @@ import spacesettlers.objects.Drone;
 import spacesettlers.objects.Flag;
 import spacesettlers.objects.Ship;
 import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.replay.ReplayRecorder;
 import spacesettlers.utilities.Position;
 import spacesettlers.utilities.Vector2D;
 
@@ -104,6 +116,17 @@ public final class SpaceSettlersSimulator {
 	 */
 	boolean debug = false;
 
+	/**
+	 * Threads used to ask the teams for their actions.  This lives for the whole game
+	 * so that new threads are not created (and thrown away) every timestep.
+	 */
+	ExecutorService teamExecutor;
+
+	/**
+	 * Times for each phase of a time step and for each team callback
+	 */
+	StepProfiler profiler = new StepProfiler();
+
 	/**
 	 * True if the simulation is paused and false otherwise
 	 */
@@ -114,26 +137,57 @@ public final class SpaceSettlersSimulator {
 	 */
 	int graphicsSleep = 40;
 
+	/**
+	 * If not null, the game is recorded to this file so it can be watched later with RunReplay
+	 */
+	String replayFile;
+
+	/**
+	 * If not null, the game is saved to this file every checkpointInterval timesteps
+	 */
+	String checkpointFile;
+
+	/**
+	 * Number of timesteps between checkpoints
+	 */
+	int checkpointInterval;
+
+	/**
+	 * The team client config files and client classes already loaded (shared by
+	 * all of the games of a ladder)
+	 */
+	TeamClientCache teamClientCache = new TeamClientCache();
+
 	/**
 	 * Create a simulator with the command line arguments already parsed.  
 	 * @param args
 	 * @throws SimulatorException 
 	 */
 	public SpaceSettlersSimulator(JSAPResult parserConfig) throws SimulatorException {
-		// load in all the configuration
-		simConfig = loadConfigFiles(parserConfig);
+		replayFile = parserConfig.getString("replayFile");
+		checkpointFile = parserConfig.getString("checkpointFile");
+		checkpointInterval = parserConfig.getInt("checkpointInterval", 1000);
+
+		String restoreFile = parserConfig.getString("restoreCheckpoint");
+		if (restoreFile != null) {
+			// continue a saved game instead of starting a new one
+			restoreCheckpoint(restoreFile, parserConfig);
+		} else {
+			// load in all the configuration
+			simConfig = loadConfigFiles(parserConfig);
 
-		teams = new LinkedHashSet<Team>();
-		clientMap = new HashMap<String, TeamClient>();
+			teams = new LinkedHashSet<Team>();
+			clientMap = new HashMap<String, TeamClient>();
 
-		if (simConfig.getRandomSeed() == 0) {
-			random = new Random();
-		} else {
-			random = new Random(simConfig.getRandomSeed());
-		}
+			if (simConfig.getRandomSeed() == 0) {
+				random = new Random();
+			} else {
+				random = new Random(simConfig.getRandomSeed());
+			}
 
-		// and use it to make agents and the world
-		initializeSimulation(parserConfig);
+			// and use it to make agents and the world
+			initializeSimulation(parserConfig);
+		}
 
 		// see if debug mode is on
 		if (parserConfig.getBoolean("debug")) {
@@ -144,6 +198,7 @@ public final class SpaceSettlersSimulator {
 			TEAM_END_ACTION_TIMEOUT = Integer.MAX_VALUE;
 			TEAM_GRAPHICS_TIMEOUT = Integer.MAX_VALUE;
 		}
+		teamExecutor = createTeamExecutor();
 
 		// create the GUI after everything is created in the simulator
 		System.out.println(this);
@@ -157,8 +212,24 @@ public final class SpaceSettlersSimulator {
 	 * @throws SimulatorException
 	 */
 	public SpaceSettlersSimulator(SpaceSettlersConfig simConfig, JSAPResult parserConfig) throws SimulatorException {
+		this(simConfig, parserConfig, new TeamClientCache());
+	}
+
+	/**
+	 * Initialize from an existing config file for the simulator, getting the team
+	 * client configs and classes from a cache (used by the ladder so every game
+	 * does not read them again)
+	 * 
+	 * @param simConfig
+	 * @param parserConfig
+	 * @param teamClientCache
+	 * @throws SimulatorException
+	 */
+	public SpaceSettlersSimulator(SpaceSettlersConfig simConfig, JSAPResult parserConfig,
+			TeamClientCache teamClientCache) throws SimulatorException {
 		// load in all the configuration
 		this.simConfig = simConfig;
+		this.teamClientCache = teamClientCache;
 
 		teams = new LinkedHashSet<Team>();
 		clientMap = new HashMap<String, TeamClient>();
@@ -169,6 +240,10 @@ public final class SpaceSettlersSimulator {
 			random = new Random(simConfig.getRandomSeed());
 		}
 
+		replayFile = parserConfig.getString("replayFile");
+		checkpointFile = parserConfig.getString("checkpointFile");
+		checkpointInterval = parserConfig.getInt("checkpointInterval", 1000);
+
 		// and use it to make agents and the world
 		initializeSimulation(parserConfig);
 
@@ -186,11 +261,33 @@ public final class SpaceSettlersSimulator {
 			TEAM_END_ACTION_TIMEOUT = Integer.MAX_VALUE;
 			TEAM_GRAPHICS_TIMEOUT = Integer.MAX_VALUE;
 		}
+		teamExecutor = createTeamExecutor();
 		// create the GUI after everything is created in the simulator
 		System.out.println(this);
 		createGUI(parserConfig);
 	}
 
+	/**
+	 * Create a simulator that only shows a recorded game (no team clients are run and
+	 * time only moves forward when showReplayStep is called)
+	 * 
+	 * @param simConfig the config (only the size is used)
+	 * @param space the space the replay is read into
+	 * @param teams the recorded teams
+	 * @param graphics true if the GUI should be shown
+	 */
+	public SpaceSettlersSimulator(SpaceSettlersConfig simConfig, Toroidal2DPhysics space, Set<Team> teams, boolean graphics) {
+		this.simConfig = simConfig;
+		this.simulatedSpace = space;
+		this.teams = teams;
+		clientMap = new HashMap<String, TeamClient>();
+		random = new Random();
+
+		if (graphics) {
+			gui = new SpaceSettlersGUI(simConfig, this);
+		}
+	}
+
 	/**
 	 * Create the GUI after the simulator has been initialize
 	 * 
@@ -224,9 +321,23 @@ public final class SpaceSettlersSimulator {
 	void initializeSimulation(JSAPResult parserConfig) throws SimulatorException {
 		simulatedSpace = new Toroidal2DPhysics(simConfig);
 
+		// lay out all of the starting objects against one grid (nothing moves until the game starts)
+		int expectedObjects = simConfig.getNumBeacons() + simConfig.getRandomAsteroids().getNumberInitialAsteroids()
+				+ simConfig.getBases().length
+				+ simConfig.getTeams().length * simConfig.getMaximumInitialShipsPerTeam();
+		if (simConfig.getFixedAsteroids() != null) {
+			expectedObjects += simConfig.getFixedAsteroids().length;
+		}
+		simulatedSpace.startBulkPlacement(expectedObjects);
+
 		// place the beacons
 		for (int b = 0; b < simConfig.getNumBeacons(); b++) {
-			Beacon beacon = new Beacon(simulatedSpace.getRandomFreeLocation(random, Beacon.BEACON_RADIUS * 2));
+			Position beaconLocation = simulatedSpace.getRandomFreeLocation(random, Beacon.BEACON_RADIUS * 2);
+			if (beaconLocation == null) {
+				System.err.println("No room for beacon " + b + " so it was not placed");
+				continue;
+			}
+			Beacon beacon = new Beacon(beaconLocation);
 			//System.out.println("New beacon at " + beacon.getPosition());
 			simulatedSpace.addObject(beacon);
 		}
@@ -249,6 +360,10 @@ public final class SpaceSettlersSimulator {
 			}
 			
 			Asteroid asteroid = createNewRandomAsteroid(randomAsteroidConfig, mineable);
+			if (asteroid == null) {
+				System.err.println("No room for more asteroids (placed " + a + ")");
+				break;
+			}
 			simulatedSpace.addObject(asteroid);
 		}
 
@@ -344,6 +459,9 @@ public final class SpaceSettlersSimulator {
 				baseLocation = simulatedSpace.getRandomFreeLocationInRegion(random, 4 * Base.BASE_RADIUS, 
 						thisTeamConfig.getInitialRegionULX(), thisTeamConfig.getInitialRegionULY(), 
 						thisTeamConfig.getInitialRegionLRX(), thisTeamConfig.getInitialRegionLRY());
+				if (baseLocation == null) {
+					throw new SimulatorException("No room for the base of team " + teamName + " in its initial region");
+				}
 			}
 
 
@@ -393,8 +511,6 @@ public final class SpaceSettlersSimulator {
 				simulatedSpace.addObject(flag);
 			}
 		}
-		
-
 	}
 
 	/**
@@ -431,7 +547,7 @@ public final class SpaceSettlersSimulator {
 	 * fixed, they need x, y, and radius.  
 	 * 
 	 * @param asteroidConfig
-	 * @return
+	 * @return the asteroid or null if there is no room for it
 	 */
 	private Asteroid createNewRandomAsteroid(RandomAsteroidConfig asteroidConfig, boolean mineable) {
 		// choose if the asteroid is mine-able
@@ -459,9 +575,12 @@ public final class SpaceSettlersSimulator {
 		water = water / normalize;
 		metals = metals / normalize;
 
-		// create the asteroid
-		Asteroid asteroid = new Asteroid(simulatedSpace.getRandomFreeLocation(random, radius * 2), 
-				mineable, radius, moveable, fuel, water, metals);
+		// create the asteroid (unless the space is too full for it)
+		Position location = simulatedSpace.getRandomFreeLocation(random, radius * 2);
+		if (location == null) {
+			return null;
+		}
+		Asteroid asteroid = new Asteroid(location, mineable, radius, moveable, fuel, water, metals);
 
 		if (asteroid.isMoveable()) {
 			Vector2D randomMotion = Vector2D.getRandom(random, asteroidConfig.getMaxInitialVelocity());
@@ -490,6 +609,10 @@ public final class SpaceSettlersSimulator {
 			Position freeLocation = simulatedSpace.getRandomFreeLocationInRegion(random, Ship.SHIP_RADIUS * 4, 
 					teamConfig.getInitialRegionULX(), teamConfig.getInitialRegionULY(), 
 					teamConfig.getInitialRegionLRX(), teamConfig.getInitialRegionLRY());
+			if (freeLocation == null) {
+				System.err.println("No room for more ships for team " + team.getTeamName() + " in its initial region");
+				break;
+			}
 			System.out.println("Starting ship for team " + team.getTeamName() + " in location " + freeLocation);
 			Ship ship = new Ship(teamConfig.getTeamName(), team.getTeamColor(), freeLocation);
 			team.addShip(ship);
@@ -512,8 +635,17 @@ public final class SpaceSettlersSimulator {
 	 * @throws InstantiationException 
 	 */
 	public TeamClientConfig getTeamClientConfig(HighLevelTeamConfig teamConfig, String configPath) throws SimulatorException {
-		String fileName = configPath + teamConfig.getConfigFile();
+		return teamClientCache.getTeamClientConfig(configPath + teamConfig.getConfigFile());
+	}
 
+	/**
+	 * Read a team client configuration file
+	 * 
+	 * @param fileName
+	 * @return
+	 * @throws SimulatorException
+	 */
+	public static TeamClientConfig readTeamClientConfig(String fileName) throws SimulatorException {
 		XStream xstream = new XStream();
 		xstream.alias("TeamClientConfig", TeamClientConfig.class);
 		xstream.allowTypesByRegExp(new String[] { ".*" });
@@ -537,11 +669,26 @@ public final class SpaceSettlersSimulator {
 	 * @return
 	 * @throws SimulatorException 
 	 */
-	@SuppressWarnings("unchecked")
 	public TeamClient createTeamClient(HighLevelTeamConfig teamConfig, TeamClientConfig teamClientConfig) throws SimulatorException {
+		TeamClient newTeamClient = makeTeamClient(teamConfig, teamClientConfig);
+		newTeamClient.initialize(simulatedSpace.deepClone());
+		return newTeamClient;
+	}
+
+	/**
+	 * Make the team client from the configuration file but do not initialize it yet
+	 * 
+	 * @param teamConfig
+	 * @param teamClientConfig
+	 * @return
+	 * @throws SimulatorException
+	 */
+	private TeamClient makeTeamClient(HighLevelTeamConfig teamConfig, TeamClientConfig teamClientConfig) throws SimulatorException {
+		// find the team client class specified in the config file (only looked up once per ladder)
+		Class<? extends TeamClient> newTeamClass = teamClientCache.getClientClass(teamClientConfig.getClassname());
+
 		try {
 			// make a team client of the class specified in the config file
-			Class<TeamClient> newTeamClass = (Class<TeamClient>) Class.forName(teamClientConfig.getClassname());
 			TeamClient newTeamClient = (TeamClient) newTeamClass.newInstance();
 
 			Color teamColor = new Color(teamClientConfig.getTeamColorRed(), teamClientConfig.getTeamColorGreen(), 
@@ -551,11 +698,7 @@ public final class SpaceSettlersSimulator {
 			newTeamClient.setKnowledgeFile(teamClientConfig.getKnowledgeFile());
 			newTeamClient.setRandom(random);
 			newTeamClient.setMaxNumberShips(simConfig.getMaximumShipsPerTeam());
-			newTeamClient.initialize(simulatedSpace.deepClone());
 			return newTeamClient;
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
-			throw new SimulatorException("Unable to make a new team client " + teamClientConfig.getClassname());
 		} catch (InstantiationException e) {
 			e.printStackTrace();
 			throw new SimulatorException("Unable to create a new instance of class " + teamClientConfig.getClassname());
@@ -598,22 +741,48 @@ public final class SpaceSettlersSimulator {
 		return simConfig;
 	}
 
+	/**
+	 * Create the threads that ask the teams for their actions.  In debug mode
+	 * everything runs on one thread.  Otherwise the pool grows to one thread per
+	 * team and keeps them for the rest of the game.  The threads are daemons so a
+	 * team that never returns can not keep the JVM alive.
+	 * 
+	 * @return
+	 */
+	ExecutorService createTeamExecutor() {
+		ThreadFactory daemonFactory = new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Team actions");
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+
+		if (debug) {
+			return Executors.newSingleThreadExecutor(daemonFactory);
+		} else {
+			return Executors.newCachedThreadPool(daemonFactory);
+		}
+	}
+
 	/**
 	 * Advance time one step
 	 */
 	void advanceTime() {
+		long stepStartTime = System.nanoTime();
+
 		// update the team info (to send into the space for use by other teams)
 		updateTeamInfo();
+		long phaseStartTime = profiler.endPhase(StepProfiler.Phase.TEAM_INFO, stepStartTime);
 
-		ExecutorService teamExecutor;
-		if (debug) {
-			teamExecutor = Executors.newSingleThreadExecutor();
-		} else {
-			teamExecutor = Executors.newCachedThreadPool();
-		}
 		Map<Team, Future<Map<UUID,AbstractAction>>> clientActionFutures = 
 				new HashMap<Team, Future<Map<UUID,AbstractAction>>>();
 
+		// build the read-only copy of the space of each team before the teams ask for it
+		for (Team team : teams) {
+			simulatedSpace.getSnapshot(team.getTeamName());
+		}
+
 		// get the actions from each team
 		for (Team team : teams) {
 			clientActionFutures.put(team, teamExecutor.submit(new AdvanceTimeCallable(team)));
@@ -655,7 +824,7 @@ public final class SpaceSettlersSimulator {
 				
 				
 				if (teamActions == null || !teamActions.containsKey(droneID)) {
-					drone.setCurrentAction(simulatedSpace.deepClone());
+					drone.setCurrentAction(simulatedSpace.getSnapshot(drone.getTeamName()));
 					teamActions.put(droneID, drone.getCurrentAction());
 				}
 				
@@ -668,7 +837,9 @@ public final class SpaceSettlersSimulator {
 			}
 		} //End for loop through teams
 
-		teamExecutor.shutdown();
+		// the ships and drones have new actions so the shared copy is out of date
+		simulatedSpace.invalidateSnapshot();
+		phaseStartTime = profiler.endPhase(StepProfiler.Phase.CLIENT_MOVEMENT, phaseStartTime);
 
 		// get the power ups being used on this turn
 		Map<UUID, SpaceSettlersPowerupEnum> allPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
@@ -696,13 +867,17 @@ public final class SpaceSettlersSimulator {
 			}
 		}
 
-		// now update the physics on all objects
+		phaseStartTime = profiler.endPhase(StepProfiler.Phase.POWERUPS, phaseStartTime);
+
+		// now update the physics on all objects (the physics times its own phases)
 		simulatedSpace.advanceTime(random, this.getTimestep(), allPowerups);
+		phaseStartTime = System.nanoTime();
 
 		// and end any actions inside the team
 		for (Team team : teams) {
 			team.getTeamMovementEnd(simulatedSpace);
 		}
+		phaseStartTime = profiler.endPhase(StepProfiler.Phase.MOVEMENT_END, phaseStartTime);
 
 		// handle purchases at the end of a turn (so ships will have movements next turn)
 		for (Team team : teams) {
@@ -710,23 +885,18 @@ public final class SpaceSettlersSimulator {
 			Map<UUID, PurchaseTypes> purchases = team.getTeamPurchases(simulatedSpace);
 			handlePurchases(team, purchases);
 		}
+		phaseStartTime = profiler.endPhase(StepProfiler.Phase.PURCHASES, phaseStartTime);
 
-		// cleanup and remove dead weapons
-		simulatedSpace.cleanupDeadWeapons();
-
-		// cleanup and remove dead cores
-		simulatedSpace.cleanupDeadCores();
-		
-		//cleanup and remove dead drones - herr0861 edit
-		simulatedSpace.cleanupDeadDrones();
-		
-		// count up dead asteroids and ensure we generate as 
-		// many mineable ones as existed before
-		int mineableAsteroids = simulatedSpace.cleanupAllAndCountMineableDeadAsteroids(); 
+		// remove the dead weapons, cores, drones and asteroids (only the objects that
+		// died this step are looked at), counting up dead asteroids to ensure we
+		// generate as many mineable ones as existed before
+		int mineableAsteroids = simulatedSpace.cleanupDeadObjects();
 
 		for (int i = 0; i < mineableAsteroids; i++) {
 			Asteroid asteroid = createNewRandomAsteroid(simConfig.getRandomAsteroids(), true);
-			simulatedSpace.addObject(asteroid);
+			if (asteroid != null) {
+				simulatedSpace.addObject(asteroid);
+			}
 		}
 
 		// respawn any objects that should respawn - this includes Flags)
@@ -744,13 +914,17 @@ public final class SpaceSettlersSimulator {
 				}
 				
 				Asteroid asteroid = createNewRandomAsteroid(simConfig.getRandomAsteroids(), mineable);
-				simulatedSpace.addObject(asteroid);
+				if (asteroid != null) {
+					simulatedSpace.addObject(asteroid);
+				}
 			}
 		}
 
-		
+		phaseStartTime = profiler.endPhase(StepProfiler.Phase.CLEANUP, phaseStartTime);
 
 		updateScores();
+		profiler.endPhase(StepProfiler.Phase.SCORING, phaseStartTime);
+		profiler.endPhase(StepProfiler.Phase.STEP, stepStartTime);
 
 		//		for (Team team : teams) {
 		//			for (Ship ship : team.getShips()) {
@@ -808,6 +982,10 @@ public final class SpaceSettlersSimulator {
 					Position newPosition = simulatedSpace.getRandomFreeLocationInRegion(random, 
 							Base.BASE_RADIUS, (int) ship.getPosition().getX(), 
 							(int) ship.getPosition().getY(), (6 * (ship.getRadius() + Base.BASE_RADIUS)));
+					if (newPosition == null) {
+						// no room for the base so the purchase fails (and isn't charged)
+						break;
+					}
 
 					// make the new base and add it to the lists
 					Base base = new Base(newPosition, team.getTeamName(), team, false);
@@ -831,6 +1009,10 @@ public final class SpaceSettlersSimulator {
 					Position newPosition = simulatedSpace.getRandomFreeLocationInRegion(random, 
 							Ship.SHIP_RADIUS, (int) base.getPosition().getX(), 
 							(int) base.getPosition().getY(), (10 * (base.getRadius() + Ship.SHIP_RADIUS)));
+					if (newPosition == null) {
+						// no room for the ship so the purchase fails (and isn't charged)
+						break;
+					}
 
 					// make the new ship and add it to the lists
 					Ship ship = new Ship(team.getTeamName(), team.getTeamColor(), newPosition);
@@ -859,15 +1041,20 @@ public final class SpaceSettlersSimulator {
 				if (purchasingObject instanceof Ship) { //only a ship can buy drones
 					Ship ship = (Ship) purchasingObject;
 					if (ship.getNumCores() > 0) { //can only purchase a drone if you have cores
+						Position newPosition = simulatedSpace.getRandomFreeLocationInRegion(random, 
+								Drone.DRONE_RADIUS, (int) ship.getPosition().getX(), 
+								(int) ship.getPosition().getY(), (10 * (ship.getRadius() + Drone.DRONE_RADIUS)));
+						if (newPosition == null) {
+							// no room for the drone so the purchase fails (and isn't charged)
+							break;
+						}
+
 						ship.incrementCores(-1);//use the parent class's increment cores method with int parameter to charge the ship an AiCore since costs only use ResourcePiles
 						
 						//herr0861return
 						//Add the drone
 						// make the new drone and add it to the lists
 						
-						Position newPosition = simulatedSpace.getRandomFreeLocationInRegion(random, 
-								Drone.DRONE_RADIUS, (int) ship.getPosition().getX(), 
-								(int) ship.getPosition().getY(), (10 * (ship.getRadius() + Drone.DRONE_RADIUS)));
 						//Makes a new resource pile using the ship's, so we don't have to import ResourcePile here. Cleaner that way.
 						Drone drone = new Drone(team.getTeamName(), team.getTeamColor(), team, newPosition, ship.getResources());
 						drone.incrementCores(ship.getNumCores()); //add cores to the drone.
@@ -956,8 +1143,11 @@ public final class SpaceSettlersSimulator {
 
 		}
 
-
-
+		// purchases can change objects in place (e.g. power ups) so the
+		// shared copy of the space has to be rebuilt for the next team
+		if (!purchases.isEmpty()) {
+			simulatedSpace.invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -1077,15 +1267,41 @@ public final class SpaceSettlersSimulator {
 			gui.redraw();
 		}
 
-		// run the game loop until the maximum time has elapsed
+		ReplayRecorder recorder = startRecording();
+
+		// time the phases of each step (the space and teams may be new if the game was restored)
+		simulatedSpace.setProfiler(profiler);
+		for (Team team : teams) {
+			team.setProfiler(profiler);
+		}
+
+		// ask the actions for their movements on a thread for each team (on this
+		// thread when debugging so breakpoints in actions still work)
+		simulatedSpace.setMovementTimeout(debug ? 0 : MOVEMENT_TIMEOUT);
+
+		// run the game loop until the maximum time has elapsed (starting from
+		// the middle if the game was restored from a checkpoint)
 		// if the pause is activated, just wait
-		for (timestep = 0; timestep < simConfig.getSimulationSteps(); timestep++) {
+		for (; timestep < simConfig.getSimulationSteps(); timestep++) {
 			while (isPaused()) {
 				mySleep(50);
 			}
 
 			advanceTime();
 
+			if (recorder != null) {
+				recorder = recordTimestep(recorder);
+			}
+
+			if (checkpointFile != null && checkpointInterval > 0 && (timestep + 1) % checkpointInterval == 0) {
+				try {
+					saveCheckpoint(checkpointFile);
+				} catch (IOException e) {
+					e.printStackTrace();
+					System.err.println("Error saving the checkpoint " + checkpointFile + " - the game goes on without it");
+				}
+			}
+
 			if (gui != null) {
 				gui.redraw();
 				mySleep(graphicsSleep);
@@ -1106,8 +1322,195 @@ public final class SpaceSettlersSimulator {
 		// update the team info (to send into the space for use by other teams)
 		updateTeamInfo();
 
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("Error closing the replay file " + replayFile);
+			}
+		}
+
 		// shutdown all the teams
 		shutdownTeams();
+
+		System.out.println("Time spent in each part of a time step:");
+		System.out.print(profiler.getReport());
+	}
+
+	/**
+	 * @return the times for each phase of a time step and for each team callback
+	 */
+	public StepProfiler getStepProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Open the replay file (if one was asked for) and record the starting state of the game
+	 * 
+	 * @return the recorder or null if the game isn't being recorded
+	 */
+	ReplayRecorder startRecording() {
+		if (replayFile == null) {
+			return null;
+		}
+
+		try {
+			ReplayRecorder recorder = new ReplayRecorder(replayFile, simConfig.getWidth(), simConfig.getHeight(), teams);
+			recorder.recordTimestep(timestep, simulatedSpace.getAllObjects());
+			return recorder;
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("Error opening the replay file " + replayFile + " - the game will not be recorded");
+			return null;
+		}
+	}
+
+	/**
+	 * Record the current timestep.  If the replay file can't be written, recording stops
+	 * but the game goes on.
+	 * 
+	 * @param recorder
+	 * @return the recorder or null if recording had to stop
+	 */
+	ReplayRecorder recordTimestep(ReplayRecorder recorder) {
+		try {
+			recorder.recordTimestep(timestep, simulatedSpace.getAllObjects());
+			return recorder;
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("Error writing the replay file " + replayFile + " - recording stopped");
+			try {
+				recorder.close();
+			} catch (IOException closeException) {
+				// the file is already broken
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Show one timestep of a replay (the reader has already changed the space) and wait
+	 * so it plays at the speed chosen in the GUI
+	 * 
+	 * @param replayTimestep
+	 */
+	public void showReplayStep(int replayTimestep) {
+		while (isPaused()) {
+			mySleep(50);
+		}
+
+		timestep = replayTimestep;
+		if (gui != null) {
+			gui.redraw();
+			mySleep(graphicsSleep);
+		}
+	}
+
+	/**
+	 * Save everything needed to continue the game later (see SimulatorCheckpoint).  This
+	 * is called between timesteps and the restored game starts with the timestep after
+	 * the current one.  The file is written next to the old checkpoint and then moved
+	 * over it so a crash while saving never loses the last good checkpoint.
+	 * 
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public void saveCheckpoint(String fileName) throws IOException {
+		SimulatorCheckpoint checkpoint = new SimulatorCheckpoint();
+		checkpoint.simConfig = simConfig;
+		checkpoint.simulatedSpace = simulatedSpace;
+		checkpoint.teams = new ArrayList<Team>(teams);
+		checkpoint.random = random;
+		checkpoint.nextTimestep = timestep + 1;
+
+		File file = new File(fileName);
+		File tempFile = new File(fileName + ".tmp");
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeObject(checkpoint);
+		} finally {
+			out.close();
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Load a checkpoint and make new clients for the teams in it.  The space, the
+	 * teams and the random numbers pick up where they left off, but the clients
+	 * are built again from their configs (a checkpoint does not hold them), so a
+	 * client that keeps state from step to step starts over and the rest of the
+	 * game is only the same as the original game if all of the clients are
+	 * stateless.  Initializing the new clients does not use up the random numbers
+	 * of the game.
+	 * 
+	 * @param fileName
+	 * @param parserConfig used to find the team client config files
+	 * @throws SimulatorException
+	 */
+	void restoreCheckpoint(String fileName, JSAPResult parserConfig) throws SimulatorException {
+		SimulatorCheckpoint checkpoint;
+		try {
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+			try {
+				checkpoint = (SimulatorCheckpoint) in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new SimulatorException("Unable to read the checkpoint " + fileName);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new SimulatorException("Unable to read the checkpoint " + fileName);
+		}
+
+		simConfig = checkpoint.simConfig;
+		simulatedSpace = checkpoint.simulatedSpace;
+		random = checkpoint.random;
+		timestep = checkpoint.nextTimestep;
+		teams = new LinkedHashSet<Team>(checkpoint.teams);
+		clientMap = new HashMap<String, TeamClient>();
+
+		for (Team team : teams) {
+			HighLevelTeamConfig thisTeamConfig = null;
+			for (HighLevelTeamConfig teamConfig : simConfig.getTeams()) {
+				if (teamConfig.getTeamName().equalsIgnoreCase(team.getTeamName())) {
+					thisTeamConfig = teamConfig;
+					break;
+				}
+			}
+			if (thisTeamConfig == null) {
+				throw new SimulatorException("Error: team " + team.getTeamName() + " in the checkpoint has no team config");
+			}
+
+			TeamClientConfig teamClientConfig = getTeamClientConfig(thisTeamConfig, parserConfig.getString("configPath"));
+			TeamClient teamClient = makeTeamClient(thisTeamConfig, teamClientConfig);
+			team.setTeamClient(teamClient);
+			clientMap.put(thisTeamConfig.getTeamName(), teamClient);
+		}
+
+		// every team needs its client before the space can be copied for the clients.
+		// The random numbers in the checkpoint are the ones the rest of the game uses
+		// (the original clients were initialized before the checkpoint), so the new
+		// clients are initialized with their own random number generator.
+		Random initializeRandom = (simConfig.getRandomSeed() == 0) ? new Random() : new Random(simConfig.getRandomSeed());
+		for (Team team : teams) {
+			TeamClient teamClient = clientMap.get(team.getTeamName());
+			teamClient.setRandom(initializeRandom);
+			teamClient.initialize(simulatedSpace.deepClone());
+			teamClient.setRandom(random);
+		}
+		System.out.println("Restored the game from " + fileName + " at time step " + timestep);
+	}
+
+	/**
+	 * Record the game to a replay file (the ladder uses this to name a file for each game)
+	 * 
+	 * @param replayFile the file name or null to not record the game
+	 */
+	public void setReplayFile(String replayFile) {
+		this.replayFile = replayFile;
 	}
 
 	/**
@@ -1117,6 +1520,12 @@ public final class SpaceSettlersSimulator {
 		for (Team team : teams) {
 			team.shutdownClients(simulatedSpace);
 		}
+
+		if (teamExecutor != null) {
+			teamExecutor.shutdown();
+			teamExecutor = null;
+		}
+		simulatedSpace.shutdownMovementWorkers();
 	}
 
 	/**
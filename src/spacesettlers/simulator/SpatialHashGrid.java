@@ -0,0 +1,284 @@
+package spacesettlers.simulator;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid laid over the toroidal space that is used to quickly find the
+ * objects that might be touching a circle (the broadphase of the collision
+ * detection). Objects are stored by an integer index chosen by the caller in
+ * every cell that their bounding box overlaps, which means big and small
+ * objects (bases, asteroids, missiles) can be mixed in the same grid. The grid
+ * wraps around the edges of the space the same way the physics does.
+ *
+ * All of the storage is reused from one step to the next so that building and
+ * querying the grid does not create garbage.
+ */
+class SpatialHashGrid {
+	/**
+	 * Number of cells in each direction
+	 */
+	int numCellsX, numCellsY;
+
+	/**
+	 * Size of a cell in each direction (the cells exactly tile the space)
+	 */
+	double cellWidth, cellHeight;
+
+	/**
+	 * The indices stored in each cell and how many of them there are
+	 */
+	int[][] cellContents;
+	int[] cellSizes;
+
+	/**
+	 * The (unwrapped) range of cells covered by each stored index
+	 */
+	int[] minCellX, maxCellX, minCellY, maxCellY;
+
+	/**
+	 * True if the index is currently stored in the grid
+	 */
+	boolean[] isStored;
+
+	/**
+	 * Used to avoid returning an index twice when it is stored in more than one
+	 * of the cells that a query looks at
+	 */
+	int[] lastSeen;
+	int queryStamp;
+
+	/**
+	 * The results of the last query (sorted by index)
+	 */
+	int[] results;
+
+	/**
+	 * Largest number of cells allowed in each direction
+	 */
+	static final int MAX_CELLS_PER_SIDE = 1024;
+
+	/**
+	 * Create an empty grid (call reset before using it)
+	 */
+	SpatialHashGrid() {
+		numCellsX = 1;
+		numCellsY = 1;
+		cellContents = new int[0][];
+		cellSizes = new int[0];
+		minCellX = new int[0];
+		maxCellX = new int[0];
+		minCellY = new int[0];
+		maxCellY = new int[0];
+		isStored = new boolean[0];
+		lastSeen = new int[0];
+		results = new int[16];
+	}
+
+	/**
+	 * Empty the grid and resize it for a space of the given size. The cells will
+	 * be as close to the requested size as possible while still exactly tiling the
+	 * space.
+	 *
+	 * @param width    width of the space
+	 * @param height   height of the space
+	 * @param cellSize the desired size of a cell
+	 * @param capacity indices stored in the grid must be less than this
+	 */
+	void reset(int width, int height, double cellSize, int capacity) {
+		if (!(cellSize > 0)) {
+			cellSize = 1;
+		}
+		numCellsX = (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.floor(width / cellSize)));
+		numCellsY = (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.floor(height / cellSize)));
+		cellWidth = width / (double) numCellsX;
+		cellHeight = height / (double) numCellsY;
+
+		int numCells = numCellsX * numCellsY;
+		if (cellContents.length < numCells) {
+			int[][] newContents = new int[numCells][];
+			System.arraycopy(cellContents, 0, newContents, 0, cellContents.length);
+			for (int i = cellContents.length; i < numCells; i++) {
+				newContents[i] = new int[4];
+			}
+			cellContents = newContents;
+			cellSizes = new int[numCells];
+		} else {
+			Arrays.fill(cellSizes, 0);
+		}
+
+		if (isStored.length < capacity) {
+			int newCapacity = Math.max(capacity, 2 * isStored.length);
+			minCellX = new int[newCapacity];
+			maxCellX = new int[newCapacity];
+			minCellY = new int[newCapacity];
+			maxCellY = new int[newCapacity];
+			isStored = new boolean[newCapacity];
+			lastSeen = new int[newCapacity];
+			queryStamp = 0;
+		} else {
+			Arrays.fill(isStored, false);
+		}
+	}
+
+	/**
+	 * Make room for indices less than the capacity without emptying the grid
+	 *
+	 * @param capacity
+	 */
+	void ensureCapacity(int capacity) {
+		if (isStored.length >= capacity) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, 2 * isStored.length);
+		minCellX = Arrays.copyOf(minCellX, newCapacity);
+		maxCellX = Arrays.copyOf(maxCellX, newCapacity);
+		minCellY = Arrays.copyOf(minCellY, newCapacity);
+		maxCellY = Arrays.copyOf(maxCellY, newCapacity);
+		isStored = Arrays.copyOf(isStored, newCapacity);
+		lastSeen = Arrays.copyOf(lastSeen, newCapacity);
+	}
+
+	/**
+	 * Store an index in all the cells overlapped by the bounding box of the circle
+	 *
+	 * @param index  the index to store (must be less than the capacity)
+	 * @param x      center of the circle
+	 * @param y      center of the circle
+	 * @param radius radius of the circle
+	 */
+	void insert(int index, double x, double y, double radius) {
+		int cellX0 = (int) Math.floor((x - radius) / cellWidth);
+		int cellX1 = (int) Math.floor((x + radius) / cellWidth);
+		int cellY0 = (int) Math.floor((y - radius) / cellHeight);
+		int cellY1 = (int) Math.floor((y + radius) / cellHeight);
+
+		// if the box wraps all the way around, just use every cell once
+		if (cellX1 - cellX0 + 1 >= numCellsX) {
+			cellX0 = 0;
+			cellX1 = numCellsX - 1;
+		}
+		if (cellY1 - cellY0 + 1 >= numCellsY) {
+			cellY0 = 0;
+			cellY1 = numCellsY - 1;
+		}
+
+		minCellX[index] = cellX0;
+		maxCellX[index] = cellX1;
+		minCellY[index] = cellY0;
+		maxCellY[index] = cellY1;
+		isStored[index] = true;
+
+		for (int cellY = cellY0; cellY <= cellY1; cellY++) {
+			int row = Math.floorMod(cellY, numCellsY) * numCellsX;
+			for (int cellX = cellX0; cellX <= cellX1; cellX++) {
+				int cell = row + Math.floorMod(cellX, numCellsX);
+				int size = cellSizes[cell];
+				if (size == cellContents[cell].length) {
+					cellContents[cell] = Arrays.copyOf(cellContents[cell], size * 2);
+				}
+				cellContents[cell][size] = index;
+				cellSizes[cell] = size + 1;
+			}
+		}
+	}
+
+	/**
+	 * Remove an index from all of the cells it is stored in
+	 *
+	 * @param index
+	 */
+	void remove(int index) {
+		if (!isStored[index]) {
+			return;
+		}
+
+		for (int cellY = minCellY[index]; cellY <= maxCellY[index]; cellY++) {
+			int row = Math.floorMod(cellY, numCellsY) * numCellsX;
+			for (int cellX = minCellX[index]; cellX <= maxCellX[index]; cellX++) {
+				int cell = row + Math.floorMod(cellX, numCellsX);
+				int[] contents = cellContents[cell];
+				int size = cellSizes[cell];
+				for (int i = 0; i < size; i++) {
+					if (contents[i] == index) {
+						contents[i] = contents[size - 1];
+						cellSizes[cell] = size - 1;
+						break;
+					}
+				}
+			}
+		}
+		isStored[index] = false;
+	}
+
+	/**
+	 * Move an index that is already stored to a new location (or a new radius)
+	 *
+	 * @param index
+	 * @param x
+	 * @param y
+	 * @param radius
+	 */
+	void move(int index, double x, double y, double radius) {
+		remove(index);
+		insert(index, x, y, radius);
+	}
+
+	/**
+	 * Find all the stored indices (at least minIndex) whose bounding boxes share a
+	 * cell with the bounding box of the circle. The results are placed (sorted) at
+	 * the front of the results array. These are only candidates: the caller still
+	 * has to check the actual distances.
+	 *
+	 * @param x        center of the circle
+	 * @param y        center of the circle
+	 * @param radius   radius of the circle
+	 * @param minIndex smallest index to return
+	 * @return the number of indices found
+	 */
+	int query(double x, double y, double radius, int minIndex) {
+		int cellX0 = (int) Math.floor((x - radius) / cellWidth);
+		int cellX1 = (int) Math.floor((x + radius) / cellWidth);
+		int cellY0 = (int) Math.floor((y - radius) / cellHeight);
+		int cellY1 = (int) Math.floor((y + radius) / cellHeight);
+
+		if (cellX1 - cellX0 + 1 >= numCellsX) {
+			cellX0 = 0;
+			cellX1 = numCellsX - 1;
+		}
+		if (cellY1 - cellY0 + 1 >= numCellsY) {
+			cellY0 = 0;
+			cellY1 = numCellsY - 1;
+		}
+
+		// a new stamp means nothing has been seen by this query yet
+		queryStamp++;
+		if (queryStamp == Integer.MAX_VALUE) {
+			Arrays.fill(lastSeen, 0);
+			queryStamp = 1;
+		}
+
+		int numResults = 0;
+		for (int cellY = cellY0; cellY <= cellY1; cellY++) {
+			int row = Math.floorMod(cellY, numCellsY) * numCellsX;
+			for (int cellX = cellX0; cellX <= cellX1; cellX++) {
+				int cell = row + Math.floorMod(cellX, numCellsX);
+				int[] contents = cellContents[cell];
+				int size = cellSizes[cell];
+				for (int i = 0; i < size; i++) {
+					int index = contents[i];
+					if (index < minIndex || lastSeen[index] == queryStamp) {
+						continue;
+					}
+					lastSeen[index] = queryStamp;
+					if (numResults == results.length) {
+						results = Arrays.copyOf(results, numResults * 2);
+					}
+					results[numResults++] = index;
+				}
+			}
+		}
+
+		Arrays.sort(results, 0, numResults);
+		return numResults;
+	}
+}
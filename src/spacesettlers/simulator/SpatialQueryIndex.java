@@ -0,0 +1,442 @@
+package spacesettlers.simulator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.Predicate;
+
+import spacesettlers.objects.AbstractObject;
+
+/**
+ * An index of where the objects in the space are, used to answer nearest object
+ * and radius queries without looking at every object. The centers of the objects
+ * are sorted into a uniform grid of cells and a query looks at the cells in rings
+ * of growing size around the query location until no unseen cell can hold
+ * anything closer. The grid wraps around the edges like the space does.
+ *
+ * The index is a picture of the space at the time it was built and is never
+ * changed afterwards, so any number of threads can query it at the same time.
+ * Distances are the center to center distances computed exactly the way
+ * Toroidal2DPhysics.findShortestDistance computes them, and ties are broken by
+ * the order of the objects in the space.
+ */
+class SpatialQueryIndex implements FreeSpaceIndex {
+	/**
+	 * The objects in the order they are stored in the space
+	 */
+	AbstractObject[] objects;
+
+	/**
+	 * The centers of the objects at the time the index was built
+	 */
+	double[] xs, ys;
+
+	/**
+	 * The size of the space
+	 */
+	float width, height, halfWidth, halfHeight;
+
+	/**
+	 * The largest radius of any object in the index
+	 */
+	int maxRadius;
+
+	/**
+	 * Number of cells in each direction and their size
+	 */
+	int numCellsX, numCellsY;
+	double cellWidth, cellHeight;
+
+	/**
+	 * The objects in each cell are cellObjects[cellStart[cell]] to
+	 * cellObjects[cellStart[cell + 1] - 1] (in the order of the space)
+	 */
+	int[] cellStart, cellObjects;
+
+	/**
+	 * Average number of objects in a cell
+	 */
+	static final double OBJECTS_PER_CELL = 2;
+
+	/**
+	 * Largest number of cells allowed in each direction
+	 */
+	static final int MAX_CELLS_PER_SIDE = 1024;
+
+	/**
+	 * Index all of the objects in the space
+	 *
+	 * @param allObjects
+	 * @param width
+	 * @param height
+	 */
+	SpatialQueryIndex(Collection<AbstractObject> allObjects, int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.halfWidth = width / 2.0f;
+		this.halfHeight = height / 2.0f;
+
+		int numObjects = allObjects.size();
+		objects = allObjects.toArray(new AbstractObject[numObjects]);
+		xs = new double[numObjects];
+		ys = new double[numObjects];
+
+		double cellSize = Math.sqrt((double) width * height * OBJECTS_PER_CELL / Math.max(1, numObjects));
+		numCellsX = (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.floor(width / cellSize)));
+		numCellsY = (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.floor(height / cellSize)));
+		cellWidth = width / (double) numCellsX;
+		cellHeight = height / (double) numCellsY;
+
+		// counting sort of the objects into their cells (keeps the order of the space in each cell)
+		int[] objectCells = new int[numObjects];
+		cellStart = new int[numCellsX * numCellsY + 1];
+		for (int i = 0; i < numObjects; i++) {
+			xs[i] = objects[i].getPosition().getX();
+			ys[i] = objects[i].getPosition().getY();
+			maxRadius = Math.max(maxRadius, objects[i].getRadius());
+			objectCells[i] = cellY(ys[i]) * numCellsX + cellX(xs[i]);
+			cellStart[objectCells[i] + 1]++;
+		}
+		for (int cell = 0; cell < numCellsX * numCellsY; cell++) {
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		cellObjects = new int[numObjects];
+		int[] nextSlot = Arrays.copyOf(cellStart, cellStart.length - 1);
+		for (int i = 0; i < numObjects; i++) {
+			cellObjects[nextSlot[objectCells[i]]++] = i;
+		}
+	}
+
+	/**
+	 * The column of cells holding this x coordinate
+	 *
+	 * @param x
+	 * @return
+	 */
+	int cellX(double x) {
+		return Math.max(0, Math.min(numCellsX - 1, (int) Math.floor(x / cellWidth)));
+	}
+
+	/**
+	 * The row of cells holding this y coordinate
+	 *
+	 * @param y
+	 * @return
+	 */
+	int cellY(double y) {
+		return Math.max(0, Math.min(numCellsY - 1, (int) Math.floor(y / cellHeight)));
+	}
+
+	/**
+	 * The shortest toroidal distance from the location to the object (the same
+	 * math as Toroidal2DPhysics.findShortestDistance but without making a vector)
+	 *
+	 * @param x
+	 * @param y
+	 * @param index
+	 * @return
+	 */
+	double distance(double x, double y, int index) {
+		double dx = xs[index] - x;
+		double dy = ys[index] - y;
+		if (dx > halfWidth) {
+			dx = dx - width;
+		} else if (dx < -halfWidth) {
+			dx = dx + width;
+		}
+		if (dy > halfHeight) {
+			dy = dy - height;
+		} else if (dy < -halfHeight) {
+			dy = dy + height;
+		}
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Is the object one of the ones the query is asking about?
+	 *
+	 * @param index
+	 * @param type
+	 * @param predicate (null means every object of the type)
+	 * @return
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	boolean matches(int index, Class<?> type, Predicate predicate) {
+		AbstractObject object = objects[index];
+		return type.isInstance(object) && (predicate == null || predicate.test(object));
+	}
+
+	/**
+	 * Collects the objects found by a search.  The search stops once every cell
+	 * that could hold an object within the search radius has been looked at.
+	 */
+	abstract static class Collector {
+		/**
+		 * The object was found at this distance
+		 *
+		 * @param index
+		 * @param distance
+		 */
+		abstract void add(int index, double distance);
+
+		/**
+		 * Objects further away than this are not needed
+		 *
+		 * @return
+		 */
+		abstract double searchRadius();
+	}
+
+	/**
+	 * Look at the cells in growing rings around the location, giving every matching
+	 * object to the collector, until the rings are further away than the search
+	 * radius of the collector or every cell has been seen.
+	 *
+	 * @param x
+	 * @param y
+	 * @param type
+	 * @param predicate
+	 * @param collector
+	 */
+	@SuppressWarnings("rawtypes")
+	void search(double x, double y, Class<?> type, Predicate predicate, Collector collector) {
+		int centerX = cellX(x);
+		int centerY = cellY(y);
+
+		// the cells are visited using offsets from the center cell and each cell must
+		// only be visited once, so the offsets are limited to one trip around the space
+		int lowX = (numCellsX - 1) / 2;
+		int highX = numCellsX - 1 - lowX;
+		int lowY = (numCellsY - 1) / 2;
+		int highY = numCellsY - 1 - lowY;
+		int maxRing = Math.max(highX, highY);
+		double ringSize = Math.min(cellWidth, cellHeight);
+
+		for (int ring = 0; ring <= maxRing; ring++) {
+			int firstY = Math.max(-ring, -lowY);
+			int lastY = Math.min(ring, highY);
+			for (int offsetY = firstY; offsetY <= lastY; offsetY++) {
+				int row = Math.floorMod(centerY + offsetY, numCellsY) * numCellsX;
+				if (offsetY == -ring || offsetY == ring) {
+					// top and bottom of the ring
+					int firstX = Math.max(-ring, -lowX);
+					int lastX = Math.min(ring, highX);
+					for (int offsetX = firstX; offsetX <= lastX; offsetX++) {
+						searchCell(row + Math.floorMod(centerX + offsetX, numCellsX), x, y, type, predicate, collector);
+					}
+				} else {
+					// just the sides of the ring
+					if (ring <= lowX) {
+						searchCell(row + Math.floorMod(centerX - ring, numCellsX), x, y, type, predicate, collector);
+					}
+					if (ring > 0 && ring <= highX) {
+						searchCell(row + Math.floorMod(centerX + ring, numCellsX), x, y, type, predicate, collector);
+					}
+				}
+			}
+
+			// anything in a cell that hasn't been seen is further away than this
+			if (collector.searchRadius() < ring * ringSize) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Give the matching objects in one cell to the collector
+	 */
+	@SuppressWarnings("rawtypes")
+	private void searchCell(int cell, double x, double y, Class<?> type, Predicate predicate, Collector collector) {
+		for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+			int index = cellObjects[i];
+			if (matches(index, type, predicate)) {
+				collector.add(index, distance(x, y, index));
+			}
+		}
+	}
+
+	/**
+	 * Find the nearest matching object
+	 *
+	 * @param x
+	 * @param y
+	 * @param type
+	 * @param predicate (null means every object of the type)
+	 * @return the nearest object or null if nothing matches
+	 */
+	@SuppressWarnings("rawtypes")
+	AbstractObject findNearest(double x, double y, Class<?> type, Predicate predicate) {
+		final int[] bestIndex = { -1 };
+		final double[] bestDistance = { Double.POSITIVE_INFINITY };
+
+		search(x, y, type, predicate, new Collector() {
+			void add(int index, double distance) {
+				if (distance < bestDistance[0] || (distance == bestDistance[0] && index < bestIndex[0])) {
+					bestDistance[0] = distance;
+					bestIndex[0] = index;
+				}
+			}
+
+			double searchRadius() {
+				return bestDistance[0];
+			}
+		});
+
+		if (bestIndex[0] < 0) {
+			return null;
+		}
+		return objects[bestIndex[0]];
+	}
+
+	/**
+	 * Find the k nearest matching objects
+	 *
+	 * @param x
+	 * @param y
+	 * @param k
+	 * @param type
+	 * @param predicate (null means every object of the type)
+	 * @return the objects sorted from nearest to furthest (fewer than k if not
+	 *         enough objects match)
+	 */
+	@SuppressWarnings("rawtypes")
+	AbstractObject[] findKNearest(double x, double y, final int k, Class<?> type, Predicate predicate) {
+		if (k <= 0) {
+			return new AbstractObject[0];
+		}
+
+		// the best k so far, kept sorted by distance and then by the order of the space
+		final int[] bestIndices = new int[k];
+		final double[] bestDistances = new double[k];
+		final int[] numFound = { 0 };
+
+		search(x, y, type, predicate, new Collector() {
+			void add(int index, double distance) {
+				int position = numFound[0];
+				if (position == k) {
+					if (!isBefore(distance, index, bestDistances[k - 1], bestIndices[k - 1])) {
+						return;
+					}
+					position = k - 1;
+				} else {
+					numFound[0]++;
+				}
+				while (position > 0 && isBefore(distance, index, bestDistances[position - 1], bestIndices[position - 1])) {
+					bestDistances[position] = bestDistances[position - 1];
+					bestIndices[position] = bestIndices[position - 1];
+					position--;
+				}
+				bestDistances[position] = distance;
+				bestIndices[position] = index;
+			}
+
+			double searchRadius() {
+				if (numFound[0] < k) {
+					return Double.POSITIVE_INFINITY;
+				}
+				return bestDistances[k - 1];
+			}
+		});
+
+		AbstractObject[] nearest = new AbstractObject[numFound[0]];
+		for (int i = 0; i < nearest.length; i++) {
+			nearest[i] = objects[bestIndices[i]];
+		}
+		return nearest;
+	}
+
+	/**
+	 * Find all the matching objects whose centers are within the radius of the
+	 * location
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param type
+	 * @param predicate (null means every object of the type)
+	 * @return the objects sorted from nearest to furthest
+	 */
+	@SuppressWarnings("rawtypes")
+	AbstractObject[] findWithinRadius(double x, double y, final double radius, Class<?> type, Predicate predicate) {
+		final int[][] foundIndices = { new int[8] };
+		final double[][] foundDistances = { new double[8] };
+		final int[] numFound = { 0 };
+
+		search(x, y, type, predicate, new Collector() {
+			void add(int index, double distance) {
+				if (distance > radius) {
+					return;
+				}
+				if (numFound[0] == foundIndices[0].length) {
+					foundIndices[0] = Arrays.copyOf(foundIndices[0], numFound[0] * 2);
+					foundDistances[0] = Arrays.copyOf(foundDistances[0], numFound[0] * 2);
+				}
+				foundIndices[0][numFound[0]] = index;
+				foundDistances[0][numFound[0]] = distance;
+				numFound[0]++;
+			}
+
+			double searchRadius() {
+				return radius;
+			}
+		});
+
+		// sort by distance (and then the order of the space)
+		final int[] indices = foundIndices[0];
+		final double[] distances = foundDistances[0];
+		Integer[] order = new Integer[numFound[0]];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer first, Integer second) {
+				int byDistance = Double.compare(distances[first], distances[second]);
+				if (byDistance != 0) {
+					return byDistance;
+				}
+				return Integer.compare(indices[first], indices[second]);
+			}
+		});
+
+		AbstractObject[] found = new AbstractObject[order.length];
+		for (int i = 0; i < found.length; i++) {
+			found[i] = objects[indices[order[i]]];
+		}
+		return found;
+	}
+
+	/**
+	 * Is the location free?  It is free if every object is further away than the
+	 * radius plus the diameter of the object (the same test as
+	 * Toroidal2DPhysics.isLocationFree).
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @return
+	 */
+	public boolean isFree(double x, double y, final double radius) {
+		final boolean[] free = { true };
+
+		search(x, y, AbstractObject.class, null, new Collector() {
+			void add(int index, double distance) {
+				if (distance <= radius + (2 * objects[index].getRadius())) {
+					free[0] = false;
+				}
+			}
+
+			double searchRadius() {
+				// stop as soon as anything is in the way
+				return free[0] ? radius + (2 * maxRadius) : -1;
+			}
+		});
+		return free[0];
+	}
+
+	/**
+	 * Does the first object come before the second one in the results?
+	 */
+	static boolean isBefore(double distance1, int index1, double distance2, int index2) {
+		return distance1 < distance2 || (distance1 == distance2 && index1 < index2);
+	}
+}
@@ -0,0 +1,203 @@
+package spacesettlers.simulator;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of where the time in each time step goes: one histogram for each
+ * phase of SpaceSettlersSimulator.advanceTime (with the physics split into
+ * collisions, movement and deaths), one for each callback of each team and one
+ * for each kind of action asked for a movement.
+ */
+@SuppressWarnings("serial")
+public class StepProfiler implements Serializable {
+	/**
+	 * The parts of a time step
+	 */
+	public enum Phase {
+		TEAM_INFO, CLIENT_MOVEMENT, POWERUPS, COLLISIONS, MOVEMENT, DEATHS, MOVEMENT_END, PURCHASES, CLEANUP, SCORING, STEP
+	}
+
+	/**
+	 * The calls into a team client
+	 */
+	public enum Callback {
+		MOVEMENT_START, MOVEMENT_END, POWERUPS, PURCHASES, GRAPHICS
+	}
+
+	/**
+	 * One histogram for each phase (indexed by the ordinal of the phase)
+	 */
+	LatencyHistogram[] phaseTimes;
+
+	/**
+	 * The histograms for the callbacks of each team (by team name)
+	 */
+	Map<String, LatencyHistogram[]> callbackTimes;
+
+	/**
+	 * The histograms for AbstractAction.getMovement (by the class name of the action)
+	 */
+	Map<String, LatencyHistogram> actionTimes;
+
+	/**
+	 * Make an empty profiler
+	 */
+	public StepProfiler() {
+		phaseTimes = new LatencyHistogram[Phase.values().length];
+		for (int i = 0; i < phaseTimes.length; i++) {
+			phaseTimes[i] = new LatencyHistogram();
+		}
+		callbackTimes = new LinkedHashMap<String, LatencyHistogram[]>();
+		actionTimes = new LinkedHashMap<String, LatencyHistogram>();
+	}
+
+	/**
+	 * Record the time for a phase that started at startTime
+	 *
+	 * @param phase
+	 * @param startTime from System.nanoTime()
+	 * @return the current time (so it can be used to start the next phase)
+	 */
+	public long endPhase(Phase phase, long startTime) {
+		long now = System.nanoTime();
+		phaseTimes[phase.ordinal()].record(now - startTime);
+		return now;
+	}
+
+	/**
+	 * Record how long a team client took to answer a callback
+	 *
+	 * @param teamName
+	 * @param callback
+	 * @param nanos
+	 */
+	public void recordCallback(String teamName, Callback callback, long nanos) {
+		getCallbackHistogram(teamName, callback).record(nanos);
+	}
+
+	/**
+	 * Record how long an action took to return its movement
+	 *
+	 * @param actionName
+	 * @param nanos
+	 */
+	public void recordAction(String actionName, long nanos) {
+		getActionHistogram(actionName).record(nanos);
+	}
+
+	/**
+	 * @param phase
+	 * @return the times for one phase of the time step
+	 */
+	public LatencyHistogram getPhaseHistogram(Phase phase) {
+		return phaseTimes[phase.ordinal()];
+	}
+
+	/**
+	 * @param teamName
+	 * @param callback
+	 * @return the times for one callback of a team (an empty histogram is made the first time)
+	 */
+	public LatencyHistogram getCallbackHistogram(String teamName, Callback callback) {
+		LatencyHistogram[] teamTimes;
+		synchronized (callbackTimes) {
+			teamTimes = callbackTimes.get(teamName);
+			if (teamTimes == null) {
+				teamTimes = new LatencyHistogram[Callback.values().length];
+				for (int i = 0; i < teamTimes.length; i++) {
+					teamTimes[i] = new LatencyHistogram();
+				}
+				callbackTimes.put(teamName, teamTimes);
+			}
+		}
+		return teamTimes[callback.ordinal()];
+	}
+
+	/**
+	 * @return the names of the teams that have callback times
+	 */
+	public String[] getTeamNames() {
+		synchronized (callbackTimes) {
+			return callbackTimes.keySet().toArray(new String[callbackTimes.size()]);
+		}
+	}
+
+	/**
+	 * @param actionName
+	 * @return the movement times for one kind of action (an empty histogram is made the first time)
+	 */
+	public LatencyHistogram getActionHistogram(String actionName) {
+		synchronized (actionTimes) {
+			LatencyHistogram histogram = actionTimes.get(actionName);
+			if (histogram == null) {
+				histogram = new LatencyHistogram();
+				actionTimes.put(actionName, histogram);
+			}
+			return histogram;
+		}
+	}
+
+	/**
+	 * @return the names of the actions that have movement times
+	 */
+	public String[] getActionNames() {
+		synchronized (actionTimes) {
+			return actionTimes.keySet().toArray(new String[actionTimes.size()]);
+		}
+	}
+
+	/**
+	 * Add all of the times from another profiler (used by the ladder to combine games)
+	 *
+	 * @param other
+	 */
+	public void add(StepProfiler other) {
+		for (Phase phase : Phase.values()) {
+			getPhaseHistogram(phase).add(other.getPhaseHistogram(phase));
+		}
+		for (String teamName : other.getTeamNames()) {
+			for (Callback callback : Callback.values()) {
+				getCallbackHistogram(teamName, callback).add(other.getCallbackHistogram(teamName, callback));
+			}
+		}
+		for (String actionName : other.getActionNames()) {
+			getActionHistogram(actionName).add(other.getActionHistogram(actionName));
+		}
+	}
+
+	/**
+	 * Make a table of the times (in milliseconds) for printing
+	 *
+	 * @return
+	 */
+	public String getReport() {
+		StringBuilder str = new StringBuilder();
+		str.append(String.format("%-40s %8s %10s %10s %10s %12s\n", "Phase", "count", "p50 (ms)", "p99 (ms)", "max (ms)", "total (ms)"));
+		for (Phase phase : Phase.values()) {
+			appendReportLine(str, phase.name(), getPhaseHistogram(phase));
+		}
+		for (String teamName : getTeamNames()) {
+			for (Callback callback : Callback.values()) {
+				LatencyHistogram histogram = getCallbackHistogram(teamName, callback);
+				if (histogram.getCount() > 0) {
+					appendReportLine(str, teamName + " " + callback.name(), histogram);
+				}
+			}
+		}
+		for (String actionName : getActionNames()) {
+			appendReportLine(str, "action " + actionName, getActionHistogram(actionName));
+		}
+		return str.toString();
+	}
+
+	/**
+	 * Add one line of the report
+	 */
+	private void appendReportLine(StringBuilder str, String name, LatencyHistogram histogram) {
+		str.append(String.format("%-40s %8d %10.3f %10.3f %10.3f %12.1f\n", name, histogram.getCount(),
+				histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6,
+				histogram.getMax() / 1e6, histogram.getTotal() / 1e6));
+	}
+}
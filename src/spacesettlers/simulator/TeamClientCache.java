@@ -0,0 +1,71 @@
+package spacesettlers.simulator;
+
+import java.util.HashMap;
+
+import spacesettlers.clients.TeamClient;
+import spacesettlers.configs.TeamClientConfig;
+
+/**
+ * Keeps the team client config files that have been read and the client classes
+ * that have been looked up, so a ladder that plays many games with the same
+ * teams reads each file and finds each class only once.  The configs are shared
+ * by every game that uses them (nothing changes a TeamClientConfig once it has
+ * been read).  Any number of games (threads) can use the same cache.
+ */
+public class TeamClientCache {
+	/**
+	 * The config read from each file (by file name)
+	 */
+	HashMap<String, TeamClientConfig> teamClientConfigs;
+
+	/**
+	 * The client class for each class name
+	 */
+	HashMap<String, Class<? extends TeamClient>> clientClasses;
+
+	public TeamClientCache() {
+		teamClientConfigs = new HashMap<String, TeamClientConfig>();
+		clientClasses = new HashMap<String, Class<? extends TeamClient>>();
+	}
+
+	/**
+	 * Get the config in a team client config file (reading it the first time)
+	 * 
+	 * @param fileName
+	 * @return
+	 * @throws SimulatorException if the file can't be read
+	 */
+	public synchronized TeamClientConfig getTeamClientConfig(String fileName) throws SimulatorException {
+		TeamClientConfig teamClientConfig = teamClientConfigs.get(fileName);
+		if (teamClientConfig == null) {
+			teamClientConfig = SpaceSettlersSimulator.readTeamClientConfig(fileName);
+			teamClientConfigs.put(fileName, teamClientConfig);
+		}
+		return teamClientConfig;
+	}
+
+	/**
+	 * Get the client class with a name (loading it the first time)
+	 * 
+	 * @param className the fully qualified name of a TeamClient class
+	 * @return
+	 * @throws SimulatorException if there is no such class or it is not a TeamClient
+	 */
+	public synchronized Class<? extends TeamClient> getClientClass(String className) throws SimulatorException {
+		Class<? extends TeamClient> clientClass = clientClasses.get(className);
+		if (clientClass == null) {
+			try {
+				Class<?> loadedClass = Class.forName(className);
+				if (!TeamClient.class.isAssignableFrom(loadedClass)) {
+					throw new SimulatorException("Class " + className + " is not a team client");
+				}
+				clientClass = loadedClass.asSubclass(TeamClient.class);
+			} catch (ClassNotFoundException e) {
+				e.printStackTrace();
+				throw new SimulatorException("Unable to make a new team client " + className);
+			}
+			clientClasses.put(className, clientClass);
+		}
+		return clientClass;
+	}
+}
@@ -1,12 +1,25 @@
 package spacesettlers.simulator;
 
+import java.io.Serializable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
 
 import spacesettlers.actions.DoNothingAction;
 import spacesettlers.actions.AbstractAction;
@@ -22,6 +35,8 @@ import spacesettlers.objects.Ship;
 import spacesettlers.objects.AbstractActionableObject;
 import spacesettlers.objects.AbstractObject;
 import spacesettlers.objects.AiCore;
+import spacesettlers.objects.ObjectLifecycleListener;
+import spacesettlers.objects.SimulationIdTable;
 import spacesettlers.objects.powerups.PowerupDoubleHealingBaseEnergy;
 import spacesettlers.objects.powerups.PowerupDoubleMaxEnergy;
 import spacesettlers.objects.powerups.PowerupDoubleWeapon;
@@ -29,8 +44,10 @@ import spacesettlers.objects.powerups.PowerupToggleShield;
 import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
 import spacesettlers.objects.resources.ResourcePile;
 import spacesettlers.objects.weapons.AbstractWeapon;
+import spacesettlers.utilities.KinematicStore;
 import spacesettlers.utilities.Movement;
 import spacesettlers.utilities.Position;
+import spacesettlers.utilities.TimerWheel;
 import spacesettlers.utilities.Vector2D;
 
 /**
@@ -39,7 +56,9 @@ import spacesettlers.utilities.Vector2D;
  * 
  * @author amy
  */
-public class Toroidal2DPhysics {
+public class Toroidal2DPhysics implements Serializable, ObjectLifecycleListener {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Height and width of the simulation
 	 */
@@ -97,6 +116,11 @@ public class Toroidal2DPhysics {
 	 */
 	HashMap<UUID, AbstractObject> objectsById;
 
+	/**
+	 * The objects by their simulation id (see AbstractObject.getSimulationId)
+	 */
+	SimulationIdTable simulationIds;
+
 	/**
 	 * The timestep used for simulation of physics
 	 */
@@ -114,10 +138,36 @@ public class Toroidal2DPhysics {
 	public static final double MAX_ANGULAR_VELOCITY = Math.PI;
 	public static final double ENERGY_PENALTY = 0.0005;
 
+	/**
+	 * Names of the collision detection methods (set in the SpaceSettlersConfig).
+	 * AllPairs tests every pair of objects and SpatialHash uses a grid to only
+	 * test objects that are near each other. Both find exactly the same
+	 * collisions.
+	 */
+	public static final String ALL_PAIRS_COLLISIONS = "AllPairs";
+	public static final String SPATIAL_HASH_COLLISIONS = "SpatialHash";
+
 	/**
 	 * Handles collisions between spacewar objects
 	 */
-	CollisionHandler collisionHandler;
+	transient CollisionHandler collisionHandler;
+
+	/**
+	 * True if collisions are found using the spatial hash instead of testing all
+	 * pairs of objects
+	 */
+	boolean useSpatialHashCollisions;
+
+	/**
+	 * The grid used by the spatial hash collision detection (reused every step)
+	 */
+	transient SpatialHashGrid collisionGrid;
+
+	/**
+	 * The objects that might be colliding with the object being checked (reused
+	 * every step)
+	 */
+	transient int[] collisionCandidates;
 
 	/**
 	 * Maximum time step
@@ -129,6 +179,117 @@ public class Toroidal2DPhysics {
 	 */
 	Set<ImmutableTeamInfo> teamInfo;
 
+	/**
+	 * The read-only copy of this space for each team (by team name), shared by
+	 * all of the callbacks and actions of that team.  Each copy is built at most
+	 * once per change to the space and thrown away (see invalidateSnapshot)
+	 * whenever the simulator changes the space.
+	 */
+	transient HashMap<String, Toroidal2DPhysics> snapshots;
+
+	/**
+	 * True if this space is a read-only snapshot handed to the clients
+	 */
+	boolean isSnapshot;
+
+	/**
+	 * Index used to answer the nearest object and radius queries. It is built the
+	 * first time it is needed and thrown away whenever objects are added, removed
+	 * or moved (see getQueryIndex).
+	 */
+	transient SpatialQueryIndex queryIndex;
+
+	/**
+	 * The version of the positions in kinematics when queryIndex was built
+	 */
+	transient long queryIndexVersion;
+
+	/**
+	 * If not null, the collision, movement and death parts of advanceTime are timed
+	 * (only the simulator's own space is timed, never a copy)
+	 */
+	transient StepProfiler profiler;
+
+	/**
+	 * If not null, the actions of the ships and drones of each team are asked for
+	 * their movements on a thread of the team (see getActionMovements)
+	 */
+	transient MovementWorkers movementWorkers;
+
+	/**
+	 * How long the actions get to return their movements each step (in milliseconds)
+	 */
+	transient int movementTimeout;
+
+	/**
+	 * The positions and velocities of all of the objects in the space (the Position
+	 * of each object is a view of its slot in the store)
+	 */
+	transient KinematicStore kinematics;
+
+	/**
+	 * Number of time steps between putting the kinematic store back into Morton
+	 * order (objects drift away from their neighbors in memory as they move)
+	 */
+	static final int REORDER_INTERVAL = 64;
+
+	/**
+	 * For each slot of the kinematic store, the index of its object in the array
+	 * used for collision detection (reused every step)
+	 */
+	transient int[] objectForSlot;
+
+	/**
+	 * Objects that died (or were allowed to respawn while dead) since the last
+	 * cleanupDeadObjects, in the order it happened
+	 */
+	LinkedHashSet<AbstractObject> deadObjects;
+
+	/**
+	 * Dead objects that respawn in the next respawnDeadObjects
+	 */
+	ArrayList<AbstractObject> respawningObjects;
+
+	/**
+	 * Dead objects that are waiting to respawn (by the respawn step they respawn on)
+	 */
+	TimerWheel<AbstractObject> respawnTimers;
+
+	/**
+	 * Number of times respawnDeadObjects has been called (the steps of respawnTimers)
+	 */
+	long respawnStep;
+
+	/**
+	 * Number of steps in one turn of respawnTimers (at least the longest ship delay)
+	 */
+	static final int RESPAWN_WHEEL_SIZE = 1024;
+
+	/**
+	 * Number of random locations tried before a free location is searched for cell
+	 * by cell (see findFreeLocationByCells)
+	 */
+	static final int MAX_RANDOM_PLACEMENT_ATTEMPTS = 100;
+
+	/**
+	 * Smallest cell used when searching for a free location cell by cell
+	 */
+	static final int MIN_PLACEMENT_CELL_SIZE = 4;
+
+	/**
+	 * Holds every object in the space for finding free locations (see
+	 * getPlacementIndex).  Objects are added to and removed from it along with the
+	 * space, and it is brought up to date with the positions in kinematics the
+	 * next time it is used after something moved.  Null until it is first needed.
+	 */
+	transient PlacementGrid placementGrid;
+
+	/**
+	 * The version of the positions in kinematics when placementGrid was last up to
+	 * date
+	 */
+	transient long placementVersion;
+
 	/**
 	 * Constructor for the regular game
 	 * 
@@ -151,8 +312,34 @@ public class Toroidal2DPhysics {
 		flags = new LinkedHashSet<Flag>();
 		weapons = new LinkedHashSet<AbstractWeapon>();
 		objectsById = new HashMap<UUID, AbstractObject>();
+		simulationIds = new SimulationIdTable();
 		maxTime = simConfig.getSimulationSteps();
 		teamInfo = new LinkedHashSet<ImmutableTeamInfo>();
+		kinematics = new KinematicStore();
+		deadObjects = new LinkedHashSet<AbstractObject>();
+		respawningObjects = new ArrayList<AbstractObject>();
+		respawnTimers = new TimerWheel<AbstractObject>(RESPAWN_WHEEL_SIZE);
+		setCollisionDetection(simConfig.getCollisionDetection());
+	}
+
+	/**
+	 * Restore a space saved in a checkpoint.  The collision handler, the kinematic
+	 * store and the caches are not saved so the handler and the store are made again
+	 * here (the caches are rebuilt when they are needed).  The objects are told
+	 * about the space again since their listeners are not saved either.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		collisionHandler = new CollisionHandler();
+		kinematics = new KinematicStore();
+		for (AbstractObject object : allObjects) {
+			kinematics.add(object.getPosition());
+			object.setLifecycleListener(this);
+		}
 	}
 
 	/**
@@ -180,7 +367,12 @@ public class Toroidal2DPhysics {
 		cores = new LinkedHashSet<AiCore>();
 		weapons = new LinkedHashSet<AbstractWeapon>();
 		objectsById = new HashMap<UUID, AbstractObject>();
+		simulationIds = new SimulationIdTable();
 		teamInfo = new LinkedHashSet<ImmutableTeamInfo>();
+		kinematics = new KinematicStore();
+		deadObjects = new LinkedHashSet<AbstractObject>();
+		respawningObjects = new ArrayList<AbstractObject>();
+		respawnTimers = new TimerWheel<AbstractObject>(RESPAWN_WHEEL_SIZE);
 	}
 
 	/**
@@ -210,8 +402,16 @@ public class Toroidal2DPhysics {
 		cores = new LinkedHashSet<AiCore>();
 		weapons = new LinkedHashSet<AbstractWeapon>();
 		objectsById = new HashMap<UUID, AbstractObject>();
+		// the copies keep their simulation ids (and the copy gives out the same new ones)
+		simulationIds = new SimulationIdTable(other.simulationIds);
 		maxTime = other.maxTime;
 		teamInfo = new LinkedHashSet<ImmutableTeamInfo>(other.teamInfo);
+		useSpatialHashCollisions = other.useSpatialHashCollisions;
+		respawnStep = other.respawnStep;
+		kinematics = new KinematicStore();
+		deadObjects = new LinkedHashSet<AbstractObject>();
+		respawningObjects = new ArrayList<AbstractObject>();
+		respawnTimers = new TimerWheel<AbstractObject>(RESPAWN_WHEEL_SIZE);
 	}
 
 	/**
@@ -220,7 +420,14 @@ public class Toroidal2DPhysics {
 	 * @param obj
 	 */
 	public void addObject(AbstractObject obj) {
-		allObjects.add(obj);
+		checkWritable();
+		invalidateSnapshot();
+		if (allObjects.add(obj)) {
+			kinematics.add(obj.getPosition());
+			if (placementGrid != null) {
+				placementGrid.add(obj);
+			}
+		}
 
 		if (obj instanceof Beacon) {
 			beacons.add((Beacon) obj);
@@ -255,6 +462,13 @@ public class Toroidal2DPhysics {
 		}
 
 		objectsById.put(obj.getId(), obj);
+		simulationIds.add(obj);
+
+		// hear about the object dying (and clean it up if it is already dead)
+		obj.setLifecycleListener(this);
+		if (!obj.isAlive()) {
+			objectDied(obj);
+		}
 	}
 
 	/**
@@ -263,7 +477,14 @@ public class Toroidal2DPhysics {
 	 * @param obj
 	 */
 	public void removeObject(AbstractObject obj) {
-		allObjects.remove(obj);
+		checkWritable();
+		invalidateSnapshot();
+		if (allObjects.remove(obj)) {
+			kinematics.remove(obj.getPosition());
+			if (placementGrid != null) {
+				placementGrid.remove(obj);
+			}
+		}
 
 		if (obj.getClass() == Beacon.class) {
 			beacons.remove((Beacon) obj);
@@ -298,6 +519,11 @@ public class Toroidal2DPhysics {
 		}
 
 		objectsById.remove(obj.getId());
+		if (obj.getLifecycleListener() == this) {
+			obj.setLifecycleListener(null);
+		}
+
+		simulationIds.remove(obj);
 	}
 
 	/**
@@ -310,6 +536,19 @@ public class Toroidal2DPhysics {
 		return objectsById.get(id);
 	}
 
+	/**
+	 * Return an object by its simulation id (faster than the UUID version since
+	 * nothing is hashed or boxed).  Simulation ids are never given to a different
+	 * object in the same game, so an id kept for an object that has left the space
+	 * returns null.
+	 * 
+	 * @param simulationId
+	 * @return the object or null if no object in the space has the id
+	 */
+	public AbstractObject getObjectById(int simulationId) {
+		return simulationIds.get(simulationId);
+	}
+
 	/**
 	 * Return the list of asteroids
 	 * 
@@ -423,16 +662,20 @@ public class Toroidal2DPhysics {
 	 * 
 	 * @param rand   Random number generator
 	 * @param radius the radius around the new location that must be free
-	 * @return
+	 * @return the location or null if there is no room anywhere in the space
 	 */
 	public Position getRandomFreeLocation(Random rand, int radius) {
-		Position randLocation = new Position(rand.nextFloat() * width, rand.nextFloat() * height);
+		FreeSpaceIndex index = getPlacementIndex();
 
-		while (!isLocationFree(randLocation, radius)) {
-			randLocation = new Position(rand.nextFloat() * width, rand.nextFloat() * height);
+		for (int attempt = 0; attempt < MAX_RANDOM_PLACEMENT_ATTEMPTS; attempt++) {
+			Position randLocation = new Position(rand.nextFloat() * width, rand.nextFloat() * height);
+			if (index.isFree(randLocation.getX(), randLocation.getY(), radius)) {
+				return randLocation;
+			}
 		}
 
-		return randLocation;
+		return findFreeLocationByCells(rand, index, radius, halfWidth, halfHeight, halfWidth, halfHeight,
+				Double.POSITIVE_INFINITY);
 	}
 
 	/**
@@ -440,34 +683,37 @@ public class Toroidal2DPhysics {
 	 * 
 	 * @param rand       Random number generator
 	 * @param freeRadius the radius around the object that must be free
-	 * @return
+	 * @return the location or null if there is no room within maxDistance of the center
 	 */
 	public Position getRandomFreeLocationInRegion(Random rand, int freeRadius, int centerX, int centerY,
 			double maxDistance) {
+		FreeSpaceIndex index = getPlacementIndex();
 		Position centerPosition = new Position(centerX, centerY);
-		double newX = ((2 * rand.nextDouble()) - 1) * maxDistance + centerX;
-		double newY = ((2 * rand.nextDouble()) - 1) * maxDistance + centerY;
-		Position randLocation = new Position(newX, newY);
-		toroidalWrap(randLocation);
-
-		while (!isLocationFree(randLocation, freeRadius)
-				|| findShortestDistance(centerPosition, randLocation) > maxDistance) {
-			newX = ((2 * rand.nextDouble()) - 1) * maxDistance + centerX;
-			newY = ((2 * rand.nextDouble()) - 1) * maxDistance + centerY;
-			randLocation = new Position(newX, newY);
+
+		for (int attempt = 0; attempt < MAX_RANDOM_PLACEMENT_ATTEMPTS; attempt++) {
+			double newX = ((2 * rand.nextDouble()) - 1) * maxDistance + centerX;
+			double newY = ((2 * rand.nextDouble()) - 1) * maxDistance + centerY;
+			Position randLocation = new Position(newX, newY);
 			toroidalWrap(randLocation);
+
+			if (index.isFree(randLocation.getX(), randLocation.getY(), freeRadius)
+					&& findShortestDistance(centerPosition, randLocation) <= maxDistance) {
+				return randLocation;
+			}
 		}
 
-		return randLocation;
+		return findFreeLocationByCells(rand, index, freeRadius, centerX, centerY, maxDistance, maxDistance,
+				maxDistance);
 	}
 
 	/**
 	 * Returns a new random free location inside the specified box of space
 	 * 
 	 * @param rand Random number generator
-	 * @return
+	 * @return the location or null if there is no room in the box
 	 */
 	public Position getRandomFreeLocationInRegion(Random rand, int freeRadius, int ULX, int ULY, int LRX, int LRY) {
+		FreeSpaceIndex index = getPlacementIndex();
 		int boxWidth = LRX - ULX;
 		int boxHeight = LRY - ULY;
 
@@ -477,34 +723,145 @@ public class Toroidal2DPhysics {
 
 		Position centerPosition = new Position(boxWidth / 2 + ULX, boxHeight / 2 + ULY);
 		// System.out.println("Center position is " + centerPosition);
-		double newX = ((2 * rand.nextDouble()) - 1) * (boxWidth / 2.0) + centerPosition.getX();
-		double newY = ((2 * rand.nextDouble()) - 1) * (boxHeight / 2.0) + centerPosition.getY();
-		Position randLocation = new Position(newX, newY);
-		toroidalWrap(randLocation);
-
-		while (!isLocationFree(randLocation, freeRadius)) {
-			newX = ((2 * rand.nextDouble()) - 1) * (boxWidth / 2.0) + centerPosition.getX();
-			newY = ((2 * rand.nextDouble()) - 1) * (boxHeight / 2.0) + centerPosition.getY();
-			randLocation = new Position(newX, newY);
+		for (int attempt = 0; attempt < MAX_RANDOM_PLACEMENT_ATTEMPTS; attempt++) {
+			double newX = ((2 * rand.nextDouble()) - 1) * (boxWidth / 2.0) + centerPosition.getX();
+			double newY = ((2 * rand.nextDouble()) - 1) * (boxHeight / 2.0) + centerPosition.getY();
+			Position randLocation = new Position(newX, newY);
 			toroidalWrap(randLocation);
+
+			if (index.isFree(randLocation.getX(), randLocation.getY(), freeRadius)) {
+				// System.out.println("random location chosen is " + randLocation);
+				return randLocation;
+			}
+		}
+
+		return findFreeLocationByCells(rand, index, freeRadius, centerPosition.getX(), centerPosition.getY(),
+				boxWidth / 2.0, boxHeight / 2.0, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Find a free location by checking a region cell by cell.  This is used when
+	 * random locations keep landing on objects (the space is crowded), and it ends
+	 * the search instead of trying forever.  A cell is only used if every point in
+	 * it is free, so the location that is returned is always free.
+	 * 
+	 * @param rand
+	 * @param index        the objects to stay away from
+	 * @param freeRadius   the radius around the location that must be free
+	 * @param centerX      the center of the region
+	 * @param centerY
+	 * @param regionHalfWidth  half the width of the box around the center
+	 * @param regionHalfHeight half the height of the box around the center
+	 * @param maxDistance  the location must also be this close to the center
+	 * @return a free location or null if there are no free cells in the region
+	 */
+	private Position findFreeLocationByCells(Random rand, FreeSpaceIndex index, int freeRadius, double centerX,
+			double centerY, double regionHalfWidth, double regionHalfHeight, double maxDistance) {
+		// the region can't be bigger than the space (it would see the same cells twice)
+		regionHalfWidth = Math.min(regionHalfWidth, halfWidth);
+		regionHalfHeight = Math.min(regionHalfHeight, halfHeight);
+
+		double cellSize = Math.max(freeRadius, MIN_PLACEMENT_CELL_SIZE);
+		double halfDiagonal = cellSize * Math.sqrt(0.5);
+		int numCellsX = (int) Math.floor(2 * regionHalfWidth / cellSize);
+		int numCellsY = (int) Math.floor(2 * regionHalfHeight / cellSize);
+		double left = centerX - regionHalfWidth;
+		double top = centerY - regionHalfHeight;
+
+		// every point of a cell is free if its center is free by an extra half diagonal
+		int[] freeCells = new int[Math.max(0, numCellsX * numCellsY)];
+		int numFreeCells = 0;
+		for (int cellY = 0; cellY < numCellsY; cellY++) {
+			for (int cellX = 0; cellX < numCellsX; cellX++) {
+				double x = left + (cellX + 0.5) * cellSize;
+				double y = top + (cellY + 0.5) * cellSize;
+				if (Math.hypot(x - centerX, y - centerY) + halfDiagonal > maxDistance) {
+					continue;
+				}
+
+				Position cellCenter = new Position(x, y);
+				toroidalWrap(cellCenter);
+				if (index.isFree(cellCenter.getX(), cellCenter.getY(), freeRadius + halfDiagonal)) {
+					freeCells[numFreeCells++] = cellY * numCellsX + cellX;
+				}
+			}
+		}
+
+		if (numFreeCells == 0) {
+			return null;
 		}
 
-		// System.out.println("random location chosen is " + randLocation);
-		return randLocation;
+		int cell = freeCells[rand.nextInt(numFreeCells)];
+		double x = left + ((cell % numCellsX) + rand.nextDouble()) * cellSize;
+		double y = top + ((cell / numCellsX) + rand.nextDouble()) * cellSize;
+		Position location = new Position(x, y);
+		toroidalWrap(location);
+		return location;
 	}
 
 	/**
-	 * Is the specified location free (within the specified radius)?
+	 * Returns the index of the objects used to find free locations.  A snapshot
+	 * never changes so it can use its query index.  Otherwise the same placement
+	 * grid is kept for the life of the space: objects are added to and removed
+	 * from it as they are added to and removed from the space, and the objects
+	 * that moved are moved in it only when a location is needed after something
+	 * moved.  If some object is not in kinematics (its Position belongs to another
+	 * space), its moves can't be seen, so a new index is made each time.
+	 * 
+	 * @return
+	 */
+	FreeSpaceIndex getPlacementIndex() {
+		if (isSnapshot) {
+			return getQueryIndex();
+		}
+		if (kinematics.size() != allObjects.size()) {
+			return new SpatialQueryIndex(allObjects, width, height);
+		}
+
+		if (placementGrid == null) {
+			placementGrid = new PlacementGrid(allObjects, width, height, allObjects.size());
+		} else if (placementVersion != kinematics.getPositionVersion()) {
+			placementGrid.update();
+		}
+		placementVersion = kinematics.getPositionVersion();
+		return placementGrid;
+	}
+
+	/**
+	 * Get ready to place many objects at once (laying out a new game) by making
+	 * the placement grid (see getPlacementIndex) big enough for all of them, so
+	 * placing each object only looks at the objects near it.  Placing n objects
+	 * then takes about n steps instead of n squared.  The locations chosen are
+	 * the same as without the grid (the same random numbers are used in the same
+	 * way).
+	 * 
+	 * @param expectedObjects about how many objects will be in the space when done
+	 */
+	public void startBulkPlacement(int expectedObjects) {
+		checkWritable();
+		placementGrid = new PlacementGrid(allObjects, width, height, expectedObjects);
+		placementVersion = kinematics.getPositionVersion();
+	}
+
+	/**
+	 * Is the specified location free (within the specified radius)?  This is
+	 * answered by the placement index (see getPlacementIndex), so only the objects
+	 * near the location are looked at.
 	 * 
 	 * @param location
 	 * @param radius
 	 * @return true if the location is free and false otherwise
 	 */
 	public boolean isLocationFree(Position location, int radius) {
+		if (isSnapshot || kinematics.size() == allObjects.size()) {
+			return getPlacementIndex().isFree(location.getX(), location.getY(), radius);
+		}
+
+		// some object is not in kinematics so the placement index would be made just
+		// for this one question (see getPlacementIndex)
 		for (AbstractObject object : allObjects) {
 			// fixed bug where it only checked radius and not diameter
-			if (findShortestDistanceVector(object.getPosition(), location)
-					.getMagnitude() <= (radius + (2 * object.getRadius()))) {
+			if (findShortestDistance(object.getPosition(), location) <= (radius + (2 * object.getRadius()))) {
 				return false;
 			}
 		}
@@ -536,8 +893,143 @@ public class Toroidal2DPhysics {
 	 *         location1 to location2)
 	 */
 	public double findShortestDistance(Position location1, Position location2) {
-		Vector2D shortDist = findShortestDistanceVector(location1, location2, width, height, halfWidth, halfHeight);
-		return shortDist.getMagnitude();
+		return Math.sqrt(findShortestDistanceSquared(location1, location2));
+	}
+
+	/**
+	 * Find the square of the shortest toroidal distance from one location to
+	 * another (no vector is made and no square root is taken, so this is the
+	 * cheapest way to compare distances)
+	 * 
+	 * @param location1
+	 * @param location2
+	 * @return the shortest distance squared
+	 */
+	public double findShortestDistanceSquared(Position location1, Position location2) {
+		double x = wrapDistance(location2.getX() - location1.getX(), width, halfWidth);
+		double y = wrapDistance(location2.getY() - location1.getY(), height, halfHeight);
+		return x * x + y * y;
+	}
+
+	/**
+	 * Find the shortest toroidal distance vector from one location to another
+	 * without making a new vector. The x part is written to distance[0] and the y
+	 * part to distance[1].
+	 * 
+	 * @param location1
+	 * @param location2
+	 * @param distance  an array of at least two numbers to hold the result
+	 */
+	public void findShortestDistanceVector(Position location1, Position location2, double[] distance) {
+		distance[0] = wrapDistance(location2.getX() - location1.getX(), width, halfWidth);
+		distance[1] = wrapDistance(location2.getY() - location1.getY(), height, halfHeight);
+	}
+
+	/**
+	 * Take the shorter way around the torus along one axis
+	 * 
+	 * @param distance the distance without wrapping
+	 * @param size     the width or height of the space
+	 * @param halfSize half of the size
+	 * @return
+	 */
+	private static double wrapDistance(double distance, float size, float halfSize) {
+		if (distance > halfSize) {
+			return distance - size;
+		} else if (distance < -halfSize) {
+			return distance + size;
+		} else {
+			return distance;
+		}
+	}
+
+	/**
+	 * Returns the object of the given type whose center is nearest to the location
+	 * (using the shortest toroidal distance). For example
+	 * findNearest(ship.getPosition(), Beacon.class) returns the nearest beacon.
+	 * 
+	 * @param location
+	 * @param type     the class of objects to look for (AbstractObject.class for
+	 *                 any object)
+	 * @return the nearest object or null if there are no objects of that type
+	 */
+	public <T extends AbstractObject> T findNearest(Position location, Class<T> type) {
+		return findNearestMatching(location, type, null);
+	}
+
+	/**
+	 * Returns the object of the given type that passes the test and whose center is
+	 * nearest to the location (using the shortest toroidal distance). If two objects
+	 * are exactly as far away, the one that comes first in getAllObjects() is
+	 * returned.
+	 * 
+	 * @param location
+	 * @param type      the class of objects to look for
+	 * @param predicate the test the object has to pass (null to accept every
+	 *                  object of the type)
+	 * @return the nearest matching object or null if nothing matches
+	 */
+	public <T extends AbstractObject> T findNearestMatching(Position location, Class<T> type,
+			Predicate<? super T> predicate) {
+		return type.cast(getQueryIndex().findNearest(location.getX(), location.getY(), type, predicate));
+	}
+
+	/**
+	 * Returns the k objects of the given type whose centers are nearest to the
+	 * location (using the shortest toroidal distance)
+	 * 
+	 * @param location
+	 * @param k        the number of objects to return
+	 * @param type     the class of objects to look for
+	 * @return the objects sorted from nearest to furthest (fewer than k if there
+	 *         are not enough objects of that type)
+	 */
+	public <T extends AbstractObject> List<T> findKNearest(Position location, int k, Class<T> type) {
+		AbstractObject[] nearest = getQueryIndex().findKNearest(location.getX(), location.getY(), k, type, null);
+		List<T> nearestList = new ArrayList<T>(nearest.length);
+		for (AbstractObject object : nearest) {
+			nearestList.add(type.cast(object));
+		}
+		return nearestList;
+	}
+
+	/**
+	 * Returns all of the objects of the given type whose centers are within the
+	 * radius of the location (using the shortest toroidal distance)
+	 * 
+	 * @param location
+	 * @param radius
+	 * @param type     the class of objects to look for
+	 * @return the objects sorted from nearest to furthest
+	 */
+	public <T extends AbstractObject> List<T> findObjectsWithinRadius(Position location, double radius,
+			Class<T> type) {
+		AbstractObject[] found = getQueryIndex().findWithinRadius(location.getX(), location.getY(), radius, type,
+				null);
+		List<T> foundList = new ArrayList<T>(found.length);
+		for (AbstractObject object : found) {
+			foundList.add(type.cast(object));
+		}
+		return foundList;
+	}
+
+	/**
+	 * Returns the index used by the queries, building it if the space has changed
+	 * since it was last built.  Adding or removing an object throws the index away
+	 * (see invalidateSnapshot) and so does moving any object in kinematics, which
+	 * covers copies of the space that a client moves objects around in.  If some
+	 * object is not in kinematics (its Position belongs to another space), its
+	 * moves can't be seen, so the index is built again for every query.
+	 * 
+	 * @return
+	 */
+	synchronized SpatialQueryIndex getQueryIndex() {
+		if (queryIndex == null || queryIndexVersion != kinematics.getPositionVersion()
+				|| kinematics.size() != allObjects.size()) {
+			queryIndex = new SpatialQueryIndex(allObjects, width, height);
+			queryIndexVersion = kinematics.getPositionVersion();
+		}
+		return queryIndex;
 	}
 
 	/**
@@ -555,37 +1047,16 @@ public class Toroidal2DPhysics {
 	 */
 	private Vector2D findShortestDistanceVector(Position location1, Position location2, float width, float height,
 			float halfWidth, float halfHeight) {
-		double x = location2.getX() - location1.getX();
-		double y = location2.getY() - location1.getY();
-		if (x > halfWidth) {
-			if (y > halfHeight) {
-				return new Vector2D(x - width, y - height);
-			} else if (y < -halfHeight) {
-				return new Vector2D(x - width, y + height);
-			} else {
-				return new Vector2D(x - width, y);
-			}
-		} else if (x < -halfWidth) {
-			if (y > halfHeight) {
-				return new Vector2D(x + width, y - height);
-			} else if (y < -halfHeight) {
-				return new Vector2D(x + width, y + height);
-			} else {
-				return new Vector2D(x + width, y);
-			}
-		} else if (y > halfHeight) {
-			return new Vector2D(x, y - height);
-		} else if (y < -halfHeight) {
-			return new Vector2D(x, y + height);
-		} else {
-			return new Vector2D(x, y);
-		}
+		return new Vector2D(wrapDistance(location2.getX() - location1.getX(), width, halfWidth),
+				wrapDistance(location2.getY() - location1.getY(), height, halfHeight));
 	}
 
 	/**
 	 * Move all moveable objects and handle power ups.
 	 */
 	public void advanceTime(Random rand, int currentTimeStep, Map<UUID, SpaceSettlersPowerupEnum> powerups) {
+		checkWritable();
+		invalidateSnapshot();
 
 		this.currentTimeStep = currentTimeStep;
 
@@ -594,8 +1065,13 @@ public class Toroidal2DPhysics {
 			base.updateEnergy(base.getHealingIncrement());
 		}
 
+		long phaseStartTime = System.nanoTime();
+
 		// detect collisions across all objects
 		detectCollisions();
+		if (profiler != null) {
+			phaseStartTime = profiler.endPhase(StepProfiler.Phase.COLLISIONS, phaseStartTime);
+		}
 
 		// get the power ups and create any objects (weapons) as necessary
 		for (UUID key : powerups.keySet()) {
@@ -611,7 +1087,23 @@ public class Toroidal2DPhysics {
 			handlePowerup((AbstractActionableObject) swobject, powerups.get(key));
 		}
 
-		// now move all objects that are moveable (which may include weapons)
+		// the actions of each team see the team's read-only copy of the space (taken
+		// after the collisions and power ups and before anything moves)
+		invalidateSnapshot();
+
+		// keep objects that are close in space close in memory
+		if (currentTimeStep % REORDER_INTERVAL == 0) {
+			kinematics.reorder(width, height);
+		}
+
+		// ask the actions of all of the ships and drones for their movements (in
+		// the same order as the loop below)
+		Movement[] movements = getActionMovements();
+		int movementIndex = 0;
+
+		// now move all objects that are moveable (which may include weapons).  Ships
+		// and drones are moved here and everything else is marked to be moved by one
+		// sweep over the kinematic store after the loop.
 		for (AbstractObject object : allObjects) {
 			// skip non-moveable objects or dead object
 			if (!object.isMoveable() || !object.isAlive()) {
@@ -622,34 +1114,17 @@ public class Toroidal2DPhysics {
 
 			if (object instanceof Drone) { // herr0861 edit
 				Drone drone = (Drone) object;
-				if (drone.getCurrentAction() == null) {
-					drone.setCurrentAction(this.deepClone());
-				}
-
-				AbstractAction action = drone.getCurrentAction();
+				Movement actionMovement = movements[movementIndex++];
 
-				// AbstractAction action = drone.getDroneAction(this.deepClone());
-
-				if (action == null) {
-					action = new DoNothingAction(); // This should never happen, but I'll keep it just in case.
-					System.out.println("Drone doing nothing!");
+				// move the drone in place (and put it back if the movement was invalid)
+				double oldX = currentPosition.getX(), oldY = currentPosition.getY();
+				double oldOrientation = currentPosition.getOrientation();
+				double oldXVelocity = currentPosition.getxVelocity(), oldYVelocity = currentPosition.getyVelocity();
+				double oldAngularVelocity = currentPosition.getAngularVelocity();
+				applyMovementInPlace(currentPosition, actionMovement, timeStep);
 
-				}
-
-				/*
-				 * Don't actually need to clone this since the user can't modify it, but might
-				 * as well to be consistent because maybe in the future people will be allowed
-				 * to specify behavior for the drone.
-				 */
-
-				Movement actionMovement = action.getMovement(this.deepClone(), drone.deepClone());
-
-				Position newPosition = applyMovement(currentPosition, actionMovement, timeStep);
-
-				if (newPosition.isValid()) {
-					drone.setPosition(newPosition);
-				} else {
-					newPosition = currentPosition;
+				if (!currentPosition.isValid()) {
+					restorePosition(currentPosition, oldX, oldY, oldOrientation, oldXVelocity, oldYVelocity, oldAngularVelocity);
 				}
 
 				// spend ship energy proportional to its acceleration (old formula used
@@ -658,12 +1133,12 @@ public class Toroidal2DPhysics {
 				// to be based on movement command, no result)
 				// double penalty = ENERGY_PENALTY *
 				// -Math.abs(ship.getPosition().getTotalTranslationalVelocity());
-				double angularAccel = Math.abs(currentPosition.getAngularVelocity() - newPosition.getAngularVelocity())
+				double angularAccel = Math.abs(oldAngularVelocity - currentPosition.getAngularVelocity())
 						/ timeStep;
 				double angularInertia = (3.0 * drone.getMass() * drone.getRadius() * angularAccel) / 2.0;
 				//double linearAccel = Math.abs(currentPosition.getTranslationalVelocity().getMagnitude()
 				//		- newPosition.getTranslationalVelocity().getMagnitude()) / timeStep;
-				double linearAccel = currentPosition.getTranslationalVelocity().subtract(newPosition.getTranslationalVelocity()).getMagnitude() / timeStep;
+				double linearAccel = velocityChange(oldXVelocity, oldYVelocity, currentPosition) / timeStep;
 				double linearInertia = drone.getMass() * linearAccel;
 				int penalty = (int) Math.floor(0.7 * ENERGY_PENALTY * (angularInertia + linearInertia));
 				drone.updateEnergy(-penalty);
@@ -671,27 +1146,17 @@ public class Toroidal2DPhysics {
 			} else if (object.isControllable() && !(object instanceof Drone)) {
 
 				Ship ship = (Ship) object;
-				AbstractAction action = ship.getCurrentAction();
+				Movement actionMovement = movements[movementIndex++];
 
-				// handle a null action
-				if (action == null) {
-					action = new DoNothingAction();
-				}
-
-				// need to clone the ship and space because otherwise the ship can affect
-				// itself inside AbstractAction
-				Movement actionMovement = action.getMovement(this.deepClone(), ship.deepClone());
-
-				Vector2D currentVelocity = currentPosition.getTranslationalVelocity();
-				double currentAngularVelocity = currentPosition.getAngularVelocity();
-				Position newPosition = applyMovement(currentPosition, actionMovement, timeStep);
+				// move the ship in place (and put it back if the movement was invalid)
+				double oldX = currentPosition.getX(), oldY = currentPosition.getY();
+				double oldOrientation = currentPosition.getOrientation();
+				double oldXVelocity = currentPosition.getxVelocity(), oldYVelocity = currentPosition.getyVelocity();
+				double oldAngularVelocity = currentPosition.getAngularVelocity();
+				applyMovementInPlace(currentPosition, actionMovement, timeStep);
 
-				// System.out.println("The old position is: [" + currentPosition + "] and the
-				// new position is: [" + newPosition);
-				if (newPosition.isValid()) {
-					ship.setPosition(newPosition);
-				} else {
-					newPosition = currentPosition;
+				if (!currentPosition.isValid()) {
+					restorePosition(currentPosition, oldX, oldY, oldOrientation, oldXVelocity, oldYVelocity, oldAngularVelocity);
 				}
 
 				// spend ship energy proportional to its acceleration (old formula used
@@ -700,10 +1165,10 @@ public class Toroidal2DPhysics {
 				// to be based on movement command, no result)
 				// double penalty = ENERGY_PENALTY *
 				// -Math.abs(ship.getPosition().getTotalTranslationalVelocity());
-				double angularAccel = Math.abs(currentPosition.getAngularVelocity() - newPosition.getAngularVelocity())
+				double angularAccel = Math.abs(oldAngularVelocity - currentPosition.getAngularVelocity())
 						/ timeStep;
 				double angularInertia = (3.0 * ship.getMass() * ship.getRadius() * angularAccel) / 2.0;
-				double linearAccel = currentPosition.getTranslationalVelocity().subtract(newPosition.getTranslationalVelocity()).getMagnitude() / timeStep;
+				double linearAccel = velocityChange(oldXVelocity, oldYVelocity, currentPosition) / timeStep;
 				double linearInertia = ship.getMass() * linearAccel;
 				int penalty = (int) Math.floor(ENERGY_PENALTY * (angularInertia + linearInertia));
 				ship.updateEnergy(-penalty);
@@ -720,12 +1185,11 @@ public class Toroidal2DPhysics {
 
 			} else {
 				// move all other types of objects
-				Position newPosition = moveOneTimestep(currentPosition);
-				object.setPosition(newPosition);
-				if (object instanceof Flag && Double.isNaN(newPosition.getX())) {
-					System.out.println("alive: " + object.isAlive() + " draw: " + object.isDrawable() + " old pos is "
-							+ currentPosition + " new position is " + newPosition);
-					System.exit(-1);
+				int slot = kinematics.getSlot(currentPosition);
+				if (slot >= 0) {
+					kinematics.setIntegrated(slot, true);
+				} else {
+					moveOneTimestepInPlace(currentPosition);
 				}
 			}
 
@@ -736,10 +1200,25 @@ public class Toroidal2DPhysics {
 			}
 
 		}
+		kinematics.integrate(timeStep, width, height);
 
-		// go through and see if any bases have died
-		Set<Base> basesClone = new LinkedHashSet<Base>(bases);
-		for (Base base : basesClone) {
+		for (Flag flag : flags) {
+			if (flag.isMoveable() && flag.isAlive() && !flag.isControllable()
+					&& Double.isNaN(flag.getPosition().getX())) {
+				throw new IllegalStateException("Flag moved to a NaN position: alive: " + flag.isAlive()
+						+ " draw: " + flag.isDrawable() + " new position is " + flag.getPosition());
+			}
+		}
+
+		// everything moved so the locations in the query index are out of date
+		invalidateSnapshot();
+		if (profiler != null) {
+			phaseStartTime = profiler.endPhase(StepProfiler.Phase.MOVEMENT, phaseStartTime);
+		}
+
+		// go through and see if any bases have died (they are removed after the loop)
+		List<Base> deadBases = new ArrayList<Base>();
+		for (Base base : bases) {
 			// this isn't the most general fix but it will work for now (also has to be done
 			// for bases)
 			if (base.isShielded()) {
@@ -747,37 +1226,46 @@ public class Toroidal2DPhysics {
 			}
 
 			if (!base.isAlive()) {
-				// if the base died, increment kill and assist count
-				Ship killShip = base.getKillTagTeam();
-				Ship assistShip = base.getAssistTagTeam();
-
-				if (killShip != null) killShip.incrementKillsInflicted();
-				if (assistShip != null) assistShip.incrementAssistsInflicted();
-				base.incrementKillsReceived();
-				
-				base.setAlive(false);
-				removeObject(base);
-				base.getTeam().removeBase(base);
+				deadBases.add(base);
 			}
 		}
 
-		Set<Drone> dronesClone = new LinkedHashSet<Drone>(drones);
-		for (Drone drone : dronesClone) {
+		for (Base base : deadBases) {
+			// if the base died, increment kill and assist count
+			Ship killShip = base.getKillTagTeam();
+			Ship assistShip = base.getAssistTagTeam();
+
+			if (killShip != null) killShip.incrementKillsInflicted();
+			if (assistShip != null) assistShip.incrementAssistsInflicted();
+			base.incrementKillsReceived();
+			
+			base.setAlive(false);
+			removeObject(base);
+			base.getTeam().removeBase(base);
+		}
+
+		// find the drones that have died (they are removed after the loop)
+		List<Drone> deadDrones = new ArrayList<Drone>();
+		for (Drone drone : drones) {
 			if (drone.getEnergy() <= 0 && drone.isAlive() == true) {// drone has died
-				// if the drone died, increment kill and assist count
-				Ship killShip = drone.getKillTagTeam();
-				Ship assistShip = drone.getAssistTagTeam();
+				deadDrones.add(drone);
+			}
+		}
 
-				if (killShip != null) killShip.incrementKillsInflicted();
-				if (assistShip != null) assistShip.incrementAssistsInflicted();
+		for (Drone drone : deadDrones) {
+			// if the drone died, increment kill and assist count
+			Ship killShip = drone.getKillTagTeam();
+			Ship assistShip = drone.getAssistTagTeam();
 
-				
-				drone.setDeadAndDropObjects(rand, this); // kill the drone dropping the flag and all resources, but no
-															// core. Should we make it have a chance to drop an AiCore?
-															// Probably not.
-				removeObject(drone);
-				drone.getTeam().removeDrone(drone);
-			}
+			if (killShip != null) killShip.incrementKillsInflicted();
+			if (assistShip != null) assistShip.incrementAssistsInflicted();
+
+			
+			drone.setDeadAndDropObjects(rand, this); // kill the drone dropping the flag and all resources, but no
+														// core. Should we make it have a chance to drop an AiCore?
+														// Probably not.
+			removeObject(drone);
+			drone.getTeam().removeDrone(drone);
 		}
 
 		// and see if any ships have died. Doing this here removes unintential side
@@ -799,12 +1287,15 @@ public class Toroidal2DPhysics {
 				// Spawn a new AiCore with the same velocity magnitude and direction as its
 				// parent ship.
 				// handle dropping the core if the ship died
+				// (no core is dropped if there is no room for one near the ship)
 				Position corePosition = this.getRandomFreeLocationInRegion(rand, AiCore.CORE_RADIUS,
 						(int) ship.getPosition().getX(), (int) ship.getPosition().getY(), 200);
-				corePosition.setTranslationalVelocity(ship.getPosition().getTranslationalVelocity());
-				corePosition.setAngularVelocity(ship.getPosition().getAngularVelocity());
-				AiCore shipCore = new AiCore(corePosition, ship.getTeamName(), ship.getTeamColor());
-				this.addObject(shipCore);
+				if (corePosition != null) {
+					corePosition.setTranslationalVelocity(ship.getPosition().getTranslationalVelocity());
+					corePosition.setAngularVelocity(ship.getPosition().getAngularVelocity());
+					AiCore shipCore = new AiCore(corePosition, ship.getTeamName(), ship.getTeamColor());
+					this.addObject(shipCore);
+				}
 
 				// drop any resources that the ship was carrying - this was commented out due to
 				// creating giant piles of resources
@@ -840,6 +1331,12 @@ public class Toroidal2DPhysics {
 		for (Ship ship : ships) {
 			ship.updateTags();
 		}
+
+		// everything has moved so the copy the actions used is stale now
+		invalidateSnapshot();
+		if (profiler != null) {
+			profiler.endPhase(StepProfiler.Phase.DEATHS, phaseStartTime);
+		}
 	}
 
 	/**
@@ -851,17 +1348,8 @@ public class Toroidal2DPhysics {
 	 * @param resources
 	 */
 	private void distributeResourcesToNearbyAsteroids(Position position, ResourcePile resources) {
-		double nearestDistance = Double.MAX_VALUE;
-		Asteroid nearestAsteroid = null;
-
 		// first find the nearest asteroid
-		for (Asteroid asteroid : asteroids) {
-			double dist = findShortestDistance(position, asteroid.getPosition());
-			if (dist < nearestDistance) {
-				nearestDistance = dist;
-				nearestAsteroid = asteroid;
-			}
-		}
+		Asteroid nearestAsteroid = findNearest(position, Asteroid.class);
 
 		// if it is mineable, just add the resources
 		nearestAsteroid.addResources(resources);
@@ -937,12 +1425,12 @@ public class Toroidal2DPhysics {
 	}
 
 	/**
-	 * Advances one time step using the set velocities
+	 * Advances one time step using the set velocities (changing the position
+	 * that was passed in)
 	 * 
-	 * @param currentPosition
-	 * @return
+	 * @param position
 	 */
-	private Position moveOneTimestep(Position position) {
+	private void moveOneTimestepInPlace(Position position) {
 		double angularVelocity = position.getAngularVelocity();
 		double orientation = position.getOrientation() + (angularVelocity * timeStep);
 		if (Double.isNaN(angularVelocity) || Double.isNaN(position.getTotalTranslationalVelocity())) {
@@ -957,14 +1445,36 @@ public class Toroidal2DPhysics {
 		}
 
 		// new x,y coordinates
-		double newX = position.getX() + (position.getTranslationalVelocityX() * timeStep);
-		double newY = position.getY() + (position.getTranslationalVelocityY() * timeStep);
+		position.setX(position.getX() + (position.getxVelocity() * timeStep));
+		position.setY(position.getY() + (position.getyVelocity() * timeStep));
+		position.setOrientation(orientation);
+		toroidalWrap(position);
+	}
 
-		Position newPosition = new Position(newX, newY, orientation);
-		newPosition.setAngularVelocity(angularVelocity);
-		newPosition.setTranslationalVelocity(position.getTranslationalVelocity());
-		toroidalWrap(newPosition);
-		return newPosition;
+	/**
+	 * Put a position back the way it was
+	 */
+	private void restorePosition(Position position, double x, double y, double orientation, double xVelocity,
+			double yVelocity, double angularVelocity) {
+		position.setX(x);
+		position.setY(y);
+		position.setOrientation(orientation);
+		position.setTranslationalVelocity(xVelocity, yVelocity);
+		position.setAngularVelocity(angularVelocity);
+	}
+
+	/**
+	 * The size of the change from the old velocity to the velocity of the position
+	 * 
+	 * @param oldXVelocity
+	 * @param oldYVelocity
+	 * @param position
+	 * @return
+	 */
+	private double velocityChange(double oldXVelocity, double oldYVelocity, Position position) {
+		double xChange = oldXVelocity - position.getxVelocity();
+		double yChange = oldYVelocity - position.getyVelocity();
+		return Math.sqrt(xChange * xChange + yChange * yChange);
 	}
 
 	/**
@@ -972,11 +1482,16 @@ public class Toroidal2DPhysics {
 	 * call the collision handler for those objects. Sometimes you bounce
 	 * (asteroids) and sometimes you pick the object up (beacons), etc.
 	 */
-	private void detectCollisions() {
+	void detectCollisions() {
+		if (useSpatialHashCollisions) {
+			detectCollisionsWithSpatialHash();
+			return;
+		}
+
 		// would prefer to iterate over the set (as this is inefficient) but
 		// the set iterator collides a with b and then b with a, allowing them to
 		// pass through one another!
-		AbstractObject[] allObjectsArray = (AbstractObject[]) allObjects.toArray(new AbstractObject[allObjects.size()]);
+		AbstractObject[] allObjectsArray = allObjects.toArray(new AbstractObject[allObjects.size()]);
 
 		// loop through all pairs of objects and see if they are colliding
 		for (int i = 0; i < allObjectsArray.length; i++) {
@@ -1006,35 +1521,213 @@ public class Toroidal2DPhysics {
 		}
 	}
 
+	/**
+	 * Finds the same collisions as detectCollisions (in the same order) but puts
+	 * every object into a grid first so that each object is only checked against
+	 * the objects in the grid cells it overlaps. If a collision moves one of the
+	 * objects, the grid (and the list of objects left to check) is updated so that
+	 * the result matches checking every pair.
+	 */
+	private void detectCollisionsWithSpatialHash() {
+		AbstractObject[] allObjectsArray = allObjects.toArray(new AbstractObject[allObjects.size()]);
+		int numObjects = allObjectsArray.length;
+
+		if (collisionGrid == null) {
+			collisionGrid = new SpatialHashGrid();
+			collisionCandidates = new int[16];
+		}
+
+		// aim for about one object per cell but never make a cell smaller than a
+		// typical object (the big ones are just stored in more than one cell)
+		// (and find the object in each slot of the kinematic store)
+		if (objectForSlot == null || objectForSlot.length < kinematics.size()) {
+			objectForSlot = new int[Math.max(16, 2 * kinematics.size())];
+		}
+		Arrays.fill(objectForSlot, 0, kinematics.size(), -1);
+		double totalRadius = 0;
+		for (int i = 0; i < numObjects; i++) {
+			AbstractObject object = allObjectsArray[i];
+			totalRadius += object.getRadius();
+			int slot = kinematics.getSlot(object.getPosition());
+			if (slot >= 0) {
+				kinematics.setRadius(slot, object.getRadius());
+				objectForSlot[slot] = i;
+			}
+		}
+		double averageRadius = (numObjects > 0) ? totalRadius / numObjects : 1;
+		double cellSize = Math.max(2 * averageRadius, Math.sqrt(((double) width * height) / Math.max(1, numObjects)));
+		collisionGrid.reset(width, height, cellSize, numObjects);
+
+		// fill the grid straight from the arrays of the kinematic store (the order
+		// does not matter since the grid sorts the results of each query)
+		for (int slot = 0; slot < kinematics.size(); slot++) {
+			int i = objectForSlot[slot];
+			if (i >= 0) {
+				collisionGrid.insert(i, kinematics.getX(slot), kinematics.getY(slot), kinematics.getRadius(slot));
+			}
+		}
+		for (int i = 0; i < numObjects; i++) {
+			Position position = allObjectsArray[i].getPosition();
+			if (kinematics.getSlot(position) < 0) {
+				collisionGrid.insert(i, position.getX(), position.getY(), allObjectsArray[i].getRadius());
+			}
+		}
+
+		for (int i = 0; i < numObjects; i++) {
+			AbstractObject object1 = allObjectsArray[i];
+			if (!object1.isAlive()) {
+				continue;
+			}
+
+			// only look at the objects after this one (like the all pairs loop)
+			int numCandidates = findCollisionCandidates(object1, i + 1);
+
+			for (int c = 0; c < numCandidates; c++) {
+				int j = collisionCandidates[c];
+				AbstractObject object2 = allObjectsArray[j];
+
+				if (!object2.isAlive()) {
+					continue;
+				}
+
+				// skip them if they are the same object
+				if (object1.equals(object2)) {
+					continue;
+				}
+
+				Position position1 = object1.getPosition();
+				Position position2 = object2.getPosition();
+				double distance = findShortestDistance(position1, position2);
+
+				if (distance < (object1.getRadius() + object2.getRadius())) {
+					double x1 = position1.getX(), y1 = position1.getY();
+					double x2 = position2.getX(), y2 = position2.getY();
+					int radius1 = object1.getRadius(), radius2 = object2.getRadius();
+
+					collisionHandler.collide(object1, object2, this);
+
+					// collisions can move the objects so keep the grid up to date
+					if (hasMoved(object2, x2, y2, radius2)) {
+						collisionGrid.move(j, object2.getPosition().getX(), object2.getPosition().getY(),
+								object2.getRadius());
+					}
+
+					if (hasMoved(object1, x1, y1, radius1)) {
+						collisionGrid.move(i, object1.getPosition().getX(), object1.getPosition().getY(),
+								object1.getRadius());
+						// the rest of the objects to check depend on where object1 is now
+						numCandidates = findCollisionCandidates(object1, j + 1);
+						c = -1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fill collisionCandidates with the (sorted) indices of the objects that might
+	 * be touching the specified object
+	 * 
+	 * @param object   the object being checked
+	 * @param minIndex the smallest index to consider
+	 * @return the number of candidates found
+	 */
+	private int findCollisionCandidates(AbstractObject object, int minIndex) {
+		// pad the search by a pixel so rounding at the cell edges can't hide a
+		// collision (the distance is always checked exactly afterwards)
+		Position position = object.getPosition();
+		int numCandidates = collisionGrid.query(position.getX(), position.getY(), object.getRadius() + 1, minIndex);
+
+		if (collisionCandidates.length < numCandidates) {
+			collisionCandidates = new int[Math.max(numCandidates, 2 * collisionCandidates.length)];
+		}
+		System.arraycopy(collisionGrid.results, 0, collisionCandidates, 0, numCandidates);
+		return numCandidates;
+	}
+
+	/**
+	 * Did the object move (or change size) since the location was recorded?
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @return true if the object is no longer at x,y with the given radius
+	 */
+	private boolean hasMoved(AbstractObject object, double x, double y, int radius) {
+		Position position = object.getPosition();
+		return position.getX() != x || position.getY() != y || object.getRadius() != radius;
+	}
+
+	/**
+	 * Choose the way that collisions are detected (see ALL_PAIRS_COLLISIONS and
+	 * SPATIAL_HASH_COLLISIONS). Anything that is not SpatialHash (including null)
+	 * tests all pairs.
+	 * 
+	 * @param collisionDetection the name of the collision detection method
+	 */
+	public void setCollisionDetection(String collisionDetection) {
+		useSpatialHashCollisions = SPATIAL_HASH_COLLISIONS.equalsIgnoreCase(collisionDetection);
+	}
+
+	/**
+	 * Return the name of the collision detection method in use
+	 * 
+	 * @return
+	 */
+	public String getCollisionDetection() {
+		if (useSpatialHashCollisions) {
+			return SPATIAL_HASH_COLLISIONS;
+		} else {
+			return ALL_PAIRS_COLLISIONS;
+		}
+	}
+
 	/**
 	 * Takes an acceleration and a simulation time step and moves the object
 	 * 
 	 * @param actionMovement
 	 * @param timeStep
-	 * @return
+	 * @return a new position (the position passed in is not changed)
 	 */
 	public Position applyMovement(Position position, Movement movement, double timeStep) {
+		Position newPosition = position.deepCopy();
+		applyMovementInPlace(newPosition, movement, timeStep);
+		return newPosition;
+	}
+
+	/**
+	 * Takes an acceleration and a simulation time step and moves the object,
+	 * changing the position that was passed in (used by the physics so that moving
+	 * an object does not make any new objects)
+	 * 
+	 * @param position the position to change
+	 * @param movement
+	 * @param timeStep
+	 */
+	public void applyMovementInPlace(Position position, Movement movement, double timeStep) {
 		Vector2D translationalAcceleration = movement.getTranslationalAcceleration();
 		double angularAccel = movement.getAngularAccleration();
 
 		// velocity is acceleration times time
-		Vector2D translationalVelocity = position.getTranslationalVelocity().add(new Vector2D(
-				translationalAcceleration.getXValue() * timeStep, translationalAcceleration.getYValue() * timeStep));
+		double xVelocity = position.getxVelocity() + translationalAcceleration.getXValue() * timeStep;
+		double yVelocity = position.getyVelocity() + translationalAcceleration.getYValue() * timeStep;
 		double angularVelocity = position.getAngularVelocity() + (angularAccel * timeStep);
 
 		// ensure the max/mins are respected
-		if (translationalVelocity.getMagnitude() > MAX_TRANSLATIONAL_VELOCITY) {
-			double ratio = translationalVelocity.getMagnitude() / MAX_TRANSLATIONAL_VELOCITY;
-			translationalVelocity = translationalVelocity.multiply(1 / ratio);
+		double speed = Math.sqrt(xVelocity * xVelocity + yVelocity * yVelocity);
+		if (speed > MAX_TRANSLATIONAL_VELOCITY) {
+			double ratio = speed / MAX_TRANSLATIONAL_VELOCITY;
+			xVelocity = xVelocity * (1 / ratio);
+			yVelocity = yVelocity * (1 / ratio);
 		}
 
 		angularVelocity = checkAngularVelocity(angularVelocity);
 
-		Position newPosition = new Position(position.getX(), position.getY(), position.getOrientation());
-		newPosition.setTranslationalVelocity(translationalVelocity);
-		newPosition.setAngularVelocity(angularVelocity);
+		position.setTranslationalVelocity(xVelocity, yVelocity);
+		position.setAngularVelocity(angularVelocity);
 
-		return moveOneTimestep(newPosition);
+		moveOneTimestepInPlace(position);
 	}
 
 	/**
@@ -1059,6 +1752,11 @@ public class Toroidal2DPhysics {
 	 * @param position
 	 */
 	public void toroidalWrap(Position position) {
+		// almost everything is already inside the space
+		if (position.getX() >= 0 && position.getX() < width && position.getY() >= 0 && position.getY() < height) {
+			return;
+		}
+
 		while (position.getX() < 0) {
 			position.setX(position.getX() + width);
 		}
@@ -1072,12 +1770,20 @@ public class Toroidal2DPhysics {
 	}
 
 	/**
-	 * Respawns any dead objects in new random locations. Ships have a delay before
-	 * they can respawn.  Asteroids do not respawn (they are re-created later randomly)
+	 * Respawns the dead objects that are due in new random locations. Ships have a
+	 * delay before they can respawn.  Asteroids do not respawn (they are re-created
+	 * later randomly).  Only objects lined up by cleanupDeadObjects are respawned,
+	 * so call that first.
 	 */
 	public void respawnDeadObjects(Random random) {
-		for (AbstractObject object : allObjects) {
-			if (!object.isAlive() && object.canRespawn()) {
+		checkWritable();
+		invalidateSnapshot();
+		respawningObjects.addAll(respawnTimers.removeDue(respawnStep));
+		respawnStep++;
+
+		for (AbstractObject object : respawningObjects) {
+			// skip objects that came back some other way or left the space while waiting
+			if (!object.isAlive() && object.canRespawn() && isInSpace(object)) {
 				Position newPosition = null;
 
 				// flags should re-spawn at a randomly chosen starting location
@@ -1096,6 +1802,12 @@ public class Toroidal2DPhysics {
 					newPosition = getRandomFreeLocation(random, object.getRadius() * 4);
 				}
 
+				// if there is no room, try again on the next step
+				if (newPosition == null) {
+					respawnTimers.schedule(object, respawnStep);
+					continue;
+				}
+
 				object.setPosition(newPosition);
 				object.setAlive(true);
 				object.setDrawable(true);
@@ -1106,7 +1818,7 @@ public class Toroidal2DPhysics {
 				}
 			}
 		}
-
+		respawningObjects.clear();
 	}
 
 	/**
@@ -1128,77 +1840,376 @@ public class Toroidal2DPhysics {
 	}
 
 	/**
-	 * Loop through all weapons and remove any dead ones
+	 * Returns a read-only copy of the space for one team.  The copy is only built
+	 * once and then reused by all of the callbacks and actions of the team until
+	 * the simulator changes the space again, which saves a full deepClone for
+	 * every team callback and every ship or drone action.
+	 * 
+	 * Nothing in the copy can be changed: adding or removing objects, advancing
+	 * time and every method that changes an object, its Position or its
+	 * ResourcePile throw an UnsupportedOperationException (see
+	 * AbstractObject.makeReadOnly).  So every callback and action of a team sees
+	 * exactly the same copy, and the copy never shares objects with the real
+	 * simulation or with the copies of the other teams.  Use deepClone on the
+	 * snapshot (or on one of its objects) if you want a private copy that you can
+	 * change (e.g. for search).
+	 * 
+	 * @param teamName the team the copy is for
+	 * @return the read-only copy of this space for the team
+	 */
+	public synchronized Toroidal2DPhysics getSnapshot(String teamName) {
+		if (isSnapshot) {
+			return this;
+		}
+
+		if (snapshots == null) {
+			snapshots = new HashMap<String, Toroidal2DPhysics>();
+		}
+		Toroidal2DPhysics snapshot = snapshots.get(teamName);
+		if (snapshot == null) {
+			snapshot = deepClone();
+			snapshot.freeze();
+			snapshots.put(teamName, snapshot);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Returns a read-only copy of the space that isn't given to any team (for the
+	 * simulator's own use, see getSnapshot(String))
+	 * 
+	 * @return
+	 */
+	public Toroidal2DPhysics getSnapshot() {
+		return getSnapshot("");
+	}
+
+	/**
+	 * Throw away the read-only copies of the space. This must be called whenever
+	 * the space (or an object in it) is changed outside of the physics engine so
+	 * the teams do not see stale information.
+	 */
+	public synchronized void invalidateSnapshot() {
+		snapshots = null;
+		queryIndex = null;
+	}
+
+	/**
+	 * Get the movement of every ship and drone that will move this step (in the
+	 * order of allObjects).  If there are movement workers the actions of each team
+	 * are asked one after the other on the team's own thread, all of the teams at
+	 * the same time, and the ships whose actions have not returned when the
+	 * movement timeout is up don't move.  Otherwise they are asked one at a time on
+	 * this thread.  Each action is given the read-only copy of the space of its own
+	 * team (which is only used by one thread at a time).
+	 * 
+	 * @return
 	 */
-	public void cleanupDeadWeapons() {
-		ArrayList<AbstractObject> deadObjects = new ArrayList<AbstractObject>();
+	private Movement[] getActionMovements() {
+		final List<AbstractAction> actions = new ArrayList<AbstractAction>();
+		final List<AbstractActionableObject> clones = new ArrayList<AbstractActionableObject>();
+		final List<Toroidal2DPhysics> teamSpaces = new ArrayList<Toroidal2DPhysics>();
+		List<String> teamNames = new ArrayList<String>();
+
 		for (AbstractObject object : allObjects) {
-			if (object instanceof AbstractWeapon && !object.isAlive()) {
-				deadObjects.add(object);
+			if (!object.isMoveable() || !object.isAlive()) {
+				continue;
+			}
+
+			if (object instanceof Drone) { // herr0861 edit
+				Drone drone = (Drone) object;
+				Toroidal2DPhysics teamSpace = getSnapshot(drone.getTeamName());
+				if (drone.getCurrentAction() == null) {
+					drone.setCurrentAction(teamSpace);
+				}
+
+				AbstractAction action = drone.getCurrentAction();
+
+				// AbstractAction action = drone.getDroneAction(this.deepClone());
+
+				if (action == null) {
+					action = new DoNothingAction(); // This should never happen, but I'll keep it just in case.
+					System.out.println("Drone doing nothing!");
+
+				}
+
+				/*
+				 * Don't actually need to clone this since the user can't modify it, but might
+				 * as well to be consistent because maybe in the future people will be allowed
+				 * to specify behavior for the drone.
+				 */
+				actions.add(action);
+				clones.add(drone.deepClone());
+				teamSpaces.add(teamSpace);
+				teamNames.add(drone.getTeamName());
+
+			} else if (object.isControllable()) {
+				Ship ship = (Ship) object;
+				AbstractAction action = ship.getCurrentAction();
+
+				// handle a null action
+				if (action == null) {
+					action = new DoNothingAction();
+				}
+
+				// need to clone the ship because otherwise the ship can affect
+				// itself inside AbstractAction (the space is already a copy for the team)
+				actions.add(action);
+				clones.add(ship.deepClone());
+				teamSpaces.add(getSnapshot(ship.getTeamName()));
+				teamNames.add(ship.getTeamName());
 			}
 		}
 
-		for (AbstractObject deadObject : deadObjects) {
-			removeObject(deadObject);
+		Movement[] movements = new Movement[actions.size()];
+		if (movementWorkers == null) {
+			for (int i = 0; i < movements.length; i++) {
+				movements[i] = getActionMovement(actions.get(i), teamSpaces.get(i), clones.get(i));
+			}
+			return movements;
 		}
 
+		// the actions of each team (in the order of allObjects)
+		Map<String, List<Integer>> teamActions = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < movements.length; i++) {
+			List<Integer> indices = teamActions.get(teamNames.get(i));
+			if (indices == null) {
+				indices = new ArrayList<Integer>();
+				teamActions.put(teamNames.get(i), indices);
+			}
+			indices.add(i);
+		}
+
+		final AtomicReferenceArray<Movement> teamMovements = new AtomicReferenceArray<Movement>(movements.length);
+		Map<String, Future<?>> futures = new LinkedHashMap<String, Future<?>>();
+		for (String teamName : teamActions.keySet()) {
+			final List<Integer> indices = teamActions.get(teamName);
+			Future<?> future = movementWorkers.submit(teamName, new Runnable() {
+				public void run() {
+					for (int i : indices) {
+						if (Thread.currentThread().isInterrupted()) {
+							return;
+						}
+						try {
+							// a movement that comes in after the timeout is not used
+							teamMovements.compareAndSet(i, null, getActionMovement(actions.get(i), teamSpaces.get(i), clones.get(i)));
+						} catch (RuntimeException e) {
+							// the action crashed so the ship does not move
+							e.printStackTrace();
+						}
+					}
+				}
+			});
+			if (future == null) {
+				System.err.println(teamName + " is still stuck in an action that timed out, its ships don't move");
+			} else {
+				futures.put(teamName, future);
+			}
+		}
+
+		// every team gets the same time from when they were all started
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(movementTimeout);
+		for (String teamName : futures.keySet()) {
+			Future<?> future = futures.get(teamName);
+			try {
+				future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				// the actions took too long so the ships without a movement don't move
+				stopTeamMovements(teamName, teamActions.get(teamName), teamMovements);
+				System.err.println(teamName + " timed out in getMovement");
+			} catch (InterruptedException e) {
+				stopTeamMovements(teamName, teamActions.get(teamName), teamMovements);
+				e.printStackTrace();
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+
+		for (int i = 0; i < movements.length; i++) {
+			movements[i] = teamMovements.get(i);
+			if (movements[i] == null) {
+				movements[i] = new Movement();
+			}
+		}
+		return movements;
 	}
 
 	/**
-	 * Loop through all cores and remove any dead ones
+	 * Give the ships of a team that timed out no movement (unless their actions
+	 * already returned) and replace the thread of the team
+	 * 
+	 * @param teamName
+	 * @param indices the actions of the team
+	 * @param teamMovements
 	 */
-	public void cleanupDeadCores() {
-		ArrayList<AbstractObject> deadObjects = new ArrayList<AbstractObject>();
+	private void stopTeamMovements(String teamName, List<Integer> indices, AtomicReferenceArray<Movement> teamMovements) {
+		for (int i : indices) {
+			teamMovements.compareAndSet(i, null, new Movement());
+		}
+		movementWorkers.replaceHungWorker(teamName);
+	}
 
-		for (AiCore core : cores) {
-			if (!core.isAlive()) {
-				deadObjects.add(core);
-			}
+	/**
+	 * Ask an action for the movement of a (copy of a) ship or drone
+	 * 
+	 * @param action
+	 * @param teamSpace the read-only copy of the space of the team
+	 * @param clone
+	 * @return
+	 */
+	private Movement getActionMovement(AbstractAction action, Toroidal2DPhysics teamSpace,
+			AbstractActionableObject clone) {
+		long startTime = System.nanoTime();
+		Movement movement;
+		if (clone instanceof Drone) {
+			movement = action.getMovement(teamSpace, (Drone) clone);
+		} else {
+			movement = action.getMovement(teamSpace, (Ship) clone);
 		}
+		if (profiler != null) {
+			profiler.recordAction(action.getClass().getSimpleName(), System.nanoTime() - startTime);
+		}
+		return movement;
+	}
 
-		for (AbstractObject deadObject : deadObjects) {
-			removeObject(deadObject);
+	/**
+	 * Ask the actions of each team for their movements on a thread of the team
+	 * (set by the simulator).  With no timeout the actions are asked one at a time
+	 * on the simulator thread and can take as long as they like.
+	 * 
+	 * @param movementTimeout how long the actions get each step (in milliseconds)
+	 *                        or 0 for no timeout
+	 */
+	public void setMovementTimeout(int movementTimeout) {
+		shutdownMovementWorkers();
+		this.movementTimeout = movementTimeout;
+		if (movementTimeout > 0) {
+			movementWorkers = new MovementWorkers();
 		}
+	}
 
+	/**
+	 * Stop the threads that ask the actions for their movements (called at the end
+	 * of the game)
+	 */
+	public void shutdownMovementWorkers() {
+		if (movementWorkers != null) {
+			movementWorkers.shutdown();
+			movementWorkers = null;
+		}
 	}
 
 	/**
-	 * Loop through all drones and remove any dead ones. herr0861 edit
+	 * Time the parts of advanceTime (set by the simulator)
+	 * 
+	 * @param profiler the profiler or null to stop timing
 	 */
-	public void cleanupDeadDrones() {
-		ArrayList<AbstractObject> deadObjects = new ArrayList<AbstractObject>();
+	public void setProfiler(StepProfiler profiler) {
+		this.profiler = profiler;
+	}
 
-		for (Drone drone : drones) {
-			if (!drone.isAlive()) {
-				deadObjects.add(drone);
-			}
+	/**
+	 * Is this space a read-only snapshot?
+	 * 
+	 * @return true if this space is a read-only snapshot and false otherwise
+	 */
+	public boolean isSnapshot() {
+		return isSnapshot;
+	}
+
+	/**
+	 * Make this space and every object in it read-only (used only on snapshots)
+	 */
+	private void freeze() {
+		isSnapshot = true;
+		for (AbstractObject object : allObjects) {
+			// the clients keep objects from old snapshots (such as the goal of a move),
+			// which must not keep the whole snapshot (and its objects) alive
+			object.setLifecycleListener(null);
+			object.makeReadOnly();
 		}
+		allObjects = Collections.unmodifiableSet(allObjects);
+		beacons = Collections.unmodifiableSet(beacons);
+		asteroids = Collections.unmodifiableSet(asteroids);
+		cores = Collections.unmodifiableSet(cores);
+		bases = Collections.unmodifiableSet(bases);
+		ships = Collections.unmodifiableSet(ships);
+		drones = Collections.unmodifiableSet(drones);
+		flags = Collections.unmodifiableSet(flags);
+		weapons = Collections.unmodifiableSet(weapons);
+		teamInfo = Collections.unmodifiableSet(teamInfo);
+	}
 
-		for (AbstractObject deadObject : deadObjects) {
-			removeObject(deadObject);
+	/**
+	 * Ensure that the space can be changed (snapshots are read-only)
+	 */
+	private void checkWritable() {
+		if (isSnapshot) {
+			throw new UnsupportedOperationException("This space is a read-only snapshot of the simulation");
 		}
 	}
 
 	/**
-	 * Loop through all asteroids and remove any dead ones
+	 * Hear that an object in this space died (see ObjectLifecycleListener).  It
+	 * is dealt with in the next cleanupDeadObjects.
+	 * 
+	 * @param object
 	 */
-	public int cleanupAllAndCountMineableDeadAsteroids() {
-		ArrayList<AbstractObject> deadObjects = new ArrayList<AbstractObject>();
+	public void objectDied(AbstractObject object) {
+		// the snapshots of the clients don't clean up their dead objects
+		if (!isSnapshot) {
+			deadObjects.add(object);
+		}
+	}
+
+	/**
+	 * Is the object in this space?  This looks up the object by its simulation id
+	 * instead of asking allObjects since respawned beacons get new UUIDs (and so
+	 * new hash codes).
+	 * 
+	 * @param object
+	 * @return
+	 */
+	private boolean isInSpace(AbstractObject object) {
+		return simulationIds.contains(object);
+	}
+
+	/**
+	 * Go through the objects that died since the last call and remove the dead
+	 * weapons, cores, drones and asteroids.  The other dead objects that can
+	 * respawn are lined up for respawnDeadObjects (right away or after their
+	 * respawn delay).  This only costs as much as the number of deaths.
+	 * 
+	 * @return the number of mineable asteroids that were removed
+	 */
+	public int cleanupDeadObjects() {
+		checkWritable();
 		int numMineable = 0;
 
-		for (Asteroid asteroid : asteroids) {
-			if (!asteroid.isAlive()) {
-				deadObjects.add(asteroid);
-				if (asteroid.isMineable()) {
+		for (AbstractObject object : deadObjects) {
+			// skip objects that came back to life or already left the space
+			if (object.isAlive() || !isInSpace(object)) {
+				continue;
+			}
+
+			if (object instanceof AbstractWeapon || object instanceof AiCore || object instanceof Drone) {
+				removeObject(object);
+			} else if (object instanceof Asteroid) {
+				if (((Asteroid) object).isMineable()) {
 					numMineable++;
 				}
+				removeObject(object);
+			} else if (object.canRespawn()) {
+				int delay = object.getRespawnDelay();
+				if (delay <= 0) {
+					respawningObjects.add(object);
+				} else {
+					respawnTimers.schedule(object, respawnStep + delay);
+				}
 			}
 		}
+		deadObjects.clear();
 
-		for (AbstractObject deadObject : deadObjects) {
-			removeObject(deadObject);
-		}
-		
 		// return the number of mineable ones that were removed
 		return numMineable;
 	}
@@ -1285,6 +2296,8 @@ public class Toroidal2DPhysics {
 	 * @param teamInfo
 	 */
 	public void setTeamInfo(Set<ImmutableTeamInfo> teamInfo) {
+		checkWritable();
+		invalidateSnapshot();
 		this.teamInfo = teamInfo;
 	}
 
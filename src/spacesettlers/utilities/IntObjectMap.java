@@ -0,0 +1,225 @@
+package spacesettlers.utilities;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A map from non-negative integers to values that is stored in two arrays (an
+ * open addressing hash table), so nothing is boxed and a lookup usually looks at
+ * a single slot.  It is meant to be keyed by the simulation id of objects (see
+ * AbstractObject.getSimulationId), which are never given out twice in a game,
+ * so it only takes room for the keys that are in it.  Team clients can use it
+ * instead of a HashMap keyed by UUID.
+ *
+ * @param <V> the type of the values
+ */
+public class IntObjectMap<V> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Marks a slot with no key
+	 */
+	static final int EMPTY = -1;
+
+	/**
+	 * The key in each slot (EMPTY if the slot is free)
+	 */
+	int[] keys;
+
+	/**
+	 * The value in each slot
+	 */
+	Object[] values;
+
+	/**
+	 * Number of keys in the map
+	 */
+	int size;
+
+	/**
+	 * Make an empty map
+	 */
+	public IntObjectMap() {
+		this(16);
+	}
+
+	/**
+	 * Make an empty map with room for about this many keys before it grows
+	 *
+	 * @param expectedSize
+	 */
+	public IntObjectMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity < 2 * expectedSize) {
+			capacity *= 2;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new Object[capacity];
+	}
+
+	/**
+	 * The slot a key starts looking from (the capacity is a power of two)
+	 */
+	private int firstSlot(int key) {
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (keys.length - 1);
+	}
+
+	/**
+	 * Find the slot of a key
+	 *
+	 * @param key
+	 * @return the slot or -1 if the key is not in the map
+	 */
+	private int findSlot(int key) {
+		if (key < 0) {
+			return -1;
+		}
+		int mask = keys.length - 1;
+		for (int slot = firstSlot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param key
+	 * @return the value for the key or null if it is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int slot = findSlot(key);
+		return (slot < 0) ? null : (V) values[slot];
+	}
+
+	/**
+	 * Set the value for a key
+	 *
+	 * @param key must be non-negative
+	 * @param value must not be null
+	 * @return the old value for the key (or null)
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Keys must be non-negative: " + key);
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("Values must not be null");
+		}
+
+		int mask = keys.length - 1;
+		int slot = firstSlot(key);
+		for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				V oldValue = (V) values[slot];
+				values[slot] = value;
+				return oldValue;
+			}
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		// keep at least half of the slots free so the searches stay short
+		if (2 * size > keys.length) {
+			rehash(2 * keys.length);
+		}
+		return null;
+	}
+
+	/**
+	 * Move every key into new arrays
+	 */
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = firstSlot(oldKeys[i]);
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Take a key out of the map
+	 *
+	 * @param key
+	 * @return the value it had (or null)
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			return null;
+		}
+		V oldValue = (V) values[slot];
+		size--;
+
+		// move the keys after it back so every key can still be found from its first slot
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			int first = firstSlot(keys[next]);
+			// the key can fill the hole if the hole is between its first slot and where it is
+			if (((next - first) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+		}
+		keys[hole] = EMPTY;
+		values[hole] = null;
+		return oldValue;
+	}
+
+	public boolean containsKey(int key) {
+		return findSlot(key) >= 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Empty the map (the storage is kept)
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * @return the keys in the map in increasing order
+	 */
+	public int[] keys() {
+		int[] mapKeys = new int[size];
+		int numKeys = 0;
+		for (int key : keys) {
+			if (key != EMPTY) {
+				mapKeys[numKeys++] = key;
+			}
+		}
+		Arrays.sort(mapKeys);
+		return mapKeys;
+	}
+}
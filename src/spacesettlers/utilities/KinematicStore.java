@@ -0,0 +1,396 @@
+package spacesettlers.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the positions and velocities of all of the objects in a space in
+ * parallel arrays (one slot per object) so the physics can move everything and
+ * build the collision grid with tight loops over arrays instead of following
+ * object to Position to Vector2D pointers.
+ *
+ * A Position that has been added to a store is a view of its slot: its getters
+ * and setters read and write the arrays. When it is removed (or the object gets
+ * a new Position) the values are copied back into the Position, so a Position
+ * that is not in a store works exactly as it always has.
+ *
+ * The slots can be put in the order of a Morton (Z-order) curve over the space
+ * (see reorder) so that objects that are near each other in space are also near
+ * each other in memory.
+ *
+ * The store is only used by the simulator thread (the clients are always given
+ * copies of the space with their own stores).
+ */
+public class KinematicStore {
+	/**
+	 * Number of bits used for each coordinate of the Morton code
+	 */
+	static final int MORTON_BITS = 10;
+
+	/**
+	 * The state of each slot
+	 */
+	double[] x, y, xVelocity, yVelocity, orientation, angularVelocity;
+
+	/**
+	 * The radius of the object in each slot (see setRadius)
+	 */
+	int[] radius;
+
+	/**
+	 * True if the object in the slot is moved by the next integrate (see setIntegrated)
+	 */
+	boolean[] integrated;
+
+	/**
+	 * The Position that is a view of each slot
+	 */
+	Position[] positions;
+
+	/**
+	 * Number of slots in use
+	 */
+	int size;
+
+	/**
+	 * Changes every time a position in the store may have moved (see
+	 * getPositionVersion)
+	 */
+	long positionVersion;
+
+	/**
+	 * Make an empty store
+	 */
+	public KinematicStore() {
+		allocate(64);
+	}
+
+	/**
+	 * Make (or grow) the arrays
+	 *
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		xVelocity = grow(xVelocity, capacity);
+		yVelocity = grow(yVelocity, capacity);
+		orientation = grow(orientation, capacity);
+		angularVelocity = grow(angularVelocity, capacity);
+		radius = (radius == null) ? new int[capacity] : Arrays.copyOf(radius, capacity);
+		integrated = (integrated == null) ? new boolean[capacity] : Arrays.copyOf(integrated, capacity);
+		positions = (positions == null) ? new Position[capacity] : Arrays.copyOf(positions, capacity);
+	}
+
+	private static double[] grow(double[] array, int capacity) {
+		return (array == null) ? new double[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	/**
+	 * Put a position into the store (the position becomes a view of its new slot).
+	 * A position that is already in another store is left where it is (another
+	 * space may be reading it) and is not added.
+	 *
+	 * @param position
+	 * @return the slot or -1 if the position is in another store
+	 */
+	public int add(Position position) {
+		if (position.store == this) {
+			return position.slot;
+		}
+		if (position.store != null) {
+			return -1;
+		}
+
+		if (size == positions.length) {
+			allocate(2 * positions.length);
+		}
+
+		int slot = size++;
+		x[slot] = position.x;
+		y[slot] = position.y;
+		xVelocity[slot] = position.xVelocity;
+		yVelocity[slot] = position.yVelocity;
+		orientation[slot] = position.orientation;
+		angularVelocity[slot] = position.angularVelocity;
+		radius[slot] = 0;
+		integrated[slot] = false;
+		positions[slot] = position;
+		position.store = this;
+		position.slot = slot;
+		return slot;
+	}
+
+	/**
+	 * Take a position out of the store (its values are copied back into it).  The
+	 * last slot is moved into the hole so the slots stay packed.
+	 *
+	 * @param position
+	 */
+	public void remove(Position position) {
+		if (position.store != this) {
+			return;
+		}
+
+		int slot = position.slot;
+		detach(slot);
+
+		int last = size - 1;
+		if (slot != last) {
+			moveSlot(last, slot);
+		}
+		positions[last] = null;
+		size--;
+	}
+
+	/**
+	 * Give the slot of an old position to a new one (used when an object is given a
+	 * new Position).  The old position keeps the values it had.  If the new
+	 * position is already in another store the old one is just removed.
+	 *
+	 * @param oldPosition a position in this store
+	 * @param newPosition the position that takes its place
+	 */
+	public void replace(Position oldPosition, Position newPosition) {
+		if (oldPosition.store != this || oldPosition == newPosition) {
+			return;
+		}
+		if (newPosition.store != null) {
+			remove(oldPosition);
+			return;
+		}
+
+		int slot = oldPosition.slot;
+		detach(slot);
+		x[slot] = newPosition.x;
+		y[slot] = newPosition.y;
+		xVelocity[slot] = newPosition.xVelocity;
+		yVelocity[slot] = newPosition.yVelocity;
+		orientation[slot] = newPosition.orientation;
+		angularVelocity[slot] = newPosition.angularVelocity;
+		positions[slot] = newPosition;
+		newPosition.store = this;
+		newPosition.slot = slot;
+		positionVersion++;
+	}
+
+	/**
+	 * Copy the values of a slot back into its position and stop it being a view
+	 *
+	 * @param slot
+	 */
+	private void detach(int slot) {
+		Position position = positions[slot];
+		position.x = x[slot];
+		position.y = y[slot];
+		position.xVelocity = xVelocity[slot];
+		position.yVelocity = yVelocity[slot];
+		position.orientation = orientation[slot];
+		position.angularVelocity = angularVelocity[slot];
+		position.store = null;
+		position.slot = -1;
+	}
+
+	/**
+	 * Move everything in one slot to another
+	 *
+	 * @param from
+	 * @param to
+	 */
+	private void moveSlot(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+		xVelocity[to] = xVelocity[from];
+		yVelocity[to] = yVelocity[from];
+		orientation[to] = orientation[from];
+		angularVelocity[to] = angularVelocity[from];
+		radius[to] = radius[from];
+		integrated[to] = integrated[from];
+		positions[to] = positions[from];
+		positions[to].slot = to;
+	}
+
+	/**
+	 * @return the number of slots in use
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param position
+	 * @return the slot of the position or -1 if it is not in this store
+	 */
+	public int getSlot(Position position) {
+		return (position.store == this) ? position.slot : -1;
+	}
+
+	/**
+	 * The version of the locations in the store.  It changes whenever a position
+	 * in the store is moved (by its setters, by integrate or by being given a new
+	 * Position), so anything built from the locations can tell if it is still up
+	 * to date.  Adding and removing positions don't change it.
+	 *
+	 * @return
+	 */
+	public long getPositionVersion() {
+		return positionVersion;
+	}
+
+	public double getX(int slot) {
+		return x[slot];
+	}
+
+	public double getY(int slot) {
+		return y[slot];
+	}
+
+	public int getRadius(int slot) {
+		return radius[slot];
+	}
+
+	public Position getPosition(int slot) {
+		return positions[slot];
+	}
+
+	/**
+	 * Set the radius of the object in a slot (the physics does this at the start of
+	 * each step since radii can change)
+	 *
+	 * @param slot
+	 * @param radius
+	 */
+	public void setRadius(int slot, int radius) {
+		this.radius[slot] = radius;
+	}
+
+	/**
+	 * Choose if integrate moves the object in a slot
+	 *
+	 * @param slot
+	 * @param integrated
+	 */
+	public void setIntegrated(int slot, boolean integrated) {
+		this.integrated[slot] = integrated;
+	}
+
+	/**
+	 * Move every slot marked with setIntegrated along its velocity for one time
+	 * step (the same way Toroidal2DPhysics moves objects that aren't controlled)
+	 * and wrap it back into the space.  The marks are cleared so they have to be
+	 * set again before the next step.
+	 *
+	 * @param timeStep
+	 * @param width
+	 * @param height
+	 */
+	public void integrate(double timeStep, float width, float height) {
+		positionVersion++;
+		for (int slot = 0; slot < size; slot++) {
+			if (!integrated[slot]) {
+				continue;
+			}
+			integrated[slot] = false;
+
+			double angularVel = angularVelocity[slot];
+			double newOrientation = orientation[slot] + (angularVel * timeStep);
+			if (Double.isNaN(angularVel) || Double.isNaN(xVelocity[slot] + yVelocity[slot])) {
+				System.out.println("Help: velocity got set to Nan " + positions[slot]);
+			}
+
+			// make sure orientation wraps correctly (-pi to pi)
+			if (newOrientation > Math.PI) {
+				newOrientation -= (2 * Math.PI);
+			} else if (newOrientation < -Math.PI) {
+				newOrientation += (2 * Math.PI);
+			}
+			orientation[slot] = newOrientation;
+
+			double newX = x[slot] + (xVelocity[slot] * timeStep);
+			double newY = y[slot] + (yVelocity[slot] * timeStep);
+
+			// toroidal wrap (almost everything is already inside the space)
+			if (!(newX >= 0 && newX < width)) {
+				while (newX < 0) {
+					newX += width;
+				}
+				newX = newX % width;
+			}
+			if (!(newY >= 0 && newY < height)) {
+				while (newY < 0) {
+					newY += height;
+				}
+				newY = newY % height;
+			}
+			x[slot] = newX;
+			y[slot] = newY;
+		}
+	}
+
+	/**
+	 * Put the slots in the order of a Morton (Z-order) curve over the space so
+	 * objects that are close together are stored close together
+	 *
+	 * @param width
+	 * @param height
+	 */
+	public void reorder(float width, float height) {
+		// sort the morton code and the old slot packed together into one long
+		long[] keys = new long[size];
+		int cells = 1 << MORTON_BITS;
+		for (int slot = 0; slot < size; slot++) {
+			int cellX = Math.min(cells - 1, Math.max(0, (int) (x[slot] / width * cells)));
+			int cellY = Math.min(cells - 1, Math.max(0, (int) (y[slot] / height * cells)));
+			keys[slot] = ((long) interleave(cellX, cellY) << 32) | slot;
+		}
+		Arrays.sort(keys);
+
+		KinematicStore sorted = new KinematicStore();
+		sorted.allocate(positions.length);
+		for (int i = 0; i < size; i++) {
+			int slot = (int) keys[i];
+			sorted.x[i] = x[slot];
+			sorted.y[i] = y[slot];
+			sorted.xVelocity[i] = xVelocity[slot];
+			sorted.yVelocity[i] = yVelocity[slot];
+			sorted.orientation[i] = orientation[slot];
+			sorted.angularVelocity[i] = angularVelocity[slot];
+			sorted.radius[i] = radius[slot];
+			sorted.integrated[i] = integrated[slot];
+			sorted.positions[i] = positions[slot];
+			positions[slot].slot = i;
+		}
+
+		x = sorted.x;
+		y = sorted.y;
+		xVelocity = sorted.xVelocity;
+		yVelocity = sorted.yVelocity;
+		orientation = sorted.orientation;
+		angularVelocity = sorted.angularVelocity;
+		radius = sorted.radius;
+		integrated = sorted.integrated;
+		positions = sorted.positions;
+	}
+
+	/**
+	 * Interleave the bits of two cell coordinates into a Morton code
+	 *
+	 * @param cellX
+	 * @param cellY
+	 * @return
+	 */
+	static int interleave(int cellX, int cellY) {
+		return spreadBits(cellX) | (spreadBits(cellY) << 1);
+	}
+
+	/**
+	 * Put a zero between each of the low 16 bits of a number
+	 */
+	private static int spreadBits(int value) {
+		value &= 0xFFFF;
+		value = (value | (value << 8)) & 0x00FF00FF;
+		value = (value | (value << 4)) & 0x0F0F0F0F;
+		value = (value | (value << 2)) & 0x33333333;
+		value = (value | (value << 1)) & 0x55555555;
+		return value;
+	}
+}
@@ -1,19 +1,47 @@
 package spacesettlers.utilities;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 /**
  * Position in space (x,y,orientation)
  * @author amy
  *
  */
-public class Position {
+public class Position implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	double x, y, orientation, angularVelocity;
-	Vector2D velocity;
+
+	/**
+	 * The translational velocity (kept as numbers so the physics can change it
+	 * without making a new vector every step)
+	 */
+	double xVelocity, yVelocity;
+
+	/**
+	 * If not null, this position is a view of a slot in the store of a space and
+	 * the values above are only used once it leaves the store (see KinematicStore)
+	 */
+	transient KinematicStore store;
+
+	/**
+	 * The slot in the store
+	 */
+	transient int slot = -1;
+
+	/**
+	 * True if the position belongs to an object in a read-only snapshot of a space
+	 * (see AbstractObject.makeReadOnly)
+	 */
+	boolean isReadOnly;
 
 	public Position(double x, double y) {
 		super();
 		this.x = x;
 		this.y = y;
-		velocity = new Vector2D();
 	}
 
 	public Position(double x, double y, double orientation) {
@@ -21,7 +49,6 @@ public class Position {
 		this.x = x;
 		this.y = y;
 		this.orientation = orientation;
-		velocity = new Vector2D();
 	}
 	
 	public Position(Vector2D vec) {
@@ -29,79 +56,162 @@ public class Position {
 		this.x = vec.getXValue();
 		this.y = vec.getYValue();
 		orientation = 0;
-		velocity = new Vector2D();
 	}
 	
+	/**
+	 * Make a copy (the copy is never in a store)
+	 * 
+	 * @return
+	 */
 	public Position deepCopy() {
-		Position newPosition = new Position(x, y, orientation);
-		newPosition.velocity = new Vector2D(velocity);
-		newPosition.angularVelocity = angularVelocity;
+		Position newPosition = new Position(getX(), getY(), getOrientation());
+		newPosition.xVelocity = getxVelocity();
+		newPosition.yVelocity = getyVelocity();
+		newPosition.angularVelocity = getAngularVelocity();
 		
 		return newPosition;
 	}
 
+	/**
+	 * Give the place of this position in its store (if it has one) to a new
+	 * position.  Called when an object in a space is given a new position.
+	 * 
+	 * @param newPosition
+	 */
+	public void replaceWith(Position newPosition) {
+		checkWritable();
+		if (store != null) {
+			store.replace(this, newPosition);
+		}
+	}
+
 	public double getX() {
-		return x;
+		return (store == null) ? x : store.x[slot];
 	}
 
 	public double getY() {
-		return y;
+		return (store == null) ? y : store.y[slot];
 	}
 
 	public double getOrientation() {
-		return orientation;
+		return (store == null) ? orientation : store.orientation[slot];
 	}
 	
 	public void setX(double x) {
-		this.x = x;
+		checkWritable();
+		if (store == null) {
+			this.x = x;
+		} else {
+			store.x[slot] = x;
+			store.positionVersion++;
+		}
 	}
 
 	public void setY(double y) {
-		this.y = y;
+		checkWritable();
+		if (store == null) {
+			this.y = y;
+		} else {
+			store.y[slot] = y;
+			store.positionVersion++;
+		}
 	}
 
 	public double getTotalTranslationalVelocity() {
-		return velocity.getTotal();
+		return getxVelocity() + getyVelocity();
 	}
 	
 	public double getTranslationalVelocityX() {
-		return velocity.getXValue();
+		return getxVelocity();
 	}
 	
 	public double getTranslationalVelocityY() {
-		return velocity.getYValue();
+		return getyVelocity();
 	}
 	
+	/**
+	 * Returns a new vector with the translational velocity (use getxVelocity and
+	 * getyVelocity to avoid making the vector)
+	 * 
+	 * @return
+	 */
 	public Vector2D getTranslationalVelocity() {
-		return velocity;
+		return new Vector2D(getxVelocity(), getyVelocity());
 	}
 	
 	public void setTranslationalVelocity(Vector2D newVel) {
-		this.velocity = newVel;
+		checkWritable();
+		setTranslationalVelocity(newVel.getXValue(), newVel.getYValue());
+	}
+
+	public void setTranslationalVelocity(double xVelocity, double yVelocity) {
+		checkWritable();
+		if (store == null) {
+			this.xVelocity = xVelocity;
+			this.yVelocity = yVelocity;
+		} else {
+			store.xVelocity[slot] = xVelocity;
+			store.yVelocity[slot] = yVelocity;
+		}
 	}
 	
 	public double getAngularVelocity() {
-		return angularVelocity;
+		return (store == null) ? angularVelocity : store.angularVelocity[slot];
 	}
 	
 	public void setOrientation(double orientation) {
-		this.orientation = orientation;
+		checkWritable();
+		if (store == null) {
+			this.orientation = orientation;
+		} else {
+			store.orientation[slot] = orientation;
+		}
 	}
 	
 	public double getxVelocity() {
-		return velocity.getXValue();
+		return (store == null) ? xVelocity : store.xVelocity[slot];
 	}
 
 	public double getyVelocity() {
-		return velocity.getYValue();
+		return (store == null) ? yVelocity : store.yVelocity[slot];
 	}
 
 	public void setAngularVelocity(double angularVelocity) {
-		this.angularVelocity = angularVelocity;
+		checkWritable();
+		if (store == null) {
+			this.angularVelocity = angularVelocity;
+		} else {
+			store.angularVelocity[slot] = angularVelocity;
+		}
+	}
+
+	/**
+	 * Make the position read-only (its setters then throw an
+	 * UnsupportedOperationException).  A deepCopy can be changed.
+	 */
+	public void makeReadOnly() {
+		isReadOnly = true;
+	}
+
+	/**
+	 * Is this position read-only (see makeReadOnly)?
+	 * 
+	 * @return
+	 */
+	public boolean isReadOnly() {
+		return isReadOnly;
+	}
+
+	private void checkWritable() {
+		if (isReadOnly) {
+			throw new UnsupportedOperationException(
+					"This position is part of a read-only snapshot of the simulation (use deepCopy to get a copy that can be changed)");
+		}
 	}
 
 	public String toString() {
-		String str = "(" + x + " , " + y + ", " + orientation + ") velocity: " + velocity + ", " + angularVelocity;
+		String str = "(" + getX() + " , " + getY() + ", " + getOrientation() + ") velocity: " + getxVelocity() + " "
+				+ getyVelocity() + ", " + getAngularVelocity();
 		return str;
 	}
 	
@@ -112,7 +222,7 @@ public class Position {
 	 * @return
 	 */
 	public boolean equalsLocationOnly(Position newPosition) {
-		if (newPosition.getX() == x && newPosition.getY() == y) {
+		if (newPosition.getX() == getX() && newPosition.getY() == getY()) {
 			return true;
 		} else {
 			return false;
@@ -124,13 +234,35 @@ public class Position {
 	 * @return true if the position is valid (finite and a number, doesn't check world size) and false otherwise 
 	 */
 	public boolean isValid() {
-		if (Double.isFinite(x) && Double.isFinite(y) && 
-				Double.isFinite(angularVelocity) && Double.isFinite(orientation)  &&
-				velocity.isValid()) {
+		if (Double.isFinite(getX()) && Double.isFinite(getY()) && 
+				Double.isFinite(getAngularVelocity()) && Double.isFinite(getOrientation())  &&
+				Double.isFinite(getxVelocity()) && Double.isFinite(getyVelocity())) {
 			return true;
 		} else {
 			return false;
 		}
 	}
 	
-}
\ No newline at end of file
+	/**
+	 * Save the current values (which may be in a store) with the position
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		if (store != null) {
+			x = getX();
+			y = getY();
+			orientation = getOrientation();
+			xVelocity = getxVelocity();
+			yVelocity = getyVelocity();
+			angularVelocity = getAngularVelocity();
+		}
+		out.defaultWriteObject();
+	}
+
+	/**
+	 * A position that was read back in is not in a store
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		slot = -1;
+	}
+}
@@ -0,0 +1,127 @@
+package spacesettlers.utilities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds items until the time step they are due.  Items are kept in a ring of
+ * buckets indexed by their step, so scheduling an item and collecting the items
+ * due on a step only cost as much as the items involved (and not one check of
+ * every waiting item each step).  Items due more than one turn of the ring away
+ * just stay in their bucket until their step comes around.
+ *
+ * The items due on a step are only returned by removeDue for that exact step, so
+ * it has to be called for every step.
+ *
+ * @param <T> the type of the items
+ */
+public class TimerWheel<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * An item and the step it is due on
+	 */
+	static class Timer<T> implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		T item;
+		long step;
+
+		Timer(T item, long step) {
+			this.item = item;
+			this.step = step;
+		}
+	}
+
+	/**
+	 * The timers in each bucket (in the order they were scheduled).  A bucket is
+	 * null until something is scheduled in it, since a space makes a wheel for
+	 * each copy and most copies never schedule anything.
+	 */
+	ArrayList<ArrayList<Timer<T>>> buckets;
+
+	/**
+	 * Number of items waiting
+	 */
+	int size;
+
+	/**
+	 * Make an empty wheel
+	 *
+	 * @param numBuckets number of steps in one turn of the ring (use at least the
+	 * longest usual delay)
+	 */
+	public TimerWheel(int numBuckets) {
+		buckets = new ArrayList<ArrayList<Timer<T>>>(numBuckets);
+		for (int i = 0; i < numBuckets; i++) {
+			buckets.add(null);
+		}
+	}
+
+	/**
+	 * Find the index of the bucket for a step
+	 *
+	 * @param step
+	 * @return
+	 */
+	private int getBucketIndex(long step) {
+		return (int) Math.floorMod(step, (long) buckets.size());
+	}
+
+	/**
+	 * Add an item that is due on a step
+	 *
+	 * @param item
+	 * @param step
+	 */
+	public void schedule(T item, long step) {
+		int index = getBucketIndex(step);
+		ArrayList<Timer<T>> bucket = buckets.get(index);
+		if (bucket == null) {
+			bucket = new ArrayList<Timer<T>>();
+			buckets.set(index, bucket);
+		}
+		bucket.add(new Timer<T>(item, step));
+		size++;
+	}
+
+	/**
+	 * Take out all of the items that are due on a step
+	 *
+	 * @param step
+	 * @return the items in the order they were scheduled
+	 */
+	public List<T> removeDue(long step) {
+		ArrayList<Timer<T>> bucket = buckets.get(getBucketIndex(step));
+		List<T> due = new ArrayList<T>();
+		if (bucket == null || bucket.isEmpty()) {
+			return due;
+		}
+
+		// keep the timers that are due on a later turn of the ring
+		int numWaiting = 0;
+		for (int i = 0; i < bucket.size(); i++) {
+			Timer<T> timer = bucket.get(i);
+			if (timer.step <= step) {
+				due.add(timer.item);
+			} else {
+				bucket.set(numWaiting++, timer);
+			}
+		}
+		bucket.subList(numWaiting, bucket.size()).clear();
+		size -= due.size();
+		return due;
+	}
+
+	/**
+	 * @return the number of items waiting
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+}
@@ -9,8 +9,9 @@ import java.util.Random;
  * 
  * Note, this class comes from the original spacewar code.
  */
-@SuppressWarnings("serial")
 public final class Vector2D implements Serializable, Cloneable {
+	private static final long serialVersionUID = 1L;
+
     private final double x, y;
 
     public static final Vector2D ZERO_VECTOR = new Vector2D();
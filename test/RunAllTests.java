@@ -5,12 +5,20 @@ import spacesettlers.actions.ActionTests;
 import spacesettlers.simulator.SimulatorTests;
 import spacesettlers.utilities.UtilitiesTest;
 import spacesettlers.ladder.TestLadder;
+import spacesettlers.ladder.TestLadderGameCache;
+import spacesettlers.ladder.TestLadderJournal;
+import spacesettlers.ladder.TestLadderWorker;
+import spacesettlers.replay.TestReplay;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
   ActionTests.class,
   SimulatorTests.class,
   TestLadder.class,
+  TestLadderGameCache.class,
+  TestLadderJournal.class,
+  TestLadderWorker.class,
+  TestReplay.class,
   UtilitiesTest.class,
 })
 
@@ -7,6 +7,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
   TestMoveAction.class,
   TestMoveActionWithOrientation.class,
+  TestPurchaseCosts.class,
 })
 
 public class ActionTests {
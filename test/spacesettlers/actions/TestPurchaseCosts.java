@@ -0,0 +1,45 @@
+package spacesettlers.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import spacesettlers.objects.resources.ResourcePile;
+import spacesettlers.objects.resources.ResourceTypes;
+
+public class TestPurchaseCosts {
+
+	/**
+	 * Ensure a copy of the costs does not change when the original costs go up
+	 */
+	@Test
+	public void testDeepCopy() {
+		PurchaseCosts costs = new PurchaseCosts();
+		PurchaseCosts copy = costs.deepCopy();
+
+		costs.doubleCosts(PurchaseTypes.SHIP);
+		assertEquals(2000, costs.getCost(PurchaseTypes.SHIP).getResourceQuantity(ResourceTypes.FUEL));
+		assertEquals(1000, copy.getCost(PurchaseTypes.SHIP).getResourceQuantity(ResourceTypes.FUEL));
+		assertEquals(costs.getCost(PurchaseTypes.BASE).toString(), copy.getCost(PurchaseTypes.BASE).toString());
+	}
+
+	/**
+	 * Ensure every resource has to be covered to afford an item and paying never
+	 * goes below zero
+	 */
+	@Test
+	public void testCanAffordAndPay() {
+		PurchaseCosts costs = new PurchaseCosts();
+		ResourcePile pile = new ResourcePile(250, 300, 449);
+		assertFalse(costs.canAfford(PurchaseTypes.BASE, pile));
+
+		pile.setResources(ResourceTypes.METALS, 460);
+		assertTrue(costs.canAfford(PurchaseTypes.BASE, pile));
+		pile.subtract(costs.getCost(PurchaseTypes.BASE));
+		pile.subtract(costs.getCost(PurchaseTypes.BASE));
+		assertEquals(0, pile.getTotal());
+		assertEquals(0, pile.getMass());
+	}
+}
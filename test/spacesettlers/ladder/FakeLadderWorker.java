@@ -0,0 +1,49 @@
+package spacesettlers.ladder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+/**
+ * Stands in for LadderWorker in the tests of LadderWorkerPool.  It answers every
+ * request at once without playing a game, says it is not healthy for a game
+ * with an index of UNHEALTHY_GAME and never answers a game with an index of
+ * HUNG_GAME.
+ */
+public class FakeLadderWorker {
+	static final int UNHEALTHY_GAME = 100;
+	static final int HUNG_GAME = 200;
+
+	public static void main(String[] args) throws Exception {
+		ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(System.out));
+		output.flush();
+		ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(System.in));
+
+		while (true) {
+			LadderWorker.GameRequest request;
+			try {
+				request = (LadderWorker.GameRequest) input.readObject();
+			} catch (EOFException e) {
+				break;
+			}
+			if (request == null) {
+				break;
+			}
+			if (request.gameIndex == HUNG_GAME) {
+				Thread.sleep(Long.MAX_VALUE);
+			}
+
+			LadderWorker.GameResponse response = new LadderWorker.GameResponse();
+			response.gameResult = new LadderGameResult();
+			response.ladderOutputString = new ArrayList<String>();
+			response.healthy = (request.gameIndex != UNHEALTHY_GAME);
+			output.writeObject(response);
+			output.reset();
+			output.flush();
+		}
+		System.exit(0);
+	}
+}
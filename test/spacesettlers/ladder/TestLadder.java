@@ -2,15 +2,33 @@ package spacesettlers.ladder;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import spacesettlers.clients.DoNothingTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.configs.BaseConfig;
 import spacesettlers.configs.HighLevelTeamConfig;
 import spacesettlers.configs.LadderConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.configs.TeamClientConfig;
 import spacesettlers.ladder.Ladder;
+import spacesettlers.simulator.SimulatorException;
+import spacesettlers.simulator.TeamClientCache;
 
 public class TestLadder {
 	LadderConfig ladderConfig;
@@ -294,4 +312,202 @@ public class TestLadder {
 		assertEquals(ladder.calculateNChooseK(0, 0), 0, 0);
 	}
 
+	/**
+	 * Results are sorted (best first) and written as CSV after every game
+	 */
+	@Test
+	public void testSortedCSVResults() {
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName("A");
+		Team teamA = new Team(client, "Ladder A", 1);
+		Team teamB = new Team(client, "Ladder B", 1);
+
+		ladder.ladderResultsMap.put("Ladder A", new TeamRecord(teamA));
+		ladder.ladderResultsMap.put("Ladder B", new TeamRecord(teamB));
+		teamA.setScore(10);
+		teamB.setScore(30);
+		ladder.ladderResultsMap.get("Ladder A").update(teamA);
+		ladder.ladderResultsMap.get("Ladder B").update(teamB);
+		ladder.sortLadderResults();
+		assertEquals("Ladder B", ladder.getSortedLadderResults().get(0).getTeamName());
+
+		// a second game for A moves it to the top
+		teamA.setScore(70);
+		ladder.ladderResultsMap.get("Ladder A").update(teamA);
+		ladder.sortLadderResults();
+		assertEquals("Ladder A", ladder.getSortedLadderResults().get(0).getTeamName());
+
+		String[] lines = ladder.getCSVResults().split("\n");
+		assertEquals(3, lines.length);
+		assertTrue(lines[1].startsWith("1,\"Ladder A\",2,40.0,"));
+		assertTrue(lines[2].startsWith("2,\"Ladder B\",1,30.0,"));
+	}
+
+
+	/**
+	 * Each game gets its own copy of the teams and bases so one game can't change
+	 * another (the rest of the config is shared)
+	 */
+	@Test
+	public void testConfigCopy() {
+		SpaceSettlersConfig template = new SpaceSettlersConfig();
+		template.setTeams(staticTeamConfig);
+		template.setBases(new BaseConfig[] { new BaseConfig("S1"), new BaseConfig("S2") });
+		template.setRandomSeed(5);
+
+		SpaceSettlersConfig copy = template.copy();
+		assertEquals(5, copy.getRandomSeed());
+		assertEquals("S2", copy.getTeams()[1].getTeamName());
+		assertEquals("S2", copy.getBases()[1].getTeamName());
+		assertSame(template.getRandomAsteroids(), copy.getRandomAsteroids());
+
+		copy.getTeams()[0].setInitialRegionULX(100);
+		copy.getBases()[0].setTeamName("A");
+		assertEquals(0, staticTeamConfig[0].getInitialRegionULX());
+		assertEquals("S1", template.getBases()[0].getTeamName());
+	}
+
+	/**
+	 * Client configs and classes are only loaded once and bad classes are reported
+	 */
+	@Test
+	public void testTeamClientCache() throws Exception {
+		// a client config of its own (the test doesn't depend on the working directory)
+		File file = File.createTempFile("spacesettlers", "clientinit.xml");
+		FileWriter writer = new FileWriter(file);
+		writer.write("<TeamClientConfig>\n");
+		writer.write("	<classname>spacesettlers.clients.DoNothingTeamClient</classname>\n");
+		writer.write("	<ladderName>Do Nothing Client</ladderName>\n");
+		writer.write("	<numberInitialShipsInTeam>1</numberInitialShipsInTeam>\n");
+		writer.write("</TeamClientConfig>\n");
+		writer.close();
+
+		TeamClientCache cache = new TeamClientCache();
+		String fileName = file.getPath();
+		try {
+			TeamClientConfig teamClientConfig = cache.getTeamClientConfig(fileName);
+			assertSame(teamClientConfig, cache.getTeamClientConfig(fileName));
+			assertEquals(DoNothingTeamClient.class, cache.getClientClass(teamClientConfig.getClassname()));
+			assertEquals("Do Nothing Client", teamClientConfig.getLadderName());
+		} finally {
+			file.delete();
+		}
+
+		try {
+			cache.getClientClass("java.lang.String");
+			fail("String is not a team client");
+		} catch (SimulatorException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Ensure a game that throws is left out and the rest of the games are still
+	 * collected
+	 */
+	@Test
+	public void testFailedGameIsSkipped() throws Exception {
+		ladder.simConfig = new SpaceSettlersConfig();
+		ladder.simConfig.setBases(new BaseConfig[0]);
+		ArrayList<HighLevelTeamConfig[]> clientsPerMatch = new ArrayList<HighLevelTeamConfig[]>();
+		clientsPerMatch.add(new HighLevelTeamConfig[] {staticTeamConfig[0], variableTeamConfig[0]});
+		clientsPerMatch.add(new HighLevelTeamConfig[] {staticTeamConfig[0], variableTeamConfig[1]});
+
+		// the first game throws and the second one finishes without playing
+		ExecutorService threadPool = Executors.newFixedThreadPool(2);
+		ExecutorCompletionService<LadderSingleGame> completedGames = new ExecutorCompletionService<LadderSingleGame>(threadPool) {
+			public Future<LadderSingleGame> submit(final Callable<LadderSingleGame> task) {
+				return super.submit(new Callable<LadderSingleGame>() {
+					public LadderSingleGame call() throws Exception {
+						LadderSingleGame game = (LadderSingleGame) task;
+						if (game.gameIndex == 1) {
+							throw new SimulatorException("broken game");
+						}
+						return game;
+					}
+				});
+			}
+		};
+
+		try {
+			assertEquals(1, ladder.playGames(completedGames, null, clientsPerMatch, new boolean[] {true, true}, 0, 1, 2, 0));
+		} finally {
+			threadPool.shutdown();
+		}
+	}
+
+	/**
+	 * Ensure a worker answers nothing and returns when it is told to stop (or the
+	 * ladder goes away)
+	 */
+	@Test
+	public void testWorkerStops() throws Exception {
+		ByteArrayOutputStream requests = new ByteArrayOutputStream();
+		ObjectOutputStream requestStream = new ObjectOutputStream(requests);
+		requestStream.writeObject(null);
+		requestStream.close();
+
+		LadderWorker worker = new LadderWorker(null);
+		ByteArrayOutputStream answers = new ByteArrayOutputStream();
+		worker.serve(new ByteArrayInputStream(requests.toByteArray()), answers);
+
+		// just the stream header was written
+		ObjectInputStream answerStream = new ObjectInputStream(new ByteArrayInputStream(answers.toByteArray()));
+		assertEquals(0, answerStream.available());
+
+		// an empty stream of requests (no null at the end) stops it as well
+		requests = new ByteArrayOutputStream();
+		new ObjectOutputStream(requests).close();
+		worker.serve(new ByteArrayInputStream(requests.toByteArray()), new ByteArrayOutputStream());
+	}
+
+	/**
+	 * Ensure the intervals tell apart teams with clearly different scores and not
+	 * teams whose scores overlap
+	 */
+	@Test
+	public void testRankingConfidence() {
+		assertEquals(1.96, RankingConfidence.getZ(0.95), 0.001);
+		assertEquals(2.576, RankingConfidence.getZ(0.99), 0.001);
+
+		TeamRecord best = makeRecord("best", 100, 102, 98, 101);
+		TeamRecord close = makeRecord("close", 99, 103, 96, 100);
+		TeamRecord worst = makeRecord("worst", 10, 12, 8, 11);
+		TeamRecord oneGame = makeRecord("oneGame", 50);
+
+		// the standard error is the sample standard deviation over the square root of the games
+		assertEquals(Math.sqrt(8.75 / 3 / 4), best.getScoreStandardError(), 1e-9);
+		assertTrue(Double.isInfinite(oneGame.getScoreStandardError()));
+
+		assertTrue(RankingConfidence.getConfidence(close, worst) > 0.999);
+		assertTrue(RankingConfidence.getConfidence(best, close) < 0.95);
+		assertEquals(0, RankingConfidence.getConfidence(worst, oneGame), 0);
+
+		ArrayList<TeamRecord> ranking = new ArrayList<TeamRecord>();
+		ranking.add(best);
+		ranking.add(close);
+		ranking.add(worst);
+		assertEquals(2, RankingConfidence.getUnsettledTeams(ranking, 0.95).size());
+		assertTrue(RankingConfidence.getUnsettledTeams(ranking, 0.95).contains("close"));
+		assertEquals(RankingConfidence.getConfidence(best, close), RankingConfidence.getRankingConfidence(ranking), 0);
+
+		// teams that always score the same can't be split by more games
+		ranking.clear();
+		ranking.add(makeRecord("a", 0, 0));
+		ranking.add(makeRecord("b", 0, 0));
+		assertTrue(RankingConfidence.getUnsettledTeams(ranking, 0.95).isEmpty());
+	}
+
+	private TeamRecord makeRecord(String ladderName, double... scores) {
+		TeamRecord record = new TeamRecord(ladderName);
+		for (double score : scores) {
+			DoNothingTeamClient client = new DoNothingTeamClient();
+			client.setTeamName(ladderName);
+			Team team = new Team(client, ladderName, 1);
+			team.setScore(score);
+			record.update(team);
+		}
+		return record;
+	}
+
 }
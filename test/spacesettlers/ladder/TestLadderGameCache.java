@@ -0,0 +1,194 @@
+package spacesettlers.ladder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.clients.DoNothingTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.configs.HighLevelTeamConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.simulator.TeamClientCache;
+
+import com.martiansoftware.jsap.JSAPResult;
+
+/**
+ * Makes sure games are found in the cache only when nothing about them changed
+ */
+public class TestLadderGameCache {
+	File directory;
+	String configPath;
+	LadderGameCache cache;
+	SpaceSettlersConfig simConfig;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("spacesettlers", "cache");
+		directory.delete();
+		directory.mkdirs();
+		configPath = directory.getPath() + File.separator;
+		writeClientConfig("a-clientinit.xml", "Ladder A");
+		writeClientConfig("b-clientinit.xml", "Ladder B");
+
+		HighLevelTeamConfig[] teams = new HighLevelTeamConfig[2];
+		teams[0] = new HighLevelTeamConfig();
+		teams[0].setTeamName("A");
+		teams[0].setConfigFile("a-clientinit.xml");
+		teams[1] = new HighLevelTeamConfig();
+		teams[1].setTeamName("B");
+		teams[1].setConfigFile("b-clientinit.xml");
+
+		simConfig = new SpaceSettlersConfig();
+		simConfig.setTeams(teams);
+		simConfig.setRandomSeed(7);
+
+		cache = new LadderGameCache(new File(directory, "cache"), new TeamClientCache());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		delete(directory);
+	}
+
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private void writeClientConfig(String fileName, String ladderName) throws IOException {
+		FileWriter writer = new FileWriter(new File(directory, fileName));
+		writer.write("<TeamClientConfig>\n");
+		writer.write("	<classname>spacesettlers.clients.DoNothingTeamClient</classname>\n");
+		writer.write("	<ladderName>" + ladderName + "</ladderName>\n");
+		writer.write("	<numberInitialShipsInTeam>1</numberInitialShipsInTeam>\n");
+		writer.write("</TeamClientConfig>\n");
+		writer.close();
+	}
+
+	/**
+	 * The key stays the same for the same game and changes with the seed, the
+	 * repeat, the teams and the client config files
+	 */
+	@Test
+	public void testKeyFollowsTheGame() throws Exception {
+		String key = cache.getKey(simConfig, 0, configPath);
+		assertEquals(64, key.length());
+		assertEquals(key, cache.getKey(simConfig, 0, configPath));
+
+		// another repeat of the match
+		assertFalse(key.equals(cache.getKey(simConfig, 1, configPath)));
+
+		// another seed
+		simConfig.setRandomSeed(8);
+		assertFalse(key.equals(cache.getKey(simConfig, 0, configPath)));
+		simConfig.setRandomSeed(7);
+		assertEquals(key, cache.getKey(simConfig, 0, configPath));
+
+		// the teams in the other order
+		HighLevelTeamConfig[] teams = simConfig.getTeams();
+		simConfig.setTeams(new HighLevelTeamConfig[] { teams[1], teams[0] });
+		assertFalse(key.equals(cache.getKey(simConfig, 0, configPath)));
+		simConfig.setTeams(teams);
+
+		// a changed client
+		writeClientConfig("b-clientinit.xml", "Ladder B2");
+		assertFalse(key.equals(cache.getKey(simConfig, 0, configPath)));
+	}
+
+	/**
+	 * The game's classes are found in every package under spacesettlers (not just
+	 * the simulator), while a client only covers its own package
+	 */
+	@Test
+	public void testEngineClassesCoverEveryPackage() throws Exception {
+		File root = new File(directory, "classes");
+		new File(root, "spacesettlers/simulator").mkdirs();
+		new File(root, "spacesettlers/objects/resources").mkdirs();
+		new File(root, "spacesettlers/simulator/Simulator.class").createNewFile();
+		new File(root, "spacesettlers/objects/Ship.class").createNewFile();
+		new File(root, "spacesettlers/objects/resources/ResourcePile.class").createNewFile();
+
+		ArrayList<String> names = new ArrayList<String>();
+		LadderGameCache.findClassFiles(new File(root, "spacesettlers"), "spacesettlers/", true, names);
+		assertEquals(3, names.size());
+		assertTrue(names.contains("spacesettlers/objects/resources/ResourcePile.class"));
+
+		names.clear();
+		LadderGameCache.findClassFiles(new File(root, "spacesettlers/objects"), "spacesettlers/objects/", false, names);
+		assertEquals(1, names.size());
+		assertEquals("spacesettlers/objects/Ship.class", names.get(0));
+
+		assertEquals(32, cache.getEngineDigest().length);
+		assertFalse(Arrays.equals(cache.getEngineDigest(),
+				cache.getCodeDigest(DoNothingTeamClient.class.getName())));
+	}
+
+	/**
+	 * A stored game comes back with the same stats
+	 */
+	@Test
+	public void testStoreAndLoad() throws Exception {
+		String key = cache.getKey(simConfig, 0, configPath);
+		assertNull(cache.load(key));
+
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName("A");
+		Team team = new Team(client, "Ladder A", 1);
+		team.setScore(42);
+		LadderGameResult result = new LadderGameResult();
+		result.addTeam(team);
+		cache.store(key, result);
+
+		LadderGameResult loaded = cache.load(key);
+		assertEquals(1, loaded.getTeamResults().size());
+		assertEquals("Ladder A", loaded.getTeamResults().get(0).getLadderName());
+
+		TeamRecord record = new TeamRecord("Ladder A");
+		record.update(loaded.getTeamResults().get(0));
+		TeamRecord expected = new TeamRecord(team);
+		expected.update(team);
+		assertEquals(expected.toString(), record.toString());
+		assertEquals(42, record.getAverageScore(), 0);
+	}
+
+	/**
+	 * A game with a client that can't be loaded is played without the cache
+	 * (and fails on its own) instead of stopping the ladder
+	 */
+	@Test
+	public void testMissingClientClass() throws Exception {
+		FileWriter writer = new FileWriter(new File(directory, "b-clientinit.xml"));
+		writer.write("<TeamClientConfig>\n");
+		writer.write("	<classname>spacesettlers.clients.NoSuchTeamClient</classname>\n");
+		writer.write("	<ladderName>Ladder B</ladderName>\n");
+		writer.write("	<numberInitialShipsInTeam>1</numberInitialShipsInTeam>\n");
+		writer.write("</TeamClientConfig>\n");
+		writer.close();
+
+		JSAPResult parserConfig = new RunLadder(new String[] { "--simulatorConfigFile", "SpaceSettlersConfig.xml",
+				"--ladderConfigFile", "LadderConfig.xml", "--configPath", configPath }).config;
+		LadderSingleGame game = new LadderSingleGame(parserConfig, simConfig, new TeamClientCache());
+		game.useGameCache(cache, 0);
+		assertNull(game.getCacheKey());
+
+		game.call();
+		assertNull(game.getGameResult());
+		assertEquals(0, new File(directory, "cache").listFiles().length);
+	}
+}
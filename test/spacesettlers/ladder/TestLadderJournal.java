@@ -0,0 +1,155 @@
+package spacesettlers.ladder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.clients.DoNothingTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.configs.HighLevelTeamConfig;
+import spacesettlers.configs.LadderConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Makes sure finished games come back out of the journal (and only for the same configs)
+ */
+public class TestLadderJournal {
+	File file;
+	String[] teamNames;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("spacesettlers", "journal");
+		file.delete();
+		teamNames = new String[] { "A", "B" };
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+
+	private LadderGameResult makeResult(double score) {
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName("A");
+		Team team = new Team(client, "Ladder A", 1);
+		team.setScore(score);
+		LadderGameResult result = new LadderGameResult();
+		result.addTeam(team);
+		return result;
+	}
+
+	/**
+	 * Games written by one run are read back by the next one with the same configs
+	 */
+	@Test
+	public void testAppendAndReopen() throws Exception {
+		LadderJournal journal = new LadderJournal(file, "key");
+		assertNull(journal.getEntry(1, teamNames));
+		journal.append(2, teamNames, makeResult(7));
+		journal.append(1, teamNames, makeResult(42));
+
+		LadderJournal reopened = new LadderJournal(file, "key");
+		assertEquals(2, reopened.getEntries().size());
+		assertEquals(1, reopened.getEntries().get(0).getGameIndex());
+		LadderJournal.Entry entry = reopened.getEntry(1, teamNames);
+		assertNotNull(entry);
+		assertEquals(42, entry.getGameResult().getTeamResults().get(0).getScore(), 0);
+		assertEquals("Ladder A", entry.getGameResult().getTeamResults().get(0).getLadderName());
+
+		// another match with the same index was not played
+		assertNull(reopened.getEntry(1, new String[] { "B", "A" }));
+
+		// and nothing is used with other configs
+		assertEquals(0, new LadderJournal(file, "other key").getEntries().size());
+	}
+
+	/**
+	 * Read a ladder config from XML (the threads and output file have no setters)
+	 */
+	private LadderConfig makeLadderConfig(int numThreads, String outputFileName, int numRepeatMatches) {
+		XStream xstream = LadderGameCache.newXStream();
+		xstream.alias("LadderConfig", LadderConfig.class);
+		xstream.alias("HighLevelTeamConfig", HighLevelTeamConfig.class);
+		return (LadderConfig) xstream.fromXML("<LadderConfig>"
+				+ "<staticTeams><HighLevelTeamConfig><teamName>A</teamName><configFile>a-clientinit.xml</configFile></HighLevelTeamConfig></staticTeams>"
+				+ "<variableTeams><HighLevelTeamConfig><teamName>B</teamName><configFile>b-clientinit.xml</configFile></HighLevelTeamConfig></variableTeams>"
+				+ "<maximumNumberVariableTeams>1</maximumNumberVariableTeams>"
+				+ "<numRepeatMatches>" + numRepeatMatches + "</numRepeatMatches>"
+				+ "<numThreads>" + numThreads + "</numThreads>"
+				+ "<outputFileName>" + outputFileName + "</outputFileName>"
+				+ "</LadderConfig>");
+	}
+
+	private void writeFile(File directory, String fileName, String contents) throws Exception {
+		FileWriter writer = new FileWriter(new File(directory, fileName));
+		writer.write(contents);
+		writer.close();
+	}
+
+	/**
+	 * The config key changes with what changes the games (the teams, the repeats
+	 * and the client configs) but not with the threads or the output file
+	 */
+	@Test
+	public void testConfigKey() throws Exception {
+		File directory = File.createTempFile("spacesettlers", "journalconfig");
+		directory.delete();
+		directory.mkdirs();
+		try {
+			String configPath = directory.getPath() + File.separator;
+			writeFile(directory, "a-clientinit.xml", "<TeamClientConfig><classname>A</classname></TeamClientConfig>");
+			writeFile(directory, "b-clientinit.xml", "<TeamClientConfig><classname>B</classname></TeamClientConfig>");
+			SpaceSettlersConfig simConfig = new SpaceSettlersConfig();
+
+			String key = LadderJournal.getConfigKey(simConfig, makeLadderConfig(1, "ladder.html", 2), configPath);
+			assertEquals(key, LadderJournal.getConfigKey(simConfig, makeLadderConfig(8, "other.html", 2), configPath));
+			assertFalse(key.equals(LadderJournal.getConfigKey(simConfig, makeLadderConfig(1, "ladder.html", 3), configPath)));
+
+			LadderConfig otherTeams = makeLadderConfig(1, "ladder.html", 2);
+			otherTeams.setVariableTeams(new HighLevelTeamConfig[0]);
+			assertFalse(key.equals(LadderJournal.getConfigKey(simConfig, otherTeams, configPath)));
+
+			writeFile(directory, "b-clientinit.xml", "<TeamClientConfig><classname>C</classname></TeamClientConfig>");
+			assertFalse(key.equals(LadderJournal.getConfigKey(simConfig, makeLadderConfig(1, "ladder.html", 2), configPath)));
+		} finally {
+			for (File configFile : directory.listFiles()) {
+				configFile.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * A game cut off in the middle of being written is played again and the next
+	 * one is still read
+	 */
+	@Test
+	public void testPartialLine() throws Exception {
+		LadderJournal journal = new LadderJournal(file, "key");
+		journal.append(1, teamNames, makeResult(1));
+
+		FileWriter writer = new FileWriter(file, true);
+		writer.write("<LadderJournalEntry><configKey>key</configKey><gameIndex>2");
+		writer.close();
+
+		journal = new LadderJournal(file, "key");
+		assertEquals(1, journal.getEntries().size());
+		journal.append(3, teamNames, makeResult(3));
+
+		journal = new LadderJournal(file, "key");
+		assertEquals(2, journal.getEntries().size());
+		assertNull(journal.getEntry(2, teamNames));
+		assertNotNull(journal.getEntry(3, teamNames));
+	}
+}
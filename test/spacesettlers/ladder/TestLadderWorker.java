@@ -0,0 +1,231 @@
+package spacesettlers.ladder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.simulator.TeamClientCache;
+
+import com.martiansoftware.jsap.JSAPResult;
+
+/**
+ * Makes sure a worker plays the games it is sent and the pool replaces its
+ * workers when it should
+ */
+public class TestLadderWorker {
+	File directory;
+	JSAPResult parserConfig;
+
+	/**
+	 * A pool that counts the workers it starts (which run FakeLadderWorker)
+	 */
+	static class CountingPool extends LadderWorkerPool {
+		int numStarted;
+
+		CountingPool(int gamesPerWorker, long gameTimeoutSeconds) {
+			super(1, gamesPerWorker, gameTimeoutSeconds, new String[0]);
+			workerClassName = FakeLadderWorker.class.getName();
+		}
+
+		WorkerProcess startWorker() throws IOException {
+			numStarted++;
+			return super.startWorker();
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("spacesettlers", "worker");
+		directory.delete();
+		directory.mkdirs();
+
+		writeFile("SpaceSettlersConfig.xml", "<SpaceSettlersConfig>\n"
+				+ "	<height>480</height>\n"
+				+ "	<width>640</width>\n"
+				+ "	<simulationSteps>20</simulationSteps>\n"
+				+ "	<simulationTimeStep>0.05</simulationTimeStep>\n"
+				+ "	<randomSeed>7</randomSeed>\n"
+				+ "	<scoringMethod>Resources</scoringMethod>\n"
+				+ "	<numBeacons>2</numBeacons>\n"
+				+ "	<maximumShipsPerTeam>1</maximumShipsPerTeam>\n"
+				+ "	<maximumInitialShipsPerTeam>1</maximumInitialShipsPerTeam>\n"
+				+ "	<teams>\n"
+				+ "		<HighLevelTeamConfig><teamName>A</teamName><configFile>a-clientinit.xml</configFile></HighLevelTeamConfig>\n"
+				+ "		<HighLevelTeamConfig><teamName>B</teamName><configFile>b-clientinit.xml</configFile></HighLevelTeamConfig>\n"
+				+ "	</teams>\n"
+				+ "	<bases>\n"
+				+ "		<BaseConfig><teamName>A</teamName></BaseConfig>\n"
+				+ "		<BaseConfig><teamName>B</teamName></BaseConfig>\n"
+				+ "	</bases>\n"
+				+ "	<randomAsteroids>\n"
+				+ "		<probabilityMineable>0.5</probabilityMineable>\n"
+				+ "		<numberInitialAsteroids>5</numberInitialAsteroids>\n"
+				+ "		<maximumNumberAsteroids>10</maximumNumberAsteroids>\n"
+				+ "		<probabilityMoveable>0.5</probabilityMoveable>\n"
+				+ "		<maxInitialVelocity>15</maxInitialVelocity>\n"
+				+ "		<probabilityFuelType>0.2</probabilityFuelType>\n"
+				+ "		<probabilityWaterType>0.5</probabilityWaterType>\n"
+				+ "		<probabilityMetalsType>0.3</probabilityMetalsType>\n"
+				+ "	</randomAsteroids>\n"
+				+ "</SpaceSettlersConfig>\n");
+		writeClientConfig("a-clientinit.xml", "Ladder A");
+		writeClientConfig("b-clientinit.xml", "Ladder B");
+
+		parserConfig = new RunLadder(new String[] { "--simulatorConfigFile", "SpaceSettlersConfig.xml",
+				"--ladderConfigFile", "LadderConfig.xml", "--configPath", directory.getPath() + File.separator }).config;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private void writeFile(String fileName, String contents) throws IOException {
+		FileWriter writer = new FileWriter(new File(directory, fileName));
+		writer.write(contents);
+		writer.close();
+	}
+
+	private void writeClientConfig(String fileName, String ladderName) throws IOException {
+		writeFile(fileName, "<TeamClientConfig>\n"
+				+ "	<classname>spacesettlers.clients.DoNothingTeamClient</classname>\n"
+				+ "	<ladderName>" + ladderName + "</ladderName>\n"
+				+ "	<numberInitialShipsInTeam>1</numberInitialShipsInTeam>\n"
+				+ "</TeamClientConfig>\n");
+	}
+
+	/**
+	 * A game set up by the ladder
+	 */
+	private LadderSingleGame makeGame(int gameIndex) throws Exception {
+		SpaceSettlersConfig simConfig = (SpaceSettlersConfig) LadderGameCache.newXStream()
+				.fromXML(new File(directory, "SpaceSettlersConfig.xml"));
+		LadderSingleGame game = new LadderSingleGame(parserConfig, simConfig, new TeamClientCache());
+		game.initializeGame(simConfig.getTeams(), gameIndex, 3);
+		return game;
+	}
+
+	/**
+	 * A request sent to a worker comes back as the results of the game, and the
+	 * worker stops when it is sent a null request
+	 */
+	@Test
+	public void testServeRoundTrip() throws Exception {
+		final PipedOutputStream toWorker = new PipedOutputStream();
+		final PipedInputStream workerIn = new PipedInputStream(toWorker);
+		final PipedInputStream fromWorker = new PipedInputStream();
+		final PipedOutputStream workerOut = new PipedOutputStream(fromWorker);
+
+		final LadderWorker worker = new LadderWorker(parserConfig);
+		final Exception[] serveError = new Exception[1];
+		Thread serveThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					worker.serve(workerIn, workerOut);
+				} catch (Exception e) {
+					serveError[0] = e;
+				}
+			}
+		});
+		serveThread.start();
+
+		ObjectOutputStream output = new ObjectOutputStream(toWorker);
+		output.flush();
+		ObjectInputStream input = new ObjectInputStream(fromWorker);
+
+		for (int gameIndex = 1; gameIndex <= 2; gameIndex++) {
+			output.writeObject(new LadderWorker.GameRequest(makeGame(gameIndex)));
+			output.flush();
+			LadderWorker.GameResponse response = (LadderWorker.GameResponse) input.readObject();
+
+			assertNotNull(response.gameResult);
+			assertEquals(2, response.gameResult.getTeamResults().size());
+			assertEquals("Ladder A", response.gameResult.getTeamResults().get(0).getLadderName());
+			assertNotNull(response.stepProfiler);
+			assertTrue(response.healthy);
+			assertTrue(response.ladderOutputString.get(0).startsWith("***Game " + gameIndex + " / 3"));
+		}
+
+		output.writeObject(null);
+		output.flush();
+		serveThread.join(10000);
+		assertTrue(!serveThread.isAlive());
+		assertNull(serveError[0]);
+	}
+
+	/**
+	 * A worker is replaced once it has played gamesPerWorker games
+	 */
+	@Test
+	public void testWorkerIsReplacedAfterItsGames() throws Exception {
+		CountingPool pool = new CountingPool(2, 60);
+		try {
+			for (int gameIndex = 1; gameIndex <= 5; gameIndex++) {
+				LadderSingleGame game = makeGame(gameIndex);
+				pool.play(game);
+				assertNotNull(game.getGameResult());
+			}
+			assertEquals(3, pool.numStarted);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * A worker that says it is not healthy is replaced
+	 */
+	@Test
+	public void testUnhealthyWorkerIsReplaced() throws Exception {
+		CountingPool pool = new CountingPool(10, 60);
+		try {
+			pool.play(makeGame(1));
+			pool.play(makeGame(FakeLadderWorker.UNHEALTHY_GAME));
+			assertEquals(1, pool.numStarted);
+			LadderSingleGame game = makeGame(2);
+			pool.play(game);
+			assertNotNull(game.getGameResult());
+			assertEquals(2, pool.numStarted);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * A worker that takes too long is killed, only its game fails and the next
+	 * game gets a new worker
+	 */
+	@Test
+	public void testHungWorkerIsKilled() throws Exception {
+		CountingPool pool = new CountingPool(10, 1);
+		try {
+			LadderSingleGame hungGame = makeGame(FakeLadderWorker.HUNG_GAME);
+			pool.play(hungGame);
+			assertNull(hungGame.getGameResult());
+			assertTrue(hungGame.getLadderOutputString().get(0).contains("took more than 1 seconds"));
+
+			LadderSingleGame game = makeGame(1);
+			pool.play(game);
+			assertNotNull(game.getGameResult());
+			assertEquals(2, pool.numStarted);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
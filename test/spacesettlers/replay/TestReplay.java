@@ -0,0 +1,159 @@
+package spacesettlers.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.clients.Team;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.simulator.Toroidal2DPhysics;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Records a space as it changes and makes sure the replay puts the same objects in
+ * the same places (to within the precision of the file)
+ */
+public class TestReplay {
+	Toroidal2DPhysics space;
+	Set<Team> teams;
+	Team team;
+	File replayFile;
+	int height = 480;
+	int width = 640;
+	double timestep = 0.05;
+
+	@Before
+	public void setUp() throws Exception {
+		space = new Toroidal2DPhysics(height, width, timestep);
+		ReplayTeamClient teamClient = new ReplayTeamClient();
+		teamClient.setTeamName("TestTeam");
+		teamClient.setTeamColor(Color.RED);
+		team = new Team(teamClient, "Test Ladder Name", 1);
+		teams = new LinkedHashSet<Team>();
+		teams.add(team);
+		replayFile = File.createTempFile("spacesettlers", ".replay");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		replayFile.delete();
+	}
+
+	/**
+	 * Describe everything the replay should get right about the objects in a space
+	 * (in the order of the space)
+	 */
+	private List<String> describe(Toroidal2DPhysics describedSpace) {
+		List<String> descriptions = new ArrayList<String>();
+		for (AbstractObject object : describedSpace.getAllObjects()) {
+			String description = object.getClass().getSimpleName() + " " + object.getRadius() + " " + object.isAlive();
+			if (object instanceof Ship) {
+				description += " " + ((Ship) object).getEnergy() + " " + ((Ship) object).getTeamName();
+			}
+			descriptions.add(description);
+		}
+		return descriptions;
+	}
+
+	/**
+	 * Record a space with moving asteroids, a ship and a base while objects are
+	 * added, removed and the score changes, then read it back one step at a time
+	 */
+	@Test
+	public void testReplayMatchesRecordedSpace() throws Exception {
+		Random random = new Random(3);
+		for (int i = 0; i < 40; i++) {
+			Position position = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			position.setTranslationalVelocity(new Vector2D(random.nextGaussian() * 40, random.nextGaussian() * 40));
+			space.addObject(new Asteroid(position, random.nextBoolean(), 5 + random.nextInt(10), true, 0.2, 0.3, 0.5));
+		}
+		Ship ship = new Ship(team.getTeamName(), team.getTeamColor(), new Position(100, 100, 1.5));
+		space.addObject(ship);
+		space.addObject(new Base(new Position(300, 200), team.getTeamName(), team, true));
+
+		HashMap<UUID, SpaceSettlersPowerupEnum> noPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		List<List<String>> expectedObjects = new ArrayList<List<String>>();
+		List<List<Position>> expectedPositions = new ArrayList<List<Position>>();
+
+		ReplayRecorder recorder = new ReplayRecorder(replayFile.getPath(), width, height, teams);
+		for (int step = 0; step < 30; step++) {
+			space.advanceTime(random, step, noPowerups);
+
+			if (step == 10) {
+				// take away an asteroid and add a new one
+				Iterator<Asteroid> asteroids = space.getAsteroids().iterator();
+				space.removeObject(asteroids.next());
+				space.addObject(new Asteroid(new Position(20, 20), true, 7, false, 1, 0, 0));
+			}
+			if (step == 20) {
+				ship.updateEnergy(-1234);
+				team.setScore(42);
+			}
+			if (step == 25) {
+				ship.setAlive(false);
+			}
+
+			recorder.recordTimestep(step, space.getAllObjects());
+			expectedObjects.add(describe(space));
+			List<Position> positions = new ArrayList<Position>();
+			for (AbstractObject object : space.getAllObjects()) {
+				positions.add(object.getPosition().deepCopy());
+			}
+			expectedPositions.add(positions);
+		}
+		recorder.close();
+
+		ReplayReader reader = new ReplayReader(replayFile.getPath());
+		assertEquals(width, reader.getWidth());
+		assertEquals(height, reader.getHeight());
+		Team replayTeam = reader.getTeams().iterator().next();
+		assertEquals("TestTeam", replayTeam.getTeamName());
+		assertEquals("Test Ladder Name", replayTeam.getLadderName());
+		assertEquals(Color.RED, replayTeam.getTeamColor());
+
+		Toroidal2DPhysics replaySpace = new Toroidal2DPhysics(height, width, timestep);
+		for (int step = 0; step < 30; step++) {
+			assertTrue(reader.readTimestep(replaySpace));
+			assertEquals(step, reader.getTimestep());
+			assertEquals(expectedObjects.get(step), describe(replaySpace));
+
+			int i = 0;
+			for (AbstractObject object : replaySpace.getAllObjects()) {
+				Position expected = expectedPositions.get(step).get(i++);
+				Position actual = object.getPosition();
+				assertEquals(expected.getX(), actual.getX(), 0.5 / ReplayFormat.POSITION_SCALE);
+				assertEquals(expected.getY(), actual.getY(), 0.5 / ReplayFormat.POSITION_SCALE);
+				assertEquals(expected.getxVelocity(), actual.getxVelocity(), 0.5 / ReplayFormat.POSITION_SCALE);
+				assertEquals(expected.getyVelocity(), actual.getyVelocity(), 0.5 / ReplayFormat.POSITION_SCALE);
+				assertEquals(expected.getOrientation(), actual.getOrientation(), 0.5 / ReplayFormat.ORIENTATION_SCALE);
+			}
+			assertEquals(step < 20 ? 0 : 42, replayTeam.getScore(), 0);
+		}
+		assertFalse(reader.readTimestep(replaySpace));
+		reader.close();
+
+		// the replayed objects belong to the replayed team
+		assertEquals(1, replaySpace.getShips().size());
+		assertEquals("TestTeam", replaySpace.getShips().iterator().next().getTeamName());
+	}
+}
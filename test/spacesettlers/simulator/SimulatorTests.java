@@ -7,6 +7,11 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
   TestToroidal2DPhysics.class,
   TestCollisionHandler.class,
+  TestSpatialHashCollisions.class,
+  TestSpatialQueries.class,
+  TestCheckpoint.class,
+  TestSimulatorCheckpoint.class,
+  TestLatencyHistogram.class,
 })
 
 public class SimulatorTests {
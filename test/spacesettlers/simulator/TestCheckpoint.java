@@ -0,0 +1,196 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.actions.MoveToObjectAction;
+import spacesettlers.actions.PurchaseTypes;
+import spacesettlers.clients.DoNothingTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.objects.AbstractActionableObject;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.objects.resources.ResourcePile;
+import spacesettlers.objects.resources.ResourceTypes;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Ensures a game saved in a checkpoint carries on exactly the same way as the
+ * game that was saved
+ */
+public class TestCheckpoint {
+	Toroidal2DPhysics space;
+	Team team;
+	Random random;
+	int height = 480;
+	int width = 640;
+	double timestep = 0.05;
+	HashMap<UUID, SpaceSettlersPowerupEnum> noPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+
+	@Before
+	public void setUp() throws Exception {
+		space = new Toroidal2DPhysics(height, width, timestep);
+		random = new Random(17);
+
+		DoNothingTeamClient teamClient = new DoNothingTeamClient();
+		teamClient.setTeamName("TestTeam");
+		teamClient.setTeamColor(Color.BLUE);
+		team = new Team(teamClient, "Test Ladder Name", 4);
+
+		for (int i = 0; i < 60; i++) {
+			Position position = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			position.setTranslationalVelocity(new Vector2D(random.nextGaussian() * 40, random.nextGaussian() * 40));
+			space.addObject(new Asteroid(position, random.nextBoolean(), 5 + random.nextInt(10), true, 0.2, 0.3, 0.5));
+		}
+
+		Base base = new Base(new Position(300, 200), team.getTeamName(), team, true);
+		space.addObject(base);
+		team.addBase(base);
+		for (int i = 0; i < 2; i++) {
+			Ship ship = new Ship(team.getTeamName(), team.getTeamColor(), new Position(100 + 200 * i, 100));
+			space.addObject(ship);
+			team.addShip(ship);
+		}
+		team.incrementTotalResources(new ResourcePile(0, 250, 0));
+		team.setScore(12.5);
+	}
+
+	/**
+	 * Give every ship an action that flies it to the base (the actions are kept for
+	 * the whole game so they have to be saved in the checkpoint)
+	 */
+	private void setActions() {
+		Base base = space.getBases().iterator().next();
+		for (Ship ship : team.getShips()) {
+			ship.setCurrentAction(new MoveToObjectAction(space, ship.getPosition(), base));
+		}
+	}
+
+	/**
+	 * Save a checkpoint to memory and read it back again
+	 */
+	private SimulatorCheckpoint copyCheckpoint(SimulatorCheckpoint checkpoint) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(checkpoint);
+		out.close();
+
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		SimulatorCheckpoint copy = (SimulatorCheckpoint) in.readObject();
+		in.close();
+		return copy;
+	}
+
+	/**
+	 * Describe the exact state of every object (but not its id, since objects that
+	 * respawn are given a new random id)
+	 */
+	private List<String> describe(Toroidal2DPhysics describedSpace) {
+		List<String> descriptions = new ArrayList<String>();
+		for (AbstractObject object : describedSpace.getAllObjects()) {
+			Position position = object.getPosition();
+			String description = object.getClass().getSimpleName() + " " + position.getX() + " " + position.getY() + " "
+					+ position.getOrientation() + " " + position.getTranslationalVelocity() + " "
+					+ position.getAngularVelocity() + " " + object.isAlive() + " " + object.getResources();
+			if (object instanceof AbstractActionableObject) {
+				description += " " + ((AbstractActionableObject) object).getEnergy();
+			}
+			descriptions.add(description);
+		}
+		return descriptions;
+	}
+
+	/**
+	 * The copies of a base keep a copy of the team, whose ships must not carry
+	 * their actions (an action holds objects from an older copy of the space, so
+	 * every copy would chain back to the start of the game and a checkpoint of a
+	 * long game would overflow the stack)
+	 */
+	@Test
+	public void testCopiedTeamShipsHaveNoActions() {
+		setActions();
+		Base baseCopy = space.getSnapshot("TestTeam").getBases().iterator().next();
+		assertEquals(2, baseCopy.getTeam().getShips().size());
+		for (Ship ship : baseCopy.getTeam().getShips()) {
+			assertNull(ship.getCurrentAction());
+		}
+		for (Ship ship : team.getShips()) {
+			assertTrue(ship.getCurrentAction() instanceof MoveToObjectAction);
+		}
+	}
+
+	/**
+	 * Run part of a game, save it, and then run the rest of the game both in the
+	 * original space and in the restored one
+	 */
+	@Test
+	public void testRestoredGameMatchesOriginal() throws Exception {
+		setActions();
+		for (int step = 0; step < 20; step++) {
+			space.advanceTime(random, step, noPowerups);
+		}
+
+		SimulatorCheckpoint checkpoint = new SimulatorCheckpoint();
+		checkpoint.simulatedSpace = space;
+		checkpoint.teams = new ArrayList<Team>();
+		checkpoint.teams.add(team);
+		checkpoint.random = random;
+		checkpoint.nextTimestep = 20;
+		SimulatorCheckpoint restored = copyCheckpoint(checkpoint);
+
+		Toroidal2DPhysics restoredSpace = restored.simulatedSpace;
+		Team restoredTeam = restored.teams.get(0);
+		assertEquals(20, restored.nextTimestep);
+		assertEquals(describe(space), describe(restoredSpace));
+		assertEquals(space.getObjectById(team.getShips().iterator().next().getId()).getPosition().toString(),
+				restoredSpace.getObjectById(restoredTeam.getShips().iterator().next().getId()).getPosition().toString());
+
+		// the team accounting came along
+		assertEquals(12.5, restoredTeam.getScore(), 0);
+		assertEquals(250, restoredTeam.getTotalResources().getResourceQuantity(ResourceTypes.FUEL));
+		assertEquals(2, restoredTeam.getShips().size());
+		assertEquals(team.getCurrentCost(PurchaseTypes.SHIP).toString(), restoredTeam.getCurrentCost(PurchaseTypes.SHIP).toString());
+		assertEquals("TestTeam", restoredTeam.getTeamName());
+
+		// objects that point at each other still point at the same (restored) objects
+		Base restoredBase = restoredSpace.getBases().iterator().next();
+		assertSame(restoredTeam, restoredBase.getTeam());
+		for (Ship ship : restoredTeam.getShips()) {
+			assertSame(ship, restoredSpace.getObjectById(ship.getId()));
+		}
+
+		// the simulator gives a restored team a new client before it carries on
+		DoNothingTeamClient restoredClient = new DoNothingTeamClient();
+		restoredClient.setTeamName("TestTeam");
+		restoredClient.setTeamColor(Color.BLUE);
+		restoredTeam.setTeamClient(restoredClient);
+
+		// and both games carry on exactly the same way
+		for (int step = 20; step < 60; step++) {
+			space.advanceTime(random, step, noPowerups);
+			restoredSpace.advanceTime(restored.random, step, noPowerups);
+			assertEquals(describe(space), describe(restoredSpace));
+		}
+		assertEquals(random.nextLong(), restored.random.nextLong());
+	}
+}
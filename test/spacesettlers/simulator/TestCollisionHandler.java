@@ -1,14 +1,19 @@
 package spacesettlers.simulator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 import java.awt.Color;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import spacesettlers.objects.AbstractObject;
 import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Beacon;
 import spacesettlers.objects.Ship;
 import spacesettlers.objects.resources.ResourcePile;
 import spacesettlers.objects.resources.ResourceTypes;
@@ -258,5 +263,156 @@ public class TestCollisionHandler {
 		
 	}
 
-	
+	/**
+	 * The same rule is used no matter which order the objects are given in
+	 */
+	@Test
+	public void testRulesIgnoreOrder() {
+		for (int order = 0; order < 2; order++) {
+			Position shipPos = new Position(0, 0);
+			shipPos.setTranslationalVelocity(new Vector2D(20, 0));
+			Ship ship = new Ship("team1", Color.BLUE, shipPos);
+			Beacon beacon = new Beacon(new Position(10, 0));
+			Asteroid asteroid = new Asteroid(new Position(10, 0), true, 10, true, .33, .33, .34);
+			int asteroidTotal = asteroid.getResources().getTotal();
+
+			if (order == 0) {
+				collisionHandler.collide(ship, beacon, space);
+				collisionHandler.collide(ship, asteroid, space);
+			} else {
+				collisionHandler.collide(beacon, ship, space);
+				collisionHandler.collide(asteroid, ship, space);
+			}
+
+			// the beacon is picked up and the asteroid is mined and neither bounces
+			assertFalse(beacon.isAlive());
+			assertEquals(1, ship.getNumBeacons());
+			assertEquals(asteroidTotal, ship.getResources().getTotal());
+			assertEquals(20, ship.getPosition().getTranslationalVelocityX(), 0);
+		}
+
+		// every pair of types has the same rule both ways around
+		for (CollisionHandler.ObjectType type1 : CollisionHandler.ObjectType.values()) {
+			for (CollisionHandler.ObjectType type2 : CollisionHandler.ObjectType.values()) {
+				int index = type1.ordinal() * CollisionHandler.NUM_TYPES + type2.ordinal();
+				int reverseIndex = type2.ordinal() * CollisionHandler.NUM_TYPES + type1.ordinal();
+				assertSame(CollisionHandler.rules[index], CollisionHandler.rules[reverseIndex]);
+			}
+		}
+		assertSame(CollisionHandler.ObjectType.BEACON, CollisionHandler.OBJECT_TYPES.get(Beacon.class));
+	}
+
+	/**
+	 * The collision response (moving the centers back to where the objects touch
+	 * and bouncing them) gives the same answers as the original version of the code,
+	 * which is kept below
+	 */
+	@Test
+	public void testCollisionResponseMatchesOriginal() {
+		Random random = new Random(5);
+		for (int i = 0; i < 2000; i++) {
+			boolean moveable = (i % 4 != 0);
+			Position position1 = new Position(random.nextDouble() * 640, random.nextDouble() * 480);
+			position1.setTranslationalVelocity(new Vector2D(random.nextGaussian() * 30, random.nextGaussian() * 30));
+			Position position2 = new Position(position1.getX() + random.nextGaussian() * 15,
+					position1.getY() + random.nextGaussian() * 15);
+			if (moveable) {
+				position2.setTranslationalVelocity(new Vector2D(random.nextGaussian() * 30, random.nextGaussian() * 30));
+			}
+			space.toroidalWrap(position2);
+			Asteroid asteroid1 = new Asteroid(position1, false, 5 + random.nextInt(20), true, .33, .33, .34);
+			Asteroid asteroid2 = new Asteroid(position2, false, 5 + random.nextInt(20), moveable, .33, .33, .34);
+
+			Position[] expected = originalCollisionResponse(asteroid1, asteroid2);
+			collisionHandler.collide(asteroid1, asteroid2, space);
+
+			assertPositionsMatch(expected[0], asteroid1.getPosition());
+			assertPositionsMatch(expected[1], asteroid2.getPosition());
+		}
+	}
+
+	private void assertPositionsMatch(Position expected, Position actual) {
+		assertEquals(expected.getX(), actual.getX(), 1e-6);
+		assertEquals(expected.getY(), actual.getY(), 1e-6);
+		assertEquals(expected.getxVelocity(), actual.getxVelocity(), 1e-6);
+		assertEquals(expected.getyVelocity(), actual.getyVelocity(), 1e-6);
+	}
+
+	/**
+	 * The collision response of two asteroids as it was originally written (with
+	 * Vector2D and the expanded quadratic), done on copies of the positions
+	 */
+	private Position[] originalCollisionResponse(AbstractObject object1, AbstractObject object2) {
+		Position pos1 = object1.getPosition().deepCopy();
+		Position pos2 = object2.getPosition().deepCopy();
+
+		double x1 = pos1.getX();
+		double x2 = pos2.getX();
+		double y1 = pos1.getY();
+		double y2 = pos2.getY();
+		double u1 = -pos1.getTranslationalVelocityX();
+		double u2 = -pos2.getTranslationalVelocityX();
+		double v1 = -pos1.getTranslationalVelocityY();
+		double v2 = -pos2.getTranslationalVelocityY();
+		double r1 = object1.getRadius();
+		double r2 = object2.getRadius();
+
+		double tPlus = 	(-2*u1*x1+2*u2*x1+2*u1*x2-2*u2*x2-2*v1*y1+2*v2*y1+2*v1*y2-2*v2*y2 
+							+ Math.sqrt(
+									Math.pow(2*u1*x1-2*u2*x1-2*u1*x2+2*u2*x2+2*v1*y1-2*v2*y1-2*v1*y2+2*v2*y2,2)
+									- 4*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2))
+									*(Math.pow(x1,2)+Math.pow(x2,2)+Math.pow(y1,2)+Math.pow(y2,2)-Math.pow(r1,2)
+										-Math.pow(r2,2)-2*r1*r2-2*x1*x2-2*y1*y2)
+							)
+						)/(2*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2)));
+		double tMinus = (-2*u1*x1+2*u2*x1+2*u1*x2-2*u2*x2-2*v1*y1+2*v2*y1+2*v1*y2-2*v2*y2 
+							- Math.sqrt(
+									Math.pow(2*u1*x1-2*u2*x1-2*u1*x2+2*u2*x2+2*v1*y1-2*v2*y1-2*v1*y2+2*v2*y2,2)
+									- 4*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2))
+									*(Math.pow(x1,2)+Math.pow(x2,2)+Math.pow(y1,2)+Math.pow(y2,2)-Math.pow(r1,2)
+										-Math.pow(r2,2)-2*r1*r2-2*x1*x2-2*y1*y2)
+							)
+						)/(2*(Math.pow(u1,2)-2*u1*u2+Math.pow(u2,2)+Math.pow(v1,2)-2*v1*v2+Math.pow(v2,2)));
+
+		double time = 0;
+		if(Math.abs(tPlus) < (2.0 * space.getTimestepDuration()))
+			time = tPlus;
+		else if(Math.abs(tMinus) < (2.0* space.getTimestepDuration()))
+			time = tMinus;
+
+		pos1 = originalTranslatePosition(pos1, -time);
+		pos2 = originalTranslatePosition(pos2, -time);
+
+		Vector2D distanceVec = space.findShortestDistanceVector(pos1, pos2);
+		Vector2D unitNormal = distanceVec.getUnitVector();
+		Vector2D unitTangent = new Vector2D(-unitNormal.getYValue(), unitNormal.getXValue());
+		Vector2D velocity1 = pos1.getTranslationalVelocity();
+		Vector2D velocity2 = pos2.getTranslationalVelocity();
+		double normal1 = velocity1.dot(unitNormal);
+		double tangent1 = velocity1.dot(unitTangent);
+
+		if (object2.isMoveable()) {
+			double normal2 = velocity2.dot(unitNormal);
+			double tangent2 = velocity2.dot(unitTangent);
+			CollisionHandler.CollisionData result = collisionHandler.elasticCollision1D(normal1, object1.getMass(),
+					normal2, object2.getMass());
+			pos1.setTranslationalVelocity(unitNormal.multiply(result.v1).add(unitTangent.multiply(tangent1)));
+			pos2.setTranslationalVelocity(unitNormal.multiply(result.v2).add(unitTangent.multiply(tangent2)));
+		} else {
+			pos1.setTranslationalVelocity(unitNormal.multiply(-normal1).add(unitTangent.multiply(tangent1)));
+		}
+		return new Position[] { pos1, pos2 };
+	}
+
+	private Position originalTranslatePosition(Position position, double timeStep) {
+		double newX = position.getX() + (position.getTranslationalVelocityX() * timeStep);
+		double newY = position.getY() + (position.getTranslationalVelocityY() * timeStep);
+
+		Position newPosition = new Position(newX, newY, position.getOrientation());
+		newPosition.setAngularVelocity(position.getAngularVelocity());
+		newPosition.setTranslationalVelocity(position.getTranslationalVelocity());
+		space.toroidalWrap(newPosition);
+		return newPosition;
+	}
+
 }
@@ -0,0 +1,76 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the percentiles of the step timing histograms against the exact answers
+ */
+public class TestLatencyHistogram {
+
+	/**
+	 * Every bucket holds the times that map to it and the buckets are in order
+	 */
+	@Test
+	public void testBuckets() {
+		int lastBucket = -1;
+		for (long nanos = 0; nanos < 100000; nanos++) {
+			int bucket = LatencyHistogram.getBucket(nanos);
+			assertTrue(bucket >= lastBucket);
+			lastBucket = bucket;
+		}
+		assertTrue(LatencyHistogram.getBucket(Long.MAX_VALUE) < LatencyHistogram.NUM_BUCKETS);
+	}
+
+	/**
+	 * Percentiles are within the relative error of the buckets
+	 */
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Random random = new Random(5);
+		long[] times = new long[10000];
+		for (int i = 0; i < times.length; i++) {
+			// mostly short times with a long tail
+			times[i] = (long) (1000 * Math.exp(random.nextGaussian() * 2));
+			histogram.record(times[i]);
+		}
+		Arrays.sort(times);
+
+		assertEquals(times.length, histogram.getCount());
+		assertEquals(times[times.length - 1], histogram.getMax());
+		for (double percentile : new double[] {1, 50, 90, 99, 100}) {
+			long exact = times[(int) Math.ceil(percentile / 100 * times.length) - 1];
+			assertEquals(exact, histogram.getPercentile(percentile), exact / 16.0 + 1);
+		}
+	}
+
+	/**
+	 * Adding histograms gives the same answers as recording everything in one
+	 */
+	@Test
+	public void testAdd() {
+		LatencyHistogram first = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		LatencyHistogram all = new LatencyHistogram();
+		for (long nanos = 1; nanos < 5000; nanos += 7) {
+			first.record(nanos);
+			second.record(nanos * 3);
+			all.record(nanos);
+			all.record(nanos * 3);
+		}
+		first.add(second);
+
+		assertEquals(all.getCount(), first.getCount());
+		assertEquals(all.getTotal(), first.getTotal());
+		assertEquals(all.getMax(), first.getMax());
+		assertEquals(all.getPercentile(50), first.getPercentile(50));
+		assertEquals(all.getPercentile(99), first.getPercentile(99));
+		assertEquals(0, new LatencyHistogram().getPercentile(50));
+	}
+}
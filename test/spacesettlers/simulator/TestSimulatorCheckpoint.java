@@ -0,0 +1,157 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.clients.RandomTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.objects.AbstractActionableObject;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.utilities.Position;
+
+/**
+ * Ensures a whole game saved by the simulator and restored from the checkpoint
+ * ends the same way as the game that was never stopped
+ */
+public class TestSimulatorCheckpoint {
+	File directory;
+	File checkpointFile;
+
+	/**
+	 * A random client that also uses the random numbers of the game when it is
+	 * initialized
+	 */
+	public static class RandomInitializeTeamClient extends RandomTeamClient {
+		public void initialize(Toroidal2DPhysics space) {
+			super.initialize(space);
+			random.nextDouble();
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("spacesettlers", "checkpoint");
+		directory.delete();
+		directory.mkdirs();
+		checkpointFile = new File(directory, "game.checkpoint");
+
+		writeFile("SpaceSettlersConfig.xml", "<SpaceSettlersConfig>\n"
+				+ "	<height>480</height>\n"
+				+ "	<width>640</width>\n"
+				+ "	<simulationSteps>200</simulationSteps>\n"
+				+ "	<simulationTimeStep>0.05</simulationTimeStep>\n"
+				+ "	<randomSeed>7</randomSeed>\n"
+				+ "	<scoringMethod>Resources</scoringMethod>\n"
+				+ "	<numBeacons>2</numBeacons>\n"
+				+ "	<maximumShipsPerTeam>2</maximumShipsPerTeam>\n"
+				+ "	<maximumInitialShipsPerTeam>2</maximumInitialShipsPerTeam>\n"
+				+ "	<teams>\n"
+				+ "		<HighLevelTeamConfig><teamName>A</teamName><configFile>a-clientinit.xml</configFile></HighLevelTeamConfig>\n"
+				+ "		<HighLevelTeamConfig><teamName>B</teamName><configFile>b-clientinit.xml</configFile></HighLevelTeamConfig>\n"
+				+ "	</teams>\n"
+				+ "	<bases>\n"
+				+ "		<BaseConfig><teamName>A</teamName></BaseConfig>\n"
+				+ "		<BaseConfig><teamName>B</teamName></BaseConfig>\n"
+				+ "	</bases>\n"
+				+ "	<randomAsteroids>\n"
+				+ "		<probabilityMineable>0.5</probabilityMineable>\n"
+				+ "		<numberInitialAsteroids>10</numberInitialAsteroids>\n"
+				+ "		<maximumNumberAsteroids>20</maximumNumberAsteroids>\n"
+				+ "		<probabilityMoveable>0.5</probabilityMoveable>\n"
+				+ "		<maxInitialVelocity>15</maxInitialVelocity>\n"
+				+ "		<probabilityFuelType>0.2</probabilityFuelType>\n"
+				+ "		<probabilityWaterType>0.5</probabilityWaterType>\n"
+				+ "		<probabilityMetalsType>0.3</probabilityMetalsType>\n"
+				+ "	</randomAsteroids>\n"
+				+ "</SpaceSettlersConfig>\n");
+		writeClientConfig("a-clientinit.xml", RandomInitializeTeamClient.class.getName(), "Ladder A");
+		writeClientConfig("b-clientinit.xml", "spacesettlers.clients.DoNothingTeamClient", "Ladder B");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private void writeFile(String fileName, String contents) throws IOException {
+		FileWriter writer = new FileWriter(new File(directory, fileName));
+		writer.write(contents);
+		writer.close();
+	}
+
+	private void writeClientConfig(String fileName, String className, String ladderName) throws IOException {
+		writeFile(fileName, "<TeamClientConfig>\n"
+				+ "	<classname>" + className + "</classname>\n"
+				+ "	<ladderName>" + ladderName + "</ladderName>\n"
+				+ "	<numberInitialShipsInTeam>2</numberInitialShipsInTeam>\n"
+				+ "</TeamClientConfig>\n");
+	}
+
+	/**
+	 * Make a simulator from command line arguments (the config arguments are added)
+	 */
+	private SpaceSettlersSimulator makeSimulator(String... args) throws Exception {
+		String[] allArgs = new String[args.length + 4];
+		allArgs[0] = "--simulatorConfigFile";
+		allArgs[1] = "SpaceSettlersConfig.xml";
+		allArgs[2] = "--configPath";
+		allArgs[3] = directory.getPath() + File.separator;
+		System.arraycopy(args, 0, allArgs, 4, args.length);
+		return new SpaceSettlersSimulator(new RunSimulator(allArgs).config);
+	}
+
+	/**
+	 * Describe the exact state of every object and team at the end of a game (but
+	 * not the ids, since objects that respawn are given a new random id)
+	 */
+	private List<String> describe(SpaceSettlersSimulator simulator) {
+		List<String> descriptions = new ArrayList<String>();
+		for (AbstractObject object : simulator.getAllObjects()) {
+			Position position = object.getPosition();
+			String description = object.getClass().getSimpleName() + " " + position.getX() + " " + position.getY() + " "
+					+ position.getOrientation() + " " + position.getTranslationalVelocity() + " "
+					+ object.isAlive() + " " + object.getResources();
+			if (object instanceof AbstractActionableObject) {
+				description += " " + ((AbstractActionableObject) object).getEnergy();
+			}
+			descriptions.add(description);
+		}
+		for (Team team : simulator.getTeams()) {
+			descriptions.add(team.getTeamName() + " " + team.getScore() + " " + team.getTotalResources());
+		}
+		return descriptions;
+	}
+
+	/**
+	 * Play a game that saves a checkpoint part way through, then restore the
+	 * checkpoint and play the rest of the game again
+	 */
+	@Test
+	public void testRestoredGameEndsLikeOriginal() throws Exception {
+		SpaceSettlersSimulator original = makeSimulator("--checkpointFile", checkpointFile.getPath(),
+				"--checkpointInterval", "120");
+		original.run();
+		original.shutdownTeams();
+		assertTrue(checkpointFile.exists());
+
+		SpaceSettlersSimulator restored = makeSimulator("--restoreCheckpoint", checkpointFile.getPath());
+		assertEquals(120, restored.getTimestep());
+		restored.run();
+		restored.shutdownTeams();
+
+		assertEquals(describe(original), describe(restored));
+	}
+}
@@ -0,0 +1,153 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Ensures the spatial hash collision detection finds exactly the same
+ * collisions (in the same order) as testing all pairs of objects
+ */
+public class TestSpatialHashCollisions {
+	Toroidal2DPhysics allPairsSpace, spatialHashSpace;
+	RecordingCollisionHandler allPairsHandler, spatialHashHandler;
+	int height = 480;
+	int width = 640;
+	double timestep = 0.05;
+
+	/**
+	 * Remembers every pair of objects that collided (and then collides them)
+	 */
+	class RecordingCollisionHandler extends CollisionHandler {
+		List<String> collisions = new ArrayList<String>();
+
+		public void collide(AbstractObject object1, AbstractObject object2, Toroidal2DPhysics space) {
+			collisions.add(object1.getId() + " " + object2.getId());
+			super.collide(object1, object2, space);
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		allPairsSpace = new Toroidal2DPhysics(height, width, timestep);
+	}
+
+	/**
+	 * Make the second space (a copy of the first one) and set up the handlers
+	 */
+	private void copySpaces() {
+		spatialHashSpace = allPairsSpace.deepClone();
+		allPairsSpace.setCollisionDetection(Toroidal2DPhysics.ALL_PAIRS_COLLISIONS);
+		spatialHashSpace.setCollisionDetection(Toroidal2DPhysics.SPATIAL_HASH_COLLISIONS);
+		allPairsHandler = new RecordingCollisionHandler();
+		spatialHashHandler = new RecordingCollisionHandler();
+		allPairsSpace.collisionHandler = allPairsHandler;
+		spatialHashSpace.collisionHandler = spatialHashHandler;
+	}
+
+	/**
+	 * Step both spaces forward and make sure they saw the same collisions
+	 *
+	 * @param numSteps
+	 */
+	private void stepAndCompare(int numSteps) {
+		HashMap<UUID, SpaceSettlersPowerupEnum> noPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		Random random1 = new Random(7);
+		Random random2 = new Random(7);
+		for (int step = 0; step < numSteps; step++) {
+			allPairsSpace.advanceTime(random1, step, noPowerups);
+			spatialHashSpace.advanceTime(random2, step, noPowerups);
+			assertEquals(allPairsHandler.collisions, spatialHashHandler.collisions);
+		}
+	}
+
+	/**
+	 * Lots of moving objects of very different sizes, many of them crowded around
+	 * the edges so they collide across the wrap-around
+	 */
+	@Test
+	public void testSameCollisionsWithMixedRadii() {
+		Random random = new Random(42);
+		for (int i = 0; i < 150; i++) {
+			double x, y;
+			if (i % 3 == 0) {
+				// near the corners and the edges
+				x = (random.nextBoolean() ? 0 : width) + random.nextGaussian() * 20;
+				y = (random.nextBoolean() ? 0 : height) + random.nextGaussian() * 20;
+			} else {
+				x = random.nextDouble() * width;
+				y = random.nextDouble() * height;
+			}
+			Position position = new Position(x, y);
+			allPairsSpace.toroidalWrap(position);
+			boolean moveable = random.nextDouble() < 0.8;
+			if (moveable) {
+				position.setTranslationalVelocity(new Vector2D(random.nextGaussian() * 60, random.nextGaussian() * 60));
+			}
+			int radius = (random.nextDouble() < 0.1) ? 30 + random.nextInt(30) : 3 + random.nextInt(12);
+			allPairsSpace.addObject(new Asteroid(position, false, radius, moveable, 0, 0, 0));
+		}
+
+		copySpaces();
+		stepAndCompare(40);
+		assertTrue(allPairsHandler.collisions.size() > 0);
+	}
+
+	/**
+	 * A single object bigger than the whole space collides with everything
+	 */
+	@Test
+	public void testObjectLargerThanSpace() {
+		allPairsSpace.addObject(new Asteroid(new Position(width / 2, height / 2), false, 1000, false, 0, 0, 0));
+		for (int i = 0; i < 20; i++) {
+			Position position = new Position((i * 37) % width, (i * 53) % height);
+			position.setTranslationalVelocity(new Vector2D(10, -5));
+			allPairsSpace.addObject(new Asteroid(position, false, 5, true, 0, 0, 0));
+		}
+
+		copySpaces();
+		stepAndCompare(5);
+		assertTrue(allPairsHandler.collisions.size() >= 20);
+	}
+
+	/**
+	 * The grid returns every index stored in the cells near a query (across the
+	 * wrap-around) and nothing twice
+	 */
+	@Test
+	public void testGridQueryWraps() {
+		SpatialHashGrid grid = new SpatialHashGrid();
+		grid.reset(width, height, 32, 4);
+		grid.insert(0, 2, 2, 5);
+		grid.insert(1, width - 2, height - 2, 5);
+		grid.insert(2, width / 2, height / 2, 5);
+		grid.insert(3, 0, 0, 300);
+
+		int numFound = grid.query(width - 1, 1, 3, 0);
+		assertEquals(3, numFound);
+		assertEquals(0, grid.results[0]);
+		assertEquals(1, grid.results[1]);
+		assertEquals(3, grid.results[2]);
+
+		// and the minimum index is respected after moving an index
+		grid.move(0, width / 2, height / 2, 5);
+		numFound = grid.query(width / 2, height / 2, 1, 1);
+		assertEquals(2, numFound);
+		assertEquals(2, grid.results[0]);
+		assertEquals(3, grid.results[1]);
+	}
+}
@@ -0,0 +1,298 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Beacon;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Ensures the nearest object and radius queries return exactly what looking at
+ * every object would return
+ */
+public class TestSpatialQueries {
+	Toroidal2DPhysics space;
+	int height = 480;
+	int width = 640;
+	double timestep = 0.05;
+
+	@Before
+	public void setUp() throws Exception {
+		space = new Toroidal2DPhysics(height, width, timestep);
+	}
+
+	/**
+	 * Fill the space with asteroids and beacons, a third of them near the edges
+	 *
+	 * @param numObjects
+	 * @param random
+	 */
+	private void fillSpace(int numObjects, Random random) {
+		for (int i = 0; i < numObjects; i++) {
+			double x, y;
+			if (i % 3 == 0) {
+				x = (random.nextBoolean() ? 0 : width) + random.nextGaussian() * 10;
+				y = (random.nextBoolean() ? 0 : height) + random.nextGaussian() * 10;
+			} else {
+				x = random.nextDouble() * width;
+				y = random.nextDouble() * height;
+			}
+			Position position = new Position(x, y);
+			space.toroidalWrap(position);
+			if (i % 4 == 0) {
+				space.addObject(new Beacon(position));
+			} else {
+				position.setTranslationalVelocity(new Vector2D(random.nextGaussian() * 30, random.nextGaussian() * 30));
+				space.addObject(new Asteroid(position, random.nextBoolean(), 5, true, 0, 0, 0));
+			}
+		}
+	}
+
+	/**
+	 * The objects sorted by distance (and then by the order of the space), found
+	 * by looking at every object
+	 */
+	private <T extends AbstractObject> List<T> sortByDistance(Position location, Class<T> type, double radius) {
+		List<T> sorted = new ArrayList<T>();
+		List<Double> distances = new ArrayList<Double>();
+		for (AbstractObject object : space.getAllObjects()) {
+			if (!type.isInstance(object)) {
+				continue;
+			}
+			double distance = space.findShortestDistance(location, object.getPosition());
+			if (distance > radius) {
+				continue;
+			}
+			int i = sorted.size();
+			while (i > 0 && distances.get(i - 1) > distance) {
+				i--;
+			}
+			sorted.add(i, type.cast(object));
+			distances.add(i, distance);
+		}
+		return sorted;
+	}
+
+	/**
+	 * Compare every kind of query at a location against looking at every object
+	 */
+	private void checkQueries(Position location) {
+		List<AbstractObject> all = sortByDistance(location, AbstractObject.class, Double.POSITIVE_INFINITY);
+		assertSame(all.get(0), space.findNearest(location, AbstractObject.class));
+
+		List<Beacon> beacons = sortByDistance(location, Beacon.class, Double.POSITIVE_INFINITY);
+		assertSame(beacons.get(0), space.findNearest(location, Beacon.class));
+
+		assertEquals(all.subList(0, 7), space.findKNearest(location, 7, AbstractObject.class));
+		assertEquals(sortByDistance(location, Asteroid.class, 75), space.findObjectsWithinRadius(location, 75, Asteroid.class));
+
+		// the nearest mineable asteroid
+		Asteroid nearestMineable = null;
+		for (Asteroid asteroid : sortByDistance(location, Asteroid.class, Double.POSITIVE_INFINITY)) {
+			if (asteroid.isMineable()) {
+				nearestMineable = asteroid;
+				break;
+			}
+		}
+		assertSame(nearestMineable, space.findNearestMatching(location, Asteroid.class, new Predicate<Asteroid>() {
+			public boolean test(Asteroid asteroid) {
+				return asteroid.isMineable();
+			}
+		}));
+	}
+
+	/**
+	 * Lots of locations (including ones near the edges) in a space with lots of
+	 * objects
+	 */
+	@Test
+	public void testQueriesMatchLinearScan() {
+		Random random = new Random(11);
+		fillSpace(300, random);
+
+		for (int i = 0; i < 200; i++) {
+			Position location = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			checkQueries(location);
+		}
+		checkQueries(new Position(0, 0));
+		checkQueries(new Position(width - 0.5, height - 0.5));
+	}
+
+	/**
+	 * Only a few objects (so most of the grid is empty) and queries that ask for
+	 * more than there is
+	 */
+	@Test
+	public void testFewObjects() {
+		space.addObject(new Beacon(new Position(10, 10)));
+		space.addObject(new Beacon(new Position(width - 10, height - 10)));
+		space.addObject(new Asteroid(new Position(width / 2, height / 2), false, 5, false, 0, 0, 0));
+
+		Position corner = new Position(0, 0);
+		assertSame(sortByDistance(corner, Beacon.class, 100).get(0), space.findNearest(corner, Beacon.class));
+		assertEquals(2, space.findObjectsWithinRadius(corner, 100, Beacon.class).size());
+		assertEquals(3, space.findKNearest(corner, 10, AbstractObject.class).size());
+		assertEquals(0, space.findKNearest(corner, 0, AbstractObject.class).size());
+		assertNull(space.findNearestMatching(corner, Asteroid.class, new Predicate<Asteroid>() {
+			public boolean test(Asteroid asteroid) {
+				return asteroid.isMineable();
+			}
+		}));
+	}
+
+	/**
+	 * The index has to follow the objects as they move, are added and removed
+	 */
+	@Test
+	public void testQueriesAfterSpaceChanges() {
+		Random random = new Random(5);
+		fillSpace(100, random);
+		HashMap<UUID, SpaceSettlersPowerupEnum> noPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+
+		Position location = new Position(width / 3, height / 3);
+		for (int step = 0; step < 20; step++) {
+			checkQueries(location);
+			space.advanceTime(random, step, noPowerups);
+		}
+
+		Beacon beacon = new Beacon(new Position(width / 3 + 1, height / 3));
+		space.addObject(beacon);
+		assertSame(beacon, space.findNearest(location, AbstractObject.class));
+		space.removeObject(beacon);
+		checkQueries(location);
+
+		// and the read-only snapshot answers the same way
+		Toroidal2DPhysics snapshot = space.getSnapshot();
+		assertEquals(space.findNearest(location, Beacon.class).getId(), snapshot.findNearest(location, Beacon.class).getId());
+	}
+
+	/**
+	 * A copy of the space that a client moves objects around in answers from where
+	 * the objects are now
+	 */
+	@Test
+	public void testQueriesAfterMovingObjectsInACopy() {
+		Random random = new Random(11);
+		fillSpace(100, random);
+		Toroidal2DPhysics copy = space.getSnapshot().deepClone();
+		space = copy;
+
+		Position location = new Position(width / 3, height / 3);
+		checkQueries(location);
+		for (int i = 0; i < 10; i++) {
+			AbstractObject object = copy.findNearest(location, AbstractObject.class);
+			object.getPosition().setX(object.getPosition().getX() + width / 2);
+			checkQueries(location);
+		}
+	}
+
+	/**
+	 * Is the location free, found by looking at every object
+	 */
+	private boolean isFreeByScan(Position location, int radius) {
+		for (AbstractObject object : space.getAllObjects()) {
+			if (space.findShortestDistance(object.getPosition(), location) <= (radius + (2 * object.getRadius()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Ensure the indexed free location test gives the same answers as looking at
+	 * every object (in the space, a snapshot and after objects move)
+	 */
+	@Test
+	public void testIsLocationFree() {
+		Random random = new Random(9);
+		fillSpace(300, random);
+		Toroidal2DPhysics snapshot = space.getSnapshot();
+
+		for (int i = 0; i < 2000; i++) {
+			Position location = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			int radius = random.nextInt(30);
+			boolean isFree = isFreeByScan(location, radius);
+			assertEquals(isFree, space.isLocationFree(location, radius));
+			assertEquals(isFree, snapshot.isLocationFree(location, radius));
+		}
+
+		for (AbstractObject object : space.getAllObjects()) {
+			object.getPosition().setX(random.nextDouble() * width);
+		}
+		for (int i = 0; i < 2000; i++) {
+			Position location = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			int radius = random.nextInt(30);
+			assertEquals(isFreeByScan(location, radius), space.isLocationFree(location, radius));
+		}
+	}
+
+	/**
+	 * Ensure the layout grid gives the same answers as looking at every object,
+	 * including for objects added after it was made (and past its starting size)
+	 */
+	@Test
+	public void testPlacementGrid() {
+		Random random = new Random(13);
+		fillSpace(100, random);
+		PlacementGrid grid = new PlacementGrid(space.getAllObjects(), width, height, 10);
+
+		for (int i = 0; i < 200; i++) {
+			Asteroid asteroid = new Asteroid(new Position(random.nextDouble() * width, random.nextDouble() * height),
+					false, random.nextInt(20) + 1, false, 1, 0, 0);
+			space.addObject(asteroid);
+			grid.add(asteroid);
+		}
+
+		for (int i = 0; i < 2000; i++) {
+			Position location = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			int radius = random.nextInt(30);
+			assertEquals(isFreeByScan(location, radius), grid.isFree(location.getX(), location.getY(), radius));
+		}
+	}
+
+	/**
+	 * Ensure the placement grid the space keeps still gives the same answers as
+	 * looking at every object after objects move, are removed and are added
+	 */
+	@Test
+	public void testPlacementGridFollowsTheSpace() {
+		Random random = new Random(17);
+		fillSpace(200, random);
+		FreeSpaceIndex index = space.getPlacementIndex();
+		assertSame(index, space.getPlacementIndex());
+
+		for (int step = 0; step < 5; step++) {
+			space.advanceTime(random, step, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+			AbstractObject object = space.getAllObjects().iterator().next();
+			if (step % 2 == 0) {
+				space.removeObject(object);
+			} else {
+				object.getPosition().setX(random.nextDouble() * width);
+			}
+			space.addObject(new Asteroid(new Position(random.nextDouble() * width, random.nextDouble() * height),
+					false, random.nextInt(20) + 1, false, 1, 0, 0));
+
+			assertSame(index, space.getPlacementIndex());
+			for (int i = 0; i < 500; i++) {
+				Position location = new Position(random.nextDouble() * width, random.nextDouble() * height);
+				int radius = random.nextInt(30);
+				assertEquals(isFreeByScan(location, radius), index.isFree(location.getX(), location.getY(), radius));
+			}
+		}
+	}
+}
@@ -1,15 +1,30 @@
 package spacesettlers.simulator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.awt.Color;
+import java.util.HashMap;
 import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import spacesettlers.simulator.Toroidal2DPhysics;
+import spacesettlers.actions.AbstractAction;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Beacon;
+import spacesettlers.objects.Drone;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
 import spacesettlers.utilities.Movement;
 import spacesettlers.utilities.Position;
 import spacesettlers.utilities.Vector2D;
@@ -345,4 +360,446 @@ public class TestToroidal2DPhysics {
 	}
 	
 
+	/**
+	 * The snapshot of a team is built once, shared until the space changes, and
+	 * never shares objects with the real space
+	 */
+	@Test
+	public void testSnapshotIsSharedUntilInvalidated() {
+		Asteroid asteroid = new Asteroid(new Position(10, 10), false, 10, true, 0, 0, 0);
+		space.addObject(asteroid);
+
+		Toroidal2DPhysics snapshot = space.getSnapshot("team1");
+		assertTrue(snapshot.isSnapshot());
+		assertSame(snapshot, space.getSnapshot("team1"));
+		assertSame(snapshot, snapshot.getSnapshot("team1"));
+		assertEquals(1, snapshot.getAsteroids().size());
+		assertNotSame(asteroid, snapshot.getObjectById(asteroid.getId()));
+
+		// changing the space throws the old snapshot away
+		space.addObject(new Asteroid(new Position(100, 100), false, 10, true, 0, 0, 0));
+		Toroidal2DPhysics newSnapshot = space.getSnapshot("team1");
+		assertNotSame(snapshot, newSnapshot);
+		assertEquals(2, newSnapshot.getAsteroids().size());
+		assertEquals(1, snapshot.getAsteroids().size());
+	}
+
+	/**
+	 * The objects in a snapshot (and their positions and resources) can't be
+	 * changed, every team gets its own copies and a deepClone can be changed
+	 */
+	@Test
+	public void testSnapshotObjectsAreReadOnly() {
+		Asteroid asteroid = new Asteroid(new Position(10, 10), false, 10, true, 0, 0, 0);
+		space.addObject(asteroid);
+
+		Toroidal2DPhysics snapshot1 = space.getSnapshot("team1");
+		Toroidal2DPhysics snapshot2 = space.getSnapshot("team2");
+		assertNotSame(snapshot1, snapshot2);
+
+		AbstractObject copy1 = snapshot1.getObjectById(asteroid.getId());
+		AbstractObject copy2 = snapshot2.getObjectById(asteroid.getId());
+		assertNotSame(copy1, copy2);
+		assertNotSame(copy1.getPosition(), copy2.getPosition());
+		assertTrue(copy1.isReadOnly());
+		assertTrue(copy1.getPosition().isReadOnly());
+		assertTrue(copy1.getResources().isReadOnly());
+		assertFalse(asteroid.isReadOnly());
+		// kept snapshot objects must not keep their snapshot alive
+		assertNull(copy1.getLifecycleListener());
+		assertSame(space, asteroid.getLifecycleListener());
+
+		try {
+			copy1.getPosition().setX(500);
+			fail("a snapshot position was changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			copy1.setAlive(false);
+			fail("a snapshot object was changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			copy1.getResources().reset();
+			fail("a snapshot resource pile was changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(10, copy1.getPosition().getX(), 0);
+		assertTrue(copy1.isAlive());
+
+		// a private copy can be changed
+		AbstractObject privateCopy = copy1.deepClone();
+		assertFalse(privateCopy.isReadOnly());
+		privateCopy.getPosition().setX(500);
+		privateCopy.setAlive(false);
+		Position position = copy1.getPosition().deepCopy();
+		position.setX(300);
+		assertEquals(10, copy1.getPosition().getX(), 0);
+		assertFalse(snapshot1.deepClone().isSnapshot());
+
+		// the real object is not changed
+		asteroid.getPosition().setX(20);
+		assertEquals(20, asteroid.getPosition().getX(), 0);
+	}
+
+	/**
+	 * The ships in a snapshot can't be changed through their powerups or the
+	 * copies of other objects they hold
+	 */
+	@Test
+	public void testSnapshotShipsAreReadOnly() {
+		Ship ship = new Ship("team1", Color.RED, new Position(50, 50));
+		ship.addPowerup(SpaceSettlersPowerupEnum.FIRE_MISSILE);
+		space.addObject(ship);
+
+		Ship copy = (Ship) space.getSnapshot("team1").getObjectById(ship.getId());
+		assertTrue(copy.getCurrentPowerups().contains(SpaceSettlersPowerupEnum.FIRE_MISSILE));
+		try {
+			copy.getCurrentPowerups().clear();
+			fail("the powerups of a snapshot ship were changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			copy.updateEnergy(-100);
+			fail("a snapshot ship was changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(1, ship.getCurrentPowerups().size());
+	}
+
+	/**
+	 * Clients cannot change the snapshot
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSnapshotIsReadOnly() {
+		space.getSnapshot("team1").addObject(new Asteroid(new Position(10, 10), false, 10, true, 0, 0, 0));
+	}
+
+	/**
+	 * Clients cannot change the sets inside the snapshot either
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSnapshotSetsAreReadOnly() {
+		space.addObject(new Asteroid(new Position(10, 10), false, 10, true, 0, 0, 0));
+		space.getSnapshot("team1").getAsteroids().clear();
+	}
+
+	/**
+	 * A deep clone of a snapshot is a private copy that can be changed
+	 */
+	@Test
+	public void testDeepCloneOfSnapshotIsWritable() {
+		Toroidal2DPhysics copy = space.getSnapshot("team1").deepClone();
+		assertTrue(!copy.isSnapshot());
+		copy.addObject(new Asteroid(new Position(10, 10), false, 10, true, 0, 0, 0));
+		assertEquals(1, copy.getAsteroids().size());
+		assertEquals(0, space.getAsteroids().size());
+	}
+
+	/**
+	 * The squared distance and the distance written into an array agree with the
+	 * distance vector, including when the shortest way wraps around the edges
+	 */
+	@Test
+	public void testPrimitiveDistancesMatchVector() {
+		Random random = new Random(11);
+		double[] distance = new double[2];
+		for (int i = 0; i < 1000; i++) {
+			Position location1 = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			Position location2 = new Position(random.nextDouble() * width, random.nextDouble() * height);
+			Vector2D vector = space.findShortestDistanceVector(location1, location2);
+
+			space.findShortestDistanceVector(location1, location2, distance);
+			assertEquals(vector.getXValue(), distance[0], 0);
+			assertEquals(vector.getYValue(), distance[1], 0);
+			assertEquals(vector.getMagnitude() * vector.getMagnitude(), space.findShortestDistanceSquared(location1, location2), 1e-6);
+			assertEquals(vector.getMagnitude(), space.findShortestDistance(location1, location2), 0);
+		}
+	}
+
+	/**
+	 * Moving a position in place gives exactly the same answer as applyMovement
+	 * (which leaves the old position alone)
+	 */
+	@Test
+	public void testApplyMovementInPlaceMatchesApplyMovement() {
+		Random random = new Random(12);
+		for (int i = 0; i < 1000; i++) {
+			Position start = new Position(random.nextDouble() * width, random.nextDouble() * height, random.nextDouble() * 6 - 3);
+			start.setTranslationalVelocity(random.nextGaussian() * 100, random.nextGaussian() * 100);
+			start.setAngularVelocity(random.nextGaussian());
+			Movement movement = new Movement();
+			movement.setTranslationalAcceleration(new Vector2D(random.nextGaussian() * 50, random.nextGaussian() * 50));
+			movement.setAngularAccleration(random.nextGaussian());
+			String startString = start.toString();
+
+			Position moved = space.applyMovement(start, movement, 0.05);
+			assertEquals(startString, start.toString());
+
+			space.applyMovementInPlace(start, movement, 0.05);
+			assertEquals(moved.toString(), start.toString());
+			assertTrue(start.getX() >= 0 && start.getX() < width);
+			assertTrue(start.getY() >= 0 && start.getY() < height);
+		}
+	}
+
+	/**
+	 * Objects get small simulation ids, copies of the space keep the ids and the id
+	 * of an object that left is never given to a new object
+	 */
+	@Test
+	public void testSimulationIds() {
+		Asteroid asteroid1 = new Asteroid(new Position(10, 10), false, 10, true, 0.2, 0.3, 0.5);
+		Asteroid asteroid2 = new Asteroid(new Position(100, 100), false, 10, true, 0.2, 0.3, 0.5);
+		assertEquals(-1, asteroid1.getSimulationId());
+		space.addObject(asteroid1);
+		space.addObject(asteroid2);
+
+		assertEquals(0, asteroid1.getSimulationId());
+		assertEquals(1, asteroid2.getSimulationId());
+		assertSame(asteroid2, space.getObjectById(1));
+		assertSame(asteroid2, space.getObjectById(asteroid2.getId()));
+		assertNull(space.getObjectById(2));
+		assertNull(space.getObjectById(-1));
+
+		Toroidal2DPhysics copy = space.deepClone();
+		AbstractObject copy2 = copy.getObjectById(1);
+		assertNotSame(asteroid2, copy2);
+		assertEquals(asteroid2.getId(), copy2.getId());
+
+		space.removeObject(asteroid1);
+		assertNull(space.getObjectById(0));
+		Asteroid asteroid3 = new Asteroid(new Position(200, 200), false, 10, true, 0.2, 0.3, 0.5);
+		space.addObject(asteroid3);
+		assertEquals(2, asteroid3.getSimulationId());
+		assertSame(asteroid3, space.getObjectById(2));
+		assertNull(space.getObjectById(0));
+
+		// the copy gives out the same new ids as the space it was made from
+		Asteroid asteroid4 = new Asteroid(new Position(300, 300), false, 10, true, 0.2, 0.3, 0.5);
+		copy.addObject(asteroid4);
+		assertEquals(2, asteroid4.getSimulationId());
+		Toroidal2DPhysics copy3 = space.deepClone();
+		copy3.addObject(asteroid4.deepClone());
+		assertEquals(3, copy3.getObjectById(asteroid4.getId()).getSimulationId());
+	}
+
+	/**
+	 * An action that pushes the ship to the right after waiting a while
+	 */
+	@SuppressWarnings("serial")
+	static class PushAction extends AbstractAction {
+		long sleepMillis;
+
+		PushAction(long sleepMillis) {
+			this.sleepMillis = sleepMillis;
+		}
+
+		public Movement getMovement(Toroidal2DPhysics space, Ship ship) {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException e) {
+				// cancelled by the timeout
+			}
+			Movement movement = new Movement();
+			movement.setTranslationalAcceleration(new Vector2D(10, 0));
+			return movement;
+		}
+
+		public Movement getMovement(Toroidal2DPhysics space, Drone drone) {
+			return new Movement();
+		}
+
+		public boolean isMovementFinished(Toroidal2DPhysics space) {
+			return false;
+		}
+	}
+
+	/**
+	 * Ensure the actions are asked on the team threads, a slow action does not
+	 * move its ship and the time of each action is recorded
+	 */
+	@Test
+	public void testMovementTimeout() throws InterruptedException {
+		Ship fastShip = new Ship("team1", Color.BLUE, new Position(100, 100));
+		Ship slowShip = new Ship("team1", Color.BLUE, new Position(300, 300));
+		fastShip.setCurrentAction(new PushAction(0));
+		slowShip.setCurrentAction(new PushAction(2000));
+		space.addObject(fastShip);
+		space.addObject(slowShip);
+
+		StepProfiler profiler = new StepProfiler();
+		space.setProfiler(profiler);
+		space.setMovementTimeout(100);
+		long startTime = System.nanoTime();
+		space.advanceTime(new Random(0), 0, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+		long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+		space.shutdownMovementWorkers();
+
+		assertTrue(elapsedMillis < 1000);
+		assertTrue(fastShip.getPosition().getxVelocity() > 0);
+		assertEquals(0, slowShip.getPosition().getxVelocity(), 0);
+
+		// the slow action is interrupted and still records its time
+		for (int i = 0; i < 100 && profiler.getActionHistogram("PushAction").getCount() < 2; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(2, profiler.getActionHistogram("PushAction").getCount());
+		assertTrue(profiler.getReport().contains("action PushAction"));
+	}
+
+	/**
+	 * An action that never returns costs its team one thread, and the other teams
+	 * keep moving
+	 */
+	@Test
+	public void testHungActionThreadsAreBounded() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		Ship movingShip = new Ship("team1", Color.BLUE, new Position(100, 100));
+		Ship hungShip = new Ship("team2", Color.RED, new Position(300, 300));
+		movingShip.setCurrentAction(new PushAction(0));
+		hungShip.setCurrentAction(new AbstractAction() {
+			public Movement getMovement(Toroidal2DPhysics space, Ship ship) {
+				// ignores being interrupted
+				while (true) {
+					try {
+						release.await();
+						return new Movement();
+					} catch (InterruptedException e) {
+						// keep waiting
+					}
+				}
+			}
+
+			public Movement getMovement(Toroidal2DPhysics space, Drone drone) {
+				return new Movement();
+			}
+
+			public boolean isMovementFinished(Toroidal2DPhysics space) {
+				return false;
+			}
+		});
+		space.addObject(movingShip);
+		space.addObject(hungShip);
+
+		space.setMovementTimeout(50);
+		try {
+			for (int step = 0; step < 5; step++) {
+				movingShip.getPosition().setTranslationalVelocity(new Vector2D(0, 0));
+				space.advanceTime(new Random(0), step, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+				assertTrue(movingShip.getPosition().getxVelocity() > 0);
+				assertEquals(0, hungShip.getPosition().getxVelocity(), 0);
+				assertTrue(space.movementWorkers.getNumRunningWorkers() <= 2);
+			}
+		} finally {
+			release.countDown();
+			space.shutdownMovementWorkers();
+		}
+	}
+
+	/**
+	 * Ensure the objects that die are cleaned up or respawned at the end of the
+	 * step (and ships wait as many steps as they used to)
+	 */
+	@Test
+	public void testDeadObjectsAreCleanedUpAndRespawned() {
+		Asteroid mineable = new Asteroid(new Position(10, 10), true, 10, true, 0.2, 0.3, 0.5);
+		Asteroid plain = new Asteroid(new Position(100, 10), false, 10, true, 0.2, 0.3, 0.5);
+		Beacon beacon = new Beacon(new Position(200, 10));
+		Ship ship = new Ship("team1", Color.BLUE, new Position(300, 300));
+		space.addObject(mineable);
+		space.addObject(plain);
+		space.addObject(beacon);
+		space.addObject(ship);
+
+		mineable.setAlive(false);
+		plain.setAlive(false);
+		beacon.setAlive(false);
+		ship.setAlive(false);
+		Random random = new Random(0);
+
+		assertEquals(1, space.cleanupDeadObjects());
+		assertFalse(space.getAllObjects().contains(mineable));
+		assertFalse(space.getAllObjects().contains(plain));
+		space.respawnDeadObjects(random);
+		assertTrue(beacon.isAlive());
+
+		// a ship that dies for the first time waits 32 steps (counting this one)
+		for (int step = 1; step < 32; step++) {
+			assertFalse(ship.isAlive());
+			assertEquals(0, space.cleanupDeadObjects());
+			space.respawnDeadObjects(random);
+		}
+		assertTrue(ship.isAlive());
+
+		// a respawned beacon has a new UUID and still respawns the next time
+		beacon.setAlive(false);
+		space.cleanupDeadObjects();
+		space.respawnDeadObjects(random);
+		assertTrue(beacon.isAlive());
+	}
+
+	/**
+	 * Ensure a crowded region still gets a free location (or a clear failure when
+	 * it is full) instead of trying forever
+	 */
+	@Test
+	public void testRandomFreeLocationInCrowdedSpace() {
+		// a wall of asteroids everywhere except a small gap around (320, 240) (so most
+		// random locations land on an asteroid)
+		for (int x = 10; x < width; x += 20) {
+			for (int y = 10; y < height; y += 20) {
+				if (Math.abs(x - 320) > 30 || Math.abs(y - 240) > 30) {
+					space.addObject(new Asteroid(new Position(x, y), false, 2, false, 0.2, 0.3, 0.5));
+				}
+			}
+		}
+		Random random = new Random(3);
+
+		for (int i = 0; i < 20; i++) {
+			Position location = space.getRandomFreeLocation(random, 10);
+			assertTrue(space.isLocationFree(location, 10));
+		}
+
+		Position location = space.getRandomFreeLocationInRegion(random, 10, 0, 0, 100, 100);
+		assertNull(location);
+		location = space.getRandomFreeLocationInRegion(random, 10, 30, 30, 40);
+		assertNull(location);
+	}
+
+	/**
+	 * Ensure laying out objects with the bulk placement grid chooses exactly the
+	 * locations that placing them one at a time does
+	 */
+	@Test
+	public void testBulkPlacementMatchesPlacement() {
+		Toroidal2DPhysics bulkSpace = new Toroidal2DPhysics(height, width, timestep);
+		bulkSpace.startBulkPlacement(10);
+		Random random = new Random(21);
+		Random bulkRandom = new Random(21);
+
+		for (int i = 0; i < 150; i++) {
+			int radius = random.nextInt(10) + 5;
+			bulkRandom.nextInt(10);
+			Position location = space.getRandomFreeLocation(random, radius * 2);
+			Position bulkLocation = bulkSpace.getRandomFreeLocation(bulkRandom, radius * 2);
+			if (location == null) {
+				assertNull(bulkLocation);
+				break;
+			}
+			assertEquals(location.getX(), bulkLocation.getX(), 0);
+			assertEquals(location.getY(), bulkLocation.getY(), 0);
+
+			space.addObject(new Asteroid(location, false, radius, false, 0.2, 0.3, 0.5));
+			bulkSpace.addObject(new Asteroid(bulkLocation, false, radius, false, 0.2, 0.3, 0.5));
+		}
+
+		assertEquals(space.getAllObjects().size(), bulkSpace.getAllObjects().size());
+	}
+
 }
@@ -0,0 +1,75 @@
+package spacesettlers.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestIntObjectMap {
+
+	/**
+	 * Ensure the map grows for large keys and keeps count of its keys
+	 */
+	@Test
+	public void testPutGetRemove() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(3, "three"));
+		assertNull(map.put(100, "hundred"));
+		assertEquals("three", map.put(3, "THREE"));
+		assertEquals(2, map.size());
+
+		assertEquals("THREE", map.get(3));
+		assertEquals("hundred", map.get(100));
+		assertNull(map.get(4));
+		assertNull(map.get(-1));
+		assertNull(map.get(1000));
+		assertArrayEquals(new int[] { 3, 100 }, map.keys());
+
+		assertEquals("THREE", map.remove(3));
+		assertNull(map.remove(3));
+		assertFalse(map.containsKey(3));
+		assertEquals(1, map.size());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(100));
+	}
+
+	/**
+	 * Ensure the keys can still be found after many puts and removes (the map
+	 * grows and removes move keys that collided)
+	 */
+	@Test
+	public void testManyKeys() {
+		IntObjectMap<Integer> map = new IntObjectMap<Integer>();
+		for (int key = 0; key < 1000; key++) {
+			map.put(key * 37, key);
+		}
+		assertEquals(1000, map.size());
+		for (int key = 0; key < 1000; key += 2) {
+			assertEquals(Integer.valueOf(key), map.remove(key * 37));
+		}
+		assertEquals(500, map.size());
+
+		for (int key = 0; key < 1000; key++) {
+			if (key % 2 == 0) {
+				assertNull(map.get(key * 37));
+			} else {
+				assertEquals(Integer.valueOf(key), map.get(key * 37));
+			}
+		}
+
+		int[] keys = map.keys();
+		assertEquals(500, keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals((2 * i + 1) * 37, keys[i]);
+		}
+
+		assertNull(map.put(Integer.MAX_VALUE, -1));
+		assertEquals(Integer.valueOf(-1), map.get(Integer.MAX_VALUE));
+	}
+}
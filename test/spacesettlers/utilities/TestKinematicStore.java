@@ -0,0 +1,134 @@
+package spacesettlers.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestKinematicStore {
+	KinematicStore store;
+	List<Position> positions;
+	int width = 640;
+	int height = 480;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new KinematicStore();
+		positions = new ArrayList<Position>();
+		Random random = new Random(11);
+		for (int i = 0; i < 100; i++) {
+			Position position = new Position(random.nextDouble() * width, random.nextDouble() * height,
+					random.nextDouble());
+			position.setTranslationalVelocity(random.nextGaussian() * 30, random.nextGaussian() * 30);
+			position.setAngularVelocity(random.nextGaussian());
+			positions.add(position);
+			store.add(position);
+		}
+	}
+
+	/**
+	 * Ensure every position still reads and writes its own slot
+	 */
+	private void checkViews() {
+		assertEquals(positions.size(), store.size());
+		for (Position position : positions) {
+			int slot = store.getSlot(position);
+			assertSame(position, store.getPosition(slot));
+			assertEquals(store.getX(slot), position.getX(), 0);
+			assertEquals(store.getY(slot), position.getY(), 0);
+		}
+	}
+
+	/**
+	 * Ensure a position keeps its values when it goes into and out of the store
+	 */
+	@Test
+	public void testAddAndRemove() {
+		Position position = positions.remove(10);
+		position.setX(12.5);
+		store.remove(position);
+
+		assertEquals(-1, store.getSlot(position));
+		assertEquals(12.5, position.getX(), 0);
+		checkViews();
+
+		// a position in another store is not taken from it
+		KinematicStore other = new KinematicStore();
+		assertEquals(-1, other.add(positions.get(0)));
+		checkViews();
+	}
+
+	/**
+	 * Ensure a new position takes the slot (and not the values) of the old one
+	 */
+	@Test
+	public void testReplace() {
+		Position oldPosition = positions.get(5);
+		int slot = store.getSlot(oldPosition);
+		double oldX = oldPosition.getX();
+		Position newPosition = new Position(1, 2);
+
+		oldPosition.replaceWith(newPosition);
+		positions.set(5, newPosition);
+
+		assertEquals(slot, store.getSlot(newPosition));
+		assertEquals(-1, store.getSlot(oldPosition));
+		assertEquals(oldX, oldPosition.getX(), 0);
+		assertEquals(1, newPosition.getX(), 0);
+		checkViews();
+	}
+
+	/**
+	 * Ensure putting the slots in Morton order does not change any position
+	 */
+	@Test
+	public void testReorder() {
+		List<String> before = new ArrayList<String>();
+		for (Position position : positions) {
+			before.add(position.toString());
+		}
+
+		store.reorder(width, height);
+
+		List<String> after = new ArrayList<String>();
+		for (Position position : positions) {
+			after.add(position.toString());
+		}
+		assertEquals(before, after);
+		checkViews();
+	}
+
+	/**
+	 * Ensure the sweep moves the marked slots the same way a position moves along
+	 * its velocity (and leaves the others alone)
+	 */
+	@Test
+	public void testIntegrate() {
+		double timeStep = 0.05;
+		List<Position> expected = new ArrayList<Position>();
+		for (int i = 0; i < positions.size(); i++) {
+			Position position = positions.get(i);
+			Position copy = position.deepCopy();
+			if (i % 2 == 0) {
+				store.setIntegrated(store.getSlot(position), true);
+				double x = copy.getX() + copy.getxVelocity() * timeStep;
+				double y = copy.getY() + copy.getyVelocity() * timeStep;
+				copy.setX((x + width) % width);
+				copy.setY((y + height) % height);
+			}
+			expected.add(copy);
+		}
+
+		store.integrate(timeStep, width, height);
+
+		for (int i = 0; i < positions.size(); i++) {
+			assertEquals(expected.get(i).getX(), positions.get(i).getX(), 1e-9);
+			assertEquals(expected.get(i).getY(), positions.get(i).getY(), 1e-9);
+		}
+	}
+}
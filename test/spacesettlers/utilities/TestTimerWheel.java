@@ -0,0 +1,51 @@
+package spacesettlers.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTimerWheel {
+	TimerWheel<String> wheel;
+
+	@Before
+	public void setUp() throws Exception {
+		wheel = new TimerWheel<String>(8);
+	}
+
+	/**
+	 * Ensure items come out on their step in the order they were scheduled
+	 */
+	@Test
+	public void testRemoveDue() {
+		wheel.schedule("a", 3);
+		wheel.schedule("b", 1);
+		wheel.schedule("c", 3);
+		assertEquals(3, wheel.size());
+
+		assertTrue(wheel.removeDue(0).isEmpty());
+		assertEquals(Arrays.asList("b"), wheel.removeDue(1));
+		assertTrue(wheel.removeDue(2).isEmpty());
+		assertEquals(Arrays.asList("a", "c"), wheel.removeDue(3));
+		assertTrue(wheel.isEmpty());
+	}
+
+	/**
+	 * Ensure items more than one turn away wait for their own step
+	 */
+	@Test
+	public void testLongDelays() {
+		wheel.schedule("soon", 5);
+		wheel.schedule("later", 13);
+		wheel.schedule("much later", 21);
+
+		assertEquals(Arrays.asList("soon"), wheel.removeDue(5));
+		assertEquals(2, wheel.size());
+		assertEquals(Arrays.asList("later"), wheel.removeDue(13));
+		assertEquals(Arrays.asList("much later"), wheel.removeDue(21));
+		assertTrue(wheel.isEmpty());
+	}
+}
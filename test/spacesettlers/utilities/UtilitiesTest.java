@@ -6,6 +6,9 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
   TestVector2D.class,
+  TestKinematicStore.class,
+  TestIntObjectMap.class,
+  TestTimerWheel.class,
 })
 
 public class UtilitiesTest {